@@ -1,30 +1,85 @@
 package com.DA2.Repparton.Config;
 
+import com.DA2.Repparton.Service.TrendingSongsLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
 
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    // Default Caffeine spec per cache; override with app.cache.spec.<name> in application.properties
+    private static final Map<String, String> DEFAULT_SPECS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_SPECS.put("users", "maximumSize=10000,expireAfterWrite=10m");
+        DEFAULT_SPECS.put("userSummaries", "maximumSize=20000,expireAfterWrite=10m");
+        DEFAULT_SPECS.put("profiles", "maximumSize=5000,expireAfterWrite=5m");
+        DEFAULT_SPECS.put("songs", "maximumWeight=200000,expireAfterWrite=10m");
+        DEFAULT_SPECS.put("posts", "maximumWeight=50000,expireAfterWrite=2m");
+        DEFAULT_SPECS.put("trending", "maximumSize=100,expireAfterWrite=30m,refreshAfterWrite=1m");
+        DEFAULT_SPECS.put("trendingPosts", "maximumSize=100,expireAfterWrite=5m");
+        DEFAULT_SPECS.put("recommendations", "maximumWeight=500000,expireAfterWrite=15m");
+        DEFAULT_SPECS.put("notifications", "maximumWeight=200000,expireAfterWrite=5m");
+        DEFAULT_SPECS.put("genres", "maximumSize=1000,expireAfterWrite=1h");
+    }
+
+    private static final String FALLBACK_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+
     @Bean
-    public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-        cacheManager.setCacheNames(Arrays.asList(
-            "users",
-            "profiles",
-            "songs",
-            "posts",
-            "trending",
-            "recommendations",
-            "notifications",
-            "genres"
-        ));
+    public CacheManager cacheManager(Environment env, TrendingSongsLoader trendingSongsLoader) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Caches not listed above still get a bound instead of growing forever
+        cacheManager.setCaffeine(builder(env.getProperty("app.cache.spec.default", FALLBACK_SPEC)));
+
+        DEFAULT_SPECS.forEach((name, defaultSpec) -> {
+            Caffeine<Object, Object> builder = builder(env.getProperty("app.cache.spec." + name, defaultSpec));
+            if ("trending".equals(name)) {
+                // Refreshes run on the Caffeine executor; readers get the old list until the reload finishes
+                cacheManager.registerCustomCache(name, builder.build(trendingSongsLoader));
+            } else {
+                cacheManager.registerCustomCache(name, builder.build());
+            }
+        });
         return cacheManager;
     }
+
+    @Bean(PageableKeyGenerator.BEAN_NAME)
+    public PageableKeyGenerator pageableKeyGenerator() {
+        return new PageableKeyGenerator();
+    }
+
+    private static Caffeine<Object, Object> builder(String spec) {
+        Caffeine<Object, Object> builder = Caffeine.from(spec);
+        if (!spec.contains("recordStats")) {
+            // Needed for the cache.gets / cache.evictions / cache.load meters exported through Actuator
+            builder.recordStats();
+        }
+        if (spec.contains("maximumWeight")) {
+            builder.weigher(ENTRY_WEIGHER);
+        }
+        return builder;
+    }
+
+    // Weigh list and page entries by element count so one large result costs more than a single document
+    private static final Weigher<Object, Object> ENTRY_WEIGHER = (key, value) -> {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Page<?> page) {
+            return Math.max(1, page.getNumberOfElements());
+        }
+        return 1;
+    };
 }
@@ -0,0 +1,271 @@
+package com.DA2.Repparton.Config;
+
+import com.mongodb.CursorType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets several nodes running the in-memory broker deliver to each other's sessions (broker mode "mongo").
+ * Every message this node's application code sends to /topic, /queue or /user is queued and written, in
+ * batches, to a capped collection. Each node tails that collection and replays messages from other nodes
+ * into its own broker channel, where they reach local subscribers as if they had been sent locally.
+ * /user destinations are relayed before resolution, so the node holding the user's session resolves them.
+ * Delivery is best effort like the broker itself: a full queue drops messages, and a node only sees messages
+ * written after it started.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker.mode", havingValue = "mongo")
+public class MongoBrokerRelay implements ChannelInterceptor {
+
+    private static final String RELAYED_HEADER = "reppartonRelayed";
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final AbstractSubscribableChannel brokerChannel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<Document> outbox;
+    private final Counter published;
+    private final Counter received;
+    private final Counter dropped;
+
+    @Value("${app.websocket.broker.mongo.collection:stomp_relay}")
+    private String collectionName;
+
+    @Value("${app.websocket.broker.mongo.size-bytes:67108864}")
+    private long collectionSizeBytes;
+
+    private volatile boolean running = true;
+    // _id of the last relay document read, only touched by the subscriber thread
+    private Object lastSeen;
+    private Thread publisher;
+    private Thread subscriber;
+
+    public MongoBrokerRelay(MongoTemplate mongoTemplate,
+                            @Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.websocket.broker.mongo.max-pending:10000}") int maxPending) {
+        this.mongoTemplate = mongoTemplate;
+        this.brokerChannel = brokerChannel;
+        this.outbox = new ArrayBlockingQueue<>(maxPending);
+        this.published = Counter.builder("repparton.websocket.relay.published")
+                .description("Broker messages written for other nodes")
+                .register(meterRegistry);
+        this.received = Counter.builder("repparton.websocket.relay.received")
+                .description("Broker messages replayed from other nodes")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("repparton.websocket.relay.dropped")
+                .description("Broker messages not relayed because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("repparton.websocket.relay.pending", outbox, BlockingQueue::size)
+                .description("Broker messages waiting to be written for other nodes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        createCollection();
+        brokerChannel.addInterceptor(this);
+        publisher = daemon("stomp-relay-publisher", this::publishLoop);
+        subscriber = daemon("stomp-relay-subscriber", this::subscribeLoop);
+        System.out.println("STOMP relay through MongoDB collection " + collectionName + " started, node " + nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        brokerChannel.removeInterceptor(this);
+        publisher.interrupt();
+        subscriber.interrupt();
+    }
+
+    // Runs on the sending thread, so it only queues; the write happens on the publisher thread
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(RELAYED_HEADER)
+                // Already resolved to one of this node's sessions
+                || headers.containsKey(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !(destination.startsWith("/topic/") || destination.startsWith("/queue/")
+                || destination.startsWith("/user/"))) {
+            return message;
+        }
+
+        Document document = new Document("node", nodeId)
+                .append("destination", destination)
+                .append("payload", new Binary(payload));
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            document.append("contentType", contentType.toString());
+        }
+        if (!outbox.offer(document)) {
+            dropped.increment();
+        }
+        return message;
+    }
+
+    private void publishLoop() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                batch.add(outbox.take());
+                outbox.drainTo(batch, BATCH_SIZE - 1);
+                collection.insertMany(batch, new InsertManyOptions().ordered(false));
+                published.increment(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.out.println("Failed to relay " + batch.size() + " broker messages - " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Tailable cursor on the capped collection, reopened after errors
+    private void subscribeLoop() {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        while (running) {
+            try {
+                tail(collection);
+            } catch (Exception e) {
+                if (running) {
+                    System.out.println("STOMP relay cursor failed, reopening - " + e.getMessage());
+                }
+            }
+            sleepQuietly(1000);
+        }
+    }
+
+    /**
+     * Reads the collection in natural (insertion) order and replays every document after lastSeen, until the
+     * cursor dies or the relay stops. ObjectIds come from each writer's clock, so they are not ordered across
+     * nodes; the position is the last document read, and a reopened cursor skips up to it instead of filtering
+     * on _id. If that document has been overwritten, everything left in the collection is newer and is replayed.
+     */
+    void tail(MongoCollection<Document> collection) {
+        if (lastSeen == null) {
+            // Start after the newest document, so only messages written from now on are replayed
+            Document newest = collection.find().sort(new Document("$natural", -1)).limit(1).first();
+            lastSeen = newest != null ? newest.get("_id") : null;
+        }
+        boolean caughtUp = lastSeen == null || collection.find(Filters.eq("_id", lastSeen)).first() == null;
+        if (lastSeen != null && caughtUp) {
+            System.out.println("STOMP relay position was overwritten, replaying the whole collection");
+        }
+        try (MongoCursor<Document> cursor = collection.find()
+                .cursorType(CursorType.TailableAwait)
+                .maxAwaitTime(1, TimeUnit.SECONDS)
+                .iterator()) {
+            while (running) {
+                Document document = cursor.tryNext();
+                if (document == null) {
+                    if (!caughtUp) {
+                        // Overwritten while we were skipping to it
+                        System.out.println("STOMP relay position was lost, some broker messages were not replayed");
+                        caughtUp = true;
+                    }
+                    if (cursor.getServerCursor() == null) {
+                        break;
+                    }
+                    continue;
+                }
+                Object id = document.get("_id");
+                if (!caughtUp) {
+                    caughtUp = id.equals(lastSeen);
+                    continue;
+                }
+                lastSeen = id;
+                if (!nodeId.equals(document.getString("node"))) {
+                    replay(document);
+                }
+            }
+        }
+    }
+
+    private void replay(Document document) {
+        String destination = document.getString("destination");
+        Binary payload = document.get("payload", Binary.class);
+        if (destination == null || payload == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        String contentType = document.getString("contentType");
+        if (contentType != null) {
+            accessor.setContentType(MimeType.valueOf(contentType));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        try {
+            brokerChannel.send(MessageBuilder.createMessage(payload.getData(), accessor.getMessageHeaders()));
+            received.increment();
+        } catch (Exception e) {
+            System.out.println("Failed to deliver relayed message to " + destination + " - " + e.getMessage());
+        }
+    }
+
+    private void createCollection() {
+        try {
+            if (!mongoTemplate.collectionExists(collectionName)) {
+                mongoTemplate.createCollection(collectionName, CollectionOptions.empty().capped().size(collectionSizeBytes));
+            }
+            // A tailable cursor on an empty capped collection dies at once, so make sure there is a document
+            mongoTemplate.getCollection(collectionName).insertOne(new Document("node", nodeId));
+        } catch (Exception e) {
+            System.out.println("Could not prepare STOMP relay collection " + collectionName + " - " + e.getMessage());
+        }
+    }
+
+    private Thread daemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.DA2.Repparton.Config;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Method;
+
+/**
+ * Builds String cache keys of the form "methodName:arg1:arg2..." where a Pageable
+ * is expanded to page, size and sort. Keys sharing a leading argument share a prefix
+ * (e.g. "getSongsByGenre:<genreId>:"), which is what SongCacheEvictor uses for targeted eviction.
+ */
+public class PageableKeyGenerator implements KeyGenerator {
+
+    public static final String BEAN_NAME = "pageableKeyGenerator";
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return key(method.getName(), params);
+    }
+
+    public static String key(String methodName, Object... params) {
+        StringBuilder key = new StringBuilder(methodName);
+        for (Object param : params) {
+            key.append(':').append(render(param));
+        }
+        return key.toString();
+    }
+
+    public static String prefix(String methodName, Object firstParam) {
+        return methodName + ':' + render(firstParam) + ':';
+    }
+
+    private static String render(Object param) {
+        if (param instanceof Pageable pageable) {
+            if (pageable.isUnpaged()) {
+                return "unpaged";
+            }
+            return "p" + pageable.getPageNumber() + "s" + pageable.getPageSize() + render(pageable.getSort());
+        }
+        if (param instanceof Sort sort) {
+            if (sort.isUnsorted()) {
+                return "";
+            }
+            StringBuilder rendered = new StringBuilder();
+            sort.forEach(order -> rendered.append('[').append(order.getProperty())
+                    .append(order.isAscending() ? "+" : "-").append(']'));
+            return rendered.toString();
+        }
+        return String.valueOf(param);
+    }
+}
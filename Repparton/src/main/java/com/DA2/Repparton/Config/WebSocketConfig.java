@@ -1,18 +1,99 @@
 package com.DA2.Repparton.Config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * STOMP over WebSocket. app.websocket.broker.mode picks how messages reach subscribers:
+ * simple - in-memory broker, single node only;
+ * mongo  - in-memory broker on every node, with MongoBrokerRelay copying broker traffic between nodes
+ *          through a capped collection, so no extra infrastructure is needed;
+ * relay  - external STOMP broker (e.g. ActiveMQ Artemis); needs reactor-netty on the classpath.
+ * Channel thread pools and per-session send limits are configurable; WebSocketMetrics exports the gauges.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final Timer sendTimer;
+
+    @Value("${app.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${app.websocket.broker.relay-host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.broker.relay-port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.broker.relay-login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.broker.relay-passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${app.websocket.inbound.pool-size:0}")
+    private int inboundPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.pool-size:0}")
+    private int outboundPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:50000}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimit;
+
+    @Value("${app.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    public WebSocketConfig(MeterRegistry meterRegistry) {
+        this.sendTimer = Timer.builder("repparton.websocket.send")
+                .description("Time to hand one STOMP frame to a client session")
+                .register(meterRegistry);
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue"); // nơi client sẽ nhận
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            if (!ClassUtils.isPresent("reactor.netty.tcp.TcpClient", getClass().getClassLoader())) {
+                throw new IllegalStateException("app.websocket.broker.mode=relay needs reactor-netty; "
+                        + "add spring-boot-starter-reactor-netty or use mode simple or mongo");
+            }
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // Lets a node deliver /user destinations for sessions connected to another node
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue"); // nơi client sẽ nhận
+        }
         config.setApplicationDestinationPrefixes("/app"); // nơi client sẽ gửi
         config.setUserDestinationPrefix("/user");
     }
@@ -22,5 +103,64 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // endpoint cho client connect
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
     }
-}
 
+    // Bounded queues: a burst beyond the queue grows the pool up to its max instead of queueing without limit
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        int poolSize = poolSize(inboundPoolSize);
+        registration.taskExecutor()
+                .corePoolSize(poolSize)
+                .maxPoolSize(poolSize * 4)
+                .queueCapacity(inboundQueueCapacity)
+                .keepAliveSeconds(60);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        int poolSize = poolSize(outboundPoolSize);
+        registration.taskExecutor()
+                .corePoolSize(poolSize)
+                .maxPoolSize(poolSize * 4)
+                .queueCapacity(outboundQueueCapacity)
+                .keepAliveSeconds(60);
+        registration.interceptors(new SendTimingInterceptor(sendTimer));
+    }
+
+    // A session whose buffered frames exceed the size or the time limit is closed rather than held in memory
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    private static int poolSize(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    // beforeHandle and afterMessageHandled run on the same outbound executor thread
+    private static class SendTimingInterceptor implements ExecutorChannelInterceptor {
+
+        private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+        private final Timer timer;
+
+        SendTimingInterceptor(Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+            startedAt.set(System.nanoTime());
+            return message;
+        }
+
+        @Override
+        public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+            Long start = startedAt.get();
+            if (start != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                startedAt.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.DA2.Repparton.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.concurrent.Executor;
+import java.util.function.ToIntFunction;
+
+/**
+ * Micrometer gauges for the STOMP transport: connected sessions per transport, sessions closed for
+ * exceeding the send limits, and the queue depth of the inbound and outbound channel executors.
+ * Send latency is timed in WebSocketConfig.
+ */
+@Component
+public class WebSocketMetrics {
+
+    public WebSocketMetrics(MeterRegistry meterRegistry, WebSocketMessageBrokerStats stats,
+                            @Qualifier("clientInboundChannelExecutor") Executor inboundExecutor,
+                            @Qualifier("clientOutboundChannelExecutor") Executor outboundExecutor) {
+        sessions(meterRegistry, stats, "websocket", SubProtocolWebSocketHandler.Stats::getWebSocketSessions);
+        sessions(meterRegistry, stats, "http-streaming", SubProtocolWebSocketHandler.Stats::getHttpStreamingSessions);
+        sessions(meterRegistry, stats, "http-polling", SubProtocolWebSocketHandler.Stats::getHttpPollingSessions);
+        Gauge.builder("repparton.websocket.sessions.limit.exceeded", stats,
+                        s -> value(s, SubProtocolWebSocketHandler.Stats::getLimitExceededSessions))
+                .description("Sessions closed because their send buffer or send time limit was exceeded")
+                .register(meterRegistry);
+        queue(meterRegistry, inboundExecutor, "inbound");
+        queue(meterRegistry, outboundExecutor, "outbound");
+    }
+
+    private static void sessions(MeterRegistry meterRegistry, WebSocketMessageBrokerStats stats, String transport,
+                                 ToIntFunction<SubProtocolWebSocketHandler.Stats> count) {
+        Gauge.builder("repparton.websocket.sessions", stats, s -> value(s, count))
+                .description("Connected STOMP sessions")
+                .tag("transport", transport)
+                .register(meterRegistry);
+    }
+
+    private static void queue(MeterRegistry meterRegistry, Executor executor, String channel) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            Gauge.builder("repparton.websocket.queue", pool, ThreadPoolTaskExecutor::getQueueSize)
+                    .description("Messages waiting for a channel thread")
+                    .tag("channel", channel)
+                    .register(meterRegistry);
+            Gauge.builder("repparton.websocket.threads.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                    .description("Channel threads currently handling a message")
+                    .tag("channel", channel)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static double value(WebSocketMessageBrokerStats stats, ToIntFunction<SubProtocolWebSocketHandler.Stats> count) {
+        SubProtocolWebSocketHandler.Stats sessionStats = stats.getWebSocketSessionStats();
+        return sessionStats != null ? count.applyAsInt(sessionStats) : 0;
+    }
+}
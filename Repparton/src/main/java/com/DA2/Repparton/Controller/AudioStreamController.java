@@ -0,0 +1,186 @@
+package com.DA2.Repparton.Controller;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Security.StreamTokenService;
+import com.DA2.Repparton.Service.AudioCache;
+import com.DA2.Repparton.Service.AudioStreamService;
+import com.DA2.Repparton.Service.ByteRange;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Audio delivery with Range / If-Range support, served from AudioCache.
+ * An audio element cannot send an Authorization header, so players first get a stream token from
+ * POST /api/songs/{id}/stream-token and load the returned URL; the play is then recorded for the token's user.
+ * Without a token only approved public songs stream, and plays are counted per remote address.
+ * A request starting at byte 0 counts as a play, so players no longer need POST /api/songs/{id}/play.
+ * Pass playlistId to have the next songs of the playlist prefetched into the cache.
+ */
+@RestController
+@RequestMapping("/api/songs")
+@CrossOrigin(origins = "*", exposedHeaders = {"Accept-Ranges", "Content-Range", "Content-Length", "ETag"})
+public class AudioStreamController {
+
+    // Tomcat's sendfile request attributes: the connector writes the file region itself after the handler returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private AudioStreamService audioStreamService;
+
+    @Autowired
+    private StreamTokenService streamTokenService;
+
+    @PostMapping("/{id}/stream-token")
+    public ResponseEntity<?> issueStreamToken(@PathVariable String id, Authentication auth) {
+        String userId = auth != null ? audioStreamService.findUserId(auth.getName()) : null;
+        if (userId == null) {
+            return ResponseEntity.status(401).body("Authentication required");
+        }
+        if (audioStreamService.findStreamableSong(id, auth.getName()).isEmpty()) {
+            return ResponseEntity.status(404).body("Song not found");
+        }
+        StreamTokenService.StreamToken token = streamTokenService.issue(id, userId);
+        return ResponseEntity.ok(Map.of(
+                "token", token.token(),
+                "expiresAt", token.expiresAtMillis(),
+                "url", "/api/songs/" + id + "/stream?token=" + token.token()));
+    }
+
+    @RequestMapping(value = "/{id}/stream", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void streamSong(@PathVariable String id,
+                           @RequestParam(required = false) String token,
+                           @RequestParam(required = false) String playlistId,
+                           HttpServletRequest request,
+                           HttpServletResponse response,
+                           Authentication auth) throws IOException {
+        // The token was issued after the access check, so it is the only check needed
+        String userId = null;
+        Optional<Song> found;
+        if (token != null) {
+            Optional<String> holder = streamTokenService.verify(token, id);
+            if (holder.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired stream token");
+                return;
+            }
+            userId = holder.get();
+            found = audioStreamService.findStreamableSong(id);
+        } else {
+            found = audioStreamService.findStreamableSong(id, auth != null ? auth.getName() : null);
+        }
+        if (found.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Song not found");
+            return;
+        }
+        Song song = found.get();
+
+        AudioCache.CachedAudio audio;
+        try {
+            audio = audioStreamService.open(song);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY, "Audio unavailable: " + e.getMessage());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, audio.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=86400");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), audio.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long size = audio.size();
+        Optional<ByteRange> range;
+        try {
+            range = ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), audio.etag())
+                    ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), size)
+                    : Optional.empty();
+        } catch (ByteRange.NotSatisfiableException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, e.getMessage());
+            return;
+        }
+
+        long start = range.map(ByteRange::start).orElse(0L);
+        long length = range.map(ByteRange::length).orElse(size);
+        if (range.isPresent()) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.get().contentRange(size));
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentType(contentType(song.getAudioUrl()));
+        response.setContentLengthLong(length);
+
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (start == 0) {
+            if (userId == null && auth != null) {
+                userId = audioStreamService.findUserId(auth.getName());
+            }
+            String listener = userId != null ? "user:" + userId : "addr:" + request.getRemoteAddr();
+            audioStreamService.onPlaybackStart(song, listener, userId, playlistId);
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, audio.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            audioStreamService.recordBytesServed(length);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(audio.path(), StandardOpenOption.READ)) {
+            long written = AudioStreamService.transfer(file, start, length,
+                    Channels.newChannel(response.getOutputStream()));
+            audioStreamService.recordBytesServed(written);
+        } catch (IOException e) {
+            // Listener seeked or went away mid-response; nothing to report back
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return ifNoneMatch.trim().equals("*")
+                || Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+                        .anyMatch(tag -> tag.equals(etag) || tag.equals("W/" + etag));
+    }
+
+    // If-Range needs a strong match; a date is never a match since the cached copy has no stable Last-Modified
+    private static boolean ifRangeMatches(String ifRange, String etag) {
+        return ifRange == null || ifRange.trim().equals(etag);
+    }
+
+    private static String contentType(String audioUrl) {
+        String path;
+        try {
+            path = URI.create(audioUrl).getPath();
+        } catch (IllegalArgumentException e) {
+            path = audioUrl;
+        }
+        return MediaTypeFactory.getMediaType(path != null ? path : audioUrl)
+                .map(MediaType::toString)
+                .orElse("audio/mpeg");
+    }
+}
@@ -1,6 +1,7 @@
 package com.DA2.Repparton.Controller;
 
 import com.DA2.Repparton.DTO.CommentDTO;
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Comment;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Service.CommentService;
@@ -10,7 +11,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -53,13 +53,17 @@ public class CommentController {
     }
 
     @GetMapping("/song/{songId}")
-    public List<CommentDTO> getComments(@PathVariable String songId) {
-        return commentService.getCommentsBySong(songId);
+    public CursorPageDTO<CommentDTO> getComments(@PathVariable String songId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        return commentService.getCommentsBySong(songId, cursor, size);
     }
 
     @GetMapping("/reply/{parentId}")
-    public ResponseEntity<?> getReplies(@PathVariable String parentId) {
-        return ResponseEntity.ok(commentService.getReplies(parentId));
+    public ResponseEntity<?> getReplies(@PathVariable String parentId,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getReplies(parentId, cursor, size));
     }
 
     // Comment on posts
@@ -97,9 +101,11 @@ public class CommentController {
     }
 
     @GetMapping("/post/{postId}")
-    public ResponseEntity<?> getPostComments(@PathVariable String postId) {
+    public ResponseEntity<?> getPostComments(@PathVariable String postId,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
         try {
-            var comments = commentService.getCommentsByPost(postId);
+            var comments = commentService.getCommentsByPost(postId, cursor, size);
             return ResponseEntity.ok(comments);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -133,11 +139,13 @@ public class CommentController {
     }
 
     @GetMapping("/playlist/{playlistId}")
-    public ResponseEntity<?> getPlaylistComments(@PathVariable String playlistId) {
+    public ResponseEntity<?> getPlaylistComments(@PathVariable String playlistId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "20") int size) {
         try {
             System.out.println("DEBUG: Getting comments for playlist: " + playlistId);
-            var comments = commentService.getCommentsByPlaylist(playlistId);
-            System.out.println("DEBUG: Found " + comments.size() + " comments");
+            var comments = commentService.getCommentsByPlaylist(playlistId, cursor, size);
+            System.out.println("DEBUG: Found " + comments.getContent().size() + " comments");
             return ResponseEntity.ok(comments);
         } catch (Exception e) {
             System.err.println("DEBUG: Error getting playlist comments: " + e.getMessage());
@@ -1,7 +1,9 @@
 package com.DA2.Repparton.Controller;
 
 import com.DA2.Repparton.DTO.ConversationDTO;
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Conversation;
+import com.DA2.Repparton.Entity.DuoMessage;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Service.MessageService;
 import com.DA2.Repparton.Service.UserService;
@@ -10,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -81,6 +84,8 @@ public class MessageController {
 
     @GetMapping("/conversation")
     public ResponseEntity<?> getConversation(@RequestParam String receiverId,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "50") int size,
                                             Authentication auth) {
         try {
             String senderEmail = auth.getName();
@@ -94,11 +99,8 @@ public class MessageController {
             }
             
             var conversation = messageService.getOrCreateConversation(sender.getId(), receiverId);
-            var messages = messageService.getMessages(conversation.getId());
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", messages
-            ));
+            var messages = messageService.getMessages(conversation.getId(), cursor, size);
+            return ResponseEntity.ok(messagePage(messages));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "success", false,
@@ -109,6 +111,8 @@ public class MessageController {
 
     @GetMapping("/conversation/{convId}")
     public ResponseEntity<?> getMessages(@PathVariable String convId,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "50") int size,
                                         Authentication auth) {
         try {
             String userEmail = auth.getName();
@@ -121,11 +125,8 @@ public class MessageController {
                 ));
             }
             
-            var messages = messageService.getMessages(convId);
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", messages
-            ));
+            var messages = messageService.getMessages(convId, cursor, size);
+            return ResponseEntity.ok(messagePage(messages));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "success", false,
@@ -225,5 +226,14 @@ public class MessageController {
             ));
         }
     }
-}
 
+    // nextCursor is null on the last page, which Map.of does not allow
+    private static Map<String, Object> messagePage(CursorPageDTO<DuoMessage> page) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", true);
+        body.put("data", page.getContent());
+        body.put("nextCursor", page.getNextCursor());
+        body.put("hasMore", page.isHasMore());
+        return body;
+    }
+}
@@ -1,15 +1,12 @@
 package com.DA2.Repparton.Controller;
 
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Notification;
 import com.DA2.Repparton.Service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,11 +19,10 @@ public class NotificationController {
     @GetMapping
     public ResponseEntity<?> getNotifications(
             @RequestParam String userId,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Notification> notifications = notificationService.getNotifications(userId, pageable);
+            CursorPageDTO<Notification> notifications = notificationService.getNotifications(userId, cursor, size);
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -34,9 +30,12 @@ public class NotificationController {
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<?> getNotificationsByUserId(@PathVariable String userId) {
+    public ResponseEntity<?> getNotificationsByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Notification> notifications = notificationService.getNotifications(userId);
+            CursorPageDTO<Notification> notifications = notificationService.getNotifications(userId, cursor, size);
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -53,6 +52,12 @@ public class NotificationController {
         }
     }
 
+    @PutMapping("/read-all")
+    public ResponseEntity<?> markAllAsRead(@RequestParam String userId) {
+        notificationService.markAllAsRead(userId);
+        return ResponseEntity.ok(Map.of("unread", 0));
+    }
+
     @PostMapping("/read/{id}")
     public ResponseEntity<?> markAsRead(@PathVariable String id, @RequestParam String userId) {
         notificationService.markAsRead(id, userId);
@@ -1,13 +1,12 @@
 package com.DA2.Repparton.Controller;
 
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.DTO.PostDTO;
+import com.DA2.Repparton.Service.KeysetPaginator;
 import com.DA2.Repparton.Service.PostService;
 import com.DA2.Repparton.Service.UserService;
 import com.DA2.Repparton.Entity.User;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -52,11 +51,10 @@ public class PostController {
 
     @GetMapping("/public")
     public ResponseEntity<?> getAllPosts(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<PostDTO> posts = postService.getPublicPosts(pageable);
+            CursorPageDTO<PostDTO> posts = postService.getPublicPosts(cursor, size);
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -66,11 +64,10 @@ public class PostController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getPostsByUser(
             @PathVariable String userId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<PostDTO> posts = postService.getPostsByUser(userId, pageable);
+            CursorPageDTO<PostDTO> posts = postService.getPostsByUser(userId, cursor, size);
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -79,13 +76,13 @@ public class PostController {
 
     @GetMapping("/feed")
     public ResponseEntity<?> getUserFeed(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size,
             Authentication auth) {
         try {
             String userId = getCurrentUserId(auth);
-            Pageable pageable = PageRequest.of(page, size);
-            Page<PostDTO> posts = postService.getFeed(userId, pageable);
+            CursorPageDTO<PostDTO> posts = postService.getFeed(userId, cursor,
+                    Math.min(Math.max(size, 1), KeysetPaginator.MAX_PAGE_SIZE));
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -2,7 +2,11 @@ package com.DA2.Repparton.Controller;
 
 import com.DA2.Repparton.DTO.SongDTO;
 import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Entity.TranscodeJob;
+import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Service.SongService;
+import com.DA2.Repparton.Service.TranscodeService;
+import com.DA2.Repparton.Service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -25,6 +29,12 @@ public class SongController {
     @Autowired
     private SongService songService;
 
+    @Autowired
+    private TranscodeService transcodeService;
+
+    @Autowired
+    private UserService userService;
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadSong(
             @RequestParam String title,
@@ -164,6 +174,45 @@ public class SongController {
         }
     }
 
+    @GetMapping("/{id}/transcode")
+    public ResponseEntity<?> getTranscodeStatus(@PathVariable String id) {
+        try {
+            Optional<TranscodeJob> job = transcodeService.getLatestJob(id);
+            if (job.isPresent()) {
+                return ResponseEntity.ok(Map.of("success", true, "job", job.get()));
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Queues a song for (re)transcoding, e.g. songs uploaded before renditions existed
+    @PostMapping("/{id}/transcode")
+    public ResponseEntity<?> transcodeSong(@PathVariable String id, Authentication auth) {
+        try {
+            Optional<Song> song = songService.getSongById(id);
+            if (song.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            // Only the artist or an admin can spend transcoding time on a song
+            User currentUser = auth != null ? userService.findByEmail(auth.getName()) : null;
+            if (currentUser == null || !(currentUser.getId().equals(song.get().getArtistId())
+                    || "admin".equals(currentUser.getRole()))) {
+                return ResponseEntity.status(403).body("Unauthorized");
+            }
+            TranscodeJob job = transcodeService.enqueue(song.get());
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Transcoding queued",
+                "job", job
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/{id}/approve")
     public ResponseEntity<?> approveSong(@PathVariable String id, Authentication auth) {
         try {
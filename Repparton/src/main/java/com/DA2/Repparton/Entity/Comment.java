@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -14,6 +16,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "comments")
+@CompoundIndexes({
+        @CompoundIndex(name = "song_thread_idx", def = "{'songId': 1, 'parentId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "post_thread_idx", def = "{'postId': 1, 'parentId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "playlist_thread_idx", def = "{'playlistId': 1, 'parentId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "parent_created_idx", def = "{'parentId': 1, 'createdAt': 1, '_id': 1}")
+})
 public class Comment {
     @Id
     private String id;
@@ -2,9 +2,11 @@ package com.DA2.Repparton.Entity;
 
 import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "duo_messages")
+@CompoundIndex(name = "conversation_sent_idx", def = "{'conversationId': 1, 'sentAt': -1, '_id': -1}")
 public class DuoMessage {
     @Id
     private String id;
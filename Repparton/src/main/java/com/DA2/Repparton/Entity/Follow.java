@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -14,6 +16,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "follows")
+@CompoundIndexes({
+        @CompoundIndex(name = "follower_artist_idx", def = "{'followerId': 1, 'artistId': 1}"),
+        @CompoundIndex(name = "artist_follower_idx", def = "{'artistId': 1, 'followerId': 1}")
+})
 public class Follow {
     @Id
     private String id;
@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -14,6 +17,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "notifications")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "user_read_idx", def = "{'userId': 1, 'isRead': 1}")
+})
 public class Notification {
     @Id
     private String id;
@@ -23,6 +30,8 @@ public class Notification {
     private String message;
     private String referenceId;
     private boolean isRead = false;
+    // Notifications are removed by MongoDB after the retention period
+    @Indexed(name = "created_ttl_idx", expireAfter = "90d")
     private LocalDateTime createdAt;
 
     // Constructor đầy đủ thủ công
@@ -0,0 +1,26 @@
+package com.DA2.Repparton.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Unread notification count for one user, maintained by UnreadCounterService.
+ * The id is always stored as a string, so hex user ids are not turned into ObjectIds on some paths and not others.
+ * seeded is set once unread has been reconciled with the notifications collection; before that it only holds
+ * the increments made since the document was created.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "notification_counters")
+public class NotificationCounter {
+
+    @MongoId(FieldType.STRING)
+    private String userId;
+    private long unread;
+    private boolean seeded;
+}
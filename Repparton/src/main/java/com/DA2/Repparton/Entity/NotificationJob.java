@@ -0,0 +1,68 @@
+package com.DA2.Repparton.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox entry for a notification that goes to many users.
+ * The job is written next to the change that caused it and delivered in chunks by NotificationFanOutService;
+ * cursor records the last recipient written, so a restarted job continues where it stopped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "notification_jobs")
+@CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': 1}")
+public class NotificationJob {
+
+    public static final String FOLLOWERS = "FOLLOWERS";
+    public static final String USERS = "USERS";
+    public static final String ROLE = "ROLE";
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    // FOLLOWERS of the user in audienceKey, USERS listed in userIds, or everyone with ROLE audienceKey
+    private String audience;
+    private String audienceKey;
+    private List<String> userIds;
+
+    private String message;
+    private String type;
+    private String referenceId;
+
+    private String status;
+    private String cursor;
+    private long delivered;
+    private int attempts;
+    private LocalDateTime lockedUntil;
+    private LocalDateTime createdAt;
+
+    // Finished jobs are removed by MongoDB a week after completion
+    @Indexed(name = "completed_ttl_idx", expireAfter = "7d")
+    private LocalDateTime completedAt;
+
+    public NotificationJob(String audience, String audienceKey, List<String> userIds,
+                           String message, String type, String referenceId) {
+        this.audience = audience;
+        this.audienceKey = audienceKey;
+        this.userIds = userIds;
+        this.message = message;
+        this.type = type;
+        this.referenceId = referenceId;
+        this.status = PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -2,9 +2,15 @@ package com.DA2.Repparton.Entity;
 
 import java.time.LocalDateTime;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "posts")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "public_created_idx", def = "{'isPrivate': 1, 'createdAt': -1, '_id': -1}")
+})
 public class Post {
     @Id
     private String id;
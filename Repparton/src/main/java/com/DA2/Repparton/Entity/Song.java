@@ -30,6 +30,9 @@ public class Song {
     private int likes = 0;
     private int shares = 0;
     private int duration = 0; // in seconds
+    // HLS master playlist and its renditions, written by TranscodeService; null until transcoded
+    private String hlsUrl;
+    private List<Rendition> renditions;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -151,6 +154,22 @@ public class Song {
         this.duration = duration;
     }
 
+    public String getHlsUrl() {
+        return this.hlsUrl;
+    }
+
+    public void setHlsUrl(String hlsUrl) {
+        this.hlsUrl = hlsUrl;
+    }
+
+    public List<Rendition> getRenditions() {
+        return this.renditions;
+    }
+
+    public void setRenditions(List<Rendition> renditions) {
+        this.renditions = renditions;
+    }
+
     public LocalDateTime getCreatedAt() {
         return this.createdAt;
     }
@@ -166,4 +185,16 @@ public class Song {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    // One bitrate of the HLS ladder: its media playlist and the total size of its segments
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rendition {
+        private int bitrateKbps;
+        private String codec;
+        private String playlistUrl;
+        private long bytes;
+        private int segments;
+    }
 }
@@ -0,0 +1,61 @@
+package com.DA2.Repparton.Entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transcoding of one uploaded song into the HLS bitrate ladder, run by TranscodeService.
+ * stage and progress (0-100) are saved while the job runs, so clients can poll GET /api/songs/{id}/transcode.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "transcode_jobs")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': 1}"),
+        @CompoundIndex(name = "song_created_idx", def = "{'songId': 1, 'createdAt': -1}")
+})
+public class TranscodeJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    // Stages of a running job
+    public static final String DOWNLOADING = "DOWNLOADING";
+    public static final String TRANSCODING = "TRANSCODING";
+    public static final String UPLOADING = "UPLOADING";
+
+    @Id
+    private String id;
+    private String songId;
+    private String sourceUrl;
+
+    private String status;
+    private String stage;
+    private int progress;
+    private String error;
+    private int attempts;
+    private LocalDateTime lockedUntil;
+    private LocalDateTime createdAt;
+
+    // Finished jobs are removed by MongoDB a week after completion
+    @Indexed(name = "completed_ttl_idx", expireAfter = "7d")
+    private LocalDateTime completedAt;
+
+    public TranscodeJob(String songId, String sourceUrl) {
+        this.songId = songId;
+        this.sourceUrl = sourceUrl;
+        this.status = PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+}
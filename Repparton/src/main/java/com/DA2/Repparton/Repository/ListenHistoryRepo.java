@@ -1,6 +1,8 @@
 package com.DA2.Repparton.Repository;
 
 import com.DA2.Repparton.Entity.ListenHistory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,6 +17,20 @@ public interface ListenHistoryRepo extends MongoRepository<ListenHistory, String
     // Queries cần thiết cho SongService và RecommendationService
     List<ListenHistory> findByUserIdOrderByCreatedAtDesc(String userId);
     List<ListenHistory> findBySongIdOrderByCreatedAtDesc(String songId);
+    List<ListenHistory> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
+
+    // Distinct song ids, most recently played first, computed server-side over the newest scanLimit rows
+    @Aggregation(pipeline = {
+            "{ '$match': { 'userId': ?0 } }",
+            "{ '$sort': { 'createdAt': -1 } }",
+            "{ '$limit': ?3 }",
+            "{ '$group': { '_id': '$songId', 'lastPlayedAt': { '$first': '$createdAt' } } }",
+            "{ '$sort': { 'lastPlayedAt': -1 } }",
+            "{ '$skip': ?1 }",
+            "{ '$limit': ?2 }",
+            "{ '$project': { '_id': 1 } }"
+    })
+    List<String> findRecentDistinctSongIds(String userId, long skip, int limit, int scanLimit);
 
     // Count queries
     long countByUserId(String userId);
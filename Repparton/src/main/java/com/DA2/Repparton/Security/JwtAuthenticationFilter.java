@@ -1,6 +1,11 @@
 package com.DA2.Repparton.Security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -21,23 +26,64 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.crypto.SecretKey;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
-
+import java.util.HexFormat;
+
+/**
+ * Authenticates requests carrying a Bearer token.
+ * The signing key and parser are built once. A token is parsed and verified at most once until it expires:
+ * verified tokens are cached under the SHA-256 of the token with an expiry equal to the token's own,
+ * and the UserDetails behind them are cached for a short TTL so most requests do not touch MongoDB.
+ * Role or password changes must call evictUserDetails.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
-    @Value("${app.jwtSecret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970337336763979244226452948404D635166546A576E5A7234753778214125442A}")
-    private String jwtSecret;
-
-    @Value("${app.jwtExpirationMs:86400000}")
-    private long jwtExpiration;
-
     private final UserDetailsService userDetailsService;
-
-    public JwtAuthenticationFilter(UserDetailsService userDetailsService) {
+    private final long jwtExpiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Cache<String, UserDetails> userDetailsCache;
+
+    public JwtAuthenticationFilter(UserDetailsService userDetailsService,
+                                   @Value("${app.jwtSecret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970337336763979244226452948404D635166546A576E5A7234753778214125442A}") String jwtSecret,
+                                   @Value("${app.jwtExpirationMs:86400000}") long jwtExpiration,
+                                   @Value("${app.jwt.token-cache-size:20000}") long tokenCacheSize,
+                                   @Value("${app.jwt.user-details-ttl-ms:30000}") long userDetailsTtlMillis) {
         this.userDetailsService = userDetailsService;
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = deriveSigningKey(jwtSecret);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, token.expiresAtMillis - System.currentTimeMillis()) * 1_000_000;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, token, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfterWrite(Duration.ofMillis(userDetailsTtlMillis))
+                .build();
     }
 
     @Override
@@ -45,23 +91,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                   FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             String token = authHeader.substring(7);
 
             try {
-                String username = extractUsername(token);
-
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                    if (validateToken(token, userDetails)) {
-                        UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                    }
+                UserDetails userDetails = authenticate(token);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
-            } catch (io.jsonwebtoken.ExpiredJwtException e) {
+            } catch (ExpiredJwtException e) {
                 logger.warn("JWT token expired: {}", e.getMessage());
                 // Clear any existing authentication
                 SecurityContextHolder.clearContext();
@@ -80,6 +122,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Verifies the token and returns the user it belongs to, or null if the subject is missing.
+     * Throws ExpiredJwtException for expired tokens and another JwtException for invalid ones.
+     */
+    public UserDetails authenticate(String token) {
+        String username = verify(token).subject;
+        if (username == null) {
+            return null;
+        }
+        UserDetails userDetails = userDetailsCache.get(username, userDetailsService::loadUserByUsername);
+        return username.equals(userDetails.getUsername()) ? userDetails : null;
+    }
+
+    public void evictUserDetails(String username) {
+        userDetailsCache.invalidate(username);
+    }
+
     public String generateToken(String username) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
@@ -88,34 +147,48 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     public String extractUsername(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(token).subject;
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        VerifiedToken verified = verify(token);
+        return verified.subject != null && verified.subject.equals(userDetails.getUsername());
     }
 
-    private boolean isTokenExpired(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getExpiration().before(new Date());
+    // One parse and signature check per token; later requests with the same token are a hash and a lookup
+    private VerifiedToken verify(String token) {
+        String key = sha256(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.expiresAtMillis > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiration = claims.getExpiration();
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(),
+                expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+        if (expiration != null) {
+            // Tokens without an expiry are verified every time rather than cached forever
+            verifiedTokens.put(key, verified);
+        }
+        return verified;
     }
 
-    private SecretKey getSigningKey() {
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SecretKey deriveSigningKey(String jwtSecret) {
         // Convert hex string to bytes for proper HMAC key
         byte[] keyBytes;
         if (jwtSecret.length() > 64) {
@@ -138,8 +211,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return Keys.hmacShaKeyFor(keyBytes);
     }
-    
-    private byte[] hexStringToByteArray(String hexString) {
+
+    private static byte[] hexStringToByteArray(String hexString) {
         int len = hexString.length();
         byte[] data = new byte[len / 2];
         for (int i = 0; i < len; i += 2) {
@@ -148,4 +221,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return data;
     }
+
+    private record VerifiedToken(String subject, long expiresAtMillis) {
+    }
 }
@@ -36,7 +36,7 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
                 .requestMatchers("/api/auth/**", "/api/users/register", "/api/users/login").permitAll()
-                .requestMatchers("/api/songs/public/**", "/api/songs/trending", "/api/songs/search", "/api/songs/artist/**", "/api/songs/recent/**", "/api/genres/**").permitAll()
+                .requestMatchers("/api/songs/public/**", "/api/songs/trending", "/api/songs/search", "/api/songs/artist/**", "/api/songs/recent/**", "/api/songs/*/stream", "/api/genres/**").permitAll()
                 .requestMatchers("/api/posts/public/**", "/api/posts/user/**", "/api/users/*/profile").permitAll()
                 .requestMatchers("/api/search/**").permitAll() // Allow public search
                 .requestMatchers("/api/playlists/public").permitAll() // Allow public playlists
@@ -50,6 +50,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/stories/**").hasAnyRole("USER", "ARTIST", "ADMIN") // Allow authenticated users to create stories
                 .requestMatchers("/api/messages/**").hasRole("ARTIST") // Only artists can access messaging
                 .requestMatchers("/ws/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN") // Metrics and caches are for operators only
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/songs/upload", "/api/songs/approve").hasAnyRole("ARTIST", "ADMIN", "USER")
                 .anyRequest().authenticated()
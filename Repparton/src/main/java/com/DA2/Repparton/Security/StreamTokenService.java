@@ -0,0 +1,83 @@
+package com.DA2.Repparton.Security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Short-lived signed tokens that let an audio element stream one song as one user.
+ * An audio element cannot send an Authorization header, so an authenticated endpoint issues a token
+ * and the player passes it as ?token= on the stream URL. The token names the song and the user it was issued to.
+ * It is signed with a key derived from app.jwtSecret, so it is never accepted as a login token or the other way round.
+ */
+@Component
+public class StreamTokenService {
+
+    private static final String AUDIENCE = "stream";
+    private static final String SONG_CLAIM = "song";
+
+    public record StreamToken(String token, long expiresAtMillis) {
+    }
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long ttlMillis;
+
+    public StreamTokenService(@Value("${app.jwtSecret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970337336763979244226452948404D635166546A576E5A7234753778214125442A}") String jwtSecret,
+                              @Value("${app.audio.stream-token.ttl-ms:3600000}") long ttlMillis) {
+        this.signingKey = Keys.hmacShaKeyFor(sha256("stream-token:" + jwtSecret));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .requireAudience(AUDIENCE)
+                .build();
+        this.ttlMillis = ttlMillis;
+    }
+
+    public StreamToken issue(String songId, String userId) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String token = Jwts.builder()
+                .setSubject(userId)
+                .setAudience(AUDIENCE)
+                .claim(SONG_CLAIM, songId)
+                .setExpiration(new Date(expiresAt))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+        return new StreamToken(token, expiresAt);
+    }
+
+    /**
+     * Returns the id of the user the token was issued to, or empty if the token is invalid, expired
+     * or was issued for another song.
+     */
+    public Optional<String> verify(String token, String songId) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (!songId.equals(claims.get(SONG_CLAIM, String.class)) || claims.getSubject() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(claims.getSubject());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
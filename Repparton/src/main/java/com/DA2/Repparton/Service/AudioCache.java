@@ -0,0 +1,324 @@
+package com.DA2.Repparton.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local disk copies of hot song audio, so Range requests are served from a file instead of Cloudinary.
+ * Entries are keyed by song id plus a hash of the audio URL (a re-uploaded song gets a new entry) and kept
+ * in LRU order up to max-bytes in total. Concurrent misses for the same song share one download.
+ * Evicted files are deleted after delete-delay-ms, so a response that already has the path
+ * (sendfile, or a channel about to be opened) finishes reading it.
+ * The index is rebuilt from the directory on startup.
+ */
+@Service
+public class AudioCache {
+
+    private static final Pattern SONG_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String SUFFIX = ".audio";
+
+    public record CachedAudio(String songId, Path path, long size, String etag) {
+    }
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final long deleteDelayMillis;
+    private final HttpClient httpClient;
+    private final Duration fetchTimeout;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedAudio> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+    private final ArrayDeque<PendingDelete> pendingDeletes = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<CachedAudio>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong fileSequence = new AtomicLong(System.currentTimeMillis());
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter fetchedBytes;
+    private final Timer fetchTimer;
+
+    public AudioCache(@Value("${app.audio.cache.dir:${java.io.tmpdir}/repparton-audio}") String cacheDir,
+                      @Value("${app.audio.cache.max-bytes:2147483648}") long maxBytes,
+                      @Value("${app.audio.cache.delete-delay-ms:30000}") long deleteDelayMillis,
+                      @Value("${app.audio.fetch.connect-timeout-ms:5000}") long connectTimeoutMillis,
+                      @Value("${app.audio.fetch.timeout-ms:60000}") long fetchTimeoutMillis,
+                      MeterRegistry meterRegistry) throws IOException {
+        this.cacheDir = Files.createDirectories(Path.of(cacheDir)).toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.deleteDelayMillis = deleteDelayMillis;
+        this.fetchTimeout = Duration.ofMillis(fetchTimeoutMillis);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        this.hits = Counter.builder("repparton.audio.cache.requests")
+                .description("Stream requests answered from the disk cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("repparton.audio.cache.requests")
+                .description("Stream requests that had to download the song first")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("repparton.audio.cache.evictions")
+                .description("Songs removed from the disk cache to stay under max-bytes")
+                .register(meterRegistry);
+        this.fetchedBytes = Counter.builder("repparton.audio.cache.fetched.bytes")
+                .description("Bytes downloaded from the audio origin")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.fetchTimer = Timer.builder("repparton.audio.cache.fetch")
+                .description("Time taken to download a song into the disk cache")
+                .register(meterRegistry);
+        Gauge.builder("repparton.audio.cache.size", this, AudioCache::getCachedBytes)
+                .description("Bytes of audio held in the disk cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("repparton.audio.cache.entries", this, AudioCache::getEntryCount)
+                .description("Songs held in the disk cache")
+                .register(meterRegistry);
+
+        recover();
+    }
+
+    /**
+     * The cached copy of a song's audio, downloading it first on a miss.
+     */
+    public CachedAudio get(String songId, String sourceUrl) throws IOException {
+        return get(songId, sourceUrl, true);
+    }
+
+    /**
+     * Downloads a song unless it is cached or already being downloaded; used for prefetching.
+     */
+    public void prefetch(String songId, String sourceUrl) throws IOException {
+        if (contains(songId, sourceUrl) || loading.containsKey(key(songId, sourceUrl))) {
+            return;
+        }
+        get(songId, sourceUrl, false);
+    }
+
+    public boolean contains(String songId, String sourceUrl) {
+        return lookup(key(songId, sourceUrl)) != null;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public double getHitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.cache.delete-delay-ms:30000}")
+    public void deleteEvictedFiles() {
+        long now = System.currentTimeMillis();
+        List<Path> due = new ArrayList<>();
+        synchronized (this) {
+            while (!pendingDeletes.isEmpty() && pendingDeletes.peekFirst().deleteAt() <= now) {
+                due.add(pendingDeletes.pollFirst().path());
+            }
+        }
+        for (Path path : due) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Still open somewhere (Windows); try again on the next run
+                synchronized (this) {
+                    pendingDeletes.addLast(new PendingDelete(path, now + deleteDelayMillis));
+                }
+            }
+        }
+    }
+
+    private CachedAudio get(String songId, String sourceUrl, boolean countRequest) throws IOException {
+        String key = key(songId, sourceUrl);
+        CachedAudio cached = lookup(key);
+        if (cached != null) {
+            if (countRequest) {
+                hits.increment();
+            }
+            return cached;
+        }
+        if (countRequest) {
+            misses.increment();
+        }
+
+        CompletableFuture<CachedAudio> download = new CompletableFuture<>();
+        CompletableFuture<CachedAudio> running = loading.putIfAbsent(key, download);
+        if (running != null) {
+            // Another request is downloading this song; use its result
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+
+        try {
+            // The previous download may have finished between the lookup and putIfAbsent
+            cached = lookup(key);
+            if (cached == null) {
+                cached = download(songId, key, sourceUrl);
+            }
+            download.complete(cached);
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, download);
+        }
+    }
+
+    private synchronized CachedAudio lookup(String key) {
+        return entries.get(key);
+    }
+
+    private CachedAudio download(String songId, String key, String sourceUrl) throws IOException {
+        Path target = cacheDir.resolve(key + "~" + Long.toString(fileSequence.incrementAndGet(), 36) + SUFFIX);
+        Path tmp = Files.createTempFile(cacheDir, "fetch-", ".tmp");
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(sourceUrl)).timeout(fetchTimeout).GET().build();
+            HttpResponse<Path> response = httpClient.send(request,
+                    HttpResponse.BodyHandlers.ofFile(tmp));
+            if (response.statusCode() != 200) {
+                throw new IOException("Audio origin answered " + response.statusCode() + " for song " + songId);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading song " + songId);
+        } finally {
+            Files.deleteIfExists(tmp);
+            fetchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        CachedAudio cached = new CachedAudio(songId, target, Files.size(target), etag(key));
+        fetchedBytes.increment(cached.size());
+        add(key, cached);
+        return cached;
+    }
+
+    private synchronized void add(String key, CachedAudio cached) {
+        CachedAudio previous = entries.put(key, cached);
+        if (previous != null) {
+            cachedBytes -= previous.size();
+            scheduleDelete(previous.path());
+        }
+        cachedBytes += cached.size();
+        // Least recently used first; a song larger than the whole cache is still served once, then dropped
+        Iterator<Map.Entry<String, CachedAudio>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            CachedAudio evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedBytes -= evicted.size();
+            scheduleDelete(evicted.path());
+            evictions.increment();
+        }
+    }
+
+    private void scheduleDelete(Path path) {
+        pendingDeletes.addLast(new PendingDelete(path, System.currentTimeMillis() + deleteDelayMillis));
+    }
+
+    // Re-index files left by the previous run, oldest first so the LRU order roughly survives a restart
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(cacheDir)) {
+            listing.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(AudioCache::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int separator = name.lastIndexOf('~');
+            if (!name.endsWith(SUFFIX) || separator < 0) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            String key = name.substring(0, separator);
+            String songId = key.substring(0, Math.max(0, key.indexOf('~')));
+            add(key, new CachedAudio(songId, file, Files.size(file), etag(key)));
+        }
+        pendingDeletes.forEach(pending -> {
+            try {
+                Files.deleteIfExists(pending.path());
+            } catch (IOException ignored) {
+                // Left for the next restart
+            }
+        });
+        pendingDeletes.clear();
+    }
+
+    private static String key(String songId, String sourceUrl) {
+        if (songId == null || !SONG_ID.matcher(songId).matches()) {
+            throw new IllegalArgumentException("Invalid song id: " + songId);
+        }
+        if (sourceUrl == null || sourceUrl.isBlank()) {
+            throw new IllegalArgumentException("Song " + songId + " has no audio");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sourceUrl.getBytes(StandardCharsets.UTF_8));
+            return songId + "~" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The key identifies the content (song plus audio URL), so it is a strong validator
+    private static String etag(String key) {
+        return "\"" + key + "\"";
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record PendingDelete(Path path, long deleteAt) {
+    }
+}
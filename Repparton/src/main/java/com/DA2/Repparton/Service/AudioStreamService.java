@@ -0,0 +1,203 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Playlist;
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Playback side of audio streaming: finds the cached file for a song, counts a play when a listener starts
+ * the song (so clients no longer call POST /play), and prefetches the next songs of the playlist being played.
+ * The HTTP part (Range, If-Range, sendfile, stream tokens) is in AudioStreamController.
+ */
+@Service
+public class AudioStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioStreamService.class);
+
+    private final SongService songService;
+    private final PlaylistService playlistService;
+    private final UserService userService;
+    private final AudioCache audioCache;
+
+    // Last play signalled per listener and song; players re-request byte 0 when probing or restarting a stream
+    private final Map<String, Long> recentPlays = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    private final Counter bytesServed;
+    private final Counter playsSignalled;
+
+    @Value("${app.audio.play.dedup-window-ms:30000}")
+    private long playDedupWindowMillis;
+
+    @Value("${app.audio.prefetch.count:2}")
+    private int prefetchCount;
+
+    public AudioStreamService(SongService songService, PlaylistService playlistService, UserService userService,
+                              AudioCache audioCache, MeterRegistry meterRegistry,
+                              @Value("${app.audio.prefetch.threads:2}") int prefetchThreads,
+                              @Value("${app.audio.prefetch.queue-size:100}") int prefetchQueueSize) {
+        this.songService = songService;
+        this.playlistService = playlistService;
+        this.userService = userService;
+        this.audioCache = audioCache;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Prefetching is best effort: when the queue is full new prefetches are dropped
+        this.prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(prefetchQueueSize), r -> {
+                    Thread thread = new Thread(r, "audio-prefetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        this.prefetchExecutor.allowCoreThreadTimeOut(true);
+
+        this.bytesServed = Counter.builder("repparton.audio.bytes.served")
+                .description("Audio bytes written to listeners")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.playsSignalled = Counter.builder("repparton.audio.plays")
+                .description("Plays counted from stream requests")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    public Optional<Song> findStreamableSong(String songId) {
+        return songService.getSongById(songId)
+                .filter(song -> song.getAudioUrl() != null && !song.getAudioUrl().isBlank());
+    }
+
+    /**
+     * Approved public songs play for anyone; private or unapproved ones only for their artist or an admin.
+     * Checked when a stream token is issued, and on stream requests that come without one.
+     */
+    public Optional<Song> findStreamableSong(String songId, String email) {
+        return findStreamableSong(songId).filter(song -> isListed(song) || canManage(song, email));
+    }
+
+    // Null when email is null or no such user exists
+    public String findUserId(String email) {
+        if (email == null) {
+            return null;
+        }
+        try {
+            User user = userService.findByEmail(email);
+            return user != null ? user.getId() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public AudioCache.CachedAudio open(Song song) throws IOException {
+        return audioCache.get(song.getId(), song.getAudioUrl());
+    }
+
+    /**
+     * Called for a request that starts the song from byte 0. Counts the play at most once per listener and
+     * dedup window, records it in the user's listen history when userId is known, and starts prefetching
+     * the songs after it in the playlist, if one was given.
+     */
+    public void onPlaybackStart(Song song, String listener, String userId, String playlistId) {
+        long now = System.currentTimeMillis();
+        Long previous = recentPlays.put(listener + "|" + song.getId(), now);
+        if (previous != null && now - previous < playDedupWindowMillis) {
+            return;
+        }
+        playsSignalled.increment();
+        songService.incrementViews(song.getId(), userId);
+
+        if (playlistId != null && !playlistId.isBlank() && prefetchCount > 0) {
+            try {
+                prefetchExecutor.execute(() -> prefetchNext(playlistId, song.getId()));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    public void recordBytesServed(long bytes) {
+        bytesServed.increment(bytes);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.play.dedup-window-ms:30000}")
+    public void removeExpiredPlays() {
+        long expiredBefore = System.currentTimeMillis() - playDedupWindowMillis;
+        recentPlays.values().removeIf(playedAt -> playedAt < expiredBefore);
+    }
+
+    /**
+     * Copies a region of the file with FileChannel.transferTo; the JDK hands it to sendfile when the
+     * target is a socket and copies through a direct buffer otherwise, never through a heap array.
+     * Returns the number of bytes written.
+     */
+    public static long transfer(FileChannel file, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long written = 0;
+        while (written < count) {
+            long n = file.transferTo(position + written, count - written, target);
+            if (n <= 0) {
+                break;
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    private void prefetchNext(String playlistId, String songId) {
+        try {
+            Optional<Playlist> playlist = playlistService.getById(playlistId);
+            List<String> songIds = playlist.map(Playlist::getSongIds).orElse(List.of());
+            int index = songIds.indexOf(songId);
+            if (index < 0) {
+                return;
+            }
+            for (String nextId : songIds.subList(index + 1, Math.min(songIds.size(), index + 1 + prefetchCount))) {
+                Optional<Song> next = findStreamableSong(nextId);
+                if (next.isPresent()) {
+                    audioCache.prefetch(nextId, next.get().getAudioUrl());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to prefetch playlist {} after song {}: {}", playlistId, songId, e.getMessage());
+        }
+    }
+
+    private static boolean isListed(Song song) {
+        return !song.isPrivate() && "approved".equals(song.getStatus());
+    }
+
+    private boolean canManage(Song song, String email) {
+        if (email == null) {
+            return false;
+        }
+        try {
+            User user = userService.findByEmail(email);
+            return user != null && (user.getId().equals(song.getArtistId()) || "admin".equalsIgnoreCase(user.getRole()));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
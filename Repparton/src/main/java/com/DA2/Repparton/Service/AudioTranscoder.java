@@ -0,0 +1,208 @@
+package com.DA2.Repparton.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Stream;
+
+/**
+ * ffmpeg wrapper that turns one audio file into an AAC bitrate ladder segmented for HLS.
+ * The source is decoded once and encoded to every rung in the same ffmpeg run; rungs at or above the
+ * source bitrate are skipped (a 128 kbps mp3 gains nothing from a 256 kbps copy).
+ * Progress is read from ffmpeg's -progress output.
+ */
+@Component
+public class AudioTranscoder {
+
+    public static final String CODEC = "mp4a.40.2";
+
+    public record Probe(double durationSeconds, int bitrateKbps) {
+    }
+
+    public record Variant(int bitrateKbps, Path playlist, List<Path> segments) {
+    }
+
+    private final String ffmpegPath;
+    private final String ffprobePath;
+    private final int[] bitratesKbps;
+    private final int segmentSeconds;
+    private final int threads;
+    private final long timeoutMillis;
+
+    public AudioTranscoder(@Value("${app.transcode.ffmpeg-path:ffmpeg}") String ffmpegPath,
+                           @Value("${app.transcode.ffprobe-path:ffprobe}") String ffprobePath,
+                           @Value("${app.transcode.bitrates-kbps:64,128,256}") int[] bitratesKbps,
+                           @Value("${app.transcode.segment-seconds:6}") int segmentSeconds,
+                           @Value("${app.transcode.ffmpeg-threads:1}") int threads,
+                           @Value("${app.transcode.timeout-ms:900000}") long timeoutMillis) {
+        this.ffmpegPath = ffmpegPath;
+        this.ffprobePath = ffprobePath;
+        this.bitratesKbps = Arrays.stream(bitratesKbps).sorted().toArray();
+        this.segmentSeconds = segmentSeconds;
+        this.threads = threads;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public boolean isAvailable() {
+        try {
+            Process process = new ProcessBuilder(ffmpegPath, "-version")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public Probe probe(Path source) throws IOException {
+        List<String> lines = run(List.of(ffprobePath, "-v", "error",
+                "-show_entries", "format=duration,bit_rate",
+                "-of", "default=noprint_wrappers=1", source.toString()), null);
+        double duration = 0;
+        int bitrate = 0;
+        for (String line : lines) {
+            if (line.startsWith("duration=")) {
+                duration = parseDouble(line.substring("duration=".length()));
+            } else if (line.startsWith("bit_rate=")) {
+                bitrate = (int) (parseDouble(line.substring("bit_rate=".length())) / 1000);
+            }
+        }
+        return new Probe(duration, bitrate);
+    }
+
+    /**
+     * The rungs of the ladder worth encoding for a source of the given bitrate (0 when unknown).
+     */
+    public int[] ladderFor(int sourceKbps) {
+        if (sourceKbps <= 0) {
+            return bitratesKbps.clone();
+        }
+        int[] ladder = Arrays.stream(bitratesKbps).filter(kbps -> kbps < sourceKbps).toArray();
+        return ladder.length > 0 ? ladder : new int[] {bitratesKbps[0]};
+    }
+
+    /**
+     * Encodes the ladder into outDir/{kbps}k/index.m3u8 plus segments; progress gets 0..1.
+     * When the duration is unknown progress gets -1 on every ffmpeg progress update instead, so the caller
+     * still hears that the encoder is alive.
+     */
+    public List<Variant> transcode(Path source, Path outDir, int[] ladder, double durationSeconds,
+                                   DoubleConsumer progress) throws IOException {
+        List<String> command = new ArrayList<>(List.of(ffmpegPath, "-hide_banner", "-nostdin", "-y",
+                "-loglevel", "error", "-i", source.toString(), "-progress", "pipe:1", "-nostats",
+                "-threads", Integer.toString(threads)));
+        StringBuilder streamMap = new StringBuilder();
+        for (int i = 0; i < ladder.length; i++) {
+            command.addAll(List.of("-map", "0:a:0"));
+            streamMap.append(i > 0 ? " " : "").append("a:").append(i).append(",name:").append(ladder[i]).append('k');
+        }
+        command.addAll(List.of("-c:a", "aac", "-ar", "44100", "-ac", "2"));
+        for (int i = 0; i < ladder.length; i++) {
+            command.addAll(List.of("-b:a:" + i, ladder[i] + "k"));
+        }
+        command.addAll(List.of("-f", "hls",
+                "-hls_time", Integer.toString(segmentSeconds),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_filename", outDir.resolve("%v").resolve("segment_%04d.ts").toString(),
+                "-var_stream_map", streamMap.toString(),
+                outDir.resolve("%v").resolve("index.m3u8").toString()));
+
+        for (int kbps : ladder) {
+            Files.createDirectories(outDir.resolve(kbps + "k"));
+        }
+        run(command, line -> {
+            // out_time_us in newer builds; out_time_ms is also microseconds despite its name
+            if (durationSeconds > 0 && (line.startsWith("out_time_us=") || line.startsWith("out_time_ms="))) {
+                double seconds = parseDouble(line.substring(line.indexOf('=') + 1)) / 1_000_000;
+                progress.accept(Math.min(1, seconds / durationSeconds));
+            } else if (durationSeconds <= 0 && line.equals("progress=continue")) {
+                progress.accept(-1);
+            }
+        });
+        progress.accept(1);
+
+        List<Variant> variants = new ArrayList<>(ladder.length);
+        for (int kbps : ladder) {
+            Path dir = outDir.resolve(kbps + "k");
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(dir)) {
+                segments = files.filter(file -> file.getFileName().toString().endsWith(".ts")).sorted().toList();
+            }
+            variants.add(new Variant(kbps, dir.resolve("index.m3u8"), segments));
+        }
+        return variants;
+    }
+
+    // Runs a command, handing each stdout line to the listener (or collecting them when it is null)
+    private List<String> run(List<String> command, Consumer<String> listener) throws IOException {
+        Path errors = Files.createTempFile("ffmpeg-", ".log");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(errors.toFile())
+                    .start();
+            // Kill a stuck encoder; readLine then sees end of stream
+            CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            });
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (listener != null) {
+                        listener.accept(line);
+                    } else {
+                        lines.add(line);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            int exit = process.waitFor();
+            if (exit != 0) {
+                String log = Files.readString(errors, StandardCharsets.UTF_8).trim();
+                throw new IOException(command.get(0) + " exited with " + exit
+                        + (log.isEmpty() ? "" : ": " + log.substring(Math.max(0, log.length() - 500))));
+            }
+            return lines;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command.get(0));
+        } finally {
+            Files.deleteIfExists(errors);
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            // "N/A" for streams without a known duration or bitrate
+            return 0;
+        }
+    }
+}
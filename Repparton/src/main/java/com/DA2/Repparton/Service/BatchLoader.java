@@ -0,0 +1,57 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Entity.User;
+import com.DA2.Repparton.Repository.SongRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads songs and users by id with one $in query per call instead of one findById per row.
+ */
+@Component
+public class BatchLoader {
+
+    @Autowired
+    private SongRepo songRepository;
+
+    @Autowired
+    private UserSummaryLoader userSummaryLoader;
+
+    // Returns songs in the order of the given ids, skipping ids that no longer exist
+    public List<Song> loadSongsInOrder(List<String> songIds) {
+        if (songIds == null || songIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Song> songsById = new HashMap<>();
+        for (Song song : songRepository.findByIdIn(new ArrayList<>(new LinkedHashSet<>(songIds)))) {
+            songsById.put(song.getId(), song);
+        }
+        List<Song> ordered = new ArrayList<>(songIds.size());
+        for (String songId : songIds) {
+            Song song = songsById.get(songId);
+            if (song != null) {
+                ordered.add(song);
+            }
+        }
+        return ordered;
+    }
+
+    // Summary fields only (name, avatar, role), served from the request memo and near-cache where possible
+    public Map<String, User> loadUsers(Collection<String> userIds) {
+        return userSummaryLoader.load(userIds);
+    }
+
+    public Map<String, User> loadArtists(Collection<Song> songs) {
+        List<String> artistIds = new ArrayList<>(songs.size());
+        songs.forEach(song -> artistIds.add(song.getArtistId()));
+        return loadUsers(artistIds);
+    }
+}
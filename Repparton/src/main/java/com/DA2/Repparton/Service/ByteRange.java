@@ -0,0 +1,65 @@
+package com.DA2.Repparton.Service;
+
+import java.util.Optional;
+
+/**
+ * A single satisfiable range of a Range header, end inclusive as in Content-Range.
+ * Only one range is honoured: players ask for one range at a time, and a multi-range
+ * or malformed header is ignored, which means the whole content is sent (RFC 9110 section 14.2).
+ */
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * Thrown when a well-formed range lies outside the content; answered with 416.
+     */
+    public static class NotSatisfiableException extends RuntimeException {
+        public NotSatisfiableException(String range) {
+            super("Range not satisfiable: " + range);
+        }
+    }
+
+    /**
+     * The range to send, or empty when the whole content should be sent.
+     */
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return Optional.empty();
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return Optional.empty();
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    throw new NotSatisfiableException(header);
+                }
+                return Optional.of(new ByteRange(Math.max(0, size - suffix), size - 1));
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                return Optional.empty();
+            }
+            if (start >= size) {
+                throw new NotSatisfiableException(header);
+            }
+            return Optional.of(new ByteRange(start, end));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 @Service
@@ -26,6 +27,25 @@ public class CloudinaryService {
                 ObjectUtils.asMap("resource_type", "auto"));
         return uploadResult.get("secure_url").toString();
     }
+
+    // Uploads a file from disk under a fixed public id, e.g. HLS playlists and segments (raw resources keep their extension)
+    public String uploadFile(Path file, String publicId) throws IOException {
+        Map uploadResult = cloudinary.uploader().upload(file.toFile(),
+                ObjectUtils.asMap("resource_type", "raw", "public_id", publicId, "overwrite", true));
+        return uploadResult.get("secure_url").toString();
+    }
+
+    // Deletes every raw resource whose public id starts with the prefix, e.g. an old set of HLS renditions
+    public void deleteRawByPrefix(String prefix) throws IOException {
+        try {
+            cloudinary.api().deleteResourcesByPrefix(prefix, ObjectUtils.asMap("resource_type", "raw"));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to delete " + prefix + ": " + e.getMessage(), e);
+        }
+    }
+
     public String deleteFileByUrl(String fileUrl) throws IOException {
         // Ví dụ: https://res.cloudinary.com/demo/image/upload/v1710000000/my_folder/my_image.jpg
         String publicId = extractPublicIdFromUrl(fileUrl);
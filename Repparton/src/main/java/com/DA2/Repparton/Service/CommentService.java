@@ -1,20 +1,25 @@
 package com.DA2.Repparton.Service;
 
 import com.DA2.Repparton.DTO.CommentDTO;
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Comment;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Repository.CommentRepo;
 import com.DA2.Repparton.Repository.SongRepo;
-import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @Service
 public class CommentService {
 
@@ -25,15 +30,23 @@ public class CommentService {
     private SongRepo songRepository;
 
     @Autowired
-    private UserRepo userRepo;
+    private NotificationService notificationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private BatchLoader batchLoader;
+
+    @Autowired
+    private UserSummaryLoader userSummaryLoader;
+
+    @Autowired
+    private KeysetPaginator keysetPaginator;
 
     @Transactional
     public Comment createSongComment(String userId, String songId, String parentId, String content) {
         // Validate user and song exist
-        userRepo.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        if (userSummaryLoader.load(userId) == null) {
+            throw new RuntimeException("User not found");
+        }
         songRepository.findById(songId).orElseThrow(() -> new RuntimeException("Song not found"));
 
         // Sử dụng constructor có tham số thay vì builder
@@ -55,7 +68,9 @@ public class CommentService {
     @Transactional
     public Comment createPostComment(String userId, String postId, String parentId, String content) {
         // Validate user and post exist
-        userRepo.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        if (userSummaryLoader.load(userId) == null) {
+            throw new RuntimeException("User not found");
+        }
         // postRepository.findById(postId).orElseThrow(() -> new RuntimeException("Post not found"));
 
         // Sử dụng constructor có tham số thay vì builder
@@ -77,7 +92,9 @@ public class CommentService {
     @Transactional
     public Comment createPlaylistComment(String userId, String playlistId, String parentId, String content) {
         // Validate user exists
-        userRepo.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        if (userSummaryLoader.load(userId) == null) {
+            throw new RuntimeException("User not found");
+        }
         // Note: We should validate playlist exists but for now we'll trust it
 
         // Create comment
@@ -101,24 +118,30 @@ public class CommentService {
         return savedComment;
     }
 
-    public List<CommentDTO> getCommentsBySong(String songId) {
-        List<Comment> comments = commentRepository.findBySongIdAndParentIdIsNull(songId);
-        return comments.stream().map(this::convertToDTO).collect(Collectors.toList());
+    // Top-level comments, newest first
+    public CursorPageDTO<CommentDTO> getCommentsBySong(String songId, String cursor, int size) {
+        return topLevel(where("songId").is(songId), cursor, size);
     }
 
-    public List<CommentDTO> getCommentsByPost(String postId) {
-        List<Comment> comments = commentRepository.findByPostIdAndParentIdIsNull(postId);
-        return comments.stream().map(this::convertToDTO).collect(Collectors.toList());
+    public CursorPageDTO<CommentDTO> getCommentsByPost(String postId, String cursor, int size) {
+        return topLevel(where("postId").is(postId), cursor, size);
     }
 
-    public List<CommentDTO> getCommentsByPlaylist(String playlistId) {
-        List<Comment> comments = commentRepository.findByPlaylistIdAndParentIdIsNull(playlistId);
-        return comments.stream().map(this::convertToDTO).collect(Collectors.toList());
+    public CursorPageDTO<CommentDTO> getCommentsByPlaylist(String playlistId, String cursor, int size) {
+        return topLevel(where("playlistId").is(playlistId), cursor, size);
     }
 
-    public List<CommentDTO> getReplies(String parentId) {
-        List<Comment> replies = commentRepository.findByParentId(parentId);
-        return replies.stream().map(this::convertToDTO).collect(Collectors.toList());
+    // Replies read in conversation order, oldest first
+    public CursorPageDTO<CommentDTO> getReplies(String parentId, String cursor, int size) {
+        CursorPageDTO<Comment> replies = keysetPaginator.page(where("parentId").is(parentId), Comment.class, "createdAt",
+                Sort.Direction.ASC, cursor, size, Comment::getCreatedAt, Comment::getId);
+        return KeysetPaginator.map(replies, this::convertToDTOs);
+    }
+
+    private CursorPageDTO<CommentDTO> topLevel(Criteria target, String cursor, int size) {
+        CursorPageDTO<Comment> comments = keysetPaginator.page(target.and("parentId").is(null), Comment.class, "createdAt",
+                Sort.Direction.DESC, cursor, size, Comment::getCreatedAt, Comment::getId);
+        return KeysetPaginator.map(comments, this::convertToDTOs);
     }
 
     @Transactional
@@ -139,8 +162,17 @@ public class CommentService {
         commentRepository.delete(comment);
     }
 
-    private CommentDTO convertToDTO(Comment comment) {
-        Optional<User> user = userRepo.findById(comment.getUserId());
+    // Authors are loaded with one query for the whole page
+    private List<CommentDTO> convertToDTOs(List<Comment> comments) {
+        Map<String, User> users = batchLoader.loadUsers(
+                comments.stream().map(Comment::getUserId).collect(Collectors.toSet()));
+        return comments.stream()
+                .map(comment -> convertToDTO(comment, users.get(comment.getUserId())))
+                .collect(Collectors.toList());
+    }
+
+    private CommentDTO convertToDTO(Comment comment, User author) {
+        Optional<User> user = Optional.ofNullable(author);
         String username = user.map(User::getUsername).orElse("Unknown User");
         String userAvatar = user.map(User::getAvatarUrl).orElse(null);
 
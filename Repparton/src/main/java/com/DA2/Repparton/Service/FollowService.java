@@ -24,6 +24,9 @@ public class FollowService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private TimelineService timelineService;
+
     @Transactional
     public boolean followUser(String followerId, String artistId) {
         // Prevent self-following
@@ -47,6 +50,7 @@ public class FollowService {
         Follow follow = new Follow(followerId, artistId);
 
         followRepo.save(follow);
+        timelineService.onFollow(followerId, artistId);
 
         // Send notification to the followed user
         notificationService.sendNotification(
@@ -66,6 +70,7 @@ public class FollowService {
 
         if (followOpt.isPresent()) {
             followRepo.delete(followOpt.get());
+            timelineService.onUnfollow(followerId, artistId);
             System.out.println("User " + followerId + " unfollowed user " + artistId);
         } else {
             throw new RuntimeException("Not following this user");
@@ -0,0 +1,103 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.DTO.CursorPageDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keyset (seek) pagination over a time field plus _id.
+ * The cursor is an opaque token holding the time and id of the last row returned; the next page is
+ * "rows after that key" in index order, so page 50 costs the same as page 1, unlike skip/limit.
+ * Each paginated query needs a compound index ending in {timeField, _id} in the same direction.
+ */
+@Component
+public class KeysetPaginator {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Reads one page of documents matching filter, ordered by timeField then _id in the given direction.
+     * cursor is null for the first page.
+     */
+    public <T> CursorPageDTO<T> page(Criteria filter, Class<T> type, String timeField, Sort.Direction direction,
+                                     String cursor, int size, Function<T, LocalDateTime> timeOf, Function<T, String> idOf) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Criteria criteria = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            Key key = decode(cursor);
+            Criteria after = direction == Sort.Direction.DESC
+                    ? new Criteria().orOperator(
+                            where(timeField).lt(key.time),
+                            where(timeField).is(key.time).and("_id").lt(key.id))
+                    : new Criteria().orOperator(
+                            where(timeField).gt(key.time),
+                            where(timeField).is(key.time).and("_id").gt(key.id));
+            criteria = new Criteria().andOperator(filter, after);
+        }
+
+        // One extra row tells us whether there is another page without a count query
+        Query query = new Query(criteria)
+                .with(Sort.by(direction, timeField, "_id"))
+                .limit(limit + 1);
+        List<T> rows = new ArrayList<>(mongoTemplate.find(query, type));
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            T last = rows.get(rows.size() - 1);
+            nextCursor = encode(timeOf.apply(last), idOf.apply(last));
+        }
+        return new CursorPageDTO<>(rows, nextCursor, hasMore);
+    }
+
+    /**
+     * Same page with every row converted, e.g. to a DTO after a batch lookup.
+     */
+    public static <T, R> CursorPageDTO<R> map(CursorPageDTO<T> page, Function<List<T>, List<R>> converter) {
+        return new CursorPageDTO<>(converter.apply(page.getContent()), page.getNextCursor(), page.isHasMore());
+    }
+
+    static String encode(LocalDateTime time, String id) {
+        // Millisecond precision is all MongoDB stores, so the key round-trips exactly
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String raw = millis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Key decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf(':');
+            long millis = Long.parseLong(raw.substring(0, split));
+            return new Key(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()), raw.substring(split + 1));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    record Key(LocalDateTime time, String id) {
+    }
+}
@@ -8,12 +8,17 @@ import com.DA2.Repparton.Repository.PostRepo;
 import com.DA2.Repparton.Repository.SongRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @Service
 public class LikeService {
 
@@ -26,11 +31,16 @@ public class LikeService {
     @Autowired
     private PostRepo postRepo;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private SongCacheEvictor songCacheEvictor;
+
     @Transactional
-    @CacheEvict(value = {"songs", "posts", "trending"}, allEntries = true)
     public boolean toggleSongLike(String userId, String songId) {
         Optional<Like> existingLike = likeRepo.findByUserIdAndSongId(userId, songId);
 
@@ -38,6 +48,7 @@ public class LikeService {
             // Unlike
             likeRepo.delete(existingLike.get());
             decrementSongLikes(songId);
+            songCacheEvictor.evictSong(songId);
             System.out.println("User " + userId + " unliked song " + songId);
             return false;
         } else {
@@ -46,6 +57,7 @@ public class LikeService {
 
             likeRepo.save(like);
             incrementSongLikes(songId);
+            songCacheEvictor.evictSong(songId);
 
             // Notify song owner
             Optional<Song> songOpt = songRepo.findById(songId);
@@ -113,39 +125,22 @@ public class LikeService {
         return likeRepo.countByPostId(postId);
     }
 
+    // Field-level $inc on the counter: concurrent likes never overwrite each other and the document is not rewritten
     private void incrementSongLikes(String songId) {
-        Optional<Song> songOpt = songRepo.findById(songId);
-        if (songOpt.isPresent()) {
-            Song song = songOpt.get();
-            song.setLikes(song.getLikes() + 1);
-            songRepo.save(song);
-        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(songId)), new Update().inc("likes", 1), Song.class);
     }
 
     private void decrementSongLikes(String songId) {
-        Optional<Song> songOpt = songRepo.findById(songId);
-        if (songOpt.isPresent()) {
-            Song song = songOpt.get();
-            song.setLikes(Math.max(0, song.getLikes() - 1));
-            songRepo.save(song);
-        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(songId).and("likes").gt(0)),
+                new Update().inc("likes", -1), Song.class);
     }
 
     private void incrementPostLikes(String postId) {
-        Optional<Post> postOpt = postRepo.findById(postId);
-        if (postOpt.isPresent()) {
-            Post post = postOpt.get();
-            post.setLikes(post.getLikes() + 1);
-            postRepo.save(post);
-        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(postId)), new Update().inc("likes", 1), Post.class);
     }
 
     private void decrementPostLikes(String postId) {
-        Optional<Post> postOpt = postRepo.findById(postId);
-        if (postOpt.isPresent()) {
-            Post post = postOpt.get();
-            post.setLikes(Math.max(0, post.getLikes() - 1));
-            postRepo.save(post);
-        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(postId).and("likes").gt(0)),
+                new Update().inc("likes", -1), Post.class);
     }
 }
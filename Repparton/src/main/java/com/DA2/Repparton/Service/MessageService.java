@@ -1,13 +1,14 @@
 package com.DA2.Repparton.Service;
 
 import com.DA2.Repparton.DTO.ConversationDTO;
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Conversation;
 import com.DA2.Repparton.Entity.DuoMessage;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Repository.ConversationRepo;
 import com.DA2.Repparton.Repository.DuoMessageRepo;
-import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -15,7 +16,13 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class MessageService {
@@ -26,11 +33,14 @@ public class MessageService {
     private DuoMessageRepo messageRepo;
 
     @Autowired
-    private UserRepo userRepo;
+    private UserSummaryLoader userSummaryLoader;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private KeysetPaginator keysetPaginator;
+
     public Conversation getOrCreateConversation(String user1, String user2) {
         return conversationRepo.findByUser1IdAndUser2Id(user1, user2)
                 .or(() -> conversationRepo.findByUser2IdAndUser1Id(user1, user2))
@@ -48,19 +58,38 @@ public class MessageService {
         return saved;
     }
 
-    public List<DuoMessage> getMessages(String convId) {
-        return messageRepo.findByConversationIdOrderBySentAtAsc(convId);
+    // Latest messages first; the cursor walks back through older history. Each page is returned oldest first for display
+    public CursorPageDTO<DuoMessage> getMessages(String convId, String cursor, int size) {
+        CursorPageDTO<DuoMessage> page = keysetPaginator.page(where("conversationId").is(convId), DuoMessage.class, "sentAt",
+                Sort.Direction.DESC, cursor, size, DuoMessage::getSentAt, DuoMessage::getId);
+        return KeysetPaginator.map(page, messages -> {
+            List<DuoMessage> chronological = new ArrayList<>(messages);
+            Collections.reverse(chronological);
+            return chronological;
+        });
     }
 
     public List<ConversationDTO> getConversationByUserId(String userId) {
         List<Conversation> conversations = conversationRepo.findByUser1IdOrUser2Id(userId, userId);
         List<ConversationDTO> dtoList = new ArrayList<>();
 
+        // Both participants of every conversation in one lookup
+        Set<String> participantIds = new HashSet<>();
+        for (Conversation conversation : conversations) {
+            participantIds.add(conversation.getUser1Id());
+            participantIds.add(conversation.getUser2Id());
+        }
+        Map<String, User> participants = userSummaryLoader.load(participantIds);
+
         for (Conversation conversation : conversations) {
-            User user1 = userRepo.findById(conversation.getUser1Id())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User 1 not found"));;
-            User user2 = userRepo.findById(conversation.getUser2Id())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User 2 not found"));;
+            User user1 = participants.get(conversation.getUser1Id());
+            if (user1 == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User 1 not found");
+            }
+            User user2 = participants.get(conversation.getUser2Id());
+            if (user2 == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User 2 not found");
+            }
             dtoList.add(new ConversationDTO(conversation.getId(), user1, user2));
         }
 
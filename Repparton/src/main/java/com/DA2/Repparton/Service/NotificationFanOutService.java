@@ -0,0 +1,237 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Follow;
+import com.DA2.Repparton.Entity.Notification;
+import com.DA2.Repparton.Entity.NotificationJob;
+import com.DA2.Repparton.Entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Delivers notifications addressed to many users (followers of an artist, an explicit list, every admin).
+ * Callers only insert a NotificationJob, so their latency does not depend on the audience size.
+ * Workers claim jobs with a lease, read recipients in key order chunk-size at a time, write each chunk with
+ * one insertMany and hand the pushes to NotificationPushBuffer. Progress is saved after every chunk;
+ * a job whose worker died is picked up again once its lease expires, so delivery is at-least-once per chunk.
+ */
+@Service
+public class NotificationFanOutService {
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationPushBuffer pushBuffer;
+    private final UnreadCounterService unreadCounterService;
+    private final Cache notificationCache;
+    private final ThreadPoolExecutor workers;
+    private final Timer jobTimer;
+    private final Counter delivered;
+
+    @Value("${app.notification.fanout.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.notification.fanout.lease-ms:60000}")
+    private long leaseMillis;
+
+    @Value("${app.notification.fanout.max-attempts:5}")
+    private int maxAttempts;
+
+    public NotificationFanOutService(MongoTemplate mongoTemplate, NotificationPushBuffer pushBuffer,
+                                     UnreadCounterService unreadCounterService, CacheManager cacheManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.notification.fanout.workers:2}") int workerCount) {
+        this.mongoTemplate = mongoTemplate;
+        this.pushBuffer = pushBuffer;
+        this.unreadCounterService = unreadCounterService;
+        this.notificationCache = cacheManager.getCache("notifications");
+        // One queued wake-up per worker is enough: a running worker keeps claiming until no job is left
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount), r -> {
+            Thread thread = new Thread(r, "notification-fanout");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+        this.jobTimer = Timer.builder("repparton.notification.fanout")
+                .description("Time taken to deliver one fan-out notification job")
+                .register(meterRegistry);
+        this.delivered = Counter.builder("repparton.notification.fanout.delivered")
+                .description("Notifications written by fan-out jobs")
+                .register(meterRegistry);
+    }
+
+    public void notifyFollowers(String artistId, String message, String type, String referenceId) {
+        enqueue(new NotificationJob(NotificationJob.FOLLOWERS, artistId, null, message, type, referenceId));
+    }
+
+    public void notifyUsers(List<String> userIds, String message, String type, String referenceId) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        enqueue(new NotificationJob(NotificationJob.USERS, null, new ArrayList<>(userIds), message, type, referenceId));
+    }
+
+    // Roles are stored lowercase ("admin", "artist")
+    public void notifyRole(String role, String message, String type, String referenceId) {
+        role = role.toLowerCase(Locale.ROOT);
+        enqueue(new NotificationJob(NotificationJob.ROLE, role, null, message, type, referenceId));
+    }
+
+    // Also picks up jobs left behind by a restart or a worker that lost its lease
+    @Scheduled(fixedDelayString = "${app.notification.fanout.poll-interval-ms:5000}")
+    public void wakeUp() {
+        workers.execute(this::drain);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void enqueue(NotificationJob job) {
+        mongoTemplate.insert(job);
+        // Inside a transaction the job only becomes visible on commit, so start work after that
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    private void drain() {
+        NotificationJob job;
+        while ((job = claim()) != null) {
+            NotificationJob claimed = job;
+            jobTimer.record(() -> run(claimed));
+        }
+    }
+
+    private NotificationJob claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                where("status").is(NotificationJob.PENDING).orOperator(
+                        where("lockedUntil").is(null), where("lockedUntil").lte(now)),
+                where("status").is(NotificationJob.RUNNING).and("lockedUntil").lte(now)))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update update = new Update()
+                .set("status", NotificationJob.RUNNING)
+                .set("lockedUntil", now.plusNanos(leaseMillis * 1_000_000))
+                .inc("attempts", 1);
+        try {
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), NotificationJob.class);
+        } catch (Exception e) {
+            System.out.println("Failed to claim notification job - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void run(NotificationJob job) {
+        try {
+            List<String> recipients;
+            while (!(recipients = nextRecipients(job)).isEmpty()) {
+                deliver(job, recipients);
+            }
+            mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())),
+                    new Update().set("status", NotificationJob.DONE).set("completedAt", LocalDateTime.now()),
+                    NotificationJob.class);
+            System.out.println("Notification job " + job.getId() + " (" + job.getType() + ") delivered to "
+                    + job.getDelivered() + " users");
+        } catch (Exception e) {
+            boolean giveUp = job.getAttempts() >= maxAttempts;
+            // Back off before the next attempt; progress so far is kept in cursor
+            mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())),
+                    new Update().set("status", giveUp ? NotificationJob.FAILED : NotificationJob.PENDING)
+                            .set("lockedUntil", LocalDateTime.now().plusSeconds(30L * job.getAttempts())),
+                    NotificationJob.class);
+            System.out.println("Notification job " + job.getId() + " failed on attempt " + job.getAttempts()
+                    + (giveUp ? ", giving up" : ", will retry") + " - " + e.getMessage());
+        }
+    }
+
+    // Next chunk of recipient ids after job.cursor, in the order of an existing index
+    private List<String> nextRecipients(NotificationJob job) {
+        String cursor = job.getCursor();
+        List<String> ids = new ArrayList<>(chunkSize);
+        switch (job.getAudience()) {
+            case NotificationJob.FOLLOWERS -> {
+                Criteria criteria = where("artistId").is(job.getAudienceKey());
+                if (cursor != null) {
+                    criteria = criteria.and("followerId").gt(cursor);
+                }
+                Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "followerId")).limit(chunkSize);
+                query.fields().include("followerId");
+                mongoTemplate.find(query, Follow.class).forEach(follow -> ids.add(follow.getFollowerId()));
+            }
+            case NotificationJob.ROLE -> {
+                Criteria criteria = where("role").is(job.getAudienceKey());
+                if (cursor != null) {
+                    criteria = criteria.and("_id").gt(cursor);
+                }
+                Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(chunkSize);
+                query.fields().include("_id");
+                mongoTemplate.find(query, User.class).forEach(user -> ids.add(user.getId()));
+            }
+            case NotificationJob.USERS -> {
+                List<String> userIds = job.getUserIds();
+                int from = cursor != null ? Integer.parseInt(cursor) : 0;
+                ids.addAll(userIds.subList(Math.min(from, userIds.size()), Math.min(from + chunkSize, userIds.size())));
+            }
+            default -> throw new IllegalStateException("Unknown audience " + job.getAudience());
+        }
+        return ids;
+    }
+
+    private void deliver(NotificationJob job, List<String> recipients) {
+        List<Notification> notifications = new ArrayList<>(recipients.size());
+        for (String userId : recipients) {
+            notifications.add(new Notification(userId, job.getMessage(), job.getType(), job.getReferenceId()));
+        }
+        mongoTemplate.insert(notifications, Notification.class);
+        unreadCounterService.incrementAll(recipients);
+
+        if (notificationCache != null) {
+            recipients.forEach(notificationCache::evict);
+        }
+        pushBuffer.enqueue(notifications);
+        delivered.increment(notifications.size());
+
+        String cursor = NotificationJob.USERS.equals(job.getAudience())
+                ? String.valueOf((job.getCursor() != null ? Integer.parseInt(job.getCursor()) : 0) + recipients.size())
+                : recipients.get(recipients.size() - 1);
+        job.setCursor(cursor);
+        job.setDelivered(job.getDelivered() + recipients.size());
+        // Saving progress also renews the lease, so a long job is not taken over while it is making progress
+        mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())),
+                new Update().set("cursor", cursor)
+                        .set("delivered", job.getDelivered())
+                        .set("lockedUntil", LocalDateTime.now().plusNanos(leaseMillis * 1_000_000)),
+                NotificationJob.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces real-time pushes produced by notification fan-out.
+ * Notifications are grouped per user and sent every flush-interval-ms, so a user who receives several
+ * in one window gets one STOMP frame holding a list instead of one frame each.
+ * When more than max-pending notifications are waiting, the producer flushes inline, which slows
+ * fan-out down to the speed the broker can take instead of letting the buffer grow.
+ */
+@Component
+public class NotificationPushBuffer {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final Object lock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Counter frames;
+
+    private Map<String, List<Notification>> pending = new HashMap<>();
+    private int pendingCount;
+
+    @Value("${app.notification.push.max-pending:50000}")
+    private int maxPending;
+
+    public NotificationPushBuffer(SimpMessagingTemplate messagingTemplate, UnreadCounterService unreadCounterService,
+                                  MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.frames = Counter.builder("repparton.notification.push.frames")
+                .description("STOMP frames sent for fanned-out notifications")
+                .register(meterRegistry);
+        Gauge.builder("repparton.notification.push.pending", this, NotificationPushBuffer::getPendingCount)
+                .description("Notifications waiting to be pushed")
+                .register(meterRegistry);
+    }
+
+    public void enqueue(Collection<Notification> notifications) {
+        int size;
+        synchronized (lock) {
+            for (Notification notification : notifications) {
+                pending.computeIfAbsent(notification.getUserId(), id -> new ArrayList<>(1)).add(notification);
+            }
+            pendingCount += notifications.size();
+            size = pendingCount;
+        }
+        if (size >= maxPending) {
+            flush();
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.push.flush-interval-ms:250}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, List<Notification>> batch;
+            synchronized (lock) {
+                if (pendingCount == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = new HashMap<>();
+                pendingCount = 0;
+            }
+            batch.forEach(this::send);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Same destination and payload as NotificationService.sendNotification when there is only one
+    private void send(String userId, List<Notification> notifications) {
+        try {
+            Object payload = notifications.size() == 1 ? notifications.get(0) : notifications;
+            messagingTemplate.convertAndSend("/queue/notifications/" + userId, payload);
+            unreadCounterService.publish(userId, notifications.size(), null);
+            frames.increment();
+        } catch (Exception e) {
+            System.out.println("Failed to push notifications to user: " + userId + " - " + e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.DA2.Repparton.Service;
 
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.Entity.Notification;
-import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Repository.NotificationRepo;
-import com.DA2.Repparton.Repository.UserRepo;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,7 +19,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class NotificationService {
@@ -28,7 +32,16 @@ public class NotificationService {
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private UserRepo userRepo;
+    private NotificationFanOutService notificationFanOutService;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KeysetPaginator keysetPaginator;
 
     @Transactional
     @CacheEvict(value = "notifications", key = "#userId")
@@ -38,6 +51,7 @@ public class NotificationService {
             Notification notification = new Notification(userId, content, type, referenceId);
 
             Notification saved = notificationRepo.save(notification);
+            unreadCounterService.add(userId, 1);
 
             // Send real-time notification
             messagingTemplate.convertAndSend("/queue/notifications/" + userId, saved);
@@ -47,22 +61,21 @@ public class NotificationService {
         }
     }
 
-    @Cacheable(value = "notifications", key = "#userId")
-    public List<Notification> getNotifications(String userId) {
-        return notificationRepo.findByUserIdOrderByCreatedAtDesc(userId);
-    }
-
-    // Paginated version
-    public Page<Notification> getNotifications(String userId, Pageable pageable) {
-        return notificationRepo.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+    // Newest first. Only the default-sized first page is cached, under the user id the evictions above use
+    @Cacheable(value = "notifications", key = "#userId",
+            condition = "#cursor == null && #size == T(com.DA2.Repparton.Service.KeysetPaginator).DEFAULT_PAGE_SIZE")
+    public CursorPageDTO<Notification> getNotifications(String userId, String cursor, int size) {
+        return keysetPaginator.page(where("userId").is(userId), Notification.class, "createdAt",
+                Sort.Direction.DESC, cursor, size, Notification::getCreatedAt, Notification::getId);
     }
 
     public List<Notification> getUnreadNotifications(String userId) {
         return notificationRepo.findByUserIdAndIsReadOrderByCreatedAtDesc(userId, false);
     }
 
+    // Keyed read of the maintained counter, not a count over the user's notifications
     public long getUnreadCount(String userId) {
-        return notificationRepo.countByUserIdAndIsRead(userId, false);
+        return unreadCounterService.get(userId);
     }
 
     @Transactional
@@ -78,8 +91,13 @@ public class NotificationService {
                 throw new RuntimeException("Unauthorized access to notification");
             }
 
-            notification.setRead(true);
-            notificationRepo.save(notification);
+            // Only the request that actually flips the flag moves the counter
+            UpdateResult result = mongoTemplate.updateFirst(
+                    new Query(where("_id").is(notificationId).and("isRead").is(false)),
+                    new Update().set("isRead", true), Notification.class);
+            if (result.getModifiedCount() > 0) {
+                unreadCounterService.add(userId, -1);
+            }
 
             System.out.println("Notification marked as read: " + notificationId);
         }
@@ -88,14 +106,11 @@ public class NotificationService {
     @Transactional
     @CacheEvict(value = "notifications", key = "#userId")
     public void markAllAsRead(String userId) {
-        List<Notification> unreadNotifications = notificationRepo.findByUserIdAndIsReadOrderByCreatedAtDesc(userId, false);
-
-        for (Notification notification : unreadNotifications) {
-            notification.setRead(true);
-        }
-
-        notificationRepo.saveAll(unreadNotifications);
-        System.out.println("All notifications marked as read for user: " + userId);
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(where("userId").is(userId).and("isRead").is(false)),
+                new Update().set("isRead", true), Notification.class);
+        unreadCounterService.reset(userId);
+        System.out.println(result.getModifiedCount() + " notifications marked as read for user: " + userId);
     }
 
     @Transactional
@@ -112,37 +127,31 @@ public class NotificationService {
             }
 
             notificationRepo.delete(notification);
+            if (!notification.isRead()) {
+                unreadCounterService.add(userId, -1);
+            }
             System.out.println("Notification deleted: " + notificationId);
         }
     }
 
+    // Routine retention is the TTL index on Notification.createdAt; this is for purging sooner than that
     @Transactional
     public void deleteOldNotifications(int daysOld) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-        // Sử dụng cách thủ công vì repo không có method deleteByCreatedAtBefore
-        List<Notification> oldNotifications = notificationRepo.findAll()
-                .stream()
-                .filter(n -> n.getCreatedAt().isBefore(cutoffDate))
-                .collect(Collectors.toList());
-
-        notificationRepo.deleteAll(oldNotifications);
-        System.out.println("Deleted " + oldNotifications.size() + " old notifications older than " + daysOld + " days");
+        DeleteResult result = mongoTemplate.remove(new Query(where("createdAt").lt(cutoffDate)), Notification.class);
+        System.out.println("Deleted " + result.getDeletedCount() + " old notifications older than " + daysOld + " days");
     }
 
+    // Delivered in the background by NotificationFanOutService
     public void sendNotificationToAdmins(String content, String type, String referenceId) {
-        List<User> admins = userRepo.findByRole("ADMIN");
-
-        for (User admin : admins) {
-            sendNotification(admin.getId(), content, type, referenceId);
-        }
-
-        System.out.println("Notification sent to " + admins.size() + " admins");
+        notificationFanOutService.notifyRole("admin", content, type, referenceId);
     }
 
     public void sendBulkNotification(List<String> userIds, String content, String type, String referenceId) {
-        for (String userId : userIds) {
-            sendNotification(userId, content, type, referenceId);
-        }
-        System.out.println("Bulk notification sent to " + userIds.size() + " users");
+        notificationFanOutService.notifyUsers(userIds, content, type, referenceId);
+    }
+
+    public void sendNotificationToFollowers(String artistId, String content, String type, String referenceId) {
+        notificationFanOutService.notifyFollowers(artistId, content, type, referenceId);
     }
 }
@@ -0,0 +1,251 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.ListenHistory;
+import com.DA2.Repparton.Entity.Song;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Write-behind buffer for song plays.
+ * Plays are counted in memory (one LongAdder per song) and listen history rows are queued,
+ * then flushed together as one unordered bulk $inc on songs plus one insertMany on listen_history.
+ * A flush happens every flush-interval-ms, as soon as flush-threshold plays are buffered, and on shutdown;
+ * plays recorded after the shutdown flush are written directly.
+ */
+@Service
+public class PlayCountAggregator {
+
+    private final MongoTemplate mongoTemplate;
+    private final RecommendationEngine recommendationEngine;
+
+    private volatile Generation current = new Generation();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "play-count-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer flushTimer;
+
+    @Value("${app.playcount.flush-threshold:500}")
+    private int flushThreshold;
+
+    @Value("${app.playcount.max-pending:20000}")
+    private int maxPending;
+
+    public PlayCountAggregator(MongoTemplate mongoTemplate, RecommendationEngine recommendationEngine, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.recommendationEngine = recommendationEngine;
+        this.flushTimer = Timer.builder("repparton.playcount.flush")
+                .description("Time taken to flush buffered plays to MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("repparton.playcount.pending.events", this, PlayCountAggregator::getPendingEvents)
+                .description("Plays buffered and not yet written")
+                .register(meterRegistry);
+        Gauge.builder("repparton.playcount.pending.songs", this, aggregator -> aggregator.current.views.size())
+                .description("Distinct songs with buffered view increments")
+                .register(meterRegistry);
+    }
+
+    public void recordPlay(String songId, String userId) {
+        Generation gen = enter();
+        try {
+            gen.views.computeIfAbsent(songId, id -> new LongAdder()).increment();
+            if (userId != null) {
+                gen.history.add(new ListenHistory(userId, songId));
+            }
+            gen.events.increment();
+        } finally {
+            gen.inFlight.decrement();
+        }
+
+        long pending = gen.events.sum();
+        if (pending >= maxPending || flushExecutor.isShutdown()) {
+            // Buffer is full, or the shutdown flush has already run: make the caller wait for the write
+            // instead of growing without bound or leaving the play in a buffer nobody will flush
+            flush();
+        } else if (pending >= flushThreshold) {
+            try {
+                flushExecutor.execute(this::flushIfIdle);
+            } catch (RejectedExecutionException e) {
+                // Shut down since the check above
+                flush();
+            }
+        }
+    }
+
+    public long getPendingEvents() {
+        return current.events.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${app.playcount.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flushIfIdle();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushIfIdle() {
+        if (flushLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    // Register as a writer on the live generation, retrying if a flush swapped it underneath us
+    private Generation enter() {
+        while (true) {
+            Generation gen = current;
+            gen.inFlight.increment();
+            if (gen == current) {
+                return gen;
+            }
+            gen.inFlight.decrement();
+        }
+    }
+
+    private void drain() {
+        Generation gen = current;
+        if (gen.events.sum() == 0) {
+            return;
+        }
+        current = new Generation();
+
+        // Wait for writers that entered the old generation before the swap
+        while (gen.inFlight.sum() != 0) {
+            Thread.onSpinWait();
+        }
+
+        Map<String, Long> views = new HashMap<>();
+        gen.views.forEach((songId, adder) -> views.put(songId, adder.sum()));
+        List<ListenHistory> history = new ArrayList<>(gen.history);
+
+        flushTimer.record(() -> {
+            boolean viewsWritten = writeViews(views);
+            boolean historyWritten = writeHistory(history);
+            if (!viewsWritten || !historyWritten) {
+                requeue(viewsWritten ? Map.of() : views, historyWritten ? List.of() : history);
+            }
+        });
+    }
+
+    private boolean writeViews(Map<String, Long> views) {
+        if (views.isEmpty()) {
+            return true;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Song.class);
+            views.forEach((songId, count) -> bulk.updateOne(
+                    new Query(where("_id").is(songId)),
+                    new Update().inc("views", (int) Math.min(count, Integer.MAX_VALUE))));
+            bulk.execute();
+            return true;
+        } catch (Exception e) {
+            System.out.println("Failed to flush view counts for " + views.size() + " songs - " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean writeHistory(List<ListenHistory> history) {
+        if (history.isEmpty()) {
+            return true;
+        }
+        try {
+            Map<String, Song> songs = findListenedSongs(history);
+            List<ListenHistory> valid = new ArrayList<>(history.size());
+            for (ListenHistory h : history) {
+                if (songs.containsKey(h.getSongId())) {
+                    valid.add(h);
+                }
+            }
+            if (!valid.isEmpty()) {
+                mongoTemplate.insert(valid, ListenHistory.class);
+            }
+            // Only once the rows are stored, so a retried batch is not counted twice
+            valid.forEach(h -> recommendationEngine.recordListen(h.getUserId(), songs.get(h.getSongId())));
+            return true;
+        } catch (Exception e) {
+            System.out.println("Failed to flush " + history.size() + " listen history entries - " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Puts a batch that failed to write back into the live generation for the next flush.
+    // Counts against max-pending; when the buffer is already full the batch is dropped rather than grown.
+    private void requeue(Map<String, Long> views, List<ListenHistory> history) {
+        long plays = Math.max(views.values().stream().mapToLong(Long::longValue).sum(), history.size());
+        Generation gen = enter();
+        try {
+            if (gen.events.sum() + plays > maxPending) {
+                System.out.println("Dropping " + plays + " plays after a failed flush - buffer is full");
+                return;
+            }
+            views.forEach((songId, count) -> gen.views.computeIfAbsent(songId, id -> new LongAdder()).add(count));
+            gen.history.addAll(history);
+            gen.events.add(plays);
+        } finally {
+            gen.inFlight.decrement();
+        }
+    }
+
+    // One lookup per flush instead of one findById per play; also drops plays of unknown songs
+    private Map<String, Song> findListenedSongs(List<ListenHistory> history) {
+        Set<String> songIds = new HashSet<>();
+        history.forEach(h -> songIds.add(h.getSongId()));
+
+        Query query = new Query(where("_id").in(songIds));
+        query.fields().include("_id").include("artistId").include("genreIds");
+        Map<String, Song> songs = new HashMap<>();
+        mongoTemplate.find(query, Song.class).forEach(song -> songs.put(song.getId(), song));
+        return songs;
+    }
+
+    private static class Generation {
+        final ConcurrentHashMap<String, LongAdder> views = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<ListenHistory> history = new ConcurrentLinkedQueue<>();
+        final LongAdder events = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+    }
+}
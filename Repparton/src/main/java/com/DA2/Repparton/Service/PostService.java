@@ -1,26 +1,29 @@
 package com.DA2.Repparton.Service;
 
+import com.DA2.Repparton.DTO.CursorPageDTO;
 import com.DA2.Repparton.DTO.PostDTO;
 import com.DA2.Repparton.Entity.Post;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Repository.PostRepo;
-import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @Service
 public class PostService {
 
@@ -31,10 +34,16 @@ public class PostService {
     private CloudinaryService cloudinaryService;
 
     @Autowired
-    private UserRepo userRepository;
+    private TimelineService timelineService;
+
+    @Autowired
+    private BatchLoader batchLoader;
 
     @Autowired
-    private FollowService followService;
+    private UserSummaryLoader userSummaryLoader;
+
+    @Autowired
+    private KeysetPaginator keysetPaginator;
 
     @Autowired
     private NotificationService notificationService;
@@ -43,8 +52,9 @@ public class PostService {
     @CacheEvict(value = "posts", allEntries = true)
     public PostDTO createPost(String userId, String content, MultipartFile mediaFile) throws IOException {
         // Validate user exists
-        userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (userSummaryLoader.load(userId) == null) {
+            throw new RuntimeException("User not found");
+        }
 
         // Validate content
         if (content == null || content.trim().isEmpty()) {
@@ -80,48 +90,51 @@ public class PostService {
         Post savedPost = postRepository.save(post);
 
         System.out.println("Created post with ID: " + savedPost.getId());
+        timelineService.onPostCreated(savedPost);
 
         return convertToDTO(savedPost);
     }
 
-    @Cacheable(value = "posts", key = "#userId")
-    public Page<PostDTO> getPostsByUser(String userId, Pageable pageable) {
-        Page<Post> posts = postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-        List<PostDTO> postDTOs = posts.getContent().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return new PageImpl<>(postDTOs, pageable, posts.getTotalElements());
+    public CursorPageDTO<PostDTO> getPostsByUser(String userId, String cursor, int size) {
+        CursorPageDTO<Post> posts = keysetPaginator.page(where("userId").is(userId), Post.class, "createdAt",
+                Sort.Direction.DESC, cursor, size, Post::getCreatedAt, Post::getId);
+        return KeysetPaginator.map(posts, this::convertToDTOs);
     }
 
-    @Cacheable(value = "posts", key = "'feed_' + #userId")
-    public Page<PostDTO> getFeed(String userId, Pageable pageable) {
-        // Get user's following list
-        List<String> followingIds = followService.getFollowingIds(userId);
-        followingIds.add(userId); // Include user's own posts
+    // Reads the user's precomputed timeline; cursor is null for the first page
+    public CursorPageDTO<PostDTO> getFeed(String userId, String cursor, int size) {
+        // One extra entry tells us whether there is another page without a count query
+        List<TimelineService.Entry> entries = timelineService.read(userId, cursor, size + 1);
+        boolean hasMore = entries.size() > size;
+        if (hasMore) {
+            entries = entries.subList(0, size);
+        }
 
-        Page<Post> posts = postRepository.findByUserIdInOrderByCreatedAtDesc(followingIds, pageable);
-        List<PostDTO> postDTOs = posts.getContent().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return new PageImpl<>(postDTOs, pageable, posts.getTotalElements());
-    }
+        List<String> postIds = new ArrayList<>(entries.size());
+        entries.forEach(entry -> postIds.add(entry.postId()));
+        Map<String, Post> postsById = new HashMap<>();
+        postRepository.findAllById(postIds).forEach(post -> postsById.put(post.getId(), post));
+
+        // Deleted posts are dropped here rather than pulled from every follower's timeline
+        List<Post> posts = new ArrayList<>(entries.size());
+        for (String postId : postIds) {
+            Post post = postsById.get(postId);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
 
-    @Cacheable(value = "posts", key = "'public'")
-    public Page<PostDTO> getPublicPosts(Pageable pageable) {
-        // Sử dụng method có sẵn trong repo: findByIsPrivate(false)
-        List<Post> publicPosts = postRepository.findByIsPrivate(false);
-        // Convert to page manually
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), publicPosts.size());
-        List<Post> pageContent = publicPosts.subList(start, end);
+        String nextCursor = hasMore ? TimelineService.cursorOf(entries.get(entries.size() - 1)) : null;
+        return new CursorPageDTO<>(convertToDTOs(posts), nextCursor, hasMore);
+    }
 
-        List<PostDTO> postDTOs = pageContent.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return new PageImpl<>(postDTOs, pageable, publicPosts.size());
+    public CursorPageDTO<PostDTO> getPublicPosts(String cursor, int size) {
+        CursorPageDTO<Post> posts = keysetPaginator.page(where("isPrivate").is(false), Post.class, "createdAt",
+                Sort.Direction.DESC, cursor, size, Post::getCreatedAt, Post::getId);
+        return KeysetPaginator.map(posts, this::convertToDTOs);
     }
 
-    @Cacheable(value = "trending")
+    @Cacheable(value = "trendingPosts", key = "#limit")
     public List<PostDTO> getTrendingPosts(int limit) {
         // Sử dụng method có sẵn trong repo
         LocalDateTime weekAgo = LocalDateTime.now().minusDays(7);
@@ -175,9 +188,23 @@ public class PostService {
         System.out.println("Deleted post with ID: " + postId);
     }
 
+    // Authors are loaded with one query for the whole page
+    private List<PostDTO> convertToDTOs(List<Post> posts) {
+        Map<String, User> authors = batchLoader.loadUsers(
+                posts.stream().map(Post::getUserId).collect(Collectors.toSet()));
+        List<PostDTO> dtos = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            dtos.add(convertToDTO(post, authors.get(post.getUserId())));
+        }
+        return dtos;
+    }
+
     private PostDTO convertToDTO(Post post) {
-        // Get user information
-        Optional<User> user = userRepository.findById(post.getUserId());
+        return convertToDTO(post, userSummaryLoader.load(post.getUserId()));
+    }
+
+    private PostDTO convertToDTO(Post post, User author) {
+        Optional<User> user = Optional.ofNullable(author);
         String username = user.map(User::getUsername).orElse("Unknown User");
         String userAvatarUrl = user.map(User::getAvatarUrl).orElse(null);
 
@@ -0,0 +1,310 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory recommendation engine.
+ * Keeps a popularity index (top songs per genre, per artist and overall) rebuilt periodically
+ * from the catalogue, and a small genre/artist affinity profile per user updated from listens.
+ * Serving a request is a top-K merge over a handful of precomputed candidate lists.
+ */
+@Component
+public class RecommendationEngine {
+
+    static final int CANDIDATES_PER_GENRE = 200;
+    static final int CANDIDATES_PER_ARTIST = 20;
+    static final int GLOBAL_CANDIDATES = 500;
+
+    private static final int TOP_GENRES = 5;
+    private static final int TOP_ARTISTS = 5;
+    private static final double ARTIST_WEIGHT = 0.5;
+
+    private volatile Index index = new Index(Map.of(), Map.of(), List.of(), 0);
+
+    private final Cache<String, UserProfile> profiles = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofHours(6))
+            .build();
+
+    /**
+     * Rebuilds the popularity index. Songs must arrive sorted by views, most played first,
+     * so each candidate list is filled in rank order and can stop once it is full.
+     */
+    public void rebuild(Iterator<Song> songsByViewsDesc) {
+        Map<String, List<Song>> byGenre = new HashMap<>();
+        Map<String, List<Song>> byArtist = new HashMap<>();
+        List<Song> global = new ArrayList<>(GLOBAL_CANDIDATES);
+        int maxViews = 0;
+
+        while (songsByViewsDesc.hasNext()) {
+            Song song = songsByViewsDesc.next();
+            maxViews = Math.max(maxViews, song.getViews());
+            if (global.size() < GLOBAL_CANDIDATES) {
+                global.add(song);
+            }
+            if (song.getGenreIds() != null) {
+                for (String genreId : song.getGenreIds()) {
+                    List<Song> list = byGenre.computeIfAbsent(genreId, g -> new ArrayList<>());
+                    if (list.size() < CANDIDATES_PER_GENRE) {
+                        list.add(song);
+                    }
+                }
+            }
+            if (song.getArtistId() != null) {
+                List<Song> list = byArtist.computeIfAbsent(song.getArtistId(), a -> new ArrayList<>());
+                if (list.size() < CANDIDATES_PER_ARTIST) {
+                    list.add(song);
+                }
+            }
+        }
+
+        index = new Index(byGenre, byArtist, global, maxViews);
+    }
+
+    public boolean hasProfile(String userId) {
+        return profiles.getIfPresent(userId) != null;
+    }
+
+    /**
+     * Seeds a profile from stored history, oldest listen first. Replaces any existing profile.
+     */
+    public void loadProfile(String userId, List<Song> listenedOldestFirst) {
+        UserProfile profile = new UserProfile();
+        for (Song song : listenedOldestFirst) {
+            profile.record(song);
+        }
+        profiles.put(userId, profile);
+    }
+
+    /**
+     * Applies a listen to a profile that is already in memory. Users without a profile are
+     * seeded from their stored history on their next request, which already includes this listen.
+     */
+    public void recordListen(String userId, Song song) {
+        UserProfile profile = profiles.getIfPresent(userId);
+        if (profile != null) {
+            profile.record(song);
+        }
+    }
+
+    public List<Song> recommend(String userId, int limit) {
+        UserProfile profile = profiles.getIfPresent(userId);
+        Index current = index;
+        if (profile == null || profile.isEmpty()) {
+            return popular(current, limit, Set.of(), userId);
+        }
+
+        ProfileSnapshot snapshot = profile.snapshot();
+        Map<String, Scored> candidates = new HashMap<>();
+
+        for (Map.Entry<String, Double> genre : snapshot.genres) {
+            for (Song song : current.byGenre.getOrDefault(genre.getKey(), List.of())) {
+                addCandidate(candidates, song, genre.getValue() * current.popularity(song), snapshot.recent, userId);
+            }
+        }
+        for (Map.Entry<String, Double> artist : snapshot.artists) {
+            for (Song song : current.byArtist.getOrDefault(artist.getKey(), List.of())) {
+                addCandidate(candidates, song, ARTIST_WEIGHT * artist.getValue() * current.popularity(song), snapshot.recent, userId);
+            }
+        }
+
+        List<Song> result = topK(candidates.values(), limit);
+        if (result.size() < limit) {
+            Set<String> seen = new LinkedHashSet<>(snapshot.recent);
+            result.forEach(song -> seen.add(song.getId()));
+            result.addAll(popular(current, limit - result.size(), seen, userId));
+        }
+        return result;
+    }
+
+    /**
+     * Artists ranked by the user's genre affinity, falling back to the most played artists.
+     */
+    public List<String> recommendArtists(String userId, int limit, Set<String> exclude) {
+        Index current = index;
+        Set<String> artists = new LinkedHashSet<>();
+        for (Song song : recommend(userId, limit * 4)) {
+            addArtist(artists, song, exclude, limit);
+        }
+        for (Song song : current.global) {
+            addArtist(artists, song, exclude, limit);
+        }
+        return new ArrayList<>(artists);
+    }
+
+    private static void addArtist(Set<String> artists, Song song, Set<String> exclude, int limit) {
+        if (artists.size() < limit && song.getArtistId() != null && !exclude.contains(song.getArtistId())) {
+            artists.add(song.getArtistId());
+        }
+    }
+
+    private static void addCandidate(Map<String, Scored> candidates, Song song, double score, Set<String> recent, String userId) {
+        if (recent.contains(song.getId()) || userId.equals(song.getArtistId())) {
+            return;
+        }
+        Scored scored = candidates.computeIfAbsent(song.getId(), id -> new Scored(song));
+        scored.score += score;
+    }
+
+    private static List<Song> topK(Iterable<Scored> candidates, int k) {
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingDouble(s -> s.score));
+        for (Scored candidate : candidates) {
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (k > 0 && candidate.score > heap.peek().score) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<Song> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().song);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static List<Song> popular(Index current, int limit, Set<String> exclude, String userId) {
+        List<Song> result = new ArrayList<>(limit);
+        for (Song song : current.global) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!exclude.contains(song.getId()) && !userId.equals(song.getArtistId())) {
+                result.add(song);
+            }
+        }
+        return result;
+    }
+
+    private static final class Scored {
+        final Song song;
+        double score;
+
+        Scored(Song song) {
+            this.song = song;
+        }
+    }
+
+    private static final class Index {
+        final Map<String, List<Song>> byGenre;
+        final Map<String, List<Song>> byArtist;
+        final List<Song> global;
+        final double logMaxViews;
+
+        Index(Map<String, List<Song>> byGenre, Map<String, List<Song>> byArtist, List<Song> global, int maxViews) {
+            this.byGenre = byGenre;
+            this.byArtist = byArtist;
+            this.global = global;
+            this.logMaxViews = Math.log1p(maxViews);
+        }
+
+        // Views on a log scale so a handful of hits do not drown out the user's affinities
+        double popularity(Song song) {
+            if (logMaxViews == 0) {
+                return 1.0;
+            }
+            return 0.1 + Math.log1p(song.getViews()) / logMaxViews;
+        }
+    }
+
+    private record ProfileSnapshot(List<Map.Entry<String, Double>> genres,
+                                   List<Map.Entry<String, Double>> artists,
+                                   Set<String> recent) {
+    }
+
+    /**
+     * Genre and artist affinity for one user. Older listens fade by halving all scores
+     * whenever the total grows past a threshold, which keeps the maps small and recent-biased.
+     */
+    private static final class UserProfile {
+        private static final int MAX_GENRES = 32;
+        private static final int MAX_ARTISTS = 64;
+        private static final int MAX_RECENT = 500;
+        private static final double DECAY_THRESHOLD = 200.0;
+
+        private final Map<String, Double> genres = new HashMap<>();
+        private final Map<String, Double> artists = new HashMap<>();
+        private final LinkedHashMap<String, Boolean> recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_RECENT;
+            }
+        };
+        private double total;
+
+        synchronized void record(Song song) {
+            if (song.getGenreIds() != null && !song.getGenreIds().isEmpty()) {
+                double share = 1.0 / song.getGenreIds().size();
+                for (String genreId : song.getGenreIds()) {
+                    genres.merge(genreId, share, Double::sum);
+                }
+            }
+            if (song.getArtistId() != null) {
+                artists.merge(song.getArtistId(), 1.0, Double::sum);
+            }
+            recent.put(song.getId(), Boolean.TRUE);
+
+            total += 1.0;
+            if (total > DECAY_THRESHOLD) {
+                decay();
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return recent.isEmpty();
+        }
+
+        synchronized ProfileSnapshot snapshot() {
+            return new ProfileSnapshot(normalizedTop(genres, TOP_GENRES), normalizedTop(artists, TOP_ARTISTS),
+                    new LinkedHashSet<>(recent.keySet()));
+        }
+
+        private void decay() {
+            genres.replaceAll((k, v) -> v / 2);
+            artists.replaceAll((k, v) -> v / 2);
+            total /= 2;
+            prune(genres, MAX_GENRES);
+            prune(artists, MAX_ARTISTS);
+        }
+
+        private static void prune(Map<String, Double> scores, int max) {
+            if (scores.size() <= max) {
+                return;
+            }
+            List<Map.Entry<String, Double>> sorted = new ArrayList<>(scores.entrySet());
+            sorted.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+            for (int i = max; i < sorted.size(); i++) {
+                scores.remove(sorted.get(i).getKey());
+            }
+        }
+
+        private static List<Map.Entry<String, Double>> normalizedTop(Map<String, Double> scores, int n) {
+            List<Map.Entry<String, Double>> sorted = new ArrayList<>(scores.entrySet());
+            sorted.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+            List<Map.Entry<String, Double>> top = sorted.subList(0, Math.min(n, sorted.size()));
+            double sum = top.stream().mapToDouble(Map.Entry::getValue).sum();
+            List<Map.Entry<String, Double>> result = new ArrayList<>(top.size());
+            for (Map.Entry<String, Double> entry : top) {
+                result.add(Map.entry(entry.getKey(), sum == 0 ? 0 : entry.getValue() / sum));
+            }
+            return result;
+        }
+    }
+}
@@ -10,15 +10,24 @@ import com.DA2.Repparton.Repository.SongRepo;
 import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class RecommendationService {
 
+    // How many past listens seed a user's affinity profile
+    private static final int PROFILE_HISTORY_SIZE = 200;
+
     @Autowired
     private SongRepo songRepo;
 
@@ -31,80 +40,109 @@ public class RecommendationService {
     @Autowired
     private FollowRepo followRepo;
 
-    public List<Song> getRecommendedSongs(String userId, int limit) {
-        try {
-            // Get user's listening history
-            List<ListenHistory> userHistory = listenHistoryRepo.findByUserId(userId);
-
-            if (userHistory.isEmpty()) {
-                // New user - return trending songs
-                return getTrendingSongs(limit);
-            }
-
-            // Simple recommendation: songs from similar genres
-            List<String> userSongIds = userHistory.stream()
-                    .map(ListenHistory::getSongId)
-                    .collect(Collectors.toList());
-
-            // Get songs user hasn't listened to
-            List<Song> allSongs = songRepo.findAll();
-            List<Song> recommendations = allSongs.stream()
-                    .filter(song -> !userSongIds.contains(song.getId()))
-                    .filter(song -> !song.isPrivate())
-                    .limit(limit)
-                    .collect(Collectors.toList());
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
-            return recommendations;
+    @Autowired
+    private RecommendationEngine engine;
 
+    public List<Song> getRecommendedSongs(String userId, int limit) {
+        try {
+            ensureProfile(userId);
+            // The index only holds the fields it ranks on; load the full songs for the response
+            return findSongsInOrder(engine.recommend(userId, limit).stream()
+                    .map(Song::getId)
+                    .collect(Collectors.toList()));
         } catch (Exception e) {
+            System.out.println("Failed to build recommendations for user " + userId + ": " + e.getMessage());
             return getTrendingSongs(limit);
         }
     }
 
     public List<User> getRecommendedUsers(String userId, int limit) {
         try {
+            ensureProfile(userId);
+
             // Get users the current user is following
-            List<Follow> following = followRepo.findByFollowerId(userId);
-            List<String> followingIds = following.stream()
+            Set<String> excluded = followRepo.findByFollowerId(userId).stream()
                     .map(Follow::getArtistId)
-                    .collect(Collectors.toList());
-            followingIds.add(userId); // Exclude self
+                    .collect(Collectors.toCollection(HashSet::new));
+            excluded.add(userId); // Exclude self
 
-            // Get users not being followed
-            List<User> allUsers = userRepo.findAll();
-            List<User> recommendations = allUsers.stream()
-                    .filter(user -> !followingIds.contains(user.getId()))
-                    .limit(limit)
-                    .collect(Collectors.toList());
-
-            return recommendations;
+            return findUsersInOrder(engine.recommendArtists(userId, limit, excluded));
 
         } catch (Exception e) {
             return getPopularUsers(limit);
         }
     }
 
-    private List<Song> getTrendingSongs(int limit) {
+    // Rebuild the per-genre popularity index off the request path
+    @Scheduled(initialDelayString = "${app.recommendation.index-initial-delay-ms:5000}",
+               fixedDelayString = "${app.recommendation.index-refresh-ms:300000}")
+    public void rebuildIndex() {
         try {
-            // Sử dụng method có sẵn trong SongRepo
-            List<Song> allSongs = songRepo.findByStatusAndIsPrivateOrderByCreatedAtDesc("approved", false);
-            return allSongs.stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
+            Query query = new Query(Criteria.where("status").is("approved").and("isPrivate").is(false))
+                    .with(Sort.by(Sort.Direction.DESC, "views"));
+            // Skip lyrics, AI analysis and the rest of the document; the index ranks on these alone
+            query.fields().include("_id", "artistId", "genreIds", "views");
+            try (Stream<Song> songs = mongoTemplate.stream(query, Song.class)) {
+                engine.rebuild(songs.iterator());
+            }
         } catch (Exception e) {
-            // Fallback: lấy tất cả bài hát public
-            List<Song> allSongs = songRepo.findByIsPrivate(false);
-            return allSongs.stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
+            System.out.println("Failed to rebuild recommendation index: " + e.getMessage());
         }
     }
 
-    private List<User> getPopularUsers(int limit) {
-        // Get users with most followers
-        List<User> allUsers = userRepo.findAll();
-        return allUsers.stream()
-                .limit(limit)
+    // Seed the affinity profile from a capped slice of history the first time we see a user
+    private void ensureProfile(String userId) {
+        if (engine.hasProfile(userId)) {
+            return;
+        }
+        List<ListenHistory> history = listenHistoryRepo.findByUserIdOrderByCreatedAtDesc(
+                userId, PageRequest.of(0, PROFILE_HISTORY_SIZE));
+
+        List<String> songIds = history.stream()
+                .map(ListenHistory::getSongId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, Song> songsById = songRepo.findByIdIn(songIds).stream()
+                .collect(Collectors.toMap(Song::getId, Function.identity()));
+
+        List<Song> listened = new ArrayList<>(history.size());
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Song song = songsById.get(history.get(i).getSongId());
+            if (song != null) {
+                listened.add(song);
+            }
+        }
+        engine.loadProfile(userId, listened);
+    }
+
+    private List<Song> findSongsInOrder(List<String> songIds) {
+        Map<String, Song> songsById = new HashMap<>();
+        songRepo.findByIdIn(songIds).forEach(song -> songsById.put(song.getId(), song));
+        return songIds.stream()
+                .map(songsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<User> findUsersInOrder(List<String> userIds) {
+        Map<String, User> usersById = new HashMap<>();
+        userRepo.findAllById(userIds).forEach(user -> usersById.put(user.getId(), user));
+        return userIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    private List<Song> getTrendingSongs(int limit) {
+        return songRepo.findByIsPrivateFalseAndStatusOrderByViewsDesc(
+                "approved", PageRequest.of(0, limit, Sort.by("views").descending()));
+    }
+
+    private List<User> getPopularUsers(int limit) {
+        // Artists behind the most played songs
+        return findUsersInOrder(engine.recommendArtists("", limit, Set.of()));
+    }
 }
@@ -0,0 +1,71 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Config.PageableKeyGenerator;
+import com.DA2.Repparton.Entity.Song;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Targeted eviction for song caches, so a single upload or approval only drops
+ * the entries it can actually change instead of clearing whole caches.
+ */
+@Component
+public class SongCacheEvictor {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Upload/delete of a song that never went public: only the artist's own list changes
+    public void evictForArtistChange(Song song) {
+        evictKey("songs", song.getId());
+        evictKey("songs", PageableKeyGenerator.key("getSongsByArtist", song.getArtistId()));
+    }
+
+    // Song entered or left the public catalogue: its genres, the public listing and trending change too
+    public void evictForPublicChange(Song song) {
+        evictForArtistChange(song);
+        evictPrefix("songs", PageableKeyGenerator.key("getAllPublicApprovedSongs") + ":");
+        List<String> genreIds = song.getGenreIds();
+        if (genreIds != null) {
+            for (String genreId : genreIds) {
+                evictPrefix("songs", PageableKeyGenerator.prefix("getSongsByGenre", genreId));
+            }
+        }
+        clear("trending");
+    }
+
+    // Counter changes only make the single-song entry stale
+    public void evictSong(String songId) {
+        evictKey("songs", songId);
+    }
+
+    private void evictKey(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void evictPrefix(String cacheName, String prefix) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            nativeCache.asMap().keySet().removeIf(key -> key instanceof String s && s.startsWith(prefix));
+        } else {
+            cache.clear();
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
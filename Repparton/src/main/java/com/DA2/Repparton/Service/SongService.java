@@ -1,19 +1,17 @@
 package com.DA2.Repparton.Service;
 
+import com.DA2.Repparton.Config.PageableKeyGenerator;
 import com.DA2.Repparton.DTO.SongDTO;
-import com.DA2.Repparton.Entity.ListenHistory;
 import com.DA2.Repparton.Entity.Song;
 import com.DA2.Repparton.Entity.User;
 import com.DA2.Repparton.Repository.ListenHistoryRepo;
 import com.DA2.Repparton.Repository.SongRepo;
 import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -21,21 +19,23 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class SongService {
 
+    private static final int RECOMMENDATION_HISTORY_SIZE = 200;
+    private static final int MIN_HISTORY_SCAN = 1000;
+    private static final int HISTORY_SCAN_FACTOR = 20;
+
     @Autowired
     private SongRepo songRepository;
 
     @Autowired
     private CloudinaryService cloudinaryService;
 
-    @Autowired
-    private FollowService followService;
-
     @Autowired
     private ListenHistoryRepo listenHistoryRepo;
 
@@ -45,8 +45,22 @@ public class SongService {
     @Autowired
     private UserRepo userRepository;
 
+    @Autowired
+    private PlayCountAggregator playCountAggregator;
+
+    @Autowired
+    private TrendingSongsLoader trendingSongsLoader;
+
+    @Autowired
+    private SongCacheEvictor songCacheEvictor;
+
+    @Autowired
+    private BatchLoader batchLoader;
+
+    @Autowired
+    private TranscodeService transcodeService;
+
     @Transactional
-    @CacheEvict(value = {"songs", "trending", "recommendations"}, allEntries = true)
     public Song uploadSong(String title,
                            String artistId,
                            MultipartFile audioFile,
@@ -98,9 +112,15 @@ public class SongService {
 
         Song savedSong = songRepository.save(song);
 
+        // New songs start pending, so only the artist's own list is affected
+        songCacheEvictor.evictForArtistChange(savedSong);
+
+        // HLS renditions are produced in the background; the original file stays playable meanwhile
+        transcodeService.enqueue(savedSong);
+
         // Notify followers if song is public
         if (!isPrivate) {
-            notifyFollowersAboutNewSong(artistId, savedSong);
+            notifyFollowersAboutNewSong(artist, savedSong);
         }
 
         System.out.println("Song uploaded successfully: " + title + " by artist: " + artistId);
@@ -120,12 +140,12 @@ public class SongService {
         return songRepository.findByIdIn(songIds);
     }
 
-    @Cacheable(value = "songs", key = "'public-approved'")
+    @Cacheable(value = "songs", keyGenerator = PageableKeyGenerator.BEAN_NAME)
     public Page<Song> getAllPublicApprovedSongs(Pageable pageable) {
         return songRepository.findByIsPrivateFalseAndStatus("approved", pageable);
     }
 
-    @Cacheable(value = "songs", key = "'artist-' + #artistId")
+    @Cacheable(value = "songs", keyGenerator = PageableKeyGenerator.BEAN_NAME)
     public List<Song> getSongsByArtist(String artistId) {
         return songRepository.findByArtistIdOrderByCreatedAtDesc(artistId);
     }
@@ -135,34 +155,31 @@ public class SongService {
                 title, "approved", pageable);
     }
 
-    @Cacheable(value = "songs", key = "'genre-' + #genreId")
+    @Cacheable(value = "songs", keyGenerator = PageableKeyGenerator.BEAN_NAME)
     public Page<Song> getSongsByGenre(String genreId, Pageable pageable) {
         return songRepository.findByGenreIdsContainingAndIsPrivateFalseAndStatus(
                 genreId, "approved", pageable);
     }
 
-    @Cacheable(value = "trending", key = "'trending-songs'")
+    // The "trending" cache is keyed by limit and refreshed in the background by TrendingSongsLoader
+    @Cacheable(value = "trending", key = "#limit")
     public List<Song> getTrendingSongs(int limit) {
-        Pageable pageable = PageRequest.of(0, limit, Sort.by("views").descending());
-        return songRepository.findByIsPrivateFalseAndStatusOrderByViewsDesc("approved", pageable);
+        return trendingSongsLoader.loadTrending(limit);
     }
 
-    @Cacheable(value = "recommendations", key = "#userId")
+    @Cacheable(value = "recommendations", keyGenerator = PageableKeyGenerator.BEAN_NAME)
     public List<Song> getRecommendedSongs(String userId, int limit) {
-        // Get user's listening history
-        List<ListenHistory> history = listenHistoryRepo.findByUserIdOrderByCreatedAtDesc(userId);
+        // Get the songs behind the user's recent listening history
+        List<String> recentSongIds = findRecentSongIds(userId, RECOMMENDATION_HISTORY_SIZE, 0);
 
-        if (history.isEmpty()) {
+        if (recentSongIds.isEmpty()) {
             // Return trending songs for new users
             return getTrendingSongs(limit);
         }
 
         // Get genres from user's listening history
-        List<String> userGenres = history.stream()
-                .map(ListenHistory::getSongId)
-                .map(songId -> songRepository.findById(songId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+        List<String> userGenres = batchLoader.loadSongsInOrder(recentSongIds).stream()
+                .filter(song -> song.getGenreIds() != null)
                 .flatMap(song -> song.getGenreIds().stream())
                 .distinct()
                 .collect(Collectors.toList());
@@ -180,36 +197,15 @@ public class SongService {
     // Get recent songs with pagination support
     public List<Song> getRecentSongs(String userId, int limit, int page) {
         try {
-            // Get recent listen history for user, ordered by most recent first
-            List<ListenHistory> recentHistory = listenHistoryRepo.findByUserIdOrderByCreatedAtDesc(userId);
-            
-            if (recentHistory.isEmpty()) {
+            List<String> pagedSongIds = findRecentSongIds(userId, limit, page);
+
+            if (pagedSongIds.isEmpty()) {
                 // If no history, return some popular songs as fallback
-                return getTrendingSongs(limit);
+                return hasNoHistory(userId, page) ? getTrendingSongs(limit) : List.of();
             }
-            
-            // Get unique song IDs from history (to avoid duplicates)
-            List<String> uniqueSongIds = recentHistory.stream()
-                .map(ListenHistory::getSongId)
-                .distinct() // Remove duplicates
-                .collect(Collectors.toList());
-            
-            // Apply pagination
-            int startIndex = page * limit;
-            int endIndex = Math.min(startIndex + limit, uniqueSongIds.size());
-            
-            if (startIndex >= uniqueSongIds.size()) {
-                return List.of(); // Return empty list if page is out of bounds
-            }
-            
-            List<String> pagedSongIds = uniqueSongIds.subList(startIndex, endIndex);
-            
+
             // Fetch songs by IDs and maintain the order
-            return pagedSongIds.stream()
-                .map(songId -> songRepository.findById(songId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+            return batchLoader.loadSongsInOrder(pagedSongIds);
                 
         } catch (Exception e) {
             System.out.println("Error getting recent songs for user " + userId + ": " + e.getMessage());
@@ -221,40 +217,15 @@ public class SongService {
     // Get recent songs with artist information as DTOs
     public List<SongDTO> getRecentSongsWithArtistInfo(String userId, int limit, int page) {
         try {
-            // Get recent listen history for user, ordered by most recent first
-            List<ListenHistory> recentHistory = listenHistoryRepo.findByUserIdOrderByCreatedAtDesc(userId);
-            
-            if (recentHistory.isEmpty()) {
+            List<String> pagedSongIds = findRecentSongIds(userId, limit, page);
+
+            if (pagedSongIds.isEmpty()) {
                 // If no history, return some popular songs as fallback
-                return getTrendingSongsWithArtistInfo(limit);
-            }
-            
-            // Get unique song IDs from history (to avoid duplicates)
-            List<String> uniqueSongIds = recentHistory.stream()
-                .map(ListenHistory::getSongId)
-                .distinct() // Remove duplicates
-                .collect(Collectors.toList());
-            
-            // Apply pagination
-            int startIndex = page * limit;
-            int endIndex = Math.min(startIndex + limit, uniqueSongIds.size());
-            
-            if (startIndex >= uniqueSongIds.size()) {
-                return List.of(); // Return empty list if page is out of bounds
+                return hasNoHistory(userId, page) ? getTrendingSongsWithArtistInfo(limit) : List.of();
             }
-            
-            List<String> pagedSongIds = uniqueSongIds.subList(startIndex, endIndex);
-            
+
             // Fetch songs by IDs and enrich with artist information
-            return pagedSongIds.stream()
-                .map(songId -> songRepository.findById(songId))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(song -> {
-                    User artist = userRepository.findById(song.getArtistId()).orElse(null);
-                    return SongDTO.fromSongAndArtist(song, artist);
-                })
-                .collect(Collectors.toList());
+            return toDTOsWithArtists(batchLoader.loadSongsInOrder(pagedSongIds));
                 
         } catch (Exception e) {
             System.out.println("Error getting recent songs with artist info for user " + userId + ": " + e.getMessage());
@@ -263,39 +234,41 @@ public class SongService {
         }
     }
 
+    // Distinct song ids for one page of history, newest first, without loading ListenHistory documents
+    private List<String> findRecentSongIds(String userId, int limit, int page) {
+        long skip = (long) page * limit;
+        // Rows scanned before de-duplication; repeat plays mean we need more rows than songs
+        int scanLimit = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_HISTORY_SCAN, (skip + limit) * HISTORY_SCAN_FACTOR));
+        return listenHistoryRepo.findRecentDistinctSongIds(userId, skip, limit, scanLimit);
+    }
+
+    private boolean hasNoHistory(String userId, int page) {
+        return page == 0 || listenHistoryRepo.countByUserId(userId) == 0;
+    }
+
+    private List<SongDTO> toDTOsWithArtists(List<Song> songs) {
+        Map<String, User> artists = batchLoader.loadArtists(songs);
+        return songs.stream()
+                .map(song -> SongDTO.fromSongAndArtist(song, artists.get(song.getArtistId())))
+                .collect(Collectors.toList());
+    }
+
     // Helper method to get trending songs with artist info
     private List<SongDTO> getTrendingSongsWithArtistInfo(int limit) {
         try {
-            List<Song> trendingSongs = getTrendingSongs(limit);
-            return trendingSongs.stream()
-                .map(song -> {
-                    User artist = userRepository.findById(song.getArtistId()).orElse(null);
-                    return SongDTO.fromSongAndArtist(song, artist);
-                })
-                .collect(Collectors.toList());
+            return toDTOsWithArtists(getTrendingSongs(limit));
         } catch (Exception e) {
             System.out.println("Error getting trending songs with artist info: " + e.getMessage());
             return List.of();
         }
     }
 
-    @Transactional
+    // Plays are buffered and written in batches by PlayCountAggregator
     public void incrementViews(String songId, String userId) {
-        Optional<Song> songOpt = songRepository.findById(songId);
-        if (songOpt.isPresent()) {
-            Song song = songOpt.get();
-            song.setViews(song.getViews() + 1);
-            songRepository.save(song);
-
-            // Record listening history
-            recordListeningHistory(userId, songId);
-
-            System.out.println("Views incremented for song: " + songId);
-        }
+        playCountAggregator.recordPlay(songId, userId);
     }
 
     @Transactional
-    @CacheEvict(value = {"songs", "trending"}, allEntries = true)
     public Optional<Song> approveSong(String songId) {
         Optional<Song> songOpt = songRepository.findById(songId);
 
@@ -308,6 +281,7 @@ public class SongService {
 
         song.setStatus("approved");
         Song savedSong = songRepository.save(song);
+        songCacheEvictor.evictForPublicChange(savedSong);
 
         // Notify artist about approval
         notificationService.sendNotification(
@@ -322,15 +296,20 @@ public class SongService {
     }
 
     @Transactional
-    @CacheEvict(value = {"songs", "trending", "recommendations"}, allEntries = true)
     public Optional<Song> rejectSong(String songId, String reason) {
         Optional<Song> songOpt = songRepository.findById(songId);
 
         if (songOpt.isEmpty()) return Optional.empty();
 
         Song song = songOpt.get();
+        boolean wasPublic = "approved".equals(song.getStatus());
         song.setStatus("rejected");
         Song savedSong = songRepository.save(song);
+        if (wasPublic) {
+            songCacheEvictor.evictForPublicChange(savedSong);
+        } else {
+            songCacheEvictor.evictForArtistChange(savedSong);
+        }
 
         // Notify artist about rejection
         notificationService.sendNotification(
@@ -364,6 +343,11 @@ public class SongService {
             }
 
             songRepository.deleteById(songId);
+            if ("approved".equals(song.getStatus())) {
+                songCacheEvictor.evictForPublicChange(song);
+            } else {
+                songCacheEvictor.evictForArtistChange(song);
+            }
             System.out.println("Song deleted: " + songId + " by user: " + userId);
         }
     }
@@ -383,38 +367,16 @@ public class SongService {
                 query, "approved", pageable);
     }
 
-    private void notifyFollowersAboutNewSong(String artistId, Song song) {
+    // Only queues a fan-out job, so the upload does not wait for every follower to be notified
+    private void notifyFollowersAboutNewSong(User artist, Song song) {
         try {
-            // Sử dụng method có sẵn trong FollowService
-            List<User> followers = followService.getFollowers(artistId);
-            User artist = userRepository.findById(artistId).orElse(null);
-            String artistName = artist != null ? artist.getUsername() : "Unknown Artist";
-
-            for (User follower : followers) {
-                String message = artistName + " just released a new song: " + song.getTitle();
-                notificationService.sendNotification(
-                        follower.getId(),
-                        message,
-                        "NEW_SONG",
-                        song.getId()
-                );
-            }
+            String message = artist.getUsername() + " just released a new song: " + song.getTitle();
+            notificationService.sendNotificationToFollowers(artist.getId(), message, "NEW_SONG", song.getId());
         } catch (Exception e) {
             System.out.println("Failed to notify followers about new song: " + song.getId() + " - " + e.getMessage());
         }
     }
 
-    private void recordListeningHistory(String userId, String songId) {
-        try {
-            // Sử dụng constructor thay vì builder
-            ListenHistory history = new ListenHistory(userId, songId);
-
-            listenHistoryRepo.save(history);
-        } catch (Exception e) {
-            System.out.println("Failed to record listening history for user: " + userId + " song: " + songId + " - " + e.getMessage());
-        }
-    }
-
     private boolean isValidAudioFormat(String filename) {
         if (filename == null) return false;
         String extension = filename.toLowerCase();
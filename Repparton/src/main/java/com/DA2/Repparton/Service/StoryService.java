@@ -6,6 +6,9 @@ import com.DA2.Repparton.DTO.StoryWithUserDTO;
 import com.DA2.Repparton.Repository.StoryRepo;
 import com.DA2.Repparton.Repository.UserRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -16,6 +19,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
 @Service
 public class StoryService {
 
@@ -28,6 +33,9 @@ public class StoryService {
     @Autowired
     private CloudinaryService cloudinaryService;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Transactional
     public Story createStory(String userId, String type, String textContent, MultipartFile contentFile, String songId, boolean isPrivate) throws IOException {
         // Validate input
@@ -98,18 +106,11 @@ public class StoryService {
         return story;
     }
 
-    @Transactional
     public void incrementViews(String storyId) {
-        Optional<Story> storyOpt = storyRepository.findById(storyId);
-        if (storyOpt.isPresent()) {
-            Story story = storyOpt.get();
-
-            // Check if story hasn't expired
-            if (story.getExpiresAt().isAfter(LocalDateTime.now())) {
-                story.setViews(story.getViews() + 1);
-                storyRepository.save(story);
-                System.out.println("Views incremented for story: " + storyId);
-            }
+        // Atomic $inc, only while the story has not expired
+        Query query = new Query(where("_id").is(storyId).and("expiresAt").gt(LocalDateTime.now()));
+        if (mongoTemplate.updateFirst(query, new Update().inc("views", 1), Story.class).getModifiedCount() > 0) {
+            System.out.println("Views incremented for story: " + storyId);
         }
     }
 
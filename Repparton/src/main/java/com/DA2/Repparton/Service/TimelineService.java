@@ -0,0 +1,363 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Follow;
+import com.DA2.Repparton.Entity.Post;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Home feed timelines.
+ * Every user has one document in "timelines" holding their most recent feed entries (post id, author, time),
+ * newest first and capped at max-size with $push/$sort/$slice, so it behaves like a ring buffer.
+ * New posts are pushed to the author's followers in the background (fan-out on write).
+ * A timeline is built in full the first time it is read; pushes only go to timelines that already exist.
+ * Concurrent writers can still land the same post twice (a backfill racing the post's fan-out), so reads
+ * drop repeated post ids.
+ * Authors with more than celebrity-threshold followers are not fanned out; their posts are merged in
+ * at read time instead (fan-out on read), which keeps one post from turning into millions of writes.
+ */
+@Service
+public class TimelineService {
+
+    static final String COLLECTION = "timelines";
+
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService fanOutExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "timeline-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer fanOutTimer;
+
+    @Value("${app.timeline.max-size:800}")
+    private int maxSize;
+
+    @Value("${app.timeline.celebrity-threshold:10000}")
+    private long celebrityThreshold;
+
+    @Value("${app.timeline.fanout-batch-size:1000}")
+    private int fanOutBatchSize;
+
+    private volatile Set<String> celebrities = Set.of();
+
+    public TimelineService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.fanOutTimer = Timer.builder("repparton.timeline.fanout")
+                .description("Time taken to push one post to its author's followers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * One feed entry. Ordered newest first, ties broken by post id so the cursor is stable.
+     */
+    public record Entry(String postId, String authorId, Date createdAt) {
+
+        String cursor() {
+            return createdAt.getTime() + "_" + postId;
+        }
+
+        boolean isBefore(Date time, String id) {
+            int cmp = createdAt.compareTo(time);
+            return cmp < 0 || (cmp == 0 && postId.compareTo(id) < 0);
+        }
+    }
+
+    /**
+     * Up to limit entries older than the cursor (null for the first page), newest first.
+     */
+    public List<Entry> read(String userId, String cursor, int limit) {
+        Date cursorTime = null;
+        String cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int split = cursor.indexOf('_');
+            if (split <= 0) {
+                throw new RuntimeException("Invalid feed cursor");
+            }
+            try {
+                cursorTime = new Date(Long.parseLong(cursor.substring(0, split)));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid feed cursor");
+            }
+            cursorId = cursor.substring(split + 1);
+        }
+
+        List<Entry> pushed = readTimeline(userId, cursorTime, cursorId, limit);
+        List<Entry> pulled = readCelebrityPosts(userId, cursorTime, cursorId, limit);
+        if (pulled.isEmpty()) {
+            return pushed;
+        }
+        return merge(pushed, pulled, limit);
+    }
+
+    public static String cursorOf(Entry entry) {
+        return entry.cursor();
+    }
+
+    public void onPostCreated(Post post) {
+        fanOutExecutor.execute(() -> fanOutTimer.record(() -> fanOut(post)));
+    }
+
+    public void onFollow(String followerId, String artistId) {
+        fanOutExecutor.execute(() -> backfill(followerId, artistId));
+    }
+
+    public void onUnfollow(String followerId, String artistId) {
+        fanOutExecutor.execute(() -> {
+            try {
+                mongoTemplate.updateFirst(new Query(where("_id").is(followerId)),
+                        new Update().pull("entries", new Document("authorId", artistId)), COLLECTION);
+            } catch (Exception e) {
+                System.out.println("Failed to remove " + artistId + " from timeline of " + followerId + " - " + e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.timeline.celebrity-refresh-ms:600000}", initialDelay = 0)
+    public void refreshCelebrities() {
+        try {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.group("artistId").count().as("followers"),
+                    Aggregation.match(where("followers").gt(celebrityThreshold)),
+                    Aggregation.project("_id"));
+            Set<String> fresh = new HashSet<>();
+            mongoTemplate.aggregate(aggregation, Follow.class, Document.class)
+                    .forEach(doc -> fresh.add(doc.getString("_id")));
+            celebrities = fresh;
+        } catch (Exception e) {
+            System.out.println("Failed to refresh celebrity accounts - " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+
+    private List<Entry> readTimeline(String userId, Date cursorTime, String cursorId, int limit) {
+        Query query = new Query(where("_id").is(userId));
+        if (cursorTime == null) {
+            // First page: let Mongo cut the array instead of shipping the whole timeline, with room for repeats
+            query.fields().slice("entries", limit * 2);
+        }
+        Document timeline = mongoTemplate.findOne(query, Document.class, COLLECTION);
+        if (timeline == null) {
+            timeline = rebuild(userId);
+        }
+
+        List<Entry> result = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        for (Document doc : timeline.getList("entries", Document.class, List.of())) {
+            Entry entry = new Entry(doc.getString("postId"), doc.getString("authorId"), doc.getDate("createdAt"));
+            if (cursorTime != null && !entry.isBefore(cursorTime, cursorId)) {
+                continue;
+            }
+            if (!seen.add(entry.postId())) {
+                continue;
+            }
+            result.add(entry);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private List<Entry> readCelebrityPosts(String userId, Date cursorTime, String cursorId, int limit) {
+        Set<String> current = celebrities;
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        Query followQuery = new Query(where("followerId").is(userId).and("artistId").in(current));
+        followQuery.fields().include("artistId");
+        List<String> followed = new ArrayList<>();
+        mongoTemplate.find(followQuery, Follow.class).forEach(follow -> followed.add(follow.getArtistId()));
+        if (current.contains(userId)) {
+            followed.add(userId);
+        }
+        if (followed.isEmpty()) {
+            return List.of();
+        }
+
+        Criteria criteria = where("userId").in(followed);
+        if (cursorTime != null) {
+            criteria = criteria.orOperator(
+                    where("createdAt").lt(cursorTime),
+                    where("createdAt").is(cursorTime).and("_id").lt(cursorId));
+        }
+        Query postQuery = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(limit);
+        postQuery.fields().include("userId").include("createdAt");
+        List<Entry> result = new ArrayList<>(limit);
+        mongoTemplate.find(postQuery, Post.class).forEach(post -> result.add(toEntry(post)));
+        return result;
+    }
+
+    private static List<Entry> merge(List<Entry> a, List<Entry> b, int limit) {
+        List<Entry> result = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        while (result.size() < limit && (i < a.size() || j < b.size())) {
+            Entry next;
+            if (j >= b.size() || (i < a.size() && !a.get(i).isBefore(b.get(j).createdAt(), b.get(j).postId()))) {
+                next = a.get(i++);
+            } else {
+                next = b.get(j++);
+            }
+            // A post can be in both lists if its author crossed the threshold after it was pushed
+            if (seen.add(next.postId())) {
+                result.add(next);
+            }
+        }
+        return result;
+    }
+
+    private void fanOut(Post post) {
+        Document entry = toDocument(toEntry(post));
+        try {
+            long followers = mongoTemplate.count(new Query(where("artistId").is(post.getUserId())), Follow.class);
+            if (followers > celebrityThreshold) {
+                Set<String> updated = new HashSet<>(celebrities);
+                updated.add(post.getUserId());
+                celebrities = updated;
+                pushAll(List.of(post.getUserId()), List.of(entry));
+                return;
+            }
+
+            Query query = new Query(where("artistId").is(post.getUserId()));
+            query.fields().include("followerId");
+            query.cursorBatchSize(fanOutBatchSize);
+            List<String> batch = new ArrayList<>(fanOutBatchSize);
+            batch.add(post.getUserId());
+            try (Stream<Follow> follows = mongoTemplate.stream(query, Follow.class)) {
+                follows.forEach(follow -> {
+                    batch.add(follow.getFollowerId());
+                    if (batch.size() >= fanOutBatchSize) {
+                        pushAll(batch, List.of(entry));
+                        batch.clear();
+                    }
+                });
+            }
+            if (!batch.isEmpty()) {
+                pushAll(batch, List.of(entry));
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to fan out post " + post.getId() + " - " + e.getMessage());
+        }
+    }
+
+    private void backfill(String followerId, String artistId) {
+        try {
+            if (celebrities.contains(artistId)) {
+                return;
+            }
+            Query query = new Query(where("userId").is(artistId))
+                    .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                    .limit(maxSize);
+            query.fields().include("userId").include("createdAt");
+            // Skip posts the timeline already holds, e.g. from a rebuild that ran after the follow
+            Query stored = new Query(where("_id").is(followerId));
+            stored.fields().include("entries.postId");
+            Document timeline = mongoTemplate.findOne(stored, Document.class, COLLECTION);
+            if (timeline == null) {
+                return;
+            }
+            Set<String> storedIds = new HashSet<>();
+            timeline.getList("entries", Document.class, List.of()).forEach(doc -> storedIds.add(doc.getString("postId")));
+            List<Document> entries = new ArrayList<>();
+            mongoTemplate.find(query, Post.class).forEach(post -> {
+                if (!storedIds.contains(post.getId())) {
+                    entries.add(toDocument(toEntry(post)));
+                }
+            });
+            if (!entries.isEmpty()) {
+                pushAll(List.of(followerId), entries);
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to backfill timeline of " + followerId + " - " + e.getMessage());
+        }
+    }
+
+    // Builds a missing timeline the old way, once, from the posts of everyone the user follows.
+    // The entries are only set when the upsert inserts the document, so a second rebuild racing this one
+    // leaves the stored timeline alone instead of appending the same posts again
+    private Document rebuild(String userId) {
+        Query followQuery = new Query(where("followerId").is(userId));
+        followQuery.fields().include("artistId");
+        Set<String> current = celebrities;
+        List<String> authors = new ArrayList<>();
+        authors.add(userId);
+        mongoTemplate.find(followQuery, Follow.class).forEach(follow -> {
+            if (!current.contains(follow.getArtistId())) {
+                authors.add(follow.getArtistId());
+            }
+        });
+
+        Query postQuery = new Query(where("userId").in(authors))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(maxSize);
+        postQuery.fields().include("userId").include("createdAt");
+        List<Document> entries = new ArrayList<>();
+        mongoTemplate.find(postQuery, Post.class).forEach(post -> entries.add(toDocument(toEntry(post))));
+
+        try {
+            mongoTemplate.upsert(new Query(where("_id").is(userId)), new Update().setOnInsert("entries", entries), COLLECTION);
+        } catch (DuplicateKeyException e) {
+            // Another rebuild inserted it first
+        }
+        return new Document("_id", userId).append("entries", entries);
+    }
+
+    // Only rebuild() may create a timeline: a document made by a lone push would hold just that entry,
+    // and readTimeline would take it for a complete feed and never rebuild it
+    private void pushAll(List<String> userIds, List<Document> entries) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        for (String userId : userIds) {
+            Update update = new Update();
+            update.push("entries")
+                    .sort(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                    .slice(maxSize)
+                    .each(entries.toArray());
+            bulk.updateOne(new Query(where("_id").is(userId)), update);
+        }
+        bulk.execute();
+    }
+
+    private static Entry toEntry(Post post) {
+        LocalDateTime createdAt = post.getCreatedAt() != null ? post.getCreatedAt() : LocalDateTime.now();
+        return new Entry(post.getId(), post.getUserId(), Date.from(createdAt.atZone(ZoneId.systemDefault()).toInstant()));
+    }
+
+    private static Document toDocument(Entry entry) {
+        return new Document("postId", entry.postId())
+                .append("authorId", entry.authorId())
+                .append("createdAt", entry.createdAt());
+    }
+}
@@ -0,0 +1,409 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Entity.TranscodeJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Ingestion stage that turns an uploaded song into HLS renditions (see AudioTranscoder for the ladder).
+ * Uploads only insert a TranscodeJob; a small bounded pool of workers claims jobs with a lease, downloads the
+ * source, runs ffmpeg, uploads segments and playlists through CloudinaryService and finally records hlsUrl,
+ * renditions and duration on the song. Stage and progress are saved on the job as it runs, which also renews
+ * the lease; a job whose worker died is picked up again once the lease expires. Once the new renditions are on
+ * the song, the ones from its previous transcode are deleted from Cloudinary.
+ */
+@Service
+public class TranscodeService {
+
+    private final MongoTemplate mongoTemplate;
+    private final AudioTranscoder transcoder;
+    private final CloudinaryService cloudinaryService;
+    private final SongCacheEvictor songCacheEvictor;
+    private final ThreadPoolExecutor workers;
+    private final HttpClient httpClient;
+    private final Timer jobTimer;
+    private final Counter sourceBytes;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Boolean ffmpegAvailable;
+
+    @Value("${app.transcode.work-dir:${java.io.tmpdir}/repparton-transcode}")
+    private String workDir;
+
+    @Value("${app.transcode.lease-ms:1200000}")
+    private long leaseMillis;
+
+    @Value("${app.transcode.download-timeout-ms:300000}")
+    private long downloadTimeoutMillis;
+
+    @Value("${app.transcode.max-attempts:3}")
+    private int maxAttempts;
+
+    public TranscodeService(MongoTemplate mongoTemplate, AudioTranscoder transcoder,
+                            CloudinaryService cloudinaryService, SongCacheEvictor songCacheEvictor,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.transcode.workers:1}") int workerCount) {
+        this.mongoTemplate = mongoTemplate;
+        this.transcoder = transcoder;
+        this.cloudinaryService = cloudinaryService;
+        this.songCacheEvictor = songCacheEvictor;
+        this.meterRegistry = meterRegistry;
+        // Each worker runs one ffmpeg at a time, so workers bound the CPU used for transcoding
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount), r -> {
+            Thread thread = new Thread(r, "song-transcode");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.jobTimer = Timer.builder("repparton.transcode.job")
+                .description("Time taken to transcode and upload one song")
+                .register(meterRegistry);
+        this.sourceBytes = Counter.builder("repparton.transcode.source.bytes")
+                .description("Bytes of uploaded audio transcoded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a song for transcoding, unless a job for it is already waiting or running.
+     */
+    public TranscodeJob enqueue(Song song) {
+        TranscodeJob active = mongoTemplate.findOne(new Query(where("songId").is(song.getId())
+                .and("status").in(TranscodeJob.PENDING, TranscodeJob.RUNNING)), TranscodeJob.class);
+        if (active != null) {
+            return active;
+        }
+        TranscodeJob job = mongoTemplate.insert(new TranscodeJob(song.getId(), song.getAudioUrl()));
+        // Inside a transaction the job only becomes visible on commit, so start work after that
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+        return job;
+    }
+
+    public Optional<TranscodeJob> getLatestJob(String songId) {
+        Query query = new Query(where("songId").is(songId)).with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        return Optional.ofNullable(mongoTemplate.findOne(query, TranscodeJob.class));
+    }
+
+    // Also picks up jobs left behind by a restart or a worker that lost its lease
+    @Scheduled(fixedDelayString = "${app.transcode.poll-interval-ms:10000}")
+    public void wakeUp() {
+        workers.execute(this::drain);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void drain() {
+        if (!isFfmpegAvailable()) {
+            return;
+        }
+        TranscodeJob job;
+        while ((job = claim()) != null) {
+            TranscodeJob claimed = job;
+            jobTimer.record(() -> run(claimed));
+        }
+    }
+
+    // Checked once; without ffmpeg jobs stay PENDING until an instance that has it picks them up
+    private boolean isFfmpegAvailable() {
+        if (ffmpegAvailable == null) {
+            ffmpegAvailable = transcoder.isAvailable();
+            if (!ffmpegAvailable) {
+                System.out.println("ffmpeg not found, songs will not be transcoded on this instance");
+            }
+        }
+        return ffmpegAvailable;
+    }
+
+    private TranscodeJob claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                where("status").is(TranscodeJob.PENDING).orOperator(
+                        where("lockedUntil").is(null), where("lockedUntil").lte(now)),
+                where("status").is(TranscodeJob.RUNNING).and("lockedUntil").lte(now)))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update update = new Update()
+                .set("status", TranscodeJob.RUNNING)
+                .set("lockedUntil", now.plusNanos(leaseMillis() * 1_000_000))
+                .inc("attempts", 1);
+        try {
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), TranscodeJob.class);
+        } catch (Exception e) {
+            System.out.println("Failed to claim transcode job - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void run(TranscodeJob job) {
+        Path dir = Path.of(workDir, job.getId());
+        try {
+            Files.createDirectories(dir);
+            report(job, TranscodeJob.DOWNLOADING, 0);
+            Path source = download(job.getSourceUrl(), dir.resolve("source"));
+            sourceBytes.increment(Files.size(source));
+
+            AudioTranscoder.Probe probe = transcoder.probe(source);
+            int[] ladder = transcoder.ladderFor(probe.bitrateKbps());
+            report(job, TranscodeJob.TRANSCODING, 10);
+            // Without a duration there is no fraction to report, but the updates still renew the lease
+            List<AudioTranscoder.Variant> variants = transcoder.transcode(source, dir.resolve("hls"), ladder,
+                    probe.durationSeconds(), done -> report(job, TranscodeJob.TRANSCODING,
+                            done < 0 ? job.getProgress() : 10 + (int) (done * 70)));
+
+            report(job, TranscodeJob.UPLOADING, 80);
+            String prefix = "repparton/hls/" + job.getSongId() + "/" + job.getId();
+            List<Song.Rendition> renditions = upload(job, variants, prefix);
+            String hlsUrl = cloudinaryService.uploadFile(writeMaster(dir, renditions), prefix + "/master.m3u8");
+
+            Song previous = recordOnSong(job.getSongId(), hlsUrl, renditions, probe.durationSeconds());
+            deletePreviousRenditions(previous, prefix);
+            mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())),
+                    new Update().set("status", TranscodeJob.DONE).set("progress", 100).unset("stage").unset("error")
+                            .set("completedAt", LocalDateTime.now()),
+                    TranscodeJob.class);
+            System.out.println("Transcode job " + job.getId() + " for song " + job.getSongId() + " produced "
+                    + renditions.size() + " renditions");
+        } catch (Exception e) {
+            boolean giveUp = job.getAttempts() >= maxAttempts;
+            // Back off before the next attempt; a job another worker has claimed since is left to that worker
+            long updated = mongoTemplate.updateFirst(
+                    new Query(where("_id").is(job.getId()).and("attempts").is(job.getAttempts())),
+                    new Update().set("status", giveUp ? TranscodeJob.FAILED : TranscodeJob.PENDING)
+                            .set("error", e.getMessage())
+                            .set("lockedUntil", LocalDateTime.now().plusSeconds(60L * job.getAttempts())),
+                    TranscodeJob.class).getModifiedCount();
+            if (updated == 0) {
+                System.out.println("Transcode job " + job.getId() + " stopped after losing its lease - " + e.getMessage());
+                return;
+            }
+            System.out.println("Transcode job " + job.getId() + " failed on attempt " + job.getAttempts()
+                    + (giveUp ? ", giving up" : ", will retry") + " - " + e.getMessage());
+            if (giveUp) {
+                // Segments uploaded before the failure are never referenced by the song
+                deleteRenditions("repparton/hls/" + job.getSongId() + "/" + job.getId());
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    // Saves stage and progress when they move by at least 5 points, or when half the lease has gone by,
+    // renewing the lease as it goes
+    private void report(TranscodeJob job, String stage, int progress) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean leaseHalfGone = job.getLockedUntil() == null
+                || job.getLockedUntil().isBefore(now.plusNanos(leaseMillis() / 2 * 1_000_000));
+        if (stage.equals(job.getStage())) {
+            if (progress < job.getProgress() + 5 && !leaseHalfGone) {
+                return;
+            }
+            progress = Math.max(progress, job.getProgress());
+        }
+        LocalDateTime lockedUntil = now.plusNanos(leaseMillis() * 1_000_000);
+        job.setStage(stage);
+        job.setProgress(progress);
+        job.setLockedUntil(lockedUntil);
+        // attempts identifies this claim: if the lease expired and another worker took the job, stop here
+        long updated = mongoTemplate.updateFirst(
+                new Query(where("_id").is(job.getId()).and("attempts").is(job.getAttempts())),
+                new Update().set("stage", stage).set("progress", progress).set("lockedUntil", lockedUntil),
+                TranscodeJob.class).getModifiedCount();
+        if (updated == 0) {
+            throw new IllegalStateException("Transcode job " + job.getId() + " was taken over by another worker");
+        }
+    }
+
+    // A hung ffmpeg reports nothing until the timeout kills it, so the lease has to outlast that timeout
+    private long leaseMillis() {
+        return Math.max(leaseMillis, transcoder.getTimeoutMillis() + 60_000);
+    }
+
+    // The request timeout only covers the response headers, so the whole body is bounded by waiting on the future
+    private Path download(String url, Path target) throws IOException {
+        Duration timeout = Duration.ofMillis(downloadTimeoutMillis);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET().build();
+        CompletableFuture<HttpResponse<Path>> download = httpClient.sendAsync(request,
+                HttpResponse.BodyHandlers.ofFile(target));
+        try {
+            HttpResponse<Path> response = download.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (response.statusCode() != 200) {
+                throw new IOException("Audio download answered " + response.statusCode());
+            }
+            return target;
+        } catch (TimeoutException e) {
+            download.cancel(true);
+            throw new IOException("Audio download timed out after " + timeout.toSeconds() + " s");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            download.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + url);
+        }
+    }
+
+    // Segments first, then each media playlist rewritten to the uploaded segment URLs
+    private List<Song.Rendition> upload(TranscodeJob job, List<AudioTranscoder.Variant> variants, String prefix)
+            throws IOException {
+        int totalFiles = variants.stream().mapToInt(variant -> variant.segments().size() + 1).sum();
+        int uploaded = 0;
+        List<Song.Rendition> renditions = new ArrayList<>(variants.size());
+        for (AudioTranscoder.Variant variant : variants) {
+            String variantPrefix = prefix + "/" + variant.bitrateKbps() + "k/";
+            Map<String, String> segmentUrls = new HashMap<>();
+            long bytes = 0;
+            for (Path segment : variant.segments()) {
+                String name = segment.getFileName().toString();
+                segmentUrls.put(name, cloudinaryService.uploadFile(segment, variantPrefix + name));
+                bytes += Files.size(segment);
+                report(job, TranscodeJob.UPLOADING, 80 + 20 * ++uploaded / totalFiles);
+            }
+
+            List<String> playlist = new ArrayList<>();
+            for (String line : Files.readAllLines(variant.playlist(), StandardCharsets.UTF_8)) {
+                playlist.add(line.isBlank() || line.startsWith("#") ? line : segmentUrls.getOrDefault(line.trim(), line));
+            }
+            Files.write(variant.playlist(), playlist, StandardCharsets.UTF_8);
+            String playlistUrl = cloudinaryService.uploadFile(variant.playlist(), variantPrefix + "index.m3u8");
+            report(job, TranscodeJob.UPLOADING, 80 + 20 * ++uploaded / totalFiles);
+
+            Counter.builder("repparton.transcode.rendition.bytes")
+                    .description("Bytes of HLS segments produced")
+                    .baseUnit("bytes")
+                    .tag("bitrate", variant.bitrateKbps() + "k")
+                    .register(meterRegistry)
+                    .increment(bytes);
+            renditions.add(new Song.Rendition(variant.bitrateKbps(), AudioTranscoder.CODEC, playlistUrl, bytes,
+                    variant.segments().size()));
+        }
+        return renditions;
+    }
+
+    // Lowest bitrate first: HLS players start with the first variant, which keeps time to first audio short
+    private Path writeMaster(Path dir, List<Song.Rendition> renditions) throws IOException {
+        StringBuilder master = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+        renditions.stream()
+                .sorted(Comparator.comparingInt(Song.Rendition::getBitrateKbps))
+                .forEach(rendition -> {
+                    // MPEG-TS framing adds roughly 10% to the audio bitrate
+                    long bandwidth = rendition.getBitrateKbps() * 1100L;
+                    master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(bandwidth)
+                            .append(",CODECS=\"").append(rendition.getCodec()).append("\"\n")
+                            .append(rendition.getPlaylistUrl()).append('\n');
+                });
+        Path file = dir.resolve("master.m3u8");
+        Files.writeString(file, master, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    // Returns the song as it was before, so the renditions it pointed at can be deleted
+    private Song recordOnSong(String songId, String hlsUrl, List<Song.Rendition> renditions, double durationSeconds) {
+        Update update = new Update()
+                .set("hlsUrl", hlsUrl)
+                .set("renditions", renditions)
+                .set("updatedAt", LocalDateTime.now());
+        if (durationSeconds > 0) {
+            update.set("duration", (int) Math.round(durationSeconds));
+        }
+        Song song = mongoTemplate.findAndModify(new Query(where("_id").is(songId)), update, Song.class);
+        if (song != null) {
+            songCacheEvictor.evictForArtistChange(song);
+        }
+        return song;
+    }
+
+    private void deletePreviousRenditions(Song previous, String currentPrefix) {
+        String prefix = previous != null ? renditionPrefix(previous.getHlsUrl(), previous.getId()) : null;
+        if (prefix != null && !prefix.equals(currentPrefix)) {
+            deleteRenditions(prefix);
+        }
+    }
+
+    private void deleteRenditions(String prefix) {
+        try {
+            cloudinaryService.deleteRawByPrefix(prefix + "/");
+        } catch (IOException e) {
+            System.out.println("Failed to delete renditions under " + prefix + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * The folder holding the renditions an hlsUrl belongs to, repparton/hls/{songId}/{jobId}, or null for a
+     * URL that was not produced by this service.
+     */
+    static String renditionPrefix(String hlsUrl, String songId) {
+        if (hlsUrl == null || songId == null) {
+            return null;
+        }
+        String folder = "repparton/hls/" + songId + "/";
+        int start = hlsUrl.indexOf(folder);
+        int end = start < 0 ? -1 : hlsUrl.indexOf('/', start + folder.length());
+        return end < 0 ? null : hlsUrl.substring(start, end);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("Failed to clean up " + dir + " - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Repository.SongRepo;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Loader behind the "trending" cache, keyed by limit.
+ * Lets Caffeine refresh trending entries in the background after refreshAfterWrite
+ * while readers keep getting the previous list.
+ */
+@Component
+public class TrendingSongsLoader implements CacheLoader<Object, Object> {
+
+    @Autowired
+    private SongRepo songRepository;
+
+    public List<Song> loadTrending(int limit) {
+        Pageable pageable = PageRequest.of(0, limit, Sort.by("views").descending());
+        return songRepository.findByIsPrivateFalseAndStatusOrderByViewsDesc("approved", pageable);
+    }
+
+    @Override
+    public Object load(Object key) {
+        return loadTrending(((Number) key).intValue());
+    }
+}
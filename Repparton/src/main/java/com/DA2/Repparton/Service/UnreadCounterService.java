@@ -0,0 +1,122 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Notification;
+import com.DA2.Repparton.Entity.NotificationCounter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Per-user unread notification counters, one NotificationCounter document per user.
+ * Writers $inc the counter (creating it if needed) right after changing notifications, so the badge is a keyed
+ * read instead of a count over the user's notifications. The first read seeds the counter from the real count,
+ * adding the difference to whatever increments arrived meanwhile so none are lost. Mark-all-as-read resets it
+ * from the source, which also repairs any drift (e.g. unread notifications removed by the retention TTL).
+ * Every change is pushed to /queue/notifications/{userId}/unread as {delta, unread} so clients need not poll.
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final String FIELD = "unread";
+    private static final String SEEDED = "seeded";
+
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public UnreadCounterService(MongoTemplate mongoTemplate, SimpMessagingTemplate messagingTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public long get(String userId) {
+        NotificationCounter counter = mongoTemplate.findOne(byUser(userId), NotificationCounter.class);
+        if (counter != null && counter.isSeeded()) {
+            return Math.max(0, counter.getUnread());
+        }
+        return seed(userId, counter != null ? counter.getUnread() : 0);
+    }
+
+    public void add(String userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        NotificationCounter counter = mongoTemplate.findAndModify(byUser(userId), new Update().inc(FIELD, delta),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), NotificationCounter.class);
+        // An unseeded total is only a partial count, so clients just get the delta
+        publish(userId, delta, counter != null && counter.isSeeded() ? Math.max(0, counter.getUnread()) : null);
+    }
+
+    /**
+     * One more unread notification for each user, written as a single unordered bulk update.
+     * The pushes are left to NotificationPushBuffer, which knows how many each user received.
+     */
+    public void incrementAll(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationCounter.class);
+        for (String userId : userIds) {
+            bulk.upsert(byUser(userId), new Update().inc(FIELD, 1));
+        }
+        bulk.execute();
+    }
+
+    // Sets the counter from the notifications themselves; cheap right after a mark-all, when few are unread
+    public void reset(String userId) {
+        long unread = countUnread(userId);
+        NotificationCounter previous = mongoTemplate.findAndModify(byUser(userId),
+                new Update().set(FIELD, unread).set(SEEDED, true), FindAndModifyOptions.options().upsert(true),
+                NotificationCounter.class);
+        long before = previous != null ? previous.getUnread() : 0;
+        publish(userId, unread - before, unread);
+    }
+
+    public void publish(String userId, long delta, Long unread) {
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("delta", delta);
+            if (unread != null) {
+                payload.put("unread", unread);
+            }
+            messagingTemplate.convertAndSend("/queue/notifications/" + userId + "/unread", payload);
+        } catch (Exception e) {
+            System.out.println("Failed to push unread count to user: " + userId + " - " + e.getMessage());
+        }
+    }
+
+    // Adds (real count - increments seen before counting) in one conditional upsert, so increments landing while
+    // we count are kept and only the first of several concurrent readers applies its count
+    private long seed(String userId, long incrementsBefore) {
+        long unread = countUnread(userId);
+        Query query = new Query(where("_id").is(userId).and(SEEDED).ne(true));
+        try {
+            NotificationCounter counter = mongoTemplate.findAndModify(query,
+                    new Update().inc(FIELD, unread - incrementsBefore).set(SEEDED, true),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), NotificationCounter.class);
+            return counter != null ? Math.max(0, counter.getUnread()) : unread;
+        } catch (DuplicateKeyException e) {
+            // Another reader seeded it first
+            NotificationCounter counter = mongoTemplate.findOne(byUser(userId), NotificationCounter.class);
+            return counter != null ? Math.max(0, counter.getUnread()) : unread;
+        }
+    }
+
+    private static Query byUser(String userId) {
+        return new Query(where("_id").is(userId));
+    }
+
+    private long countUnread(String userId) {
+        return mongoTemplate.count(new Query(where("userId").is(userId).and("isRead").is(false)), Notification.class);
+    }
+}
@@ -51,6 +51,9 @@ public class UserService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private UserSummaryLoader userSummaryLoader;
+
     @Transactional
     public Optional<User> register(RegisterRequestDTO request) {
         // Input validation
@@ -181,6 +184,7 @@ public class UserService {
             }
 
             User savedUser = userRepository.save(user);
+            userSummaryLoader.evict(userId);
             log.info("Profile updated for user: {}", userId);
 
             return Optional.of(savedUser);
@@ -232,6 +236,9 @@ public class UserService {
         user.setArtistPending(false);
 
         User savedUser = userRepository.save(user);
+        userSummaryLoader.evict(userId);
+        // Authorities come from the role, so drop the cached UserDetails
+        jwtAuthenticationFilter.evictUserDetails(user.getEmail());
 
         // Notify user about approval
         notificationService.sendNotification(userId, "Your artist application has been approved!", "ARTIST_APPROVED", null);
@@ -0,0 +1,138 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Resolves the user fields shown next to posts, comments, songs and conversations.
+ * Ids are looked up in three tiers: a memo for the current HTTP request, the shared "userSummaries"
+ * near-cache, then one $in query projected to the summary fields for whatever is still missing.
+ * The returned User objects only carry those fields and must not be saved back.
+ */
+@Component
+public class UserSummaryLoader {
+
+    private static final String CACHE_NAME = "userSummaries";
+    private static final String MEMO_ATTRIBUTE = UserSummaryLoader.class.getName() + ".memo";
+    private static final String[] SUMMARY_FIELDS = {"username", "fullName", "avatarUrl", "email", "role", "isVerified"};
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache cache;
+    private final Counter memoHits;
+    private final Counter cacheHits;
+    private final Counter databaseLoads;
+    private final Counter queries;
+
+    public UserSummaryLoader(MongoTemplate mongoTemplate, CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.memoHits = lookups(meterRegistry, "request");
+        this.cacheHits = lookups(meterRegistry, "cache");
+        this.databaseLoads = lookups(meterRegistry, "database");
+        this.queries = Counter.builder("repparton.users.summary.queries")
+                .description("MongoDB queries issued to resolve user summaries")
+                .register(meterRegistry);
+    }
+
+    public User load(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        return load(Set.of(userId)).get(userId);
+    }
+
+    // Missing ids are simply absent from the result
+    public Map<String, User> load(Collection<String> userIds) {
+        Map<String, User> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        Map<String, User> memo = requestMemo();
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId == null || result.containsKey(userId)) {
+                continue;
+            }
+            User user = memo != null ? memo.get(userId) : null;
+            if (user != null) {
+                memoHits.increment();
+            } else if (cache != null && (user = cache.get(userId, User.class)) != null) {
+                cacheHits.increment();
+            }
+            if (user != null) {
+                result.put(userId, user);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Query query = new Query(where("_id").in(missing));
+            query.fields().include(SUMMARY_FIELDS);
+            queries.increment();
+            for (User user : mongoTemplate.find(query, User.class)) {
+                result.put(user.getId(), user);
+                if (cache != null) {
+                    cache.put(user.getId(), user);
+                }
+                databaseLoads.increment();
+            }
+        }
+
+        if (memo != null) {
+            memo.putAll(result);
+        }
+        return result;
+    }
+
+    // Called whenever a user's name, avatar, role or verification changes
+    public void evict(String userId) {
+        if (cache != null) {
+            cache.evict(userId);
+        }
+        Map<String, User> memo = requestMemo();
+        if (memo != null) {
+            memo.remove(userId);
+        }
+    }
+
+    // Null outside a web request, e.g. on scheduler or fan-out threads
+    @SuppressWarnings("unchecked")
+    private static Map<String, User> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, User> memo = (Map<String, User>) attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new ConcurrentHashMap<>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("repparton.users.summary.lookups")
+                .description("User summaries resolved, by the tier that answered")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
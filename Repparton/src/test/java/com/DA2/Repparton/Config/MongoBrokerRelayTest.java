@@ -0,0 +1,175 @@
+package com.DA2.Repparton.Config;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MongoBrokerRelayTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    private final List<Message<?>> delivered = new ArrayList<>();
+    private MongoBrokerRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new MongoBrokerRelay(mock(MongoTemplate.class), brokerChannel, registry, 10);
+        // Wired like start() does, without the publisher and subscriber threads
+        brokerChannel.addInterceptor(relay);
+        brokerChannel.subscribe(delivered::add);
+    }
+
+    @Test
+    void onlyLocalMessagesToBrokerDestinationsAreQueued() {
+        brokerChannel.send(message(SimpMessageType.MESSAGE, "/topic/posts", "a"));
+        brokerChannel.send(message(SimpMessageType.MESSAGE, "/queue/notifications/1/unread", "b"));
+        brokerChannel.send(message(SimpMessageType.MESSAGE, "/user/alice/queue/messages", "c"));
+        assertEquals(3, pending());
+
+        brokerChannel.send(message(SimpMessageType.SUBSCRIBE, "/topic/posts", "d"));
+        brokerChannel.send(message(SimpMessageType.MESSAGE, "/app/chat", "e"));
+        SimpMessageHeaderAccessor resolved = accessor(SimpMessageType.MESSAGE, "/queue/messages-user1");
+        resolved.setHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, "/user/queue/messages");
+        brokerChannel.send(MessageBuilder.createMessage(bytes("f"), resolved.getMessageHeaders()));
+        brokerChannel.send(MessageBuilder.createMessage("not bytes",
+                accessor(SimpMessageType.MESSAGE, "/topic/posts").getMessageHeaders()));
+
+        assertEquals(3, pending());
+        // Filtering never stops local delivery
+        assertEquals(7, delivered.size());
+    }
+
+    @Test
+    void replayedMessagesAreDeliveredButNotRelayedAgain() {
+        Document fromOtherNode = relayed(new ObjectId(), "other", "/topic/posts", "hello");
+        MongoCollection<Document> collection = collection(null, cursor(fromOtherNode));
+
+        relay.tail(collection);
+
+        assertEquals(1, delivered.size());
+        assertEquals("hello", new String((byte[]) delivered.get(0).getPayload(), StandardCharsets.UTF_8));
+        assertEquals("/topic/posts", SimpMessageHeaderAccessor.getDestination(delivered.get(0).getHeaders()));
+        assertEquals(0, pending());
+        assertEquals(1, registry.get("repparton.websocket.relay.received").counter().count());
+    }
+
+    @Test
+    void reopenedCursorResumesAfterTheLastDocumentReadInInsertionOrder() {
+        Document marker = new Document("_id", new ObjectId(new Date(), 5)).append("node", "other");
+        Document first = relayed(new ObjectId(new Date(), 6), "other", "/topic/a", "1");
+        // Written by a node whose clock is behind, so its id sorts before the ones already read
+        Document skewed = relayed(new ObjectId(new Date(System.currentTimeMillis() - 60_000), 1), "other", "/topic/b", "2");
+        Document last = relayed(new ObjectId(new Date(), 7), "other", "/topic/c", "3");
+
+        MongoCollection<Document> collection = collection(marker, dyingCursor(marker, first));
+        assertThrows(MongoException.class, () -> relay.tail(collection));
+        assertEquals(List.of("/topic/a"), destinations());
+
+        MongoCursor<Document> reopened = cursor(marker, first, skewed, last);
+        MongoCollection<Document> again = collection(first, reopened);
+        relay.tail(again);
+
+        assertEquals(List.of("/topic/a", "/topic/b", "/topic/c"), destinations());
+    }
+
+    @Test
+    void ownDocumentsAreNotReplayed() {
+        Document start = new Document("_id", new ObjectId()).append("node", "other");
+        Document own = new Document("_id", new ObjectId()).append("node", nodeId())
+                .append("destination", "/topic/mine").append("payload", new Binary(bytes("x")));
+        Document theirs = relayed(new ObjectId(), "other", "/topic/theirs", "y");
+
+        relay.tail(collection(start, cursor(start, own, theirs)));
+
+        assertEquals(List.of("/topic/theirs"), destinations());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> collection(Document position, MongoCursor<Document> cursor) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        FindIterable<Document> all = mock(FindIterable.class, RETURNS_SELF);
+        when(all.first()).thenReturn(position);
+        when(all.iterator()).thenReturn(cursor);
+        FindIterable<Document> byId = mock(FindIterable.class, RETURNS_SELF);
+        when(byId.first()).thenReturn(position);
+        when(collection.find()).thenReturn(all);
+        when(collection.find(any(Bson.class))).thenReturn(byId);
+        return collection;
+    }
+
+    // Returns the documents once, then reports the cursor as closed
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<Document> cursor(Document... documents) {
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        List<Document> steps = new ArrayList<>(List.of(documents));
+        steps.add(null);
+        when(cursor.tryNext()).thenReturn(steps.get(0), steps.subList(1, steps.size()).toArray(new Document[0]));
+        return cursor;
+    }
+
+    // Returns the documents, then fails like a cursor killed on the server
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<Document> dyingCursor(Document first, Document... rest) {
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.tryNext()).thenReturn(first, rest).thenThrow(new MongoException("cursor killed"));
+        return cursor;
+    }
+
+    private static Document relayed(ObjectId id, String node, String destination, String payload) {
+        return new Document("_id", id).append("node", node).append("destination", destination)
+                .append("payload", new Binary(bytes(payload)));
+    }
+
+    private static Message<byte[]> message(SimpMessageType type, String destination, String payload) {
+        return MessageBuilder.createMessage(bytes(payload), accessor(type, destination).getMessageHeaders());
+    }
+
+    private static SimpMessageHeaderAccessor accessor(SimpMessageType type, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        return accessor;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> destinations() {
+        return delivered.stream().map(m -> SimpMessageHeaderAccessor.getDestination(m.getHeaders())).toList();
+    }
+
+    private double pending() {
+        return registry.get("repparton.websocket.relay.pending").gauge().value();
+    }
+
+    private String nodeId() {
+        return (String) ReflectionTestUtils.getField(relay, "nodeId");
+    }
+}
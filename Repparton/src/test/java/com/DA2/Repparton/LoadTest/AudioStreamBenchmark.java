@@ -0,0 +1,203 @@
+package com.DA2.Repparton.LoadTest;
+
+import com.DA2.Repparton.Service.AudioCache;
+import com.DA2.Repparton.Service.AudioStreamService;
+import com.DA2.Repparton.Service.ByteRange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent listeners seeking within tracks, each range fetched from the audio origin (what players do today
+ * against Cloudinary) versus served from AudioCache with FileChannel.transferTo into a socket.
+ * The origin is a local HTTP server with a configurable delay standing in for the CDN round trip.
+ * Run with:
+ * java -cp target/test-classes:target/classes:<deps> com.DA2.Repparton.LoadTest.AudioStreamBenchmark [listeners] [originDelayMs]
+ *
+ * Catalog of 40 tracks of 4 MB with Zipf popularity, cache limited to 64 MB so it has to evict.
+ * Every play reads 256 KB from the start, then seeks 4 times to random offsets and reads 256 KB each.
+ */
+public class AudioStreamBenchmark {
+
+    private static final int TRACKS = 40;
+    private static final int TRACK_BYTES = 4 * 1024 * 1024;
+    private static final long CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int RANGE_BYTES = 256 * 1024;
+    private static final int SEEKS_PER_PLAY = 4;
+    private static final int PLAYS_PER_LISTENER = 25;
+
+    public static void main(String[] args) throws Exception {
+        int listeners = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int originDelayMs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Path work = Files.createTempDirectory("audio-stream-benchmark");
+        HttpServer origin = startOrigin(work.resolve("origin"), originDelayMs);
+        String baseUrl = "http://127.0.0.1:" + origin.getAddress().getPort() + "/track/";
+        try {
+            System.out.printf("%d listeners, origin delay %d ms, %d tracks x %d MB, cache %d MB%n",
+                    listeners, originDelayMs, TRACKS, TRACK_BYTES >> 20, CACHE_BYTES >> 20);
+
+            HttpClient client = HttpClient.newHttpClient();
+            run("origin", listeners, (track, range, sink) -> {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + track + ".mp3"))
+                        .header("Range", "bytes=" + range.start() + "-" + range.end())
+                        .build();
+                return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+            });
+
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            AudioCache cache = new AudioCache(work.resolve("cache").toString(), CACHE_BYTES, 30_000,
+                    5_000, 60_000, registry);
+            run("cache", listeners, (track, range, sink) -> {
+                AudioCache.CachedAudio audio = cache.get("track" + track, baseUrl + track + ".mp3");
+                ByteRange served = ByteRange.parse("bytes=" + range.start() + "-" + range.end(), audio.size())
+                        .orElseThrow();
+                try (FileChannel file = FileChannel.open(audio.path(), StandardOpenOption.READ)) {
+                    return AudioStreamService.transfer(file, served.start(), served.length(), sink);
+                }
+            });
+            System.out.printf("cache: hit ratio %.3f, evictions %.0f, fetched %.0f MB, held %d MB%n",
+                    cache.getHitRatio(),
+                    registry.get("repparton.audio.cache.evictions").counter().count(),
+                    registry.get("repparton.audio.cache.fetched.bytes").counter().count() / 1048576.0,
+                    cache.getCachedBytes() >> 20);
+        } finally {
+            origin.stop(0);
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private interface RangeReader {
+        long read(int track, ByteRange range, SocketChannel sink) throws Exception;
+    }
+
+    private static void run(String name, int listeners, RangeReader reader) throws Exception {
+        ServerSocketChannel drain = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        ExecutorService pool = Executors.newFixedThreadPool(listeners * 2);
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(listeners);
+        long start = System.nanoTime();
+
+        for (int l = 0; l < listeners; l++) {
+            long[] listenerLatencies = new long[PLAYS_PER_LISTENER * (SEEKS_PER_PLAY + 1)];
+            latencies.add(listenerLatencies);
+            SocketChannel sink = SocketChannel.open(drain.getLocalAddress());
+            SocketChannel accepted = drain.accept();
+            pool.execute(() -> discard(accepted));
+            int seed = l;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                int n = 0;
+                try {
+                    for (int play = 0; play < PLAYS_PER_LISTENER; play++) {
+                        int track = zipf(random);
+                        for (int seek = 0; seek <= SEEKS_PER_PLAY; seek++) {
+                            long offset = seek == 0 ? 0 : random.nextInt(TRACK_BYTES - RANGE_BYTES);
+                            long t0 = System.nanoTime();
+                            bytes.addAndGet(reader.read(track, new ByteRange(offset, offset + RANGE_BYTES - 1), sink));
+                            listenerLatencies[n++] = System.nanoTime() - t0;
+                        }
+                    }
+                    sink.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdownNow();
+        drain.close();
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-7s %6d ranges in %6.2f s  %8.1f MB/s  p50 %7.2f ms  p99 %7.2f ms%n",
+                name, all.length, seconds, bytes.get() / 1048576.0 / seconds,
+                all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6);
+    }
+
+    private static void discard(SocketChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        try (channel) {
+            while (channel.read(buffer) >= 0) {
+                buffer.clear();
+            }
+        } catch (IOException ignored) {
+            // Closed by the benchmark
+        }
+    }
+
+    // Zipf(1.0) over the catalog: a few hot tracks and a long tail
+    private static int zipf(Random random) {
+        double total = 0;
+        for (int i = 1; i <= TRACKS; i++) {
+            total += 1.0 / i;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 1; i <= TRACKS; i++) {
+            target -= 1.0 / i;
+            if (target <= 0) {
+                return i - 1;
+            }
+        }
+        return TRACKS - 1;
+    }
+
+    private static HttpServer startOrigin(Path dir, int delayMs) throws IOException {
+        Files.createDirectories(dir);
+        byte[] content = new byte[TRACK_BYTES];
+        Random random = new Random(42);
+        for (int i = 0; i < TRACKS; i++) {
+            random.nextBytes(content);
+            Files.write(dir.resolve(i + ".mp3"), content);
+        }
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/track/", exchange -> {
+            try (exchange) {
+                Thread.sleep(delayMs);
+                String name = exchange.getRequestURI().getPath().substring("/track/".length());
+                byte[] track = Files.readAllBytes(dir.resolve(name));
+                ByteRange range = ByteRange.parse(exchange.getRequestHeaders().getFirst("Range"), track.length)
+                        .orElse(new ByteRange(0, track.length - 1));
+                exchange.sendResponseHeaders(range.length() == track.length ? 200 : 206, range.length());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(track, (int) range.start(), (int) range.length());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,166 @@
+package com.DA2.Repparton.LoadTest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * First-page home feed latency for a user following many accounts, old read-time query versus the timeline.
+ * Needs a MongoDB; seeds and drops its own database. Run with:
+ * java -cp target/test-classes:target/classes:<deps> com.DA2.Repparton.LoadTest.FeedBenchmark [mongoUri] [followings] [postsPerAuthor]
+ *
+ * Legacy: follows lookup, posts $in over every followed id sorted by createdAt, then one user findById per post.
+ * Timeline: one timelines read with $slice, posts by _id $in, authors by _id $in.
+ */
+public class FeedBenchmark {
+
+    private static final String DATABASE = "repparton_feed_benchmark";
+    private static final int PAGE_SIZE = 20;
+    private static final int TIMELINE_SIZE = 800;
+    private static final int REQUESTS = 1_000;
+
+    public static void main(String[] args) {
+        String uri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+        int followings = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int postsPerAuthor = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoDatabase db = client.getDatabase(DATABASE);
+            db.drop();
+            try {
+                String reader = seed(db, followings, postsPerAuthor);
+                System.out.println("Feed benchmark: " + followings + " followings, " + (followings * postsPerAuthor) + " posts");
+                System.out.println("==========================================================");
+
+                // Warm up both paths before measuring
+                runLegacy(db, reader, 100);
+                runTimeline(db, reader, 100);
+
+                report("Legacy ($in over followings)", runLegacy(db, reader, REQUESTS));
+                report("Timeline (fan-out on write)", runTimeline(db, reader, REQUESTS));
+            } finally {
+                db.drop();
+            }
+        }
+    }
+
+    private static String seed(MongoDatabase db, int followings, int postsPerAuthor) {
+        MongoCollection<Document> users = db.getCollection("users");
+        MongoCollection<Document> follows = db.getCollection("follows");
+        MongoCollection<Document> posts = db.getCollection("posts");
+        MongoCollection<Document> timelines = db.getCollection("timelines");
+        follows.createIndex(Indexes.ascending("followerId", "artistId"));
+        posts.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"), Indexes.descending("createdAt", "_id")));
+
+        String reader = new ObjectId().toHexString();
+        users.insertOne(new Document("_id", new ObjectId(reader)).append("username", "reader"));
+
+        Random random = new Random(3);
+        long now = System.currentTimeMillis();
+        List<Document> userBatch = new ArrayList<>();
+        List<Document> followBatch = new ArrayList<>();
+        List<Document> postBatch = new ArrayList<>();
+        List<Document> entries = new ArrayList<>();
+        for (int a = 0; a < followings; a++) {
+            ObjectId authorId = new ObjectId();
+            String author = authorId.toHexString();
+            userBatch.add(new Document("_id", authorId).append("username", "artist-" + a).append("avatarUrl", "https://cdn/" + a));
+            followBatch.add(new Document("followerId", reader).append("artistId", author).append("createdAt", new Date(now)));
+            for (int p = 0; p < postsPerAuthor; p++) {
+                ObjectId postId = new ObjectId();
+                Date createdAt = new Date(now - random.nextInt(30 * 24 * 3600) * 1000L);
+                postBatch.add(new Document("_id", postId).append("userId", author)
+                        .append("content", "post " + p + " by " + a).append("createdAt", createdAt)
+                        .append("likes", random.nextInt(100)).append("shares", 0).append("isPrivate", false));
+                entries.add(new Document("postId", postId.toHexString()).append("authorId", author).append("createdAt", createdAt));
+            }
+            if (postBatch.size() >= 10_000) {
+                posts.insertMany(postBatch);
+                postBatch.clear();
+            }
+        }
+        users.insertMany(userBatch);
+        follows.insertMany(followBatch);
+        if (!postBatch.isEmpty()) {
+            posts.insertMany(postBatch);
+        }
+
+        // Same $push/$sort/$slice the fan-out uses, so the document has the production shape
+        timelines.updateOne(Filters.eq("_id", reader),
+                Updates.pushEach("entries", entries, new PushOptions()
+                        .sortDocument(new Document("createdAt", -1).append("postId", -1))
+                        .slice(TIMELINE_SIZE)),
+                new UpdateOptions().upsert(true));
+        return reader;
+    }
+
+    private static long[] runLegacy(MongoDatabase db, String reader, int requests) {
+        MongoCollection<Document> users = db.getCollection("users");
+        MongoCollection<Document> follows = db.getCollection("follows");
+        MongoCollection<Document> posts = db.getCollection("posts");
+        long[] latencies = new long[requests];
+        for (int r = 0; r < requests; r++) {
+            long start = System.nanoTime();
+            List<String> followingIds = new ArrayList<>();
+            for (Document follow : follows.find(Filters.eq("followerId", reader))) {
+                followingIds.add(follow.getString("artistId"));
+            }
+            followingIds.add(reader);
+            for (Document post : posts.find(Filters.in("userId", followingIds))
+                    .sort(Sorts.descending("createdAt")).limit(PAGE_SIZE)) {
+                users.find(Filters.eq("_id", new ObjectId(post.getString("userId")))).first();
+            }
+            latencies[r] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static long[] runTimeline(MongoDatabase db, String reader, int requests) {
+        MongoCollection<Document> users = db.getCollection("users");
+        MongoCollection<Document> posts = db.getCollection("posts");
+        MongoCollection<Document> timelines = db.getCollection("timelines");
+        long[] latencies = new long[requests];
+        for (int r = 0; r < requests; r++) {
+            long start = System.nanoTime();
+            Document timeline = timelines.find(Filters.eq("_id", reader))
+                    .projection(Projections.slice("entries", PAGE_SIZE + 1)).first();
+            List<ObjectId> postIds = new ArrayList<>();
+            for (Document entry : timeline.getList("entries", Document.class)) {
+                postIds.add(new ObjectId(entry.getString("postId")));
+            }
+            List<ObjectId> authorIds = new ArrayList<>();
+            for (Document post : posts.find(Filters.in("_id", postIds))) {
+                authorIds.add(new ObjectId(post.getString("userId")));
+            }
+            users.find(Filters.in("_id", authorIds)).into(new ArrayList<>());
+            latencies[r] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-36s p50=%8.3f ms  p99=%8.3f ms  max=%8.3f ms%n",
+                name,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,117 @@
+package com.DA2.Repparton.LoadTest;
+
+import com.DA2.Repparton.Security.JwtAuthenticationFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request authentication cost of JwtAuthenticationFilter, old code path versus the cached one.
+ * Run with: java -cp target/test-classes:target/classes:<deps> com.DA2.Repparton.LoadTest.JwtFilterBenchmark [users] [lookupMicros]
+ *
+ * Requests are spread over users tokens. The user lookup is a stub that spins for lookupMicros
+ * to stand in for the MongoDB findByEmail, so the numbers exclude network variance.
+ * Legacy: key derived from hex and token parsed three times per request, user loaded every request.
+ * Cached: one parse per token until expiry, UserDetails cached for the TTL.
+ */
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970337336763979244226452948404D635166546A576E5A7234753778214125442A";
+    private static final int REQUESTS = 20_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        long lookupMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+        AtomicLong lookups = new AtomicLong();
+        UserDetailsService userDetailsService = email -> {
+            lookups.incrementAndGet();
+            spin(lookupMicros * 1_000);
+            return User.withUsername(email).password("x").roles("USER").build();
+        };
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(userDetailsService, SECRET, 86_400_000L, 20_000, 30_000);
+
+        String[] tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            tokens[i] = filter.generateToken("user" + i + "@repparton.test");
+        }
+
+        System.out.println("JWT filter benchmark: " + users + " users, " + lookupMicros + "us simulated user lookup");
+        System.out.println("==========================================================");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean report = round == ROUNDS - 1;
+
+            lookups.set(0);
+            long legacy = run(tokens, token -> legacyAuthenticate(token, userDetailsService));
+            long legacyLookups = lookups.get();
+
+            lookups.set(0);
+            long cached = run(tokens, filter::authenticate);
+            long cachedLookups = lookups.get();
+
+            if (report) {
+                print("Legacy (3 parses + lookup)", legacy, legacyLookups);
+                print("Cached (1 parse per token)", cached, cachedLookups);
+                System.out.printf("Speed-up: %.1fx%n", (double) legacy / cached);
+            }
+        }
+    }
+
+    private static long run(String[] tokens, java.util.function.Function<String, UserDetails> authenticate) {
+        Random random = new Random(7);
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            UserDetails userDetails = authenticate.apply(tokens[random.nextInt(tokens.length)]);
+            sink += userDetails.getUsername().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return elapsed;
+    }
+
+    // What the filter did before: extractUsername, loadUserByUsername, validateToken (extractUsername + isTokenExpired)
+    private static UserDetails legacyAuthenticate(String token, UserDetailsService userDetailsService) {
+        String username = parse(token).getSubject();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        boolean valid = parse(token).getSubject().equals(userDetails.getUsername())
+                && !parse(token).getExpiration().before(new Date());
+        return valid ? userDetails : null;
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parserBuilder().setSigningKey(legacyKey()).build().parseClaimsJws(token).getBody();
+    }
+
+    private static SecretKey legacyKey() {
+        byte[] data = new byte[SECRET.length() / 2];
+        for (int i = 0; i < SECRET.length(); i += 2) {
+            data[i / 2] = (byte) ((Character.digit(SECRET.charAt(i), 16) << 4) + Character.digit(SECRET.charAt(i + 1), 16));
+        }
+        return Keys.hmacShaKeyFor(data);
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void print(String name, long elapsedNanos, long lookups) {
+        System.out.printf("%-30s %8.2f us/request  %10.0f requests/s  user lookups=%d%n",
+                name, elapsedNanos / 1e3 / REQUESTS, REQUESTS / (elapsedNanos / 1e9), lookups);
+    }
+}
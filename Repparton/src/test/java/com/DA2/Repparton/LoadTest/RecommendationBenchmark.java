@@ -0,0 +1,152 @@
+package com.DA2.Repparton.LoadTest;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Service.RecommendationEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the old findAll()-and-filter recommendation path with RecommendationEngine
+ * on a synthetic catalogue. Run with: java -cp target/test-classes:target/classes:<deps> com.DA2.Repparton.LoadTest.RecommendationBenchmark [songs] [users]
+ *
+ * The legacy path rebuilds the catalogue objects per request but skips the MongoDB transfer and decoding,
+ * so its numbers are a lower bound.
+ */
+public class RecommendationBenchmark {
+
+    private static final int GENRES = 50;
+    private static final int ARTISTS = 5_000;
+    private static final int HISTORY_PER_USER = 200;
+    private static final int REQUESTS = 20_000;
+    private static final int LIMIT = 20;
+
+    public static void main(String[] args) {
+        int songCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Random random = new Random(42);
+
+        System.out.println("Recommendation benchmark: " + songCount + " songs, " + userCount + " users");
+        System.out.println("==========================================================");
+
+        List<Song> catalogue = buildCatalogue(songCount, random);
+        List<List<Song>> histories = buildHistories(catalogue, userCount, random);
+
+        RecommendationEngine engine = new RecommendationEngine();
+        long start = System.nanoTime();
+        List<Song> byViews = new ArrayList<>(catalogue);
+        byViews.sort(Comparator.comparingInt(Song::getViews).reversed());
+        engine.rebuild(byViews.iterator());
+        System.out.printf("Index rebuild: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        for (int u = 0; u < userCount; u++) {
+            engine.loadProfile("user-" + u, histories.get(u));
+        }
+        System.out.printf("Profile seeding: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        // Warm up both paths before measuring
+        runLegacy(catalogue, histories, random, 2_000);
+        runEngine(engine, userCount, random, 20_000);
+
+        report("Legacy (findAll + List.contains)", runLegacy(catalogue, histories, random, 2_000));
+        report("RecommendationEngine", runEngine(engine, userCount, random, REQUESTS));
+    }
+
+    private static long[] runLegacy(List<Song> catalogue, List<List<Song>> histories, Random random, int requests) {
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            List<Song> history = histories.get(random.nextInt(histories.size()));
+            long t = System.nanoTime();
+
+            List<String> userSongIds = history.stream().map(Song::getId).collect(Collectors.toList());
+            List<Song> allSongs = materialize(catalogue); // stand-in for songRepo.findAll()
+            List<Song> result = allSongs.stream()
+                    .filter(song -> !userSongIds.contains(song.getId()))
+                    .filter(song -> !song.isPrivate())
+                    .limit(LIMIT)
+                    .collect(Collectors.toList());
+
+            latencies[i] = System.nanoTime() - t;
+            if (result.isEmpty()) {
+                System.out.println("unexpected empty result");
+            }
+        }
+        return latencies;
+    }
+
+    // Rebuilds every entity the way findAll() would after decoding, minus the network and BSON cost
+    private static List<Song> materialize(List<Song> catalogue) {
+        List<Song> copy = new ArrayList<>(catalogue.size());
+        for (Song source : catalogue) {
+            Song song = new Song(source.getTitle(), source.getArtistId());
+            song.setId(source.getId());
+            song.setStatus(source.getStatus());
+            song.setGenreIds(new ArrayList<>(source.getGenreIds()));
+            song.setViews(source.getViews());
+            copy.add(song);
+        }
+        return copy;
+    }
+
+    private static long[] runEngine(RecommendationEngine engine, int userCount, Random random, int requests) {
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            String userId = "user-" + random.nextInt(userCount);
+            long t = System.nanoTime();
+            List<Song> result = engine.recommend(userId, LIMIT);
+            latencies[i] = System.nanoTime() - t;
+            if (result.isEmpty()) {
+                System.out.println("unexpected empty result");
+            }
+        }
+        return latencies;
+    }
+
+    private static List<Song> buildCatalogue(int count, Random random) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song("Song " + i, "artist-" + random.nextInt(ARTISTS));
+            song.setId("song-" + i);
+            song.setStatus("approved");
+            song.setGenreIds(List.of("genre-" + random.nextInt(GENRES)));
+            // Long-tail play counts: a few hits, many rarely played songs
+            song.setViews((int) (1_000_000 / Math.pow(i + 1, 0.8) * random.nextDouble()));
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    private static List<List<Song>> buildHistories(List<Song> catalogue, int users, Random random) {
+        List<List<Song>> histories = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            // Each user mostly listens to a few favourite genres
+            int favourite = random.nextInt(GENRES);
+            List<Song> history = new ArrayList<>(HISTORY_PER_USER);
+            while (history.size() < HISTORY_PER_USER) {
+                Song song = catalogue.get(random.nextInt(catalogue.size()));
+                String genre = song.getGenreIds().get(0);
+                int g = Integer.parseInt(genre.substring("genre-".length()));
+                if (Math.abs(g - favourite) <= 1 || random.nextInt(10) == 0) {
+                    history.add(song);
+                }
+            }
+            histories.add(history);
+        }
+        return histories;
+    }
+
+    private static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-36s p50=%8.3f ms  p99=%8.3f ms  max=%8.3f ms%n",
+                name,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,107 @@
+package com.DA2.Repparton.LoadTest;
+
+import com.DA2.Repparton.Service.AudioTranscoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Bytes per play and time to first audio for an uploaded WAV served as-is versus the HLS renditions
+ * produced by AudioTranscoder. Needs ffmpeg and ffprobe on the PATH. Run with:
+ * java -cp target/test-classes:target/classes:<deps> com.DA2.Repparton.LoadTest.TranscodeBenchmark [seconds] [bandwidthKbps]
+ *
+ * Time to first audio is the download time, at the given bandwidth, of what a player needs before it can start:
+ * one segment's worth of the WAV, or the master playlist, the media playlist and the first segment.
+ */
+public class TranscodeBenchmark {
+
+    private static final int SAMPLE_RATE = 44_100;
+    private static final int SEGMENT_SECONDS = 6;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 180;
+        int bandwidthKbps = args.length > 1 ? Integer.parseInt(args[1]) : 1_500;
+
+        AudioTranscoder transcoder = new AudioTranscoder("ffmpeg", "ffprobe", new int[] {64, 128, 256},
+                SEGMENT_SECONDS, 1, 900_000);
+        if (!transcoder.isAvailable()) {
+            System.out.println("ffmpeg not found on the PATH");
+            return;
+        }
+
+        Path work = Files.createTempDirectory("transcode-benchmark");
+        try {
+            Path wav = writeWav(work.resolve("source.wav"), seconds);
+            long wavBytes = Files.size(wav);
+            AudioTranscoder.Probe probe = transcoder.probe(wav);
+
+            long start = System.nanoTime();
+            List<AudioTranscoder.Variant> variants = transcoder.transcode(wav, work.resolve("hls"),
+                    transcoder.ladderFor(probe.bitrateKbps()), probe.durationSeconds(), done -> { });
+            double transcodeSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d s of audio, transcoded in %.1f s (%.0fx realtime), %d kbps link%n",
+                    seconds, transcodeSeconds, seconds / transcodeSeconds, bandwidthKbps);
+            System.out.printf("%-10s %12s %10s %16s%n", "format", "bytes/play", "vs wav", "first audio ms");
+            long wavFirst = wavBytes * SEGMENT_SECONDS / seconds;
+            System.out.printf("%-10s %12d %9.1f%% %16.0f%n", "wav", wavBytes, 100.0, millis(wavFirst, bandwidthKbps));
+            for (AudioTranscoder.Variant variant : variants) {
+                long bytes = 0;
+                for (Path segment : variant.segments()) {
+                    bytes += Files.size(segment);
+                }
+                // The master playlist is a few hundred bytes; count it as 512
+                long first = 512 + Files.size(variant.playlist()) + Files.size(variant.segments().get(0));
+                System.out.printf("%-10s %12d %9.1f%% %16.0f%n", "hls " + variant.bitrateKbps() + "k",
+                        bytes, 100.0 * bytes / wavBytes, millis(first, bandwidthKbps));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static double millis(long bytes, int bandwidthKbps) {
+        return bytes * 8.0 / bandwidthKbps;
+    }
+
+    // 16-bit stereo PCM: a few drifting tones plus noise, so the encoder has something non-trivial to work on
+    private static Path writeWav(Path file, int seconds) throws IOException {
+        int frames = SAMPLE_RATE * seconds;
+        int dataBytes = frames * 4;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes())
+                .put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 2)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 4).putShort((short) 4).putShort((short) 16)
+                .put("data".getBytes()).putInt(dataBytes);
+
+        Random random = new Random(7);
+        ByteBuffer block = ByteBuffer.allocate(SAMPLE_RATE * 4).order(ByteOrder.LITTLE_ENDIAN);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(header.array());
+            for (int frame = 0; frame < frames; frame++) {
+                double t = (double) frame / SAMPLE_RATE;
+                double tone = 0.3 * Math.sin(2 * Math.PI * (220 + 20 * Math.sin(t / 4)) * t)
+                        + 0.2 * Math.sin(2 * Math.PI * 330 * t) + 0.1 * Math.sin(2 * Math.PI * 660 * t);
+                short left = (short) ((tone + 0.05 * random.nextGaussian()) * 12_000);
+                short right = (short) ((tone + 0.05 * random.nextGaussian()) * 12_000);
+                block.putShort(left).putShort(right);
+                if (!block.hasRemaining()) {
+                    out.write(block.array(), 0, block.position());
+                    block.clear();
+                }
+            }
+            out.write(block.array(), 0, block.position());
+        }
+        return file;
+    }
+}
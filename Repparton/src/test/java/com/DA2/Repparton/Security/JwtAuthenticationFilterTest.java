@@ -0,0 +1,97 @@
+package com.DA2.Repparton.Security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    // 128 hex characters, decoded to a 512-bit HS512 key like the production secret
+    private static final String SECRET = "00112233445566778899AABBCCDDEEFF".repeat(4);
+    private static final String EMAIL = "listener@example.com";
+
+    private UserDetailsService userDetailsService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(EMAIL))
+                .thenReturn(User.withUsername(EMAIL).password("x").roles("USER").build());
+        filter = new JwtAuthenticationFilter(userDetailsService, SECRET, 60_000, 100, 30_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validTokenAuthenticatesAndLaterRequestsUseTheCaches() throws Exception {
+        String token = filter.generateToken(EMAIL);
+
+        for (int i = 0; i < 3; i++) {
+            SecurityContextHolder.clearContext();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request(token), new MockHttpServletResponse(), chain);
+
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            assertNotNull(auth);
+            assertEquals(EMAIL, auth.getName());
+            assertNotNull(chain.getRequest());
+        }
+        verify(userDetailsService, times(1)).loadUserByUsername(EMAIL);
+
+        filter.evictUserDetails(EMAIL);
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request(token), new MockHttpServletResponse(), new MockFilterChain());
+        verify(userDetailsService, times(2)).loadUserByUsername(EMAIL);
+    }
+
+    @Test
+    void expiredTokenIsRejectedWithTokenExpired() throws Exception {
+        JwtAuthenticationFilter expiring = new JwtAuthenticationFilter(userDetailsService, SECRET, -1_000, 100, 30_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        expiring.doFilter(request(expiring.generateToken(EMAIL)), response, chain);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("true", response.getHeader("X-Token-Expired"));
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsIgnored() throws Exception {
+        JwtAuthenticationFilter other = new JwtAuthenticationFilter(userDetailsService,
+                "FFEEDDCCBBAA99887766554433221100".repeat(4), 60_000, 100, 30_000);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request(other.generateToken(EMAIL)), new MockHttpServletResponse(), chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/songs/recommended");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,43 @@
+package com.DA2.Repparton.Security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamTokenServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970337336763979244226452948404D635166546A576E5A7234753778214125442A";
+
+    private final StreamTokenService tokens = new StreamTokenService(SECRET, 60_000);
+
+    @Test
+    void tokenNamesTheUserForItsSongOnly() {
+        String token = tokens.issue("song-1", "user-1").token();
+
+        assertEquals(Optional.of("user-1"), tokens.verify(token, "song-1"));
+        assertTrue(tokens.verify(token, "song-2").isEmpty());
+    }
+
+    @Test
+    void expiredTamperedAndForeignTokensAreRejected() {
+        String expired = new StreamTokenService(SECRET, -1_000).issue("song-1", "user-1").token();
+        String token = tokens.issue("song-1", "user-1").token();
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        String otherKey = new StreamTokenService(SECRET.replace('4', '5'), 60_000).issue("song-1", "user-1").token();
+
+        assertTrue(tokens.verify(expired, "song-1").isEmpty());
+        assertTrue(tokens.verify(tampered, "song-1").isEmpty());
+        assertTrue(tokens.verify(otherKey, "song-1").isEmpty());
+        assertTrue(tokens.verify("not-a-token", "song-1").isEmpty());
+    }
+
+    @Test
+    void loginTokensAreNotStreamTokens() {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(username -> null, SECRET, 60_000, 10, 1_000);
+
+        assertTrue(tokens.verify(filter.generateToken("user@example.com"), "song-1").isEmpty());
+    }
+}
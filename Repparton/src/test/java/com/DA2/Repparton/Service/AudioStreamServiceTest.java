@@ -0,0 +1,100 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AudioStreamServiceTest {
+
+    private SongService songService;
+    private UserService userService;
+    private AudioStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        songService = mock(SongService.class);
+        userService = mock(UserService.class);
+        service = new AudioStreamService(songService, mock(PlaylistService.class), userService,
+                mock(AudioCache.class), new SimpleMeterRegistry(), 1, 1);
+        ReflectionTestUtils.setField(service, "playDedupWindowMillis", 30_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void approvedPublicSongsStreamWithoutLogin() {
+        song("s1", "artist", false, "approved");
+
+        assertTrue(service.findStreamableSong("s1", null).isPresent());
+    }
+
+    @Test
+    void privateAndUnapprovedSongsStreamOnlyForTheirArtistOrAnAdmin() {
+        song("private", "artist", true, "approved");
+        song("pending", "artist", false, "pending");
+        user("artist@example.com", "artist", "artist");
+        user("admin@example.com", "admin1", "admin");
+        user("fan@example.com", "fan", "user");
+
+        assertFalse(service.findStreamableSong("private", null).isPresent());
+        assertFalse(service.findStreamableSong("pending", null).isPresent());
+        assertFalse(service.findStreamableSong("private", "fan@example.com").isPresent());
+        assertTrue(service.findStreamableSong("private", "artist@example.com").isPresent());
+        assertTrue(service.findStreamableSong("pending", "admin@example.com").isPresent());
+    }
+
+    @Test
+    void songsWithoutAudioAreNotStreamable() {
+        Song song = song("s1", "artist", false, "approved");
+        song.setAudioUrl(" ");
+
+        assertFalse(service.findStreamableSong("s1", null).isPresent());
+    }
+
+    @Test
+    void playsAreCountedOncePerListenerWithTheirUserId() {
+        Song song = song("s1", "artist", false, "approved");
+
+        service.onPlaybackStart(song, "user:u1", "u1", null);
+        service.onPlaybackStart(song, "user:u1", "u1", null);
+        // A second user behind the same address is a separate listener
+        service.onPlaybackStart(song, "user:u2", "u2", null);
+
+        verify(songService, times(1)).incrementViews("s1", "u1");
+        verify(songService, times(1)).incrementViews("s1", "u2");
+    }
+
+    private Song song(String id, String artistId, boolean isPrivate, String status) {
+        Song song = new Song("title", artistId);
+        song.setId(id);
+        song.setAudioUrl("https://cdn.example.com/" + id + ".mp3");
+        song.setPrivate(isPrivate);
+        song.setStatus(status);
+        when(songService.getSongById(id)).thenReturn(Optional.of(song));
+        return song;
+    }
+
+    private void user(String email, String id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setRole(role);
+        when(userService.findByEmail(email)).thenReturn(user);
+    }
+}
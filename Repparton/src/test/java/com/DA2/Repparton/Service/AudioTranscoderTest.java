@@ -0,0 +1,77 @@
+package com.DA2.Repparton.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AudioTranscoderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ladderSkipsRungsAtOrAboveTheSourceBitrate() {
+        AudioTranscoder transcoder = transcoder("ffmpeg");
+
+        assertArrayEquals(new int[] {64, 128, 256}, transcoder.ladderFor(0));
+        assertArrayEquals(new int[] {64, 128, 256}, transcoder.ladderFor(320));
+        assertArrayEquals(new int[] {64}, transcoder.ladderFor(128));
+        // Below the lowest rung the lowest one is still produced
+        assertArrayEquals(new int[] {64}, transcoder.ladderFor(48));
+    }
+
+    @Test
+    void reportsHeartbeatsWhenTheDurationIsUnknown() throws IOException {
+        assumeTrue(File.separatorChar == '/', "needs a POSIX shell");
+        Path ffmpeg = dir.resolve("ffmpeg");
+        Files.writeString(ffmpeg, """
+                #!/bin/sh
+                echo out_time_us=N/A
+                echo progress=continue
+                echo out_time_us=N/A
+                echo progress=continue
+                echo progress=end
+                """);
+        assumeTrue(ffmpeg.toFile().setExecutable(true));
+
+        List<Double> progress = new ArrayList<>();
+        transcoder(ffmpeg.toString()).transcode(dir.resolve("source"), dir.resolve("hls"), new int[] {64}, 0,
+                progress::add);
+
+        assertEquals(List.of(-1.0, -1.0, 1.0), progress);
+    }
+
+    @Test
+    void reportsFractionsWhenTheDurationIsKnown() throws IOException {
+        assumeTrue(File.separatorChar == '/', "needs a POSIX shell");
+        Path ffmpeg = dir.resolve("ffmpeg");
+        Files.writeString(ffmpeg, """
+                #!/bin/sh
+                echo out_time_us=5000000
+                echo progress=continue
+                echo out_time_ms=10000000
+                echo progress=end
+                """);
+        assumeTrue(ffmpeg.toFile().setExecutable(true));
+
+        List<Double> progress = new ArrayList<>();
+        transcoder(ffmpeg.toString()).transcode(dir.resolve("source"), dir.resolve("hls"), new int[] {64}, 10,
+                progress::add);
+
+        assertEquals(List.of(0.5, 1.0, 1.0), progress);
+    }
+
+    private static AudioTranscoder transcoder(String ffmpegPath) {
+        return new AudioTranscoder(ffmpegPath, "ffprobe", new int[] {256, 64, 128}, 6, 1, 10_000);
+    }
+}
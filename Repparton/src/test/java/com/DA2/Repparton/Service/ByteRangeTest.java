@@ -0,0 +1,37 @@
+package com.DA2.Repparton.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ByteRangeTest {
+
+    @Test
+    void parsesClosedOpenAndSuffixRanges() {
+        assertEquals(Optional.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+        assertEquals(Optional.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(Optional.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        // An end past the content is clamped to the last byte
+        assertEquals(Optional.of(new ByteRange(900, 999)), ByteRange.parse("bytes=900-5000", 1000));
+        assertEquals("bytes 0-99/1000", new ByteRange(0, 99).contentRange(1000));
+        assertEquals(100, new ByteRange(0, 99).length());
+    }
+
+    @Test
+    void ignoresMissingMalformedAndMultiRangeHeaders() {
+        assertEquals(Optional.empty(), ByteRange.parse(null, 1000));
+        assertEquals(Optional.empty(), ByteRange.parse("items=0-10", 1000));
+        assertEquals(Optional.empty(), ByteRange.parse("bytes=0-10,20-30", 1000));
+        assertEquals(Optional.empty(), ByteRange.parse("bytes=abc-", 1000));
+        assertEquals(Optional.empty(), ByteRange.parse("bytes=50-10", 1000));
+    }
+
+    @Test
+    void rejectsRangesOutsideTheContent() {
+        assertThrows(ByteRange.NotSatisfiableException.class, () -> ByteRange.parse("bytes=1000-", 1000));
+        assertThrows(ByteRange.NotSatisfiableException.class, () -> ByteRange.parse("bytes=-0", 1000));
+    }
+}
@@ -0,0 +1,158 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import com.DA2.Repparton.Repository.LikeRepo;
+import com.DA2.Repparton.Repository.SongRepo;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Parallel likes and plays on the same songs must all land in the counters.
+ * MongoDB is replaced by a map that applies each $inc atomically, as the server does,
+ * so a lost increment here means the service read and rewrote the counter itself or dropped a buffered play.
+ */
+@ExtendWith(MockitoExtension.class)
+class CounterConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SongRepo songRepo;
+
+    @Mock
+    private LikeRepo likeRepo;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private SongCacheEvictor songCacheEvictor;
+
+    @InjectMocks
+    private LikeService likeService;
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Test
+    void parallelLikesAreAllCounted() throws Exception {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Song.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Update update = invocation.getArgument(1);
+            apply(query.getQueryObject().getString("_id"), update, "likes");
+            return UpdateResult.acknowledged(1, 1L, null);
+        });
+        int likesPerThread = 250;
+
+        runInParallel(thread -> {
+            for (int i = 0; i < likesPerThread; i++) {
+                likeService.toggleSongLike("user-" + thread + "-" + i, "song-1");
+            }
+        });
+
+        assertEquals(THREADS * likesPerThread, counters.get("song-1:likes").get());
+        verify(songRepo, never()).save(any());
+    }
+
+    @Test
+    void parallelPlaysAreAllCountedWhileFlushing() throws Exception {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Song.class)).thenReturn(bulk);
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            apply(query.getQueryObject().getString("_id"), invocation.getArgument(1), "views");
+            return bulk;
+        });
+        PlayCountAggregator aggregator = new PlayCountAggregator(mongoTemplate, mock(RecommendationEngine.class),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(aggregator, "flushThreshold", 100);
+        ReflectionTestUtils.setField(aggregator, "maxPending", 1_000);
+        int playsPerThread = 5_000;
+
+        AtomicBoolean playing = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (playing.get()) {
+                aggregator.scheduledFlush();
+            }
+        });
+        flusher.start();
+        try {
+            runInParallel(thread -> {
+                for (int i = 0; i < playsPerThread; i++) {
+                    aggregator.recordPlay("song-" + (i % 4), null);
+                }
+            });
+        } finally {
+            playing.set(false);
+            flusher.join();
+        }
+        aggregator.flush();
+
+        long total = counters.values().stream().mapToLong(AtomicLong::get).sum();
+        assertEquals((long) THREADS * playsPerThread, total);
+        assertEquals(0, aggregator.getPendingEvents());
+    }
+
+    private void apply(String id, Update update, String field) {
+        Number delta = (Number) ((Document) update.getUpdateObject().get("$inc")).get(field);
+        counters.computeIfAbsent(id + ":" + field, key -> new AtomicLong()).addAndGet(delta.longValue());
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runInParallel(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    worker.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlayCountAggregatorTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private PlayCountAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Song.class))).thenReturn(bulk);
+        aggregator = new PlayCountAggregator(mongoTemplate, mock(RecommendationEngine.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(aggregator, "flushThreshold", 1_000);
+        ReflectionTestUtils.setField(aggregator, "maxPending", 10);
+    }
+
+    @Test
+    void failedFlushKeepsPlaysForTheNextOne() {
+        when(bulk.execute()).thenThrow(new RuntimeException("connection reset")).thenReturn(null);
+        for (int i = 0; i < 3; i++) {
+            aggregator.recordPlay("song-1", null);
+        }
+
+        aggregator.flush();
+        assertEquals(3, aggregator.getPendingEvents());
+
+        aggregator.recordPlay("song-1", null);
+        aggregator.flush();
+        assertEquals(0, aggregator.getPendingEvents());
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(any(Query.class), updates.capture());
+        assertEquals(4, ((Document) updates.getValue().getUpdateObject().get("$inc")).get("views"));
+    }
+
+    @Test
+    void failedFlushIsDroppedWhenItWouldOverflowTheBuffer() {
+        when(bulk.execute()).thenThrow(new RuntimeException("connection reset"));
+        for (int i = 0; i < 3; i++) {
+            aggregator.recordPlay("song-1", null);
+        }
+        ReflectionTestUtils.setField(aggregator, "maxPending", 2);
+
+        aggregator.flush();
+        assertEquals(0, aggregator.getPendingEvents());
+    }
+
+    @Test
+    void playsAfterShutdownAreWrittenDirectly() {
+        ReflectionTestUtils.setField(aggregator, "flushThreshold", 1);
+        aggregator.shutdown();
+
+        // Would be handed to the stopped flush executor and rejected
+        aggregator.recordPlay("song-1", null);
+
+        assertEquals(0, aggregator.getPendingEvents());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(any(Query.class), update.capture());
+        assertEquals(1, ((Document) update.getValue().getUpdateObject().get("$inc")).get("views"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecommendationEngineTest {
+
+    private final List<Song> catalogue = new ArrayList<>();
+    private RecommendationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Pop is the most played genre overall, rock and jazz less so
+        for (int i = 0; i < 30; i++) {
+            catalogue.add(song("pop-" + i, "pop", "pop-artist-" + (i % 3), 10_000 - i));
+            catalogue.add(song("rock-" + i, "rock", "rock-artist-" + (i % 3), 1_000 - i));
+            catalogue.add(song("jazz-" + i, "jazz", "jazz-artist-" + (i % 3), 500 - i));
+        }
+        catalogue.sort(Comparator.comparingInt(Song::getViews).reversed());
+        engine = new RecommendationEngine();
+        engine.rebuild(catalogue.iterator());
+    }
+
+    @Test
+    void newUsersGetTheMostPlayedSongs() {
+        List<Song> result = engine.recommend("new-user", 5);
+
+        assertEquals(List.of("pop-0", "pop-1", "pop-2", "pop-3", "pop-4"), ids(result));
+    }
+
+    @Test
+    void listenersGetTheirGenreWithoutSongsTheyJustPlayed() {
+        engine.loadProfile("rock-fan", List.of(find("rock-0"), find("rock-1"), find("rock-2")));
+
+        List<Song> result = engine.recommend("rock-fan", 10);
+
+        assertEquals(10, result.size());
+        assertTrue(result.stream().allMatch(song -> song.getGenreIds().contains("rock")), ids(result).toString());
+        assertFalse(ids(result).contains("rock-0"));
+        assertFalse(ids(result).contains("rock-2"));
+    }
+
+    @Test
+    void newListensShiftTheProfile() {
+        engine.loadProfile("listener", List.of(find("rock-0")));
+        for (int i = 0; i < 10; i++) {
+            engine.recordListen("listener", find("jazz-" + i));
+        }
+
+        assertTrue(engine.recommend("listener", 1).get(0).getGenreIds().contains("jazz"));
+    }
+
+    @Test
+    void artistsAreNotRecommendedTheirOwnSongs() {
+        engine.loadProfile("rock-artist-0", List.of(find("rock-3")));
+
+        List<Song> result = engine.recommend("rock-artist-0", 20);
+
+        assertTrue(result.stream().noneMatch(song -> "rock-artist-0".equals(song.getArtistId())));
+        assertFalse(engine.recommendArtists("rock-artist-0", 5, Set.of("rock-artist-0")).contains("rock-artist-0"));
+    }
+
+    private Song find(String id) {
+        return catalogue.stream().filter(song -> song.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static Song song(String id, String genre, String artistId, int views) {
+        Song song = new Song();
+        song.setId(id);
+        song.setGenreIds(List.of(genre));
+        song.setArtistId(artistId);
+        song.setViews(views);
+        return song;
+    }
+
+    private static List<String> ids(List<Song> songs) {
+        return songs.stream().map(Song::getId).toList();
+    }
+}
@@ -0,0 +1,186 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Follow;
+import com.DA2.Repparton.Entity.Post;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TimelineServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private TimelineService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineService.COLLECTION)).thenReturn(bulk);
+        service = new TimelineService(mongoTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxSize", 800);
+        ReflectionTestUtils.setField(service, "celebrityThreshold", 10_000L);
+        ReflectionTestUtils.setField(service, "fanOutBatchSize", 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void fanOutOnlyPushesToExistingTimelines() {
+        when(mongoTemplate.count(any(Query.class), eq(Follow.class))).thenReturn(2L);
+        when(mongoTemplate.stream(any(Query.class), eq(Follow.class)))
+                .thenReturn(Stream.of(new Follow("follower-1", "author"), new Follow("follower-2", "author")));
+
+        service.onPostCreated(post("post-1", "author", 1_000));
+
+        verify(bulk, timeout(5_000)).execute();
+        // The author and both followers
+        verify(bulk, times(3)).updateOne(any(Query.class), any(Update.class));
+        verify(bulk, never()).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void missingTimelineIsBuiltFromFollowedAuthors() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(TimelineService.COLLECTION))).thenReturn(null);
+        when(mongoTemplate.find(any(Query.class), eq(Follow.class))).thenReturn(List.of(new Follow("reader", "author")));
+        when(mongoTemplate.find(any(Query.class), eq(Post.class)))
+                .thenReturn(List.of(post("post-2", "author", 2_000), post("post-1", "author", 1_000)));
+
+        List<TimelineService.Entry> entries = service.read("reader", null, 10);
+
+        assertEquals(List.of("post-2", "post-1"), entries.stream().map(TimelineService.Entry::postId).toList());
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(TimelineService.COLLECTION));
+        verify(bulk, never()).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void concurrentRebuildsStoreEachPostOnce() throws Exception {
+        // Stands in for the timelines collection: upsert applies $setOnInsert only when it inserts
+        Map<String, Document> timelines = new ConcurrentHashMap<>();
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(TimelineService.COLLECTION)))
+                .thenAnswer(invocation -> timelines.get(id(invocation.getArgument(0))));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(TimelineService.COLLECTION)))
+                .thenAnswer(invocation -> {
+                    Document onInsert = (Document) ((Update) invocation.getArgument(1)).getUpdateObject().get("$setOnInsert");
+                    timelines.putIfAbsent(id(invocation.getArgument(0)),
+                            new Document("entries", new ArrayList<>(onInsert.getList("entries", Document.class))));
+                    return null;
+                });
+        when(mongoTemplate.find(any(Query.class), eq(Follow.class))).thenReturn(List.of(new Follow("reader", "author")));
+        // Both readers have seen no timeline before either rebuild writes
+        CyclicBarrier bothMissing = new CyclicBarrier(2);
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenAnswer(invocation -> {
+            bothMissing.await(5, TimeUnit.SECONDS);
+            return List.of(post("post-2", "author", 2_000), post("post-1", "author", 1_000));
+        });
+
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<TimelineService.Entry>> first = readers.submit(() -> service.read("reader", null, 10));
+            Future<List<TimelineService.Entry>> second = readers.submit(() -> service.read("reader", null, 10));
+            assertEquals(2, first.get(5, TimeUnit.SECONDS).size());
+            assertEquals(2, second.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            readers.shutdownNow();
+        }
+
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(TimelineService.COLLECTION));
+        assertEquals(List.of("post-2", "post-1"), timelines.get("reader").getList("entries", Document.class).stream()
+                .map(doc -> doc.getString("postId")).toList());
+        assertEquals(List.of("post-2", "post-1"), service.read("reader", null, 10).stream()
+                .map(TimelineService.Entry::postId).toList());
+    }
+
+    @Test
+    void backfillSkipsPostsTheTimelineAlreadyHolds() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(TimelineService.COLLECTION)))
+                .thenReturn(new Document("_id", "reader").append("entries", List.of(entry("post-1", 1_000_000))));
+        when(mongoTemplate.find(any(Query.class), eq(Post.class)))
+                .thenReturn(List.of(post("post-2", "author", 2_000), post("post-1", "author", 1_000)));
+
+        service.onFollow("reader", "author");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, timeout(5_000)).execute();
+        verify(bulk).updateOne(any(Query.class), update.capture());
+        Update.Modifiers push = (Update.Modifiers) ((Document) update.getValue().getUpdateObject().get("$push")).get("entries");
+        Object[] pushed = (Object[]) push.getModifiers().stream()
+                .filter(modifier -> modifier.getKey().equals("$each")).findFirst().orElseThrow().getValue();
+        assertEquals(List.of("post-2"), Arrays.stream(pushed).map(doc -> ((Document) doc).getString("postId")).toList());
+    }
+
+    @Test
+    void repeatedPostsAreReadOnce() {
+        Document timeline = new Document("_id", "reader").append("entries", List.of(
+                entry("post-2", 2_000), entry("post-2", 2_000), entry("post-1", 1_000)));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(TimelineService.COLLECTION))).thenReturn(timeline);
+
+        assertEquals(List.of("post-2", "post-1"), service.read("reader", null, 10).stream()
+                .map(TimelineService.Entry::postId).toList());
+    }
+
+    @Test
+    void cursorContinuesAfterTheLastEntryOfThePreviousPage() {
+        Document timeline = new Document("_id", "reader").append("entries", List.of(
+                entry("post-3", 3_000), entry("post-2", 2_000), entry("post-1", 1_000)));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(TimelineService.COLLECTION))).thenReturn(timeline);
+
+        List<TimelineService.Entry> first = service.read("reader", null, 1);
+        List<TimelineService.Entry> second = service.read("reader", TimelineService.cursorOf(first.get(0)), 1);
+
+        assertEquals("post-3", first.get(0).postId());
+        assertEquals("post-2", second.get(0).postId());
+    }
+
+    private static String id(Query query) {
+        return query.getQueryObject().getString("_id");
+    }
+
+    private static Post post(String id, String authorId, long epochSecond) {
+        Post post = new Post();
+        post.setId(id);
+        post.setUserId(authorId);
+        post.setCreatedAt(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC));
+        return post;
+    }
+
+    private static Document entry(String postId, long epochMillis) {
+        return new Document("postId", postId).append("authorId", "author").append("createdAt", new Date(epochMillis));
+    }
+}
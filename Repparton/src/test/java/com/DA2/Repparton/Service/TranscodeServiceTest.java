@@ -0,0 +1,25 @@
+package com.DA2.Repparton.Service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TranscodeServiceTest {
+
+    @Test
+    void findsTheRenditionFolderOfAnEarlierTranscode() {
+        assertEquals("repparton/hls/song1/job1", TranscodeService.renditionPrefix(
+                "https://res.cloudinary.com/demo/raw/upload/v1710000000/repparton/hls/song1/job1/master.m3u8", "song1"));
+    }
+
+    @Test
+    void ignoresUrlsOfOtherSongsOrNotProducedByTranscoding() {
+        assertNull(TranscodeService.renditionPrefix(null, "song1"));
+        assertNull(TranscodeService.renditionPrefix(
+                "https://res.cloudinary.com/demo/raw/upload/v1/repparton/hls/song2/job1/master.m3u8", "song1"));
+        assertNull(TranscodeService.renditionPrefix(
+                "https://res.cloudinary.com/demo/video/upload/v1/song1.mp3", "song1"));
+        assertNull(TranscodeService.renditionPrefix("repparton/hls/song1/", "song1"));
+    }
+}
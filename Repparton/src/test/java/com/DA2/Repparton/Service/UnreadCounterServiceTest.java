@@ -0,0 +1,88 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.Notification;
+import com.DA2.Repparton.Entity.NotificationCounter;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class UnreadCounterServiceTest {
+
+    private static final String HEX_USER_ID = "507f1f77bcf86cd799439011";
+
+    private MongoTemplate mongoTemplate;
+    private UnreadCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        service = new UnreadCounterService(mongoTemplate, mock(SimpMessagingTemplate.class));
+    }
+
+    @Test
+    void hexUserIdsAreStoredAndQueriedAsStrings() {
+        MongoMappingContext context = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.afterPropertiesSet();
+
+        Document written = new Document();
+        converter.write(new NotificationCounter(HEX_USER_ID, 3, true), written);
+        Document query = new QueryMapper(converter).getMappedObject(
+                new Query(where("_id").is(HEX_USER_ID)).getQueryObject(),
+                context.getPersistentEntity(NotificationCounter.class));
+
+        assertInstanceOf(String.class, written.get("_id"));
+        assertInstanceOf(String.class, query.get("_id"));
+    }
+
+    @Test
+    void seedingKeepsIncrementsMadeBeforeTheFirstRead() {
+        when(mongoTemplate.findOne(any(Query.class), eq(NotificationCounter.class)))
+                .thenReturn(new NotificationCounter(HEX_USER_ID, 2, false));
+        when(mongoTemplate.count(any(Query.class), eq(Notification.class))).thenReturn(5L);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class))).thenReturn(new NotificationCounter(HEX_USER_ID, 5, true));
+
+        assertEquals(5, service.get(HEX_USER_ID));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class));
+        // The two increments already applied are not added twice
+        assertEquals(3L, ((Document) update.getValue().getUpdateObject().get("$inc")).get("unread"));
+    }
+
+    @Test
+    void losingASeedRaceReadsTheWinnersValueOnce() {
+        when(mongoTemplate.findOne(any(Query.class), eq(NotificationCounter.class)))
+                .thenReturn(null)
+                .thenReturn(new NotificationCounter(HEX_USER_ID, 7, true));
+        when(mongoTemplate.count(any(Query.class), eq(Notification.class))).thenReturn(6L);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+        assertEquals(7, service.get(HEX_USER_ID));
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(NotificationCounter.class));
+    }
+}
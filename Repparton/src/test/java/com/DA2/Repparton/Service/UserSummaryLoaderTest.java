@@ -0,0 +1,93 @@
+package com.DA2.Repparton.Service;
+
+import com.DA2.Repparton.Entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSummaryLoaderTest {
+
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry registry;
+    private UserSummaryLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Collection<?> ids = (Collection<?>) query.getQueryObject().get("_id", Document.class).get("$in");
+            List<User> users = new ArrayList<>();
+            for (Object id : ids) {
+                User user = new User();
+                user.setId((String) id);
+                user.setUsername("name-" + id);
+                users.add(user);
+            }
+            return users;
+        });
+        registry = new SimpleMeterRegistry();
+        loader = new UserSummaryLoader(mongoTemplate, new ConcurrentMapCacheManager(), registry);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void commentThreadResolvesAllAuthorsInOneQuery() {
+        // 200 comments written by 40 distinct users, converted one by one and then as a batch
+        List<String> authors = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            authors.add("user-" + (i % 40));
+        }
+
+        Map<String, User> users = loader.load(authors);
+        authors.forEach(loader::load);
+
+        assertEquals(40, users.size());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(User.class));
+        assertEquals(1, queries());
+    }
+
+    @Test
+    void laterRequestsAreServedFromTheNearCacheUntilEvicted() {
+        loader.load(List.of("a", "b"));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        loader.load(List.of("a", "b"));
+        assertEquals(1, queries());
+
+        loader.evict("a");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        loader.load(List.of("a", "b"));
+        assertEquals(2, queries());
+    }
+
+    private double queries() {
+        return registry.get("repparton.users.summary.queries").counter().count();
+    }
+}
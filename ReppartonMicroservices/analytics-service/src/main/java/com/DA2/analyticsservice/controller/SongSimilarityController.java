@@ -0,0 +1,63 @@
+package com.DA2.analyticsservice.controller;
+
+import com.DA2.analyticsservice.service.SongSimilarityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics/similar-songs")
+public class SongSimilarityController {
+
+    @Autowired
+    private SongSimilarityService service;
+
+    // Shared secret for operators and jobs allowed to trigger a rebuild; empty disables the endpoint
+    @Value("${app.similarity.rebuild-token:}")
+    private String rebuildToken;
+
+    @GetMapping("/{songId}")
+    @CrossOrigin(origins = "*")
+    public ResponseEntity<List<String>> getSimilarSongs(@PathVariable String songId,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(service.getSimilarSongIds(songId, Math.max(1, limit)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/status")
+    @CrossOrigin(origins = "*")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", service.isRunning());
+        status.put("lastRun", service.getLastRun());
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild(
+            @RequestHeader(value = "X-Internal-Token", required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Rebuild is restricted to internal callers"));
+        }
+        if (!service.startRebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("running", true));
+        }
+        return ResponseEntity.accepted().body(Map.of("running", true));
+    }
+
+    private boolean authorized(String token) {
+        return !rebuildToken.isBlank() && token != null
+                && MessageDigest.isEqual(rebuildToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
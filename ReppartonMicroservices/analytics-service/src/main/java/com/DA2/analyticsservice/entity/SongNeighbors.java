@@ -0,0 +1,62 @@
+package com.DA2.analyticsservice.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Precomputed "listeners also played" list for one song, keyed by the song id so serving
+ * it is a single primary key read. neighborIds and scores are parallel arrays, best first.
+ */
+@Document(collection = "song_neighbors")
+public class SongNeighbors {
+    @Id
+    private String songId;
+    private List<String> neighborIds;
+    private List<Float> scores;
+    private LocalDateTime computedAt;
+
+    public SongNeighbors() {
+    }
+
+    public SongNeighbors(String songId, List<String> neighborIds, List<Float> scores, LocalDateTime computedAt) {
+        this.songId = songId;
+        this.neighborIds = neighborIds;
+        this.scores = scores;
+        this.computedAt = computedAt;
+    }
+
+    // Getters and Setters
+    public String getSongId() {
+        return songId;
+    }
+
+    public void setSongId(String songId) {
+        this.songId = songId;
+    }
+
+    public List<String> getNeighborIds() {
+        return neighborIds;
+    }
+
+    public void setNeighborIds(List<String> neighborIds) {
+        this.neighborIds = neighborIds;
+    }
+
+    public List<Float> getScores() {
+        return scores;
+    }
+
+    public void setScores(List<Float> scores) {
+        this.scores = scores;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.DA2.analyticsservice.repository;
+
+import com.DA2.analyticsservice.entity.SongNeighbors;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SongNeighborsRepository extends MongoRepository<SongNeighbors, String> {
+}
@@ -0,0 +1,286 @@
+package com.DA2.analyticsservice.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Item-to-item cosine similarity over implicit feedback (who listened to what).
+ * Users and songs are mapped to dense int indexes once; everything after that works on
+ * int arrays in compressed-row form (user -> songs and song -> users), so the pair counting
+ * loop never touches a String or a boxed value.
+ */
+public class ItemSimilarity {
+
+    /**
+     * Collects listens. Not thread-safe: feed it from one reader.
+     */
+    public static class Builder {
+        private final Map<String, Integer> userIndex = new HashMap<>();
+        private final Map<String, Integer> songIndex = new HashMap<>();
+        private int[][] userSongs = new int[1024][];
+        private int[] userSizes = new int[1024];
+        private long listens;
+
+        public void add(String userId, String songId) {
+            if (userId == null || songId == null) {
+                return;
+            }
+            int user = userIndex.computeIfAbsent(userId, id -> userIndex.size());
+            int song = songIndex.computeIfAbsent(songId, id -> songIndex.size());
+            if (user == userSongs.length) {
+                userSongs = Arrays.copyOf(userSongs, user * 2);
+                userSizes = Arrays.copyOf(userSizes, user * 2);
+            }
+            int[] songs = userSongs[user];
+            if (songs == null) {
+                songs = userSongs[user] = new int[8];
+            } else if (userSizes[user] == songs.length) {
+                songs = userSongs[user] = Arrays.copyOf(songs, songs.length * 2);
+            }
+            songs[userSizes[user]++] = song;
+            listens++;
+        }
+
+        public long getListens() {
+            return listens;
+        }
+
+        /**
+         * Deduplicates each user's songs and caps very heavy users, whose history would
+         * otherwise dominate both the pair count and the similarities.
+         */
+        public ItemSimilarity build(int maxSongsPerUser) {
+            int users = userIndex.size();
+            int songs = songIndex.size();
+            String[] songIds = new String[songs];
+            songIndex.forEach((id, index) -> songIds[index] = id);
+
+            int[] userOffsets = new int[users + 1];
+            int[][] distinct = new int[users][];
+            for (int u = 0; u < users; u++) {
+                int[] list = Arrays.copyOf(userSongs[u], userSizes[u]);
+                Arrays.sort(list);
+                int n = 0;
+                for (int i = 0; i < list.length; i++) {
+                    if (i == 0 || list[i] != list[i - 1]) {
+                        list[n++] = list[i];
+                    }
+                }
+                if (n > maxSongsPerUser) {
+                    // Keep an even spread rather than the lowest indexes
+                    int[] sampled = new int[maxSongsPerUser];
+                    for (int i = 0; i < maxSongsPerUser; i++) {
+                        sampled[i] = list[(int) ((long) i * n / maxSongsPerUser)];
+                    }
+                    list = sampled;
+                    n = maxSongsPerUser;
+                }
+                distinct[u] = Arrays.copyOf(list, n);
+                userSongs[u] = null;
+                userOffsets[u + 1] = userOffsets[u] + n;
+            }
+
+            int[] userItems = new int[userOffsets[users]];
+            int[] songCounts = new int[songs];
+            for (int u = 0; u < users; u++) {
+                System.arraycopy(distinct[u], 0, userItems, userOffsets[u], distinct[u].length);
+                for (int song : distinct[u]) {
+                    songCounts[song]++;
+                }
+            }
+
+            int[] songOffsets = new int[songs + 1];
+            for (int s = 0; s < songs; s++) {
+                songOffsets[s + 1] = songOffsets[s] + songCounts[s];
+            }
+            int[] songUsers = new int[userItems.length];
+            int[] fill = Arrays.copyOf(songOffsets, songs);
+            for (int u = 0; u < users; u++) {
+                for (int i = userOffsets[u]; i < userOffsets[u + 1]; i++) {
+                    songUsers[fill[userItems[i]]++] = u;
+                }
+            }
+            return new ItemSimilarity(songIds, userOffsets, userItems, songOffsets, songUsers, songCounts);
+        }
+    }
+
+    public static class Result {
+        public final String[] songIds;
+        public final int[][] neighbours;
+        public final float[][] scores;
+        public final long pairs;
+
+        Result(String[] songIds, int[][] neighbours, float[][] scores, long pairs) {
+            this.songIds = songIds;
+            this.neighbours = neighbours;
+            this.scores = scores;
+            this.pairs = pairs;
+        }
+    }
+
+    private static final int SONGS_PER_TASK = 64;
+
+    private final String[] songIds;
+    private final int[] userOffsets;
+    private final int[] userItems;
+    private final int[] songOffsets;
+    private final int[] songUsers;
+    private final int[] songCounts;
+
+    private ItemSimilarity(String[] songIds, int[] userOffsets, int[] userItems,
+                           int[] songOffsets, int[] songUsers, int[] songCounts) {
+        this.songIds = songIds;
+        this.userOffsets = userOffsets;
+        this.userItems = userItems;
+        this.songOffsets = songOffsets;
+        this.songUsers = songUsers;
+        this.songCounts = songCounts;
+    }
+
+    public int getSongCount() {
+        return songIds.length;
+    }
+
+    public int getUserCount() {
+        return userOffsets.length - 1;
+    }
+
+    /**
+     * For every song, the topN songs by cosine similarity that share at least minCoListeners listeners.
+     */
+    public Result compute(ForkJoinPool pool, int topN, int minCoListeners) {
+        int songs = songIds.length;
+        int[][] neighbours = new int[songs][];
+        float[][] scores = new float[songs][];
+        LongAdder pairs = new LongAdder();
+        ThreadLocal<int[]> coCounts = ThreadLocal.withInitial(() -> new int[songs]);
+        ThreadLocal<int[]> touchedLists = ThreadLocal.withInitial(() -> new int[songs]);
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                split(0, songs);
+            }
+
+            private void split(int from, int to) {
+                if (to - from <= SONGS_PER_TASK) {
+                    for (int song = from; song < to; song++) {
+                        similarFor(song, topN, minCoListeners, coCounts.get(), touchedLists.get(), neighbours, scores, pairs);
+                    }
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                invokeAll(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        split(from, mid);
+                    }
+                }, new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        split(mid, to);
+                    }
+                });
+            }
+        });
+        return new Result(songIds, neighbours, scores, pairs.sum());
+    }
+
+    private void similarFor(int song, int topN, int minCoListeners, int[] co, int[] touched,
+                            int[][] neighbours, float[][] scores, LongAdder pairs) {
+        // Count co-listeners with every other song through the users of this one
+        int touchedCount = 0;
+        long visited = 0;
+        for (int i = songOffsets[song]; i < songOffsets[song + 1]; i++) {
+            int user = songUsers[i];
+            for (int j = userOffsets[user]; j < userOffsets[user + 1]; j++) {
+                int other = userItems[j];
+                if (other == song) {
+                    continue;
+                }
+                if (co[other]++ == 0) {
+                    touched[touchedCount++] = other;
+                }
+            }
+            visited += userOffsets[user + 1] - userOffsets[user];
+        }
+        pairs.add(visited);
+
+        // Min-heap of the best topN by cosine
+        int[] heap = new int[topN];
+        float[] heapScores = new float[topN];
+        int size = 0;
+        for (int t = 0; t < touchedCount; t++) {
+            int other = touched[t];
+            int together = co[other];
+            co[other] = 0;
+            if (together < minCoListeners) {
+                continue;
+            }
+            float cosine = (float) (together / Math.sqrt((double) songCounts[song] * songCounts[other]));
+            if (size < topN) {
+                heap[size] = other;
+                heapScores[size] = cosine;
+                siftUp(heap, heapScores, size++);
+            } else if (cosine > heapScores[0]) {
+                heap[0] = other;
+                heapScores[0] = cosine;
+                siftDown(heap, heapScores, size);
+            }
+        }
+
+        int[] ranked = new int[size];
+        float[] rankedScores = new float[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            rankedScores[i] = heapScores[0];
+            heap[0] = heap[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heap, heapScores, i);
+        }
+        neighbours[song] = ranked;
+        scores[song] = rankedScores;
+    }
+
+    private static void siftUp(int[] heap, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(heap, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, float[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[i] <= scores[child]) {
+                break;
+            }
+            swap(heap, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, float[] scores, int a, int b) {
+        int h = heap[a];
+        heap[a] = heap[b];
+        heap[b] = h;
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+}
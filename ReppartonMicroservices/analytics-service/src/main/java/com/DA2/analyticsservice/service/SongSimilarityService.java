@@ -0,0 +1,222 @@
+package com.DA2.analyticsservice.service;
+
+import com.DA2.analyticsservice.entity.SongNeighbors;
+import com.DA2.analyticsservice.repository.SongNeighborsRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Offline item-item collaborative filtering.
+ * Streams listen_history in cursor batches, computes cosine similarity between songs from
+ * shared listeners on a fork-join pool, and stores the top neighbours of every song in
+ * song_neighbors. Serving similar songs is then one findById.
+ */
+@Service
+public class SongSimilarityService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SongNeighborsRepository repository;
+
+    @Value("${app.similarity.history-days:180}")
+    private int historyDays;
+
+    @Value("${app.similarity.read-batch-size:5000}")
+    private int readBatchSize;
+
+    @Value("${app.similarity.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    @Value("${app.similarity.neighbors:50}")
+    private int neighbors;
+
+    @Value("${app.similarity.min-co-listeners:2}")
+    private int minCoListeners;
+
+    @Value("${app.similarity.max-songs-per-user:500}")
+    private int maxSongsPerUser;
+
+    @Value("${app.similarity.parallelism:0}")
+    private int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "song-similarity-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public List<String> getSimilarSongIds(String songId, int limit) {
+        return repository.findById(songId)
+                .map(neighbours -> {
+                    List<String> ids = neighbours.getNeighborIds();
+                    return ids.size() <= limit ? ids : new ArrayList<>(ids.subList(0, limit));
+                })
+                .orElse(List.of());
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    @Scheduled(cron = "${app.similarity.cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Runs the whole job. Returns false without doing anything if a run is already in progress.
+     */
+    public boolean rebuild() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        return runAndRelease();
+    }
+
+    /**
+     * Starts the job in the background. Returns false if a run is already in progress;
+     * the check and the start are one step, so two callers can never both start a run.
+     */
+    public boolean startRebuild() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            rebuildExecutor.execute(this::runAndRelease);
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    private boolean runAndRelease() {
+        try {
+            run();
+            return true;
+        } catch (Exception e) {
+            System.out.println("Song similarity job failed - " + e.getMessage());
+            return false;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void run() {
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        long loadStart = System.nanoTime();
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        Query query = new Query(where("createdAt").gte(startedAt.minusDays(historyDays)));
+        query.fields().include("userId").include("songId").exclude("_id");
+        query.cursorBatchSize(readBatchSize);
+        try (Stream<Document> listens = mongoTemplate.stream(query, Document.class, "listen_history")) {
+            listens.forEach(doc -> builder.add(doc.getString("userId"), doc.getString("songId")));
+        }
+        ItemSimilarity similarity = builder.build(maxSongsPerUser);
+        long loadMs = millisSince(loadStart);
+
+        long computeStart = System.nanoTime();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ItemSimilarity.Result result;
+        try {
+            result = similarity.compute(pool, neighbors, minCoListeners);
+        } finally {
+            pool.shutdown();
+        }
+        long computeMs = millisSince(computeStart);
+
+        long writeStart = System.nanoTime();
+        int written = write(result, startedAt);
+        // Songs that lost all their neighbours since the last run
+        mongoTemplate.remove(new Query(where("computedAt").lt(startedAt)), SongNeighbors.class);
+        long writeMs = millisSince(writeStart);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("finishedAt", LocalDateTime.now());
+        stats.put("listens", builder.getListens());
+        stats.put("users", similarity.getUserCount());
+        stats.put("songs", similarity.getSongCount());
+        stats.put("songsWithNeighbors", written);
+        stats.put("pairsVisited", result.pairs);
+        stats.put("threads", threads);
+        stats.put("loadMs", loadMs);
+        stats.put("computeMs", computeMs);
+        stats.put("writeMs", writeMs);
+        stats.put("listensPerSecond", perSecond(builder.getListens(), loadMs));
+        stats.put("pairsPerSecond", perSecond(result.pairs, computeMs));
+        lastRun = stats;
+        System.out.println("Song similarity job finished: " + stats);
+    }
+
+    private int write(ItemSimilarity.Result result, LocalDateTime computedAt) {
+        int written = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        for (int song = 0; song < result.songIds.length; song++) {
+            int[] neighbours = result.neighbours[song];
+            if (neighbours.length == 0) {
+                continue;
+            }
+            List<String> ids = new ArrayList<>(neighbours.length);
+            List<Float> scores = new ArrayList<>(neighbours.length);
+            for (int i = 0; i < neighbours.length; i++) {
+                ids.add(result.songIds[neighbours[i]]);
+                scores.add(result.scores[song][i]);
+            }
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SongNeighbors.class);
+            }
+            bulk.upsert(new Query(where("_id").is(result.songIds[song])),
+                    new Update().set("neighborIds", ids).set("scores", scores).set("computedAt", computedAt));
+            written++;
+            if (++pending == writeBatchSize) {
+                bulk.execute();
+                bulk = null;
+                pending = 0;
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+        }
+        return written;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static long perSecond(long count, long millis) {
+        return millis == 0 ? count : count * 1000 / millis;
+    }
+}
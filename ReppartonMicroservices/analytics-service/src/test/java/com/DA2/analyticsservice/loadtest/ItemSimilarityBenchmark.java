@@ -0,0 +1,83 @@
+package com.DA2.analyticsservice.loadtest;
+
+import com.DA2.analyticsservice.service.ItemSimilarity;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the item-item similarity job on synthetic listen history and reports load and
+ * compute throughput at increasing core counts. Song popularity is Zipf-like and every
+ * user sticks mostly to a few "taste clusters", so neighbours are meaningful.
+ * Usage: ItemSimilarityBenchmark [users] [songs] [listensPerUser]
+ */
+public class ItemSimilarityBenchmark {
+
+    private static final int CLUSTERS = 200;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int songs = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int listensPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        String[] songIds = new String[songs];
+        for (int i = 0; i < songs; i++) {
+            songIds[i] = "song-" + i;
+        }
+        int clusterSize = songs / CLUSTERS;
+        Random random = new Random(11);
+
+        long loadStart = System.nanoTime();
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        for (int u = 0; u < users; u++) {
+            String userId = "user-" + u;
+            int home = random.nextInt(CLUSTERS);
+            for (int i = 0; i < listensPerUser; i++) {
+                int song;
+                if (random.nextInt(10) < 8) {
+                    // Skewed towards the head of the user's cluster
+                    int offset = (int) (clusterSize * Math.pow(random.nextDouble(), 3));
+                    song = home * clusterSize + offset;
+                } else {
+                    song = random.nextInt(songs);
+                }
+                builder.add(userId, songIds[song]);
+            }
+        }
+        ItemSimilarity similarity = builder.build(500);
+        long loadMs = (System.nanoTime() - loadStart) / 1_000_000;
+        System.out.printf("Loaded %,d listens (%,d users, %,d songs) in %d ms - %,d listens/s%n",
+                builder.getListens(), similarity.getUserCount(), similarity.getSongCount(),
+                loadMs, builder.getListens() * 1000 / Math.max(1, loadMs));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            run(similarity, threads);
+        }
+        if (Integer.bitCount(cores) != 1) {
+            run(similarity, cores);
+        }
+    }
+
+    private static void run(ItemSimilarity similarity, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Warm-up pass so the timed one runs compiled code
+            similarity.compute(pool, 50, 2);
+            long start = System.nanoTime();
+            ItemSimilarity.Result result = similarity.compute(pool, 50, 2);
+            long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+            long withNeighbours = 0;
+            for (int[] neighbours : result.neighbours) {
+                if (neighbours.length > 0) {
+                    withNeighbours++;
+                }
+            }
+            System.out.printf("threads=%d: %d ms, %,d pairs/s, %,d songs/s, %,d songs with neighbours%n",
+                    threads, ms, result.pairs * 1000 / ms, result.songIds.length * 1000L / ms, withNeighbours);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
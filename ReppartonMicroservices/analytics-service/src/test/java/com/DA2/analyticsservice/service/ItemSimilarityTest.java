@@ -0,0 +1,125 @@
+package com.DA2.analyticsservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemSimilarityTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void coListenedSongsAreRankedByCosine() {
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        listen(builder, "u1", "a", "b");
+        listen(builder, "u2", "a", "b");
+        listen(builder, "u3", "a", "c");
+        ItemSimilarity similarity = builder.build(500);
+
+        assertEquals(3, similarity.getSongCount());
+        assertEquals(3, similarity.getUserCount());
+        ItemSimilarity.Result result = similarity.compute(pool, 10, 1);
+        assertEquals(List.of("b", "c"), neighbours(result, "a"));
+        float[] scores = result.scores[index(result, "a")];
+        assertEquals(2 / Math.sqrt(3 * 2), scores[0], 1e-6);
+        assertEquals(1 / Math.sqrt(3 * 1), scores[1], 1e-6);
+        assertEquals(List.of("a"), neighbours(result, "b"));
+        assertEquals(List.of("a"), neighbours(result, "c"));
+    }
+
+    @Test
+    void minCoListenersAndTopNLimitTheNeighbours() {
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        listen(builder, "u1", "a", "b", "c");
+        listen(builder, "u2", "a", "b");
+        listen(builder, "u3", "a", "d");
+        ItemSimilarity similarity = builder.build(500);
+
+        ItemSimilarity.Result atLeastTwo = similarity.compute(pool, 10, 2);
+        assertEquals(List.of("b"), neighbours(atLeastTwo, "a"));
+        assertEquals(List.of(), neighbours(atLeastTwo, "d"));
+
+        ItemSimilarity.Result topOne = similarity.compute(pool, 1, 1);
+        assertEquals(List.of("b"), neighbours(topOne, "a"));
+        assertEquals(1, topOne.scores[index(topOne, "c")].length);
+    }
+
+    @Test
+    void repeatedListensCountOnceAndHeavyUsersAreCapped() {
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        listen(builder, "u1", "a", "b", "a", "b");
+        listen(builder, "heavy", "a", "b", "c", "d");
+        listen(builder, "u2", "c");
+        assertEquals(9, builder.getListens());
+        ItemSimilarity.Result result = builder.build(2).compute(pool, 10, 1);
+
+        // u1 counts once per song; the heavy user keeps an even spread of two songs, a and c
+        assertEquals(List.of("b", "c"), neighbours(result, "a"));
+        assertEquals(1 / Math.sqrt(2 * 1), result.scores[index(result, "a")][0], 1e-6);
+        assertEquals(1 / Math.sqrt(2 * 2), result.scores[index(result, "a")][1], 1e-6);
+        assertEquals(List.of("a"), neighbours(result, "b"));
+        assertEquals(List.of(), neighbours(result, "d"));
+    }
+
+    @Test
+    void resultDoesNotDependOnThePoolSize() {
+        ItemSimilarity.Builder builder = new ItemSimilarity.Builder();
+        Random random = new Random(5);
+        for (int user = 0; user < 400; user++) {
+            for (int i = 0; i < 20; i++) {
+                builder.add("user-" + user, "song-" + random.nextInt(300));
+            }
+        }
+        ItemSimilarity similarity = builder.build(15);
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ItemSimilarity.Result expected;
+        try {
+            expected = similarity.compute(single, 5, 2);
+        } finally {
+            single.shutdown();
+        }
+        ItemSimilarity.Result actual = similarity.compute(pool, 5, 2);
+
+        assertEquals(expected.pairs, actual.pairs);
+        assertTrue(actual.pairs > 0);
+        for (int song = 0; song < similarity.getSongCount(); song++) {
+            assertArrayEquals(expected.neighbours[song], actual.neighbours[song]);
+            assertArrayEquals(expected.scores[song], actual.scores[song]);
+            for (int i = 1; i < actual.scores[song].length; i++) {
+                assertTrue(actual.scores[song][i - 1] >= actual.scores[song][i]);
+            }
+        }
+    }
+
+    private static void listen(ItemSimilarity.Builder builder, String userId, String... songIds) {
+        for (String songId : songIds) {
+            builder.add(userId, songId);
+        }
+    }
+
+    private static List<String> neighbours(ItemSimilarity.Result result, String songId) {
+        List<String> ids = new ArrayList<>();
+        for (int neighbour : result.neighbours[index(result, songId)]) {
+            ids.add(result.songIds[neighbour]);
+        }
+        return ids;
+    }
+
+    private static int index(ItemSimilarity.Result result, String songId) {
+        return List.of(result.songIds).indexOf(songId);
+    }
+}
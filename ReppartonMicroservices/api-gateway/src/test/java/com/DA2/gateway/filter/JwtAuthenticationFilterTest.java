@@ -0,0 +1,145 @@
+package com.DA2.gateway.filter;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "repparton-secret-key-for-jwt-authentication-2024";
+    private static final List<String> PUBLIC_PATHS = List.of("/api/auth/login", "/api/*/health", "/swagger-ui/**");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(SECRET, 100, PUBLIC_PATHS, registry);
+    private final GatewayFilter gatewayFilter = filter.apply(new JwtAuthenticationFilter.Config());
+
+    @Test
+    void publicPathsMatchWholeSegmentsOnly() {
+        assertTrue(filter.isPublic(PathContainer.parsePath("/api/auth/login")));
+        assertTrue(filter.isPublic(PathContainer.parsePath("/api/songs/health")));
+        assertTrue(filter.isPublic(PathContainer.parsePath("/swagger-ui/index.html")));
+        // The old contains() check let these through
+        assertFalse(filter.isPublic(PathContainer.parsePath("/api/songs/health-tips")));
+        assertFalse(filter.isPublic(PathContainer.parsePath("/api/users/auth/login/history")));
+    }
+
+    @Test
+    void publicPathPassesWithoutToken() {
+        AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/auth/login"));
+
+        filter(exchange, forwarded);
+
+        assertEquals("/api/auth/login", forwarded.get().getPath().value());
+        assertEquals(1, count("public"));
+    }
+
+    @Test
+    void missingOrInvalidTokenIsRejected() {
+        AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+        MockServerWebExchange missing = MockServerWebExchange.from(MockServerHttpRequest.get("/api/songs/1"));
+        filter(missing, forwarded);
+        assertEquals(HttpStatus.UNAUTHORIZED, missing.getResponse().getStatusCode());
+
+        String forged = token("1", "alice", 60_000)
+                .signWith(Keys.hmacShaKeyFor("another-secret-key-of-at-least-thirty-two-bytes".getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS256)
+                .compact();
+        MockServerWebExchange invalid = withToken(forged);
+        filter(invalid, forwarded);
+        assertEquals(HttpStatus.UNAUTHORIZED, invalid.getResponse().getStatusCode());
+
+        MockServerWebExchange expired = withToken(signed(token("1", "alice", -60_000)));
+        filter(expired, forwarded);
+        assertEquals(HttpStatus.UNAUTHORIZED, expired.getResponse().getStatusCode());
+
+        assertNull(forwarded.get());
+        assertEquals(3, count("rejected"));
+    }
+
+    @Test
+    void validTokenIsVerifiedOnceThenServedFromCache() {
+        String token = signed(token("42", "alice", 60_000));
+        AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+
+        filter(withToken(token), forwarded);
+        assertEquals("42", forwarded.get().getHeaders().getFirst("X-User-Id"));
+        assertEquals("alice", forwarded.get().getHeaders().getFirst("X-Username"));
+
+        filter(withToken(token), forwarded);
+        assertEquals("42", forwarded.get().getHeaders().getFirst("X-User-Id"));
+        assertEquals(1, count("verified"));
+        assertEquals(1, count("cached"));
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNeverCached() {
+        String token = signed(Jwts.builder().setSubject("7").claim("username", "bob"));
+
+        assertEquals(new JwtAuthenticationFilter.VerifiedToken("7", "bob", Long.MAX_VALUE), filter.verify(token));
+        AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+        filter(withToken(token), forwarded);
+        filter(withToken(token), forwarded);
+
+        assertEquals(2, count("verified"));
+        assertEquals(0, count("cached"));
+    }
+
+    @Test
+    void verifyThrowsForBadTokens() {
+        assertThrows(JwtException.class, () -> filter.verify(signed(token("1", "alice", -60_000))));
+        assertThrows(JwtException.class, () -> filter.verify("not.a.token"));
+    }
+
+    private void filter(MockServerWebExchange exchange, AtomicReference<ServerHttpRequest> forwarded) {
+        gatewayFilter.filter(exchange, next -> {
+            forwarded.set(next.getRequest());
+            return Mono.empty();
+        }).block();
+    }
+
+    private static MockServerWebExchange withToken(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/songs/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+    }
+
+    private static JwtBuilder token(String userId, String username, long expiresInMillis) {
+        return Jwts.builder()
+                .setSubject(userId)
+                .claim("username", username)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis));
+    }
+
+    private static String signed(JwtBuilder builder) {
+        return builder.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private long count(String outcome) {
+        return registry.get("gateway.jwt.filter").tag("outcome", outcome).timer().count();
+    }
+}
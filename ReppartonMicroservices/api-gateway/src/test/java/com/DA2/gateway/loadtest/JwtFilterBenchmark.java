@@ -0,0 +1,110 @@
+package com.DA2.gateway.loadtest;
+
+import com.DA2.gateway.filter.JwtAuthenticationFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.server.PathContainer;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Per-request cost of the gateway JWT check, old code path versus the cached one.
+ * Usage: JwtFilterBenchmark [users] [requests]
+ * Legacy: contains() chain on the path, key and parser built and the token verified on every request.
+ * Cached: precompiled public path patterns, one verification per token until it expires.
+ */
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "repparton-secret-key-for-jwt-authentication-2024";
+    private static final List<String> PUBLIC_PATHS = List.of("/api/auth/login", "/api/auth/register",
+            "/api/auth/refresh", "/api/*/health", "/api/health/**", "/actuator/health/**", "/swagger-ui/**",
+            "/swagger-ui.html", "/v3/api-docs/**", "/api/*/v3/api-docs/**");
+    private static final String[] PATHS = {"/api/songs/123", "/api/playlists/me", "/api/comments/song/42",
+            "/api/notifications/user/7", "/api/social/follow/9", "/api/auth/login"};
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(SECRET, 50_000, PUBLIC_PATHS, registry);
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        String[] tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            tokens[i] = Jwts.builder()
+                    .setSubject("user-" + i)
+                    .claim("username", "user" + i)
+                    .setIssuedAt(new Date())
+                    .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                    .signWith(key, SignatureAlgorithm.HS256)
+                    .compact();
+        }
+        PathContainer[] containers = new PathContainer[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            containers[i] = PathContainer.parsePath(PATHS[i]);
+        }
+
+        System.out.println("Gateway JWT filter benchmark: " + users + " users, " + requests + " requests");
+        System.out.println("==========================================================");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean report = round == ROUNDS - 1;
+
+            Random random = new Random(7);
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int p = random.nextInt(PATHS.length);
+                String token = tokens[random.nextInt(users)];
+                if (!legacyIsPublic(PATHS[p])) {
+                    sink += legacyVerify(token).getSubject().length();
+                }
+            }
+            long legacy = System.nanoTime() - start;
+
+            random = new Random(7);
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                int p = random.nextInt(PATHS.length);
+                String token = tokens[random.nextInt(users)];
+                if (!filter.isPublic(containers[p])) {
+                    sink += filter.verify(token).userId().length();
+                }
+            }
+            long cached = System.nanoTime() - start;
+
+            if (sink == 42) {
+                System.out.println();
+            }
+            if (report) {
+                print("Legacy (verify every request)", legacy, requests);
+                print("Cached (verify once per token)", cached, requests);
+                System.out.printf("Speed-up: %.1fx%n", (double) legacy / cached);
+            }
+        }
+    }
+
+    private static boolean legacyIsPublic(String path) {
+        return path.contains("/auth/login") || path.contains("/auth/register")
+                || path.contains("/auth/refresh") || path.contains("/health")
+                || path.contains("/swagger") || path.contains("/v3/api-docs");
+    }
+
+    private static Claims legacyVerify(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    private static void print(String name, long elapsedNanos, int requests) {
+        System.out.printf("%-32s %8.2f us/request  %10.0f requests/s%n",
+                name, elapsedNanos / 1e3 / requests, requests / (elapsedNanos / 1e9));
+    }
+}
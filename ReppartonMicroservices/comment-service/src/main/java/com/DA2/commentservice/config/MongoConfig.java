@@ -0,0 +1,15 @@
+package com.DA2.commentservice.config;
+
+import com.DA2.shared.mongo.KeysetPaginator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public KeysetPaginator keysetPaginator(MongoTemplate mongoTemplate) {
+        return new KeysetPaginator(mongoTemplate);
+    }
+}
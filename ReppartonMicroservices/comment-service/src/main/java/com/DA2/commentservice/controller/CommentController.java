@@ -2,12 +2,10 @@ package com.DA2.commentservice.controller;
 
 import com.DA2.commentservice.entity.Comment;
 import com.DA2.commentservice.service.CommentService;
+import com.DA2.shared.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -36,10 +34,10 @@ public class CommentController {
     @GetMapping("/song/{songId}")
     public ResponseEntity<?> getSongComments(
             @PathVariable String songId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Page<Comment> comments = commentService.getCommentsBySong(songId, PageRequest.of(page, size));
+            CursorPage<Comment> comments = commentService.getCommentsBySong(songId, cursor, size);
             return ResponseEntity.ok(comments);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -49,10 +47,23 @@ public class CommentController {
     @GetMapping("/post/{postId}")
     public ResponseEntity<?> getPostComments(
             @PathVariable String postId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Page<Comment> comments = commentService.getCommentsByPost(postId, PageRequest.of(page, size));
+            CursorPage<Comment> comments = commentService.getCommentsByPost(postId, cursor, size);
+            return ResponseEntity.ok(comments);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/playlist/{playlistId}")
+    public ResponseEntity<?> getPlaylistComments(
+            @PathVariable String playlistId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPage<Comment> comments = commentService.getCommentsByPlaylist(playlistId, cursor, size);
             return ResponseEntity.ok(comments);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -60,9 +71,12 @@ public class CommentController {
     }
 
     @GetMapping("/{commentId}/replies")
-    public ResponseEntity<?> getReplies(@PathVariable String commentId) {
+    public ResponseEntity<?> getReplies(
+            @PathVariable String commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Comment> replies = commentService.getReplies(commentId);
+            CursorPage<Comment> replies = commentService.getReplies(commentId, cursor, size);
             return ResponseEntity.ok(replies);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -1,10 +1,18 @@
 package com.DA2.commentservice.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "comments")
+@CompoundIndexes({
+        @CompoundIndex(name = "song_created_idx", def = "{'songId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "post_created_idx", def = "{'postId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "playlist_created_idx", def = "{'playlistId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "parent_created_idx", def = "{'parentId': 1, 'createdAt': 1, '_id': 1}")
+})
 public class Comment {
     @Id
     private String id;
@@ -2,13 +2,14 @@ package com.DA2.commentservice.service;
 
 import com.DA2.commentservice.entity.Comment;
 import com.DA2.commentservice.repository.CommentRepository;
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.mongo.KeysetPaginator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -17,6 +18,9 @@ public class CommentService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private KeysetPaginator keysetPaginator;
+
     @Transactional
     public Comment createComment(Comment comment) {
         if (comment.getContent() == null || comment.getContent().trim().isEmpty()) {
@@ -30,20 +34,26 @@ public class CommentService {
         return commentRepository.findById(commentId);
     }
 
-    public Page<Comment> getCommentsBySong(String songId, Pageable pageable) {
-        return commentRepository.findBySongIdOrderByCreatedAtDesc(songId, pageable);
+    public CursorPage<Comment> getCommentsBySong(String songId, String cursor, int size) {
+        return page(Criteria.where("songId").is(songId), Sort.Direction.DESC, cursor, size);
+    }
+
+    public CursorPage<Comment> getCommentsByPost(String postId, String cursor, int size) {
+        return page(Criteria.where("postId").is(postId), Sort.Direction.DESC, cursor, size);
     }
 
-    public Page<Comment> getCommentsByPost(String postId, Pageable pageable) {
-        return commentRepository.findByPostIdOrderByCreatedAtDesc(postId, pageable);
+    public CursorPage<Comment> getCommentsByPlaylist(String playlistId, String cursor, int size) {
+        return page(Criteria.where("playlistId").is(playlistId), Sort.Direction.DESC, cursor, size);
     }
 
-    public List<Comment> getCommentsByPlaylist(String playlistId) {
-        return commentRepository.findByPlaylistIdOrderByCreatedAtDesc(playlistId);
+    // Replies read in conversation order, oldest first
+    public CursorPage<Comment> getReplies(String commentId, String cursor, int size) {
+        return page(Criteria.where("parentId").is(commentId), Sort.Direction.ASC, cursor, size);
     }
 
-    public List<Comment> getReplies(String commentId) {
-        return commentRepository.findByParentIdOrderByCreatedAtAsc(commentId);
+    private CursorPage<Comment> page(Criteria filter, Sort.Direction direction, String cursor, int size) {
+        return keysetPaginator.page(filter, Comment.class, "createdAt", direction,
+                cursor, size, Comment::getCreatedAt, Comment::getId);
     }
 
     @Transactional
@@ -1,9 +1,16 @@
 package com.DA2.eventservice.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 @Configuration
 public class KafkaConfig {
@@ -14,6 +21,9 @@ public class KafkaConfig {
     public static final String NOTIFICATION_EVENTS_TOPIC = "notification-events";
     public static final String ANALYTICS_EVENTS_TOPIC = "analytics-events";
 
+    // Failed records are published to "<topic>.DLT" on the same partition
+    public static final String DEAD_LETTER_SUFFIX = ".DLT";
+
     @Bean
     public NewTopic userEventsTopic() {
         return TopicBuilder.name(USER_EVENTS_TOPIC)
@@ -45,4 +55,29 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
+
+    @Bean
+    public KafkaAdmin.NewTopics deadLetterTopics() {
+        return new KafkaAdmin.NewTopics(
+                deadLetterTopic(USER_EVENTS_TOPIC, 3),
+                deadLetterTopic(SONG_EVENTS_TOPIC, 3),
+                deadLetterTopic(NOTIFICATION_EVENTS_TOPIC, 3),
+                deadLetterTopic(ANALYTICS_EVENTS_TOPIC, 6));
+    }
+
+    // Picked up by the Boot listener container factory; retries a failed batch, then dead-letters the records
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(KafkaTemplate<String, Object> kafkaTemplate,
+                                                @Value("${app.events.kafka.retry-interval-ms:1000}") long retryInterval,
+                                                @Value("${app.events.kafka.max-retries:2}") long maxRetries) {
+        return new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate),
+                new FixedBackOff(retryInterval, maxRetries));
+    }
+
+    private static NewTopic deadLetterTopic(String topic, int partitions) {
+        return TopicBuilder.name(topic + DEAD_LETTER_SUFFIX)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
 }
@@ -2,9 +2,12 @@ package com.DA2.eventservice.config;
 
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,11 +19,13 @@ public class RabbitConfig {
     public static final String USER_EXCHANGE = "user.exchange";
     public static final String SONG_EXCHANGE = "song.exchange";
     public static final String NOTIFICATION_EXCHANGE = "notification.exchange";
+    public static final String DEAD_LETTER_EXCHANGE = "events.dlx";
     
     // Queue names
     public static final String USER_REGISTERED_QUEUE = "user.registered.queue";
     public static final String SONG_PLAYED_QUEUE = "song.played.queue";
     public static final String NOTIFICATION_QUEUE = "notification.queue";
+    public static final String DEAD_LETTER_SUFFIX = ".dlq";
     
     // Routing keys
     public static final String USER_REGISTERED_ROUTING_KEY = "user.registered";
@@ -43,20 +48,50 @@ public class RabbitConfig {
         return new TopicExchange(NOTIFICATION_EXCHANGE);
     }
 
+    // Messages rejected after the listener retries are routed here, keyed by "<queue>.dlq"
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
     // Queues
     @Bean
     public Queue userRegisteredQueue() {
-        return QueueBuilder.durable(USER_REGISTERED_QUEUE).build();
+        return QueueBuilder.durable(USER_REGISTERED_QUEUE)
+            .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+            .deadLetterRoutingKey(USER_REGISTERED_QUEUE + DEAD_LETTER_SUFFIX)
+            .build();
     }
 
     @Bean
     public Queue songPlayedQueue() {
-        return QueueBuilder.durable(SONG_PLAYED_QUEUE).build();
+        return QueueBuilder.durable(SONG_PLAYED_QUEUE)
+            .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+            .deadLetterRoutingKey(SONG_PLAYED_QUEUE + DEAD_LETTER_SUFFIX)
+            .build();
     }
 
     @Bean
     public Queue notificationQueue() {
-        return QueueBuilder.durable(NOTIFICATION_QUEUE).build();
+        return QueueBuilder.durable(NOTIFICATION_QUEUE)
+            .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+            .deadLetterRoutingKey(NOTIFICATION_QUEUE + DEAD_LETTER_SUFFIX)
+            .build();
+    }
+
+    @Bean
+    public Queue userRegisteredDeadLetterQueue() {
+        return QueueBuilder.durable(USER_REGISTERED_QUEUE + DEAD_LETTER_SUFFIX).build();
+    }
+
+    @Bean
+    public Queue songPlayedDeadLetterQueue() {
+        return QueueBuilder.durable(SONG_PLAYED_QUEUE + DEAD_LETTER_SUFFIX).build();
+    }
+
+    @Bean
+    public Queue notificationDeadLetterQueue() {
+        return QueueBuilder.durable(NOTIFICATION_QUEUE + DEAD_LETTER_SUFFIX).build();
     }
 
     // Bindings
@@ -84,6 +119,47 @@ public class RabbitConfig {
             .with(NOTIFICATION_ROUTING_KEY);
     }
 
+    @Bean
+    public Binding userRegisteredDeadLetterBinding() {
+        return BindingBuilder
+            .bind(userRegisteredDeadLetterQueue())
+            .to(deadLetterExchange())
+            .with(USER_REGISTERED_QUEUE + DEAD_LETTER_SUFFIX);
+    }
+
+    @Bean
+    public Binding songPlayedDeadLetterBinding() {
+        return BindingBuilder
+            .bind(songPlayedDeadLetterQueue())
+            .to(deadLetterExchange())
+            .with(SONG_PLAYED_QUEUE + DEAD_LETTER_SUFFIX);
+    }
+
+    @Bean
+    public Binding notificationDeadLetterBinding() {
+        return BindingBuilder
+            .bind(notificationDeadLetterQueue())
+            .to(deadLetterExchange())
+            .with(NOTIFICATION_QUEUE + DEAD_LETTER_SUFFIX);
+    }
+
+    // Delivers up to batch-size messages per listener call; concurrency and retry come from spring.rabbitmq.listener.simple
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.events.rabbit.batch-size:200}") int batchSize,
+            @Value("${app.events.rabbit.batch-receive-timeout-ms:500}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setPrefetchCount(batchSize);
+        return factory;
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
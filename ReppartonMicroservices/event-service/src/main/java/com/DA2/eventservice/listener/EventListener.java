@@ -1,124 +1,111 @@
 package com.DA2.eventservice.listener;
 
+import com.DA2.eventservice.service.EventAggregationService;
+import com.DA2.eventservice.service.EventDeduplicator;
+import com.DA2.eventservice.service.EventMetrics;
+import com.DA2.shared.events.BaseEvent;
 import com.DA2.shared.events.UserRegisteredEvent;
 import com.DA2.shared.events.SongPlayedEvent;
 import com.DA2.shared.events.NotificationEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Batch consumers. Each batch is deduplicated on eventId, folded into per-key deltas and written
+ * in one round trip. A failed batch is retried and then dead-lettered: Kafka records go to
+ * "<topic>.DLT", RabbitMQ messages to the events.dlx exchange (see KafkaConfig and RabbitConfig).
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class EventListener {
 
-    @RabbitListener(queues = "user.registered.queue")
-    public void handleUserRegisteredEvent(UserRegisteredEvent event) {
-        log.info("Processing user registered event: {} for user: {}", event.getEventId(), event.getUsername());
-        
-        // Process user registration
-        // - Send welcome email
-        // - Create default playlists
-        // - Initialize user preferences
-        
-        try {
-            // Simulate processing
-            Thread.sleep(1000);
-            log.info("Successfully processed user registered event: {}", event.getEventId());
-        } catch (Exception e) {
-            log.error("Failed to process user registered event: {}", event.getEventId(), e);
-        }
+    private final EventDeduplicator eventDeduplicator;
+    private final EventAggregationService eventAggregationService;
+    private final EventMetrics eventMetrics;
+
+    @RabbitListener(queues = "user.registered.queue", containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleUserRegisteredEvents(List<UserRegisteredEvent> events) {
+        events.forEach(event -> eventMetrics.delay("user-registered", event.getTimestamp()));
+        process("user-registered", events, eventAggregationService::applyRegistrations);
     }
 
-    @RabbitListener(queues = "song.played.queue")
-    public void handleSongPlayedEvent(SongPlayedEvent event) {
-        log.info("Processing song played event: {} for song: {}", event.getEventId(), event.getSongTitle());
-        
-        // Process song play
-        // - Update play count
-        // - Update user listening history
-        // - Update recommendations
-        
-        try {
-            // Simulate processing
-            Thread.sleep(500);
-            log.info("Successfully processed song played event: {}", event.getEventId());
-        } catch (Exception e) {
-            log.error("Failed to process song played event: {}", event.getEventId(), e);
-        }
+    @RabbitListener(queues = "song.played.queue", containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleSongPlayedEvents(List<SongPlayedEvent> events) {
+        events.forEach(event -> eventMetrics.delay("song-played", event.getTimestamp()));
+        process("song-played", events, eventAggregationService::applySongPlays);
     }
 
-    @RabbitListener(queues = "notification.queue")
-    public void handleNotificationEvent(NotificationEvent event) {
-        log.info("Processing notification event: {} for recipient: {}", event.getEventId(), event.getRecipientId());
-        
-        // Process notification
-        // - Send push notification
-        // - Send email notification
-        // - Store in database
-        
-        try {
-            // Simulate processing
-            Thread.sleep(300);
-            log.info("Successfully processed notification event: {}", event.getEventId());
-        } catch (Exception e) {
-            log.error("Failed to process notification event: {}", event.getEventId(), e);
-        }
+    @RabbitListener(queues = "notification.queue", containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleNotificationEvents(List<NotificationEvent> events) {
+        events.forEach(event -> eventMetrics.delay("notification", event.getTimestamp()));
+        process("notification", events, eventAggregationService::applyNotifications);
     }
 
     @KafkaListener(topics = "user-events", groupId = "analytics-group")
-    public void handleUserAnalytics(UserRegisteredEvent event) {
-        log.info("Processing user analytics for event: {}", event.getEventId());
-        
-        // Process for analytics
-        // - Update user metrics
-        // - Track registration sources
-        // - Generate reports
-        
-        try {
-            // Simulate analytics processing
-            Thread.sleep(200);
-            log.info("Successfully processed user analytics: {}", event.getEventId());
-        } catch (Exception e) {
-            log.error("Failed to process user analytics: {}", event.getEventId(), e);
-        }
+    public void handleUserAnalytics(List<ConsumerRecord<String, UserRegisteredEvent>> records) {
+        process("user-analytics", values("user-analytics", records), events ->
+                log.debug("Recorded {} user analytics events", events.size()));
     }
 
     @KafkaListener(topics = "song-events", groupId = "analytics-group")
-    public void handleSongAnalytics(SongPlayedEvent event) {
-        log.info("Processing song analytics for event: {}", event.getEventId());
-        
-        // Process for analytics
-        // - Update song popularity metrics
-        // - Track listening patterns
-        // - Generate trending data
-        
-        try {
-            // Simulate analytics processing
-            Thread.sleep(200);
-            log.info("Successfully processed song analytics: {}", event.getEventId());
-        } catch (Exception e) {
-            log.error("Failed to process song analytics: {}", event.getEventId(), e);
-        }
+    public void handleSongAnalytics(List<ConsumerRecord<String, SongPlayedEvent>> records) {
+        process("song-analytics", values("song-analytics", records), eventAggregationService::applyTrendingPlays);
     }
 
     @KafkaListener(topics = "analytics-events", groupId = "reporting-group")
-    public void handleReportingEvents(Object event) {
-        log.info("Processing reporting event: {}", event.toString());
-        
-        // Process for reporting
-        // - Generate real-time reports
-        // - Update dashboards
-        // - Send metrics to monitoring systems
-        
+    public void handleReportingEvents(List<ConsumerRecord<String, Object>> records) {
+        long start = System.nanoTime();
+        for (ConsumerRecord<String, Object> record : records) {
+            eventMetrics.delay("reporting", record.timestamp());
+        }
+        eventMetrics.count("reporting", "processed", records.size());
+        eventMetrics.batch("reporting", records.size(), System.nanoTime() - start);
+    }
+
+    // Unwrap record values; a null value means the payload could not be deserialized
+    private <T> List<T> values(String consumer, List<ConsumerRecord<String, T>> records) {
+        List<T> values = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, T> record : records) {
+            if (record.value() == null) {
+                eventMetrics.count(consumer, "invalid", 1);
+                throw new BatchListenerFailedException("Undeserializable record at offset " + record.offset(), record);
+            }
+            eventMetrics.delay(consumer, record.timestamp());
+            values.add(record.value());
+        }
+        return values;
+    }
+
+    private <T extends BaseEvent> void process(String consumer, List<T> events, Consumer<List<T>> handler) {
+        long start = System.nanoTime();
+        List<T> fresh = eventDeduplicator.claim(consumer, events);
+        eventMetrics.count(consumer, "duplicate", events.size() - fresh.size());
+        if (fresh.isEmpty()) {
+            return;
+        }
+
         try {
-            // Simulate reporting processing
-            Thread.sleep(100);
-            log.info("Successfully processed reporting event");
-        } catch (Exception e) {
-            log.error("Failed to process reporting event", e);
+            handler.accept(fresh);
+        } catch (RuntimeException e) {
+            // Let the redelivery process these events again
+            eventDeduplicator.release(consumer, fresh);
+            eventMetrics.count(consumer, "failed", fresh.size());
+            log.error("Failed to process {} {} events", fresh.size(), consumer, e);
+            throw e;
         }
+
+        eventMetrics.count(consumer, "processed", fresh.size());
+        eventMetrics.batch(consumer, events.size(), System.nanoTime() - start);
+        log.debug("Processed {} {} events ({} duplicates)", fresh.size(), consumer, events.size() - fresh.size());
     }
 }
@@ -0,0 +1,131 @@
+package com.DA2.eventservice.service;
+
+import com.DA2.shared.events.NotificationEvent;
+import com.DA2.shared.events.SongPlayedEvent;
+import com.DA2.shared.events.UserRegisteredEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds a batch of events into per-key deltas and writes them to Redis in one pipeline,
+ * so a batch of N plays costs one round trip and one increment per distinct song/user.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventAggregationService {
+
+    public static final String SONG_PLAYS_KEY = "analytics:song:plays";
+    public static final String USER_PLAYS_KEY = "analytics:user:plays";
+    public static final String USER_SONG_PLAYS_PREFIX = "analytics:user:song:plays:";
+    public static final String TRENDING_PREFIX = "analytics:trending:songs:";
+    public static final String REGISTRATIONS_PREFIX = "analytics:users:registered:";
+    public static final String NOTIFICATIONS_KEY = "analytics:notifications:by-type";
+
+    private static final DateTimeFormatter HOUR_BUCKET = DateTimeFormatter.ofPattern("yyyyMMddHH");
+    private static final DateTimeFormatter DAY_BUCKET = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final long USER_SONG_TTL_SECONDS = Duration.ofDays(30).toSeconds();
+    private static final long TRENDING_TTL_SECONDS = Duration.ofDays(8).toSeconds();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Total plays per song and per user, plus each user's per-song counts
+    public void applySongPlays(List<SongPlayedEvent> events) {
+        Map<String, Long> songDeltas = new HashMap<>();
+        Map<String, Long> userDeltas = new HashMap<>();
+        Map<String, Map<String, Long>> userSongDeltas = new HashMap<>();
+        for (SongPlayedEvent event : events) {
+            if (event.getSongId() == null) {
+                continue;
+            }
+            songDeltas.merge(event.getSongId(), 1L, Long::sum);
+            if (event.getUserId() != null) {
+                userDeltas.merge(event.getUserId(), 1L, Long::sum);
+                userSongDeltas.computeIfAbsent(event.getUserId(), u -> new HashMap<>())
+                        .merge(event.getSongId(), 1L, Long::sum);
+            }
+        }
+        if (songDeltas.isEmpty()) {
+            return;
+        }
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            songDeltas.forEach((songId, delta) ->
+                    connection.zSetCommands().zIncrBy(bytes(SONG_PLAYS_KEY), delta, bytes(songId)));
+            userDeltas.forEach((userId, delta) ->
+                    connection.hashCommands().hIncrBy(bytes(USER_PLAYS_KEY), bytes(userId), delta));
+            userSongDeltas.forEach((userId, songs) -> {
+                byte[] key = bytes(USER_SONG_PLAYS_PREFIX + userId);
+                songs.forEach((songId, delta) -> connection.hashCommands().hIncrBy(key, bytes(songId), delta));
+                connection.keyCommands().expire(key, USER_SONG_TTL_SECONDS);
+            });
+            return null;
+        });
+    }
+
+    // Plays per song in hourly buckets, the input for trending windows
+    public void applyTrendingPlays(List<SongPlayedEvent> events) {
+        Map<String, Map<String, Long>> buckets = new HashMap<>();
+        for (SongPlayedEvent event : events) {
+            if (event.getSongId() == null) {
+                continue;
+            }
+            String bucket = TRENDING_PREFIX + HOUR_BUCKET.format(timestampOf(event.getTimestamp()));
+            buckets.computeIfAbsent(bucket, b -> new HashMap<>()).merge(event.getSongId(), 1L, Long::sum);
+        }
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            buckets.forEach((bucket, songs) -> {
+                byte[] key = bytes(bucket);
+                songs.forEach((songId, delta) -> connection.zSetCommands().zIncrBy(key, delta, bytes(songId)));
+                connection.keyCommands().expire(key, TRENDING_TTL_SECONDS);
+            });
+            return null;
+        });
+    }
+
+    // Daily registration counts
+    public void applyRegistrations(List<UserRegisteredEvent> events) {
+        Map<String, Long> days = new HashMap<>();
+        for (UserRegisteredEvent event : events) {
+            days.merge(REGISTRATIONS_PREFIX + DAY_BUCKET.format(timestampOf(event.getTimestamp())), 1L, Long::sum);
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            days.forEach((key, delta) -> connection.stringCommands().incrBy(bytes(key), delta));
+            return null;
+        });
+    }
+
+    // Notification counts per type
+    public void applyNotifications(List<NotificationEvent> events) {
+        Map<String, Long> types = new HashMap<>();
+        for (NotificationEvent event : events) {
+            types.merge(event.getNotificationType() != null ? event.getNotificationType() : "unknown", 1L, Long::sum);
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            types.forEach((type, delta) ->
+                    connection.hashCommands().hIncrBy(bytes(NOTIFICATIONS_KEY), bytes(type), delta));
+            return null;
+        });
+    }
+
+    private static LocalDateTime timestampOf(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp : LocalDateTime.now();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
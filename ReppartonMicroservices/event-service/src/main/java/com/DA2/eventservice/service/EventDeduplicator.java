@@ -0,0 +1,82 @@
+package com.DA2.eventservice.service;
+
+import com.DA2.shared.events.BaseEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Idempotency on BaseEvent.eventId, scoped per consumer.
+ * A batch claims all its ids with one pipelined SET NX; only events whose claim succeeded are processed.
+ * If processing then fails, the claims are released so a redelivery is not mistaken for a duplicate.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventDeduplicator {
+
+    private static final String KEY_PREFIX = "event:processed:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.events.dedup-ttl:24h}")
+    private Duration ttl;
+
+    public <T extends BaseEvent> List<T> claim(String consumer, List<T> events) {
+        // Events without an id cannot be deduplicated and are always processed
+        List<T> result = new ArrayList<>(events.size());
+        List<T> candidates = new ArrayList<>(events.size());
+        Set<String> seen = new HashSet<>();
+        for (T event : events) {
+            if (event.getEventId() == null) {
+                result.add(event);
+            } else if (seen.add(event.getEventId())) {
+                candidates.add(event);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return result;
+        }
+
+        Expiration expiration = Expiration.from(ttl);
+        List<Object> claimed = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (T event : candidates) {
+                connection.stringCommands().set(key(consumer, event), "1".getBytes(StandardCharsets.UTF_8),
+                        expiration, RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+        for (int i = 0; i < candidates.size(); i++) {
+            if (Boolean.TRUE.equals(claimed.get(i))) {
+                result.add(candidates.get(i));
+            }
+        }
+        return result;
+    }
+
+    public void release(String consumer, List<? extends BaseEvent> events) {
+        List<String> keys = new ArrayList<>(events.size());
+        for (BaseEvent event : events) {
+            if (event.getEventId() != null) {
+                keys.add(KEY_PREFIX + consumer + ":" + event.getEventId());
+            }
+        }
+        if (!keys.isEmpty()) {
+            stringRedisTemplate.delete(keys);
+        }
+    }
+
+    private static byte[] key(String consumer, BaseEvent event) {
+        return (KEY_PREFIX + consumer + ":" + event.getEventId()).getBytes(StandardCharsets.UTF_8);
+    }
+}
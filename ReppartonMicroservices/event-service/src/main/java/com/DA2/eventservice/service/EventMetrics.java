@@ -0,0 +1,63 @@
+package com.DA2.eventservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Consumer throughput and delay per listener.
+ * Kafka client lag (kafka.consumer.fetch.manager.records.lag.max) is published by Spring Boot's
+ * Kafka metrics support; the delay timer here also covers RabbitMQ, which has no offsets.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public void batch(String consumer, int size, long elapsedNanos) {
+        DistributionSummary.builder("repparton.events.batch.size")
+                .tag("consumer", consumer)
+                .register(meterRegistry)
+                .record(size);
+        Timer.builder("repparton.events.batch.duration")
+                .tag("consumer", consumer)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(elapsedNanos));
+    }
+
+    public void count(String consumer, String outcome, long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        Counter.builder("repparton.events.consumed")
+                .tag("consumer", consumer)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    // Time from the event being produced to it being consumed
+    public void delay(String consumer, long producedAtMillis) {
+        long delay = System.currentTimeMillis() - producedAtMillis;
+        if (producedAtMillis > 0 && delay >= 0) {
+            Timer.builder("repparton.events.delay")
+                    .tag("consumer", consumer)
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(delay));
+        }
+    }
+
+    public void delay(String consumer, LocalDateTime producedAt) {
+        if (producedAt != null) {
+            delay(consumer, producedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.DA2.filestorageservice.controller;
 
 import com.DA2.filestorageservice.service.FileStorageService;
+import com.DA2.filestorageservice.storage.LocalFileStore;
+import com.DA2.filestorageservice.storage.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -16,6 +28,9 @@ public class FileStorageController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ObjectProvider<LocalFileStore> localFileStore;
+
     // Health check
     @GetMapping("/health")
     public ResponseEntity<String> healthCheck() {
@@ -97,6 +112,20 @@ public class FileStorageController {
         }
     }
 
+    // Upload a raw request body, streamed to disk without multipart parsing
+    @PutMapping("/upload/stream")
+    public ResponseEntity<?> uploadStream(HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            StoredFile stored = fileStorageService.upload(body, request.getContentType());
+            return ResponseEntity.ok(storedFileResponse("File uploaded successfully", stored));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        }
+    }
+
     // Upload multiple files
     @PostMapping("/upload/multiple")
     public ResponseEntity<?> uploadMultipleFiles(@RequestParam("files") MultipartFile[] files) {
@@ -136,7 +165,7 @@ public class FileStorageController {
     @GetMapping("/info")
     public ResponseEntity<?> getFileInfo(@RequestParam String publicId) {
         try {
-            Map info = fileStorageService.getFileInfo(publicId);
+            Map<String, Object> info = fileStorageService.getFileInfo(publicId);
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "info", info
@@ -149,6 +178,43 @@ public class FileStorageController {
         }
     }
 
+    // Serve files of the local storage backend; Range requests are answered by Spring for Resource bodies
+    @GetMapping("/local/**")
+    public ResponseEntity<Resource> getLocalFile(HttpServletRequest request) {
+        LocalFileStore store = localFileStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String publicId = request.getRequestURI().substring(
+                request.getRequestURI().indexOf("/local/") + "/local/".length());
+        Path file;
+        try {
+            file = store.resolve(publicId);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!Files.isRegularFile(file)) {
+            return ResponseEntity.notFound().build();
+        }
+        Resource resource = new FileSystemResource(file);
+        return ResponseEntity.ok()
+                .contentType(MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(resource);
+    }
+
+    static Map<String, Object> storedFileResponse(String message, StoredFile stored) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("url", stored.url());
+        response.put("publicId", stored.publicId());
+        response.put("type", stored.category().name().toLowerCase());
+        response.put("size", stored.size());
+        response.put("contentHash", stored.contentHash());
+        response.put("deduplicated", stored.deduplicated());
+        return response;
+    }
+
     // Generate transformation URL
     // @GetMapping("/transform")
     // public ResponseEntity<?> generateTransformationUrl(
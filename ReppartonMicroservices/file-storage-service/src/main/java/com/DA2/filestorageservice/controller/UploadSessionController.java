@@ -0,0 +1,116 @@
+package com.DA2.filestorageservice.controller;
+
+import com.DA2.filestorageservice.service.UploadSessionService;
+import com.DA2.filestorageservice.service.UploadSessionService.UploadSession;
+import com.DA2.filestorageservice.storage.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resumable chunked uploads:
+ * POST /api/files/uploads {fileName, contentType, totalBytes} starts a session,
+ * PUT /api/files/uploads/{id}?offset=N with the chunk as raw body appends it,
+ * GET /api/files/uploads/{id} tells the offset to resume from,
+ * POST /api/files/uploads/{id}/complete stores the file, DELETE /api/files/uploads/{id} aborts.
+ */
+@RestController
+@RequestMapping("/api/files/uploads")
+@CrossOrigin(origins = "*")
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    public UploadSessionController(UploadSessionService uploadSessionService) {
+        this.uploadSessionService = uploadSessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody Map<String, Object> request) {
+        try {
+            Object totalBytes = request.get("totalBytes");
+            UploadSession session = uploadSessionService.create(
+                    (String) request.get("fileName"),
+                    (String) request.get("contentType"),
+                    totalBytes instanceof Number number ? number.longValue() : 0);
+            return ResponseEntity.status(HttpStatus.CREATED).body(sessionResponse("Upload session created", session));
+        } catch (Exception e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getSession(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(sessionResponse("Upload session retrieved", uploadSessionService.get(uploadId)));
+        } catch (Exception e) {
+            return error(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId, @RequestParam long offset,
+                                         HttpServletRequest request) {
+        try (InputStream body = request.getInputStream()) {
+            UploadSession session = uploadSessionService.appendChunk(uploadId, offset, body);
+            return ResponseEntity.ok(sessionResponse("Chunk received", session));
+        } catch (UploadSessionService.OffsetMismatchException e) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("receivedBytes", e.getExpectedOffset());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<?> completeSession(@PathVariable String uploadId) {
+        try {
+            StoredFile stored = uploadSessionService.complete(uploadId);
+            return ResponseEntity.ok(FileStorageController.storedFileResponse("File uploaded successfully", stored));
+        } catch (Exception e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<?> abortSession(@PathVariable String uploadId) {
+        try {
+            uploadSessionService.abort(uploadId);
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Upload session aborted"
+            ));
+        } catch (Exception e) {
+            return error(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> sessionResponse(String message, UploadSession session) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("uploadId", session.getUploadId());
+        response.put("fileName", session.getFileName());
+        response.put("contentType", session.getContentType());
+        response.put("totalBytes", session.getTotalBytes());
+        response.put("receivedBytes", session.getReceivedBytes());
+        response.put("chunkBytes", uploadSessionService.getChunkBytes());
+        response.put("complete", session.isComplete());
+        return response;
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of(
+            "success", false,
+            "message", message != null ? message : status.getReasonPhrase()
+        ));
+    }
+}
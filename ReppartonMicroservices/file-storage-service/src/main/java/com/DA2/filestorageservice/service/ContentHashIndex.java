@@ -0,0 +1,168 @@
+package com.DA2.filestorageservice.service;
+
+import com.DA2.filestorageservice.storage.FileCategory;
+import com.DA2.filestorageservice.storage.StoredFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * SHA-256 of stored content -> stored file, so an upload of content that is already stored returns the
+ * existing file instead of a new copy. Each entry counts the uploads sharing the file, and a delete only
+ * removes the stored file once the last of them is deleted. Kept as small files in index-dir: by-hash/HASH
+ * describes the stored file and by-id/PUBLIC_ID points back to the hash.
+ *
+ * The reference counts are only right if every instance sees the same index, so sharing is off unless
+ * app.storage.dedup.enabled is set, which requires index-dir to be durable storage shared by all instances.
+ * Changes are serialised across processes with a lock file in index-dir.
+ */
+@Component
+public class ContentHashIndex {
+
+    private final boolean enabled;
+    private final Path byHash;
+    private final Path byId;
+    private final Path lockFile;
+
+    public ContentHashIndex(@Value("${app.storage.dedup.enabled:false}") boolean enabled,
+                            @Value("${app.storage.index-dir:${java.io.tmpdir}/repparton-file-index}") String indexDir)
+            throws IOException {
+        Path root = Path.of(indexDir).toAbsolutePath();
+        this.enabled = enabled;
+        this.byHash = Files.createDirectories(root.resolve("by-hash"));
+        this.byId = Files.createDirectories(root.resolve("by-id"));
+        this.lockFile = root.resolve(".lock");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The stored file with this content, counting one more upload sharing it; empty if none or sharing is off.
+     */
+    public synchronized Optional<StoredFile> acquire(String contentHash, FileCategory category) throws IOException {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try (FileChannel ignored = lock()) {
+            Path hashFile = byHash.resolve(contentHash);
+            Properties entry = read(hashFile);
+            if (entry == null || !category.name().equals(entry.getProperty("category"))) {
+                return Optional.empty();
+            }
+            entry.setProperty("refs", Integer.toString(refs(entry) + 1));
+            write(hashFile, entry);
+            return Optional.of(new StoredFile(entry.getProperty("url"), entry.getProperty("publicId"), contentHash,
+                    Long.parseLong(entry.getProperty("size", "0")), category, true));
+        }
+    }
+
+    /**
+     * Offers a newly stored file for sharing. When a concurrent upload of the same content got there first,
+     * that entry is kept and this file stays unshared.
+     */
+    public synchronized void put(StoredFile file) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        try (FileChannel ignored = lock()) {
+            // Recorded either way, so release can tell this file from one the index has lost track of
+            Properties back = new Properties();
+            back.setProperty("hash", file.contentHash());
+            write(byId.resolve(idFileName(file.publicId())), back);
+            Path hashFile = byHash.resolve(file.contentHash());
+            if (read(hashFile) != null) {
+                return;
+            }
+            Properties entry = new Properties();
+            entry.setProperty("url", file.url());
+            entry.setProperty("publicId", file.publicId());
+            entry.setProperty("size", Long.toString(file.size()));
+            entry.setProperty("category", file.category().name());
+            entry.setProperty("refs", "1");
+            write(hashFile, entry);
+        }
+    }
+
+    /**
+     * Drops one upload of the file; true if the stored file may be deleted. That is the case for the last
+     * upload sharing it, and for files that were never shared. With sharing on, a file the index does not
+     * know may still be shared by uploads recorded in an index that was since lost, so it is kept.
+     */
+    public synchronized boolean release(String publicId) throws IOException {
+        try (FileChannel ignored = lock()) {
+            Path idFile = byId.resolve(idFileName(publicId));
+            Properties back = read(idFile);
+            if (back == null) {
+                return !enabled;
+            }
+            Path hashFile = byHash.resolve(back.getProperty("hash"));
+            Properties entry = read(hashFile);
+            if (entry != null && publicId.equals(entry.getProperty("publicId")) && refs(entry) > 1) {
+                entry.setProperty("refs", Integer.toString(refs(entry) - 1));
+                write(hashFile, entry);
+                return false;
+            }
+            if (entry != null && publicId.equals(entry.getProperty("publicId"))) {
+                Files.deleteIfExists(hashFile);
+            }
+            Files.deleteIfExists(idFile);
+            return true;
+        }
+    }
+
+    // Other instances sharing index-dir take the same lock; closing the channel releases it
+    private FileChannel lock() throws IOException {
+        FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int refs(Properties entry) {
+        return Integer.parseInt(entry.getProperty("refs", "1"));
+    }
+
+    private static String idFileName(String publicId) {
+        return URLEncoder.encode(publicId, StandardCharsets.UTF_8);
+    }
+
+    private static Properties read(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read content index: " + e.getMessage());
+        }
+    }
+
+    // Written to a temporary file and renamed so readers never see a partial entry
+    private static void write(Path file, Properties properties) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), "entry-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, null);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,158 +1,186 @@
 package com.DA2.filestorageservice.service;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import com.DA2.filestorageservice.storage.FileCategory;
+import com.DA2.filestorageservice.storage.FileStore;
+import com.DA2.filestorageservice.storage.StoredFile;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Upload pipeline: the content is streamed into a spool file while its SHA-256 is computed, content that is
+ * already stored is answered from the ContentHashIndex (when dedup is enabled), anything else is handed to the
+ * FileStore from disk.
+ * No step holds the whole file in memory.
+ */
 @Service
 public class FileStorageService {
 
     @Autowired
-    private Cloudinary cloudinary;
+    private FileStore fileStore;
 
-    // Upload image file
-    public String uploadImage(MultipartFile file) throws IOException {
-        if (file.isEmpty()) {
-            throw new RuntimeException("File is empty");
-        }
+    @Autowired
+    private UploadSpool uploadSpool;
 
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new RuntimeException("File must be an image");
-        }
+    @Autowired
+    private ContentHashIndex contentHashIndex;
+
+    @Value("${app.storage.max-file-bytes:524288000}")
+    private long maxFileBytes;
+
+    // Multi-file batches: bounded threads and queue; when full the request thread uploads itself
+    private final ThreadPoolExecutor batchExecutor;
+
+    public FileStorageService(@Value("${app.storage.batch.threads:4}") int batchThreads,
+                              @Value("${app.storage.batch.queue-size:64}") int batchQueueSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "upload-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.batchExecutor.allowCoreThreadTimeOut(true);
+    }
 
-        // Upload to Cloudinary
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(), 
-            ObjectUtils.asMap(
-                "folder", "repparton/images",
-                "resource_type", "image",
-                "public_id", UUID.randomUUID().toString()
-            )
-        );
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+    }
 
-        return uploadResult.get("secure_url").toString();
+    // Upload image file
+    public String uploadImage(MultipartFile file) throws IOException {
+        return upload(file, FileCategory.IMAGE).url();
     }
 
     // Upload audio file
     public String uploadAudio(MultipartFile file) throws IOException {
-        if (file.isEmpty()) {
-            throw new RuntimeException("File is empty");
-        }
-
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("audio/")) {
-            throw new RuntimeException("File must be an audio file");
-        }
-
-        // Upload to Cloudinary
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(),
-            ObjectUtils.asMap(
-                "folder", "repparton/audio",
-                "resource_type", "video", // Cloudinary uses "video" for audio files
-                "public_id", UUID.randomUUID().toString()
-            )
-        );
-
-        return uploadResult.get("secure_url").toString();
+        return upload(file, FileCategory.AUDIO).url();
     }
 
     // Upload video file
     public String uploadVideo(MultipartFile file) throws IOException {
-        if (file.isEmpty()) {
-            throw new RuntimeException("File is empty");
-        }
-
-        // Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("video/")) {
-            throw new RuntimeException("File must be a video file");
-        }
-
-        // Upload to Cloudinary
-        Map uploadResult = cloudinary.uploader().upload(file.getBytes(),
-            ObjectUtils.asMap(
-                "folder", "repparton/videos",
-                "resource_type", "video",
-                "public_id", UUID.randomUUID().toString()
-            )
-        );
-
-        return uploadResult.get("secure_url").toString();
+        return upload(file, FileCategory.VIDEO).url();
     }
 
     // Upload any file (auto-detect type)
     public String uploadFile(MultipartFile file) throws IOException {
+        return upload(file, null).url();
+    }
+
+    /**
+     * Uploads a multipart file; category null means detect it from the content type.
+     */
+    public StoredFile upload(MultipartFile file, FileCategory category) throws IOException {
         if (file.isEmpty()) {
             throw new RuntimeException("File is empty");
         }
-
-        String contentType = file.getContentType();
-        if (contentType == null) {
-            throw new RuntimeException("Cannot determine file type");
+        FileCategory actual = checkCategory(file.getContentType(), category);
+        // Spring keeps multipart content on disk; read it as a stream, never with getBytes()
+        try (InputStream in = file.getInputStream()) {
+            return store(in, actual);
         }
+    }
+
+    /**
+     * Uploads a raw request body of the given content type.
+     */
+    public StoredFile upload(InputStream in, String contentType) throws IOException {
+        return store(in, checkCategory(contentType, null));
+    }
 
-        // Route to appropriate upload method
-        if (contentType.startsWith("image/")) {
-            return uploadImage(file);
-        } else if (contentType.startsWith("audio/")) {
-            return uploadAudio(file);
-        } else if (contentType.startsWith("video/")) {
-            return uploadVideo(file);
-        } else {
-            throw new RuntimeException("Unsupported file type: " + contentType);
+    /**
+     * Stores a spooled file. The spool file is left to the caller, the FileStore may have moved it.
+     */
+    public StoredFile store(UploadSpool.SpooledFile spooled, FileCategory category) throws IOException {
+        if (spooled.size() == 0) {
+            throw new RuntimeException("File is empty");
+        }
+        StoredFile existing = contentHashIndex.acquire(spooled.contentHash(), category).orElse(null);
+        if (existing != null) {
+            return existing;
         }
+        String publicId = category.getFolder() + "/" + UUID.randomUUID();
+        String url = fileStore.store(spooled.path(), publicId, category);
+        StoredFile stored = new StoredFile(url, publicId, spooled.contentHash(), spooled.size(), category, false);
+        contentHashIndex.put(stored);
+        return stored;
     }
 
-    // Upload multiple files
+    // Upload multiple files, in parallel on the bounded batch executor
     public Map<String, String> uploadMultipleFiles(MultipartFile[] files) throws IOException {
-        Map<String, String> results = new java.util.HashMap<>();
-        
-        for (int i = 0; i < files.length; i++) {
+        List<Future<String>> uploads = new ArrayList<>(files.length);
+        for (MultipartFile file : files) {
+            uploads.add(batchExecutor.submit(() -> uploadFile(file)));
+        }
+
+        Map<String, String> results = new LinkedHashMap<>();
+        for (int i = 0; i < uploads.size(); i++) {
             try {
-                String url = uploadFile(files[i]);
-                results.put("file_" + i, url);
-            } catch (Exception e) {
-                results.put("file_" + i + "_error", e.getMessage());
+                results.put("file_" + i, uploads.get(i).get());
+            } catch (ExecutionException e) {
+                results.put("file_" + i + "_error", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Upload interrupted");
             }
         }
-
         return results;
     }
 
-    // Delete file from Cloudinary
+    // Delete file from storage, once no other upload shares its content
     public void deleteFile(String publicId) throws IOException {
-        try {
-            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to delete file: " + e.getMessage());
+        if (contentHashIndex.release(publicId)) {
+            fileStore.delete(publicId);
         }
     }
 
     // Get file information
-    public Map getFileInfo(String publicId) throws IOException {
+    public Map<String, Object> getFileInfo(String publicId) throws IOException {
+        return fileStore.info(publicId);
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    private StoredFile store(InputStream in, FileCategory category) throws IOException {
+        UploadSpool.SpooledFile spooled = uploadSpool.spool(in, maxFileBytes);
         try {
-            return cloudinary.api().resource(publicId, ObjectUtils.emptyMap());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to get file info: " + e.getMessage());
+            return store(spooled, category);
+        } finally {
+            Files.deleteIfExists(spooled.path());
         }
     }
 
-    // // Generate transformation URL (resize, crop, etc.)
-    // public String generateTransformationUrl(String publicId, int width, int height, String crop) {
-    //     return cloudinary.url()
-    //         .transformation(ObjectUtils.asMap(
-    //             "width", width,
-    //             "height", height,
-    //             "crop", crop
-    //         ))
-    //         .generate(publicId);
-    // }
+    private static FileCategory checkCategory(String contentType, FileCategory expected) {
+        if (expected == null) {
+            return FileCategory.of(contentType);
+        }
+        if (!expected.accepts(contentType)) {
+            throw new RuntimeException(switch (expected) {
+                case IMAGE -> "File must be an image";
+                case AUDIO -> "File must be an audio file";
+                case VIDEO -> "File must be a video file";
+            });
+        }
+        return expected;
+    }
 }
@@ -0,0 +1,275 @@
+package com.DA2.filestorageservice.service;
+
+import com.DA2.filestorageservice.storage.FileCategory;
+import com.DA2.filestorageservice.storage.StoredFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resumable chunked uploads. A session has a directory under spool-dir/sessions holding the bytes received so
+ * far and a small properties file, so an interrupted client asks for the received offset and continues
+ * from there, even across a restart of this instance. Chunks must arrive in order at the received offset.
+ * The SHA-256 is updated chunk by chunk while the session stays in memory and recomputed from disk otherwise.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final String DATA_FILE = "data.part";
+    private static final String META_FILE = "session.properties";
+
+    private final FileStorageService fileStorageService;
+    private final Path sessionsDir;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.storage.upload.chunk-bytes:8388608}")
+    private long chunkBytes;
+
+    @Value("${app.storage.upload.max-chunk-bytes:33554432}")
+    private long maxChunkBytes;
+
+    @Value("${app.storage.upload.session-ttl-ms:86400000}")
+    private long sessionTtlMillis;
+
+    public UploadSessionService(FileStorageService fileStorageService, UploadSpool uploadSpool) throws IOException {
+        this.fileStorageService = fileStorageService;
+        this.sessionsDir = Files.createDirectories(uploadSpool.getSpoolDir().resolve("sessions"));
+    }
+
+    public static class UploadSession {
+        private final String uploadId;
+        private final String fileName;
+        private final String contentType;
+        private final FileCategory category;
+        private final long totalBytes;
+        private final long createdAt;
+        private long receivedBytes;
+        private long updatedAt;
+        // Digest of the received bytes; null after a reload, then the hash is computed from disk at the end
+        private MessageDigest digest;
+
+        UploadSession(String uploadId, String fileName, String contentType, FileCategory category,
+                      long totalBytes, long createdAt) {
+            this.uploadId = uploadId;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.category = category;
+            this.totalBytes = totalBytes;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+        }
+
+        public String getUploadId() { return uploadId; }
+        public String getFileName() { return fileName; }
+        public String getContentType() { return contentType; }
+        public FileCategory getCategory() { return category; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getReceivedBytes() { return receivedBytes; }
+        public long getCreatedAt() { return createdAt; }
+        public long getUpdatedAt() { return updatedAt; }
+        public boolean isComplete() { return receivedBytes == totalBytes; }
+    }
+
+    /**
+     * Thrown when a chunk does not start at the received offset; the client should resume from expectedOffset.
+     */
+    public static class OffsetMismatchException extends RuntimeException {
+        private final long expectedOffset;
+
+        public OffsetMismatchException(long expectedOffset) {
+            super("Chunk must start at offset " + expectedOffset);
+            this.expectedOffset = expectedOffset;
+        }
+
+        public long getExpectedOffset() {
+            return expectedOffset;
+        }
+    }
+
+    public long getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public UploadSession create(String fileName, String contentType, long totalBytes) throws IOException {
+        FileCategory category = FileCategory.of(contentType);
+        if (totalBytes <= 0) {
+            throw new RuntimeException("File is empty");
+        }
+        if (totalBytes > fileStorageService.getMaxFileBytes()) {
+            throw new RuntimeException("File exceeds the maximum size of " + fileStorageService.getMaxFileBytes() + " bytes");
+        }
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), fileName, contentType, category,
+                totalBytes, System.currentTimeMillis());
+        session.digest = UploadSpool.sha256();
+        Path dir = Files.createDirectories(sessionsDir.resolve(session.uploadId));
+        Files.createFile(dir.resolve(DATA_FILE));
+        saveMeta(session);
+        sessions.put(session.uploadId, session);
+        return session;
+    }
+
+    public UploadSession get(String uploadId) {
+        return sessions.computeIfAbsent(checkId(uploadId), this::loadMeta);
+    }
+
+    /**
+     * Appends one chunk read from the request body. On a failed or oversized chunk the session is cut back to
+     * its previous length, so the client can resend the chunk.
+     */
+    public UploadSession appendChunk(String uploadId, long offset, InputStream body) throws IOException {
+        UploadSession session = get(uploadId);
+        synchronized (session) {
+            if (offset != session.receivedBytes) {
+                throw new OffsetMismatchException(session.receivedBytes);
+            }
+            long limit = Math.min(maxChunkBytes, session.totalBytes - session.receivedBytes);
+            Path data = dataFile(uploadId);
+            MessageDigest digest = session.digest != null ? cloneDigest(session.digest) : null;
+            long appended;
+            try {
+                appended = UploadSpool.append(data, body, digest, limit);
+            } catch (IOException | RuntimeException e) {
+                truncate(data, session.receivedBytes);
+                throw e;
+            }
+            session.receivedBytes += appended;
+            session.digest = digest;
+            session.updatedAt = System.currentTimeMillis();
+            saveMeta(session);
+            return session;
+        }
+    }
+
+    /**
+     * Stores the assembled file once every byte has been received and ends the session.
+     */
+    public StoredFile complete(String uploadId) throws IOException {
+        UploadSession session = get(uploadId);
+        synchronized (session) {
+            if (!session.isComplete()) {
+                throw new RuntimeException("Upload incomplete: received " + session.receivedBytes
+                        + " of " + session.totalBytes + " bytes");
+            }
+            Path data = dataFile(uploadId);
+            MessageDigest digest = session.digest != null ? cloneDigest(session.digest) : null;
+            String contentHash = digest != null
+                    ? HexFormat.of().formatHex(digest.digest())
+                    : UploadSpool.hash(data);
+            StoredFile stored = fileStorageService.store(
+                    new UploadSpool.SpooledFile(data, contentHash, session.totalBytes), session.category);
+            delete(uploadId);
+            return stored;
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        get(uploadId);
+        delete(uploadId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.upload.cleanup-interval-ms:3600000}")
+    public void removeExpiredSessions() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - sessionTtlMillis;
+        try (Stream<Path> dirs = Files.list(sessionsDir)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                Path meta = dir.resolve(META_FILE);
+                long updatedAt = Files.exists(meta) ? Files.getLastModifiedTime(meta).toMillis() : 0;
+                if (updatedAt < expiredBefore) {
+                    delete(dir.getFileName().toString());
+                }
+            }
+        }
+    }
+
+    private void delete(String uploadId) throws IOException {
+        sessions.remove(uploadId);
+        Path dir = sessionsDir.resolve(uploadId);
+        if (Files.exists(dir)) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path dataFile(String uploadId) {
+        return sessionsDir.resolve(uploadId).resolve(DATA_FILE);
+    }
+
+    private void saveMeta(UploadSession session) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("fileName", session.fileName != null ? session.fileName : "");
+        meta.setProperty("contentType", session.contentType);
+        meta.setProperty("totalBytes", Long.toString(session.totalBytes));
+        meta.setProperty("receivedBytes", Long.toString(session.receivedBytes));
+        meta.setProperty("createdAt", Long.toString(session.createdAt));
+        Path dir = sessionsDir.resolve(session.uploadId);
+        Path tmp = Files.createTempFile(dir, "meta-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            meta.store(out, null);
+        }
+        Files.move(tmp, dir.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private UploadSession loadMeta(String uploadId) {
+        Path dir = sessionsDir.resolve(uploadId);
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(dir.resolve(META_FILE))) {
+            meta.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Upload session not found: " + uploadId);
+        }
+        String contentType = meta.getProperty("contentType");
+        UploadSession session = new UploadSession(uploadId, meta.getProperty("fileName"), contentType,
+                FileCategory.of(contentType), Long.parseLong(meta.getProperty("totalBytes")),
+                Long.parseLong(meta.getProperty("createdAt")));
+        try {
+            // The data file is authoritative: bytes written after the last metadata save are kept
+            session.receivedBytes = Math.min(Files.size(dir.resolve(DATA_FILE)), session.totalBytes);
+            session.updatedAt = Files.getLastModifiedTime(dir.resolve(META_FILE)).toMillis();
+        } catch (IOException e) {
+            throw new RuntimeException("Upload session not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private static String checkId(String uploadId) {
+        try {
+            return UUID.fromString(uploadId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Upload session not found: " + uploadId);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
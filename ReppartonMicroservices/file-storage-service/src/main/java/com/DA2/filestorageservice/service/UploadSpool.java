@@ -0,0 +1,101 @@
+package com.DA2.filestorageservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Writes upload content to files in spool-dir through a fixed 64 KB buffer, computing the SHA-256 on the way,
+ * so the heap used per upload does not depend on the file size.
+ */
+@Component
+public class UploadSpool {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path spoolDir;
+
+    public UploadSpool(@Value("${app.storage.spool-dir:${java.io.tmpdir}/repparton-uploads}") String spoolDir)
+            throws IOException {
+        this.spoolDir = Files.createDirectories(Path.of(spoolDir)).toAbsolutePath();
+    }
+
+    public record SpooledFile(Path path, String contentHash, long size) {
+    }
+
+    public Path getSpoolDir() {
+        return spoolDir;
+    }
+
+    /**
+     * Copies the stream into a new spool file. The file is deleted if the copy fails or exceeds maxBytes.
+     */
+    public SpooledFile spool(InputStream in, long maxBytes) throws IOException {
+        Path file = Files.createTempFile(spoolDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                size = copy(in, out, digest, maxBytes);
+            }
+            return new SpooledFile(file, HexFormat.of().formatHex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Appends the stream to file, feeding digest when given. Returns the number of bytes appended.
+     */
+    public static long append(Path file, InputStream in, MessageDigest digest, long maxBytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            return copy(in, out, digest, maxBytes);
+        }
+    }
+
+    /**
+     * SHA-256 of a file, read sequentially through the same fixed buffer.
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            copy(in, OutputStream.nullOutputStream(), digest, Long.MAX_VALUE);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out, MessageDigest digest, long maxBytes) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new RuntimeException("File exceeds the maximum size of " + maxBytes + " bytes");
+            }
+            if (digest != null) {
+                digest.update(buffer, 0, read);
+            }
+            out.write(buffer, 0, read);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,69 @@
+package com.DA2.filestorageservice.storage;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cloudinary backend. The SDK streams the file from disk; files above large-upload-bytes go through
+ * Cloudinary's chunked upload_large, which is required above 100 MB.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryFileStore implements FileStore {
+
+    private final Cloudinary cloudinary;
+
+    @Value("${app.storage.cloudinary.large-upload-bytes:104857600}")
+    private long largeUploadBytes;
+
+    @Value("${app.storage.cloudinary.chunk-bytes:20971520}")
+    private int chunkBytes;
+
+    public CloudinaryFileStore(Cloudinary cloudinary) {
+        this.cloudinary = cloudinary;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public String store(Path file, String publicId, FileCategory category) throws IOException {
+        Map<String, Object> options = new HashMap<>();
+        options.put("public_id", publicId);
+        options.put("resource_type", category.getResourceType());
+        Map uploadResult;
+        if (Files.size(file) > largeUploadBytes) {
+            options.put("chunk_size", chunkBytes);
+            uploadResult = cloudinary.uploader().uploadLarge(file.toFile(), options);
+        } else {
+            uploadResult = cloudinary.uploader().upload(file.toFile(), options);
+        }
+        return uploadResult.get("secure_url").toString();
+    }
+
+    @Override
+    public void delete(String publicId) throws IOException {
+        try {
+            cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> info(String publicId) throws IOException {
+        try {
+            return cloudinary.api().resource(publicId, ObjectUtils.emptyMap());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to get file info: " + e.getMessage());
+        }
+    }
+}
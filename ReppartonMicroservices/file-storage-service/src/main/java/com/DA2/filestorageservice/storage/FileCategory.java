@@ -0,0 +1,44 @@
+package com.DA2.filestorageservice.storage;
+
+/**
+ * Kind of uploaded file, decided by its content type; fixes the folder and the Cloudinary resource type.
+ */
+public enum FileCategory {
+    IMAGE("image/", "repparton/images", "image"),
+    AUDIO("audio/", "repparton/audio", "video"), // Cloudinary uses "video" for audio files
+    VIDEO("video/", "repparton/videos", "video");
+
+    private final String contentTypePrefix;
+    private final String folder;
+    private final String resourceType;
+
+    FileCategory(String contentTypePrefix, String folder, String resourceType) {
+        this.contentTypePrefix = contentTypePrefix;
+        this.folder = folder;
+        this.resourceType = resourceType;
+    }
+
+    public String getFolder() {
+        return folder;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public boolean accepts(String contentType) {
+        return contentType != null && contentType.startsWith(contentTypePrefix);
+    }
+
+    public static FileCategory of(String contentType) {
+        if (contentType == null) {
+            throw new RuntimeException("Cannot determine file type");
+        }
+        for (FileCategory category : values()) {
+            if (category.accepts(contentType)) {
+                return category;
+            }
+        }
+        throw new RuntimeException("Unsupported file type: " + contentType);
+    }
+}
@@ -0,0 +1,21 @@
+package com.DA2.filestorageservice.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Backend holding uploaded files. Uploads are handed over as a file on local disk, so no backend
+ * needs the content on the heap.
+ */
+public interface FileStore {
+
+    /**
+     * Stores the file under publicId and returns its public URL.
+     */
+    String store(Path file, String publicId, FileCategory category) throws IOException;
+
+    void delete(String publicId) throws IOException;
+
+    Map<String, Object> info(String publicId) throws IOException;
+}
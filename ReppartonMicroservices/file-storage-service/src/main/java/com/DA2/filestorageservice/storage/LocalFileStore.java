@@ -0,0 +1,71 @@
+package com.DA2.filestorageservice.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local filesystem stand-in for Cloudinary, for development and tests without a Cloudinary account.
+ * Files are moved into root-dir under their public id and served by FileStorageController under
+ * /api/files/local/.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalFileStore implements FileStore {
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalFileStore(@Value("${app.storage.local.root-dir:${java.io.tmpdir}/repparton-files}") String rootDir,
+                          @Value("${app.storage.local.base-url:http://localhost:8095/api/files/local}") String baseUrl)
+            throws IOException {
+        this.root = Files.createDirectories(Path.of(rootDir)).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public String store(Path file, String publicId, FileCategory category) throws IOException {
+        Path target = resolve(publicId);
+        Files.createDirectories(target.getParent());
+        // A rename when the spool directory is on the same filesystem, a streamed copy otherwise
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        return baseUrl + "/" + publicId;
+    }
+
+    @Override
+    public void delete(String publicId) throws IOException {
+        Files.deleteIfExists(resolve(publicId));
+    }
+
+    @Override
+    public Map<String, Object> info(String publicId) throws IOException {
+        Path file = resolve(publicId);
+        if (!Files.exists(file)) {
+            throw new RuntimeException("Failed to get file info: not found " + publicId);
+        }
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("public_id", publicId);
+        info.put("bytes", Files.size(file));
+        info.put("secure_url", baseUrl + "/" + publicId);
+        info.put("created_at", Files.getLastModifiedTime(file).toString());
+        return info;
+    }
+
+    /**
+     * Path of a stored file; rejects ids that would escape the root directory.
+     */
+    public Path resolve(String publicId) {
+        Path file = root.resolve(publicId).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new RuntimeException("Invalid file id: " + publicId);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,14 @@
+package com.DA2.filestorageservice.storage;
+
+/**
+ * A file held by the FileStore.
+ *
+ * @param deduplicated true when the upload matched existing content and no new copy was stored
+ */
+public record StoredFile(String url, String publicId, String contentHash, long size, FileCategory category,
+                         boolean deduplicated) {
+
+    public StoredFile asDuplicate() {
+        return new StoredFile(url, publicId, contentHash, size, category, true);
+    }
+}
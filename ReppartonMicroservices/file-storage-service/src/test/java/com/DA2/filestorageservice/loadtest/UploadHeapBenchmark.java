@@ -0,0 +1,106 @@
+package com.DA2.filestorageservice.loadtest;
+
+import com.DA2.filestorageservice.service.UploadSpool;
+import com.DA2.filestorageservice.storage.FileCategory;
+import com.DA2.filestorageservice.storage.LocalFileStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Heap allocated per upload by the old byte[] path (MultipartFile.getBytes() plus a SHA-256 over the array)
+ * and by the streaming path (UploadSpool into LocalFileStore), for growing file sizes.
+ * Run: java -cp target/test-classes:target/classes:... com.DA2.filestorageservice.loadtest.UploadHeapBenchmark [sizesMb...]
+ */
+public class UploadHeapBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int[] sizesMb = args.length > 0
+                ? Stream.of(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {16, 64, 256};
+        Path work = Files.createTempDirectory("upload-heap-benchmark");
+        try {
+            UploadSpool spool = new UploadSpool(work.resolve("spool").toString());
+            LocalFileStore store = new LocalFileStore(work.resolve("files").toString(), "http://localhost/files");
+
+            System.out.printf("%8s %22s %22s %12s %12s%n",
+                    "size", "byte[] allocated", "streaming allocated", "byte[] ms", "stream ms");
+            for (int sizeMb : sizesMb) {
+                Path source = createFile(work.resolve("source-" + sizeMb + ".bin"), sizeMb * 1024L * 1024L);
+
+                long before = allocated();
+                long start = System.nanoTime();
+                String bufferedHash = uploadBuffered(source, work.resolve("buffered"));
+                long bufferedMs = (System.nanoTime() - start) / 1_000_000;
+                long bufferedBytes = allocated() - before;
+
+                before = allocated();
+                start = System.nanoTime();
+                String streamedHash = uploadStreaming(source, spool, store);
+                long streamedMs = (System.nanoTime() - start) / 1_000_000;
+                long streamedBytes = allocated() - before;
+
+                if (!bufferedHash.equals(streamedHash)) {
+                    throw new IllegalStateException("Hash mismatch for " + sizeMb + " MB");
+                }
+                System.out.printf("%6d MB %19.1f MB %19.2f MB %12d %12d%n", sizeMb,
+                        bufferedBytes / 1048576.0, streamedBytes / 1048576.0, bufferedMs, streamedMs);
+                Files.delete(source);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // What the service did before: the whole file as a byte[], hashed and written out from memory
+    private static String uploadBuffered(Path source, Path targetDir) throws Exception {
+        byte[] content = Files.readAllBytes(source);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        Files.createDirectories(targetDir);
+        Path target = targetDir.resolve(UUID.randomUUID().toString());
+        Files.write(target, content);
+        Files.delete(target);
+        return hash;
+    }
+
+    private static String uploadStreaming(Path source, UploadSpool spool, LocalFileStore store) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            UploadSpool.SpooledFile spooled = spool.spool(in, Long.MAX_VALUE);
+            String publicId = "repparton/audio/" + UUID.randomUUID();
+            store.store(spooled.path(), publicId, FileCategory.AUDIO);
+            store.delete(publicId);
+            return spooled.contentHash();
+        }
+    }
+
+    private static Path createFile(Path file, long size) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        Random random = new Random(size);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,67 @@
+package com.DA2.filestorageservice.service;
+
+import com.DA2.filestorageservice.storage.FileCategory;
+import com.DA2.filestorageservice.storage.StoredFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentHashIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sharedFileIsDeletableOnlyAfterItsLastUpload() throws IOException {
+        ContentHashIndex index = new ContentHashIndex(true, dir.toString());
+        index.put(file("repparton/audio/a", "hash"));
+
+        Optional<StoredFile> shared = index.acquire("hash", FileCategory.AUDIO);
+
+        assertEquals("repparton/audio/a", shared.orElseThrow().publicId());
+        assertTrue(shared.get().deduplicated());
+        assertFalse(index.release("repparton/audio/a"));
+        assertTrue(index.release("repparton/audio/a"));
+        assertTrue(index.acquire("hash", FileCategory.AUDIO).isEmpty());
+    }
+
+    @Test
+    void unknownFilesAreKeptWhileSharingIsOn() throws IOException {
+        ContentHashIndex index = new ContentHashIndex(true, dir.toString());
+
+        assertFalse(index.release("repparton/audio/unknown"));
+    }
+
+    @Test
+    void concurrentUploadOfTheSameContentStaysUnshared() throws IOException {
+        ContentHashIndex index = new ContentHashIndex(true, dir.toString());
+        index.put(file("repparton/audio/a", "hash"));
+        index.acquire("hash", FileCategory.AUDIO);
+        index.put(file("repparton/audio/b", "hash"));
+
+        // b lost the race, so the entry still counts the two uploads of a
+        assertTrue(index.release("repparton/audio/b"));
+        assertFalse(index.release("repparton/audio/a"));
+        assertTrue(index.release("repparton/audio/a"));
+    }
+
+    @Test
+    void nothingIsSharedWhenDedupIsOff() throws IOException {
+        ContentHashIndex index = new ContentHashIndex(false, dir.toString());
+        index.put(file("repparton/audio/a", "hash"));
+
+        assertTrue(index.acquire("hash", FileCategory.AUDIO).isEmpty());
+        assertTrue(index.release("repparton/audio/a"));
+    }
+
+    private static StoredFile file(String publicId, String hash) {
+        return new StoredFile("https://cdn.example.com/" + publicId, publicId, hash, 10, FileCategory.AUDIO, false);
+    }
+}
@@ -0,0 +1,15 @@
+package com.DA2.messageservice.client;
+
+import com.DA2.shared.dto.UserSummary;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+@FeignClient(name = "user-service")
+public interface UserServiceClient {
+
+    @PostMapping("/api/users/summaries")
+    List<UserSummary> getSummaries(@RequestBody List<String> userIds);
+}
@@ -4,6 +4,7 @@ import com.DA2.messageservice.entity.GroupConversation;
 import com.DA2.messageservice.entity.GroupMessage;
 import com.DA2.messageservice.service.GroupService;
 import com.DA2.messageservice.service.PermissionService;
+import com.DA2.shared.dto.CursorPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -54,10 +55,7 @@ public class GroupController {
             @PathVariable String groupId,
             @RequestHeader("X-User-Id") String userId) {
 
-        List<GroupConversation> userGroups = groupService.getUserGroups(userId);
-        GroupConversation group = userGroups.stream()
-                .filter(g -> g.getId().equals(groupId))
-                .findFirst()
+        GroupConversation group = groupService.getGroup(groupId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Group not found or access denied"));
 
         return ResponseEntity.ok(group);
@@ -120,13 +118,13 @@ public class GroupController {
      * Get messages from group
      */
     @GetMapping("/{groupId}/messages")
-    public ResponseEntity<List<GroupMessage>> getMessages(
+    public ResponseEntity<CursorPage<GroupMessage>> getMessages(
             @PathVariable String groupId,
             @RequestHeader("X-User-Id") String userId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "50") int size) {
 
-        List<GroupMessage> messages = groupService.getMessages(groupId, userId, page, size);
+        CursorPage<GroupMessage> messages = groupService.getMessages(groupId, userId, cursor, size);
         return ResponseEntity.ok(messages);
     }
 
@@ -5,6 +5,7 @@ import com.DA2.messageservice.entity.DuoMessage;
 import com.DA2.messageservice.dto.ConversationDTO;
 import com.DA2.messageservice.dto.MessageRequest;
 import com.DA2.messageservice.service.MessageService;
+import com.DA2.shared.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -48,9 +49,11 @@ public class MessageController {
 
     // Get messages in a conversation
     @GetMapping("/conversation/{conversationId}")
-    public ResponseEntity<List<DuoMessage>> getMessages(@PathVariable String conversationId) {
+    public ResponseEntity<CursorPage<DuoMessage>> getMessages(@PathVariable String conversationId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "50") int size) {
         try {
-            List<DuoMessage> messages = messageService.getMessages(conversationId);
+            CursorPage<DuoMessage> messages = messageService.getMessages(conversationId, cursor, size);
             return ResponseEntity.ok(messages);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
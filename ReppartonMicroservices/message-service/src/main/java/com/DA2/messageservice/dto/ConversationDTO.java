@@ -1,9 +1,16 @@
 package com.DA2.messageservice.dto;
 
+import java.time.LocalDateTime;
+
 public class ConversationDTO {
     private String id;
     private UserDTO user1;
     private UserDTO user2;
+    private String lastMessage;
+    private String lastMessageSenderId;
+    private LocalDateTime lastMessageAt;
+    // Unread messages for the user whose inbox this is
+    private int unreadCount;
 
     public ConversationDTO() {}
 
@@ -37,4 +44,36 @@ public class ConversationDTO {
     public void setUser2(UserDTO user2) {
         this.user2 = user2;
     }
-}
\ No newline at end of file
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public String getLastMessageSenderId() {
+        return lastMessageSenderId;
+    }
+
+    public void setLastMessageSenderId(String lastMessageSenderId) {
+        this.lastMessageSenderId = lastMessageSenderId;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
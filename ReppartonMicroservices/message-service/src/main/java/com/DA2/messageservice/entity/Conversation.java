@@ -1,10 +1,23 @@
 package com.DA2.messageservice.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * A conversation between two users with a summary of its latest state, kept up to date on every send
+ * and read so the inbox is served from this collection alone: the last message snippet, unread counts
+ * per participant and each participant's read watermark (messages sent up to lastReadAt are read).
+ */
 @Document(collection = "conversations")
+@CompoundIndexes({
+    @CompoundIndex(name = "user1_last_message_idx", def = "{'user1Id': 1, 'lastMessageAt': -1}"),
+    @CompoundIndex(name = "user2_last_message_idx", def = "{'user2Id': 1, 'lastMessageAt': -1}")
+})
 public class Conversation {
     @Id
     private String id;
@@ -12,6 +25,12 @@ public class Conversation {
     private String user2Id;
     private LocalDateTime createdAt;
     private LocalDateTime lastMessageAt;
+    private String lastMessageId;
+    private String lastMessageSenderId;
+    private String lastMessageSnippet;
+    // Keyed by user id
+    private Map<String, Integer> unreadCounts;
+    private Map<String, LocalDateTime> lastReadAt;
 
     public Conversation() {
         this.createdAt = LocalDateTime.now();
@@ -23,6 +42,10 @@ public class Conversation {
         this.user2Id = user2Id;
         this.createdAt = LocalDateTime.now();
         this.lastMessageAt = LocalDateTime.now();
+        // Counted from the start, so a new conversation never needs the backfill for older ones
+        this.unreadCounts = new HashMap<>();
+        this.unreadCounts.put(user1Id, 0);
+        this.unreadCounts.put(user2Id, 0);
     }
 
     // Getters and Setters
@@ -65,4 +88,44 @@ public class Conversation {
     public void setLastMessageAt(LocalDateTime lastMessageAt) {
         this.lastMessageAt = lastMessageAt;
     }
+
+    public String getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(String lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessageSenderId() {
+        return lastMessageSenderId;
+    }
+
+    public void setLastMessageSenderId(String lastMessageSenderId) {
+        this.lastMessageSenderId = lastMessageSenderId;
+    }
+
+    public String getLastMessageSnippet() {
+        return lastMessageSnippet;
+    }
+
+    public void setLastMessageSnippet(String lastMessageSnippet) {
+        this.lastMessageSnippet = lastMessageSnippet;
+    }
+
+    public Map<String, Integer> getUnreadCounts() {
+        return unreadCounts;
+    }
+
+    public void setUnreadCounts(Map<String, Integer> unreadCounts) {
+        this.unreadCounts = unreadCounts;
+    }
+
+    public Map<String, LocalDateTime> getLastReadAt() {
+        return lastReadAt;
+    }
+
+    public void setLastReadAt(Map<String, LocalDateTime> lastReadAt) {
+        this.lastReadAt = lastReadAt;
+    }
 }
\ No newline at end of file
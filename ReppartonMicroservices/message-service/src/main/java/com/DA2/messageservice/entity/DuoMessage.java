@@ -1,10 +1,17 @@
 package com.DA2.messageservice.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "duo_messages")
+@CompoundIndexes({
+    @CompoundIndex(name = "conversation_sent_idx", def = "{'conversationId': 1, 'sentAt': -1, '_id': -1}"),
+    // Unread messages of a receiver, overall or in one conversation
+    @CompoundIndex(name = "receiver_unread_idx", def = "{'receiverId': 1, 'isRead': 1, 'conversationId': 1}")
+})
 public class DuoMessage {
     @Id
     private String id;
@@ -29,6 +29,8 @@ public class GroupConversation {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime lastMessageAt;
+    // Bumped on every membership or settings change; GroupMembershipIndex revalidates against it
+    private long membershipVersion;
 
     // Group settings
     @Builder.Default
@@ -17,6 +17,10 @@ public interface ConversationRepository extends MongoRepository<Conversation, St
     
     @Query("{ $or: [ { 'user1Id': ?0 }, { 'user2Id': ?0 } ] }")
     List<Conversation> findByUserId(String userId);
+
+    // Each branch of the $or uses its own (userNId, lastMessageAt) index and the results are merge-sorted
+    @Query(value = "{ $or: [ { 'user1Id': ?0 }, { 'user2Id': ?0 } ] }", sort = "{ 'lastMessageAt': -1 }")
+    List<Conversation> findInboxByUserId(String userId);
     
     List<Conversation> findByUser1IdOrUser2Id(String user1Id, String user2Id);
 }
\ No newline at end of file
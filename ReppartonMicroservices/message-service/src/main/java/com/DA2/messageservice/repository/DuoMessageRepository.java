@@ -17,4 +17,6 @@ public interface DuoMessageRepository extends MongoRepository<DuoMessage, String
     long countByConversationIdAndIsReadFalseAndReceiverId(String conversationId, String receiverId);
     
     List<DuoMessage> findByReceiverIdAndIsReadFalse(String receiverId);
+
+    long deleteByConversationId(String conversationId);
 }
\ No newline at end of file
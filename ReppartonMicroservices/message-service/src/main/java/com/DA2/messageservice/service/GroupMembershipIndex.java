@@ -0,0 +1,103 @@
+package com.DA2.messageservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Per-group permission views, so permission checks are hash lookups instead of loading the whole group.
+ * Entries are stamped with the group's membershipVersion, which every membership or settings change bumps.
+ * Changes made through this instance invalidate the entry at once; after revalidate-ms an entry is checked
+ * against the stored version with a one-field read and only rebuilt if another instance changed the group.
+ */
+@Component
+@Slf4j
+public class GroupMembershipIndex {
+
+    static final String COLLECTION = "group_conversations";
+    static final String[] FIELDS = {"createdBy", "isPrivate", "messageApprovalType", "membershipVersion",
+            "memberIds", "members.userId", "members.role", "members.canSendMessages", "members.isApproved"};
+
+    private final MongoTemplate mongoTemplate;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped by every invalidation so a load that raced with a change is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${app.group-permissions.revalidate-ms:5000}")
+    private long revalidateMillis;
+
+    @Value("${app.group-permissions.max-groups:2000}")
+    private int maxGroups;
+
+    public GroupMembershipIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Returns the group's permissions, or null if the group does not exist.
+     */
+    public GroupPermissions get(String groupId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(groupId);
+        if (entry != null) {
+            if (entry.checkedAt + revalidateMillis > now) {
+                return entry.permissions;
+            }
+            Long storedVersion = storedVersion(groupId);
+            if (storedVersion != null && storedVersion == entry.permissions.getVersion()) {
+                entries.replace(groupId, entry, new Entry(entry.permissions, now));
+                return entry.permissions;
+            }
+        }
+        return load(groupId, now);
+    }
+
+    public void invalidate(String groupId) {
+        invalidations.incrementAndGet();
+        entries.remove(groupId);
+    }
+
+    private GroupPermissions load(String groupId, long now) {
+        long stamp = invalidations.get();
+        Query query = new Query(where("_id").is(groupId));
+        query.fields().include(FIELDS);
+        Document group = mongoTemplate.findOne(query, Document.class, COLLECTION);
+        if (group == null) {
+            entries.remove(groupId);
+            return null;
+        }
+        GroupPermissions permissions = GroupPermissions.from(group);
+        if (invalidations.get() == stamp) {
+            if (entries.size() >= maxGroups && !entries.containsKey(groupId)) {
+                entries.clear();
+            }
+            entries.put(groupId, new Entry(permissions, now));
+        }
+        log.debug("Loaded permissions of group {} ({} members, version {})",
+                groupId, permissions.getMemberCount(), permissions.getVersion());
+        return permissions;
+    }
+
+    // Null if the group no longer exists
+    private Long storedVersion(String groupId) {
+        Query query = new Query(where("_id").is(groupId));
+        query.fields().include("membershipVersion");
+        Document group = mongoTemplate.findOne(query, Document.class, COLLECTION);
+        if (group == null) {
+            return null;
+        }
+        Number version = group.get("membershipVersion", Number.class);
+        return version != null ? version.longValue() : 0L;
+    }
+
+    private record Entry(GroupPermissions permissions, long checkedAt) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.DA2.messageservice.service;
+
+import com.DA2.messageservice.entity.GroupConversation;
+import com.DA2.messageservice.entity.GroupConversation.GroupMember.GroupMemberRole;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable permission view of one group: settings plus a map from member id to a byte of role and flags.
+ * Every check is a single hash lookup and follows the same rules as the GroupConversation methods.
+ */
+public final class GroupPermissions {
+
+    // Low three bits hold the role (ordinal + 1, 0 = listed in memberIds without a member entry)
+    private static final int ROLE_MASK = 0b0111;
+    private static final int CAN_SEND = 0b1000;
+    private static final int APPROVED = 0b1_0000;
+    private static final GroupMemberRole[] ROLES = GroupMemberRole.values();
+
+    private final String groupId;
+    private final long version;
+    private final String createdBy;
+    private final boolean isPrivate;
+    private final GroupConversation.MessageApprovalType approvalType;
+    private final Map<String, Byte> members;
+
+    private GroupPermissions(String groupId, long version, String createdBy, boolean isPrivate,
+                             GroupConversation.MessageApprovalType approvalType, Map<String, Byte> members) {
+        this.groupId = groupId;
+        this.version = version;
+        this.createdBy = createdBy;
+        this.isPrivate = isPrivate;
+        this.approvalType = approvalType;
+        this.members = members;
+    }
+
+    /**
+     * Builds the view from a raw group_conversations document holding at least the fields in GroupMembershipIndex.FIELDS.
+     */
+    public static GroupPermissions from(Document group) {
+        List<String> memberIds = group.getList("memberIds", String.class, Collections.emptyList());
+        List<Document> memberEntries = group.getList("members", Document.class, Collections.emptyList());
+        Map<String, Byte> members = new HashMap<>((int) ((memberIds.size() + memberEntries.size()) / 0.75f) + 1);
+        for (Document member : memberEntries) {
+            String userId = member.getString("userId");
+            if (userId == null) {
+                continue;
+            }
+            int flags = 0;
+            String role = member.getString("role");
+            if (role != null) {
+                flags |= GroupMemberRole.valueOf(role).ordinal() + 1;
+            }
+            if (!Boolean.FALSE.equals(member.getBoolean("canSendMessages"))) {
+                flags |= CAN_SEND;
+            }
+            if (!Boolean.FALSE.equals(member.getBoolean("isApproved"))) {
+                flags |= APPROVED;
+            }
+            members.put(userId, (byte) flags);
+        }
+        for (String userId : memberIds) {
+            members.putIfAbsent(userId, (byte) 0);
+        }
+
+        String approvalType = group.getString("messageApprovalType");
+        Number version = group.get("membershipVersion", Number.class);
+        return new GroupPermissions(
+                group.get("_id").toString(),
+                version != null ? version.longValue() : 0L,
+                group.getString("createdBy"),
+                Boolean.TRUE.equals(group.getBoolean("isPrivate")),
+                approvalType != null ? GroupConversation.MessageApprovalType.valueOf(approvalType)
+                        : GroupConversation.MessageApprovalType.NONE,
+                members);
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public boolean isPrivate() {
+        return isPrivate;
+    }
+
+    public GroupConversation.MessageApprovalType getApprovalType() {
+        return approvalType;
+    }
+
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    public boolean isMember(String userId) {
+        return members.containsKey(userId);
+    }
+
+    public boolean isOwner(String userId) {
+        return createdBy != null && createdBy.equals(userId);
+    }
+
+    public boolean canSendMessage(String userId) {
+        Byte flags = members.get(userId);
+        GroupMemberRole role = role(flags);
+        if (role == null || (flags & CAN_SEND) == 0) {
+            return false;
+        }
+        switch (approvalType) {
+            case NONE:
+                return true;
+            case MODERATOR:
+                return role == GroupMemberRole.OWNER || role == GroupMemberRole.ADMIN || role == GroupMemberRole.MODERATOR;
+            case ADMIN_ONLY:
+                return role == GroupMemberRole.OWNER || role == GroupMemberRole.ADMIN;
+            default:
+                return false;
+        }
+    }
+
+    public boolean canApproveMessages(String userId) {
+        GroupMemberRole role = role(members.get(userId));
+        return role == GroupMemberRole.OWNER || role == GroupMemberRole.ADMIN || role == GroupMemberRole.MODERATOR;
+    }
+
+    public boolean isAdmin(String userId) {
+        GroupMemberRole role = role(members.get(userId));
+        return role == GroupMemberRole.OWNER || role == GroupMemberRole.ADMIN;
+    }
+
+    // Null when the user has no member entry
+    private static GroupMemberRole role(Byte flags) {
+        if (flags == null) {
+            return null;
+        }
+        int role = flags & ROLE_MASK;
+        return role == 0 ? null : ROLES[role - 1];
+    }
+}
@@ -4,10 +4,16 @@ import com.DA2.messageservice.entity.GroupConversation;
 import com.DA2.messageservice.entity.GroupMessage;
 import com.DA2.messageservice.repository.GroupConversationRepository;
 import com.DA2.messageservice.repository.GroupMessageRepository;
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.mongo.KeysetPaginator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,6 +21,13 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Group conversations. Membership and permission checks go through GroupMembershipIndex; membership and
+ * settings changes are single atomic updates that bump membershipVersion, never a rewrite of the whole
+ * member list, and invalidate the index entry.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -23,6 +36,9 @@ public class GroupService {
     private final GroupConversationRepository groupConversationRepository;
     private final GroupMessageRepository groupMessageRepository;
     private final PermissionService permissionService;
+    private final KeysetPaginator keysetPaginator;
+    private final GroupMembershipIndex membershipIndex;
+    private final MongoTemplate mongoTemplate;
 
     /**
      * Create a new group conversation
@@ -59,13 +75,11 @@ public class GroupService {
      */
     @Transactional
     public boolean addMember(String groupId, String userId, String addedBy) {
-        Optional<GroupConversation> groupOpt = groupConversationRepository.findById(groupId);
-        if (groupOpt.isEmpty()) {
+        GroupPermissions group = membershipIndex.get(groupId);
+        if (group == null) {
             return false;
         }
 
-        GroupConversation group = groupOpt.get();
-
         // Check if adder has permission
         if (!permissionService.canInviteMembers(addedBy, groupId)) {
             log.warn("User {} does not have permission to add members to group {}", addedBy, groupId);
@@ -76,9 +90,19 @@ public class GroupService {
             return true; // Already a member
         }
 
-        group.addMember(userId, GroupConversation.GroupMember.GroupMemberRole.MEMBER);
-        group.setUpdatedAt(LocalDateTime.now());
-        groupConversationRepository.save(group);
+        GroupConversation.GroupMember member = GroupConversation.GroupMember.builder()
+                .userId(userId)
+                .role(GroupConversation.GroupMember.GroupMemberRole.MEMBER)
+                .joinedAt(LocalDateTime.now())
+                .build();
+        // The memberIds condition keeps concurrent adds of the same user from creating two entries
+        mongoTemplate.updateFirst(new Query(where("_id").is(groupId).and("memberIds").ne(userId)),
+                new Update().push("memberIds", userId)
+                        .push("members", member)
+                        .set("updatedAt", LocalDateTime.now())
+                        .inc("membershipVersion", 1),
+                GroupConversation.class);
+        membershipIndex.invalidate(groupId);
 
         log.info("Added user {} to group {} by {}", userId, groupId, addedBy);
         return true;
@@ -89,22 +113,23 @@ public class GroupService {
      */
     @Transactional
     public boolean removeMember(String groupId, String userId, String removedBy) {
-        Optional<GroupConversation> groupOpt = groupConversationRepository.findById(groupId);
-        if (groupOpt.isEmpty()) {
+        if (membershipIndex.get(groupId) == null) {
             return false;
         }
 
-        GroupConversation group = groupOpt.get();
-
         // Check if remover has permission
         if (!permissionService.canRemoveMember(removedBy, groupId, userId)) {
             log.warn("User {} does not have permission to remove user {} from group {}", removedBy, userId, groupId);
             return false;
         }
 
-        group.removeMember(userId);
-        group.setUpdatedAt(LocalDateTime.now());
-        groupConversationRepository.save(group);
+        mongoTemplate.updateFirst(new Query(where("_id").is(groupId)),
+                new Update().pull("memberIds", userId)
+                        .pull("members", new Document("userId", userId))
+                        .set("updatedAt", LocalDateTime.now())
+                        .inc("membershipVersion", 1),
+                GroupConversation.class);
+        membershipIndex.invalidate(groupId);
 
         log.info("Removed user {} from group {} by {}", userId, groupId, removedBy);
         return true;
@@ -115,13 +140,11 @@ public class GroupService {
      */
     @Transactional
     public GroupMessage sendMessage(String groupId, String senderId, String content, GroupMessage.MessageType messageType) {
-        Optional<GroupConversation> groupOpt = groupConversationRepository.findById(groupId);
-        if (groupOpt.isEmpty()) {
+        GroupPermissions group = membershipIndex.get(groupId);
+        if (group == null) {
             throw new IllegalArgumentException("Group not found");
         }
 
-        GroupConversation group = groupOpt.get();
-
         // Check if sender is a member
         if (!group.isMember(senderId)) {
             throw new IllegalArgumentException("User is not a member of this group");
@@ -130,8 +153,8 @@ public class GroupService {
         GroupMessage.MessageStatus initialStatus = GroupMessage.MessageStatus.APPROVED;
 
         // Check if message needs approval
-        if (group.getMessageApprovalType() != GroupConversation.MessageApprovalType.NONE) {
-            if (!permissionService.canSendMessage(senderId, groupId)) {
+        if (group.getApprovalType() != GroupConversation.MessageApprovalType.NONE) {
+            if (!group.canSendMessage(senderId)) {
                 initialStatus = GroupMessage.MessageStatus.PENDING;
             }
         }
@@ -148,8 +171,8 @@ public class GroupService {
         GroupMessage savedMessage = groupMessageRepository.save(message);
 
         // Update group's last message time
-        group.setLastMessageAt(LocalDateTime.now());
-        groupConversationRepository.save(group);
+        mongoTemplate.updateFirst(new Query(where("_id").is(groupId)),
+                new Update().max("lastMessageAt", savedMessage.getSentAt()), GroupConversation.class);
 
         log.info("Message sent to group {} by user {} with status {}", groupId, senderId, initialStatus);
         return savedMessage;
@@ -188,21 +211,19 @@ public class GroupService {
     /**
      * Get approved messages for a group
      */
-    public List<GroupMessage> getMessages(String groupId, String userId, int page, int size) {
-        Optional<GroupConversation> groupOpt = groupConversationRepository.findById(groupId);
-        if (groupOpt.isEmpty()) {
+    public CursorPage<GroupMessage> getMessages(String groupId, String userId, String cursor, int size) {
+        GroupPermissions group = membershipIndex.get(groupId);
+        if (group == null) {
             throw new IllegalArgumentException("Group not found");
         }
 
-        GroupConversation group = groupOpt.get();
-
         // Check if user is a member
         if (!group.isMember(userId)) {
             throw new IllegalArgumentException("User is not a member of this group");
         }
 
-        Pageable pageable = PageRequest.of(page, size);
-        return groupMessageRepository.findByGroupConversationIdOrderBySentAtDesc(groupId, pageable);
+        return keysetPaginator.page(Criteria.where("groupConversationId").is(groupId), GroupMessage.class, "sentAt",
+                Sort.Direction.DESC, cursor, size, GroupMessage::getSentAt, GroupMessage::getId);
     }
 
     /**
@@ -224,32 +245,42 @@ public class GroupService {
         return groupConversationRepository.findByMemberId(userId);
     }
 
+    /**
+     * Get one group, if the user is a member of it
+     */
+    public Optional<GroupConversation> getGroup(String groupId, String userId) {
+        GroupPermissions group = membershipIndex.get(groupId);
+        if (group == null || !group.isMember(userId)) {
+            return Optional.empty();
+        }
+        return groupConversationRepository.findById(groupId);
+    }
+
     /**
      * Update group settings
      */
     @Transactional
     public boolean updateGroupSettings(String groupId, String userId, String name, String description,
                                      GroupConversation.MessageApprovalType approvalType, boolean isPrivate) {
-        Optional<GroupConversation> groupOpt = groupConversationRepository.findById(groupId);
-        if (groupOpt.isEmpty()) {
+        if (membershipIndex.get(groupId) == null) {
             return false;
         }
 
-        GroupConversation group = groupOpt.get();
-
         // Check if user can edit settings
         if (!permissionService.canEditGroupSettings(userId, groupId)) {
             log.warn("User {} does not have permission to edit group {} settings", userId, groupId);
             return false;
         }
 
-        group.setName(name);
-        group.setDescription(description);
-        group.setMessageApprovalType(approvalType);
-        group.setPrivate(isPrivate);
-        group.setUpdatedAt(LocalDateTime.now());
-
-        groupConversationRepository.save(group);
+        mongoTemplate.updateFirst(new Query(where("_id").is(groupId)),
+                new Update().set("name", name)
+                        .set("description", description)
+                        .set("messageApprovalType", approvalType)
+                        .set("isPrivate", isPrivate)
+                        .set("updatedAt", LocalDateTime.now())
+                        .inc("membershipVersion", 1),
+                GroupConversation.class);
+        membershipIndex.invalidate(groupId);
         log.info("Group {} settings updated by user {}", groupId, userId);
         return true;
     }
@@ -6,28 +6,48 @@ import com.DA2.messageservice.dto.ConversationDTO;
 import com.DA2.messageservice.dto.UserDTO;
 import com.DA2.messageservice.repository.ConversationRepository;
 import com.DA2.messageservice.repository.DuoMessageRepository;
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.dto.UserSummary;
+import com.DA2.shared.mongo.KeysetPaginator;
+import com.mongodb.client.result.UpdateResult;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class MessageService {
 
+    private static final int SNIPPET_LENGTH = 120;
+
     @Autowired
     private ConversationRepository conversationRepository;
 
     @Autowired
     private DuoMessageRepository messageRepository;
 
-    @Autowired(required = false)
-    private UserServiceClient userServiceClient;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KeysetPaginator keysetPaginator;
+
+    @Autowired
+    private UserSummaryLoader userSummaryLoader;
 
     // Get or create conversation
     @Transactional
@@ -48,98 +68,191 @@ public class MessageService {
     public DuoMessage sendMessage(String senderId, String receiverId, String content) {
         // Get or create conversation
         Conversation conversation = getOrCreateConversation(senderId, receiverId);
-        
-        // Update last message time
-        conversation.setLastMessageAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
-        
+
         // Create and save message
-        DuoMessage message = new DuoMessage(conversation.getId(), senderId, receiverId, content);
-        return messageRepository.save(message);
+        DuoMessage message = messageRepository.save(new DuoMessage(conversation.getId(), senderId, receiverId, content));
+        recordSent(conversation, message);
+        return message;
     }
 
-    // Get messages in conversation
-    public List<DuoMessage> getMessages(String conversationId) {
-        return messageRepository.findByConversationIdOrderBySentAtAsc(conversationId);
+    // Get messages in conversation: latest page first, the cursor walks back through older history.
+    // Each page is returned oldest first for display
+    public CursorPage<DuoMessage> getMessages(String conversationId, String cursor, int size) {
+        CursorPage<DuoMessage> page = keysetPaginator.page(Criteria.where("conversationId").is(conversationId),
+                DuoMessage.class, "sentAt", Sort.Direction.DESC, cursor, size, DuoMessage::getSentAt, DuoMessage::getId);
+        Collections.reverse(page.getContent());
+        applyWatermarks(conversationId, page.getContent());
+        return page;
     }
 
     // Get user's conversations
+    // Newest first; everything shown in the inbox comes from the conversation summaries
     public List<ConversationDTO> getUserConversations(String userId) {
-        List<Conversation> conversations = conversationRepository.findByUserId(userId);
+        List<Conversation> conversations = conversationRepository.findInboxByUserId(userId);
         List<ConversationDTO> result = new ArrayList<>();
-        
+
+        // Every participant is resolved in one batch call to user-service
+        Set<String> participantIds = new HashSet<>();
         for (Conversation conv : conversations) {
-            try {
-                UserDTO user1 = getUserInfo(conv.getUser1Id());
-                UserDTO user2 = getUserInfo(conv.getUser2Id());
-                result.add(new ConversationDTO(conv.getId(), user1, user2));
-            } catch (Exception e) {
-                // If user service is unavailable, create basic DTOs
-                UserDTO user1 = new UserDTO(conv.getUser1Id(), "Unknown", "Unknown", null);
-                UserDTO user2 = new UserDTO(conv.getUser2Id(), "Unknown", "Unknown", null);
-                result.add(new ConversationDTO(conv.getId(), user1, user2));
-            }
+            participantIds.add(conv.getUser1Id());
+            participantIds.add(conv.getUser2Id());
         }
-        
+        Map<String, UserSummary> participants = userSummaryLoader.load(participantIds);
+
+        for (Conversation conv : conversations) {
+            UserDTO user1 = toUserDTO(conv.getUser1Id(), participants.get(conv.getUser1Id()));
+            UserDTO user2 = toUserDTO(conv.getUser2Id(), participants.get(conv.getUser2Id()));
+            ConversationDTO dto = new ConversationDTO(conv.getId(), user1, user2);
+            dto.setLastMessage(conv.getLastMessageSnippet());
+            dto.setLastMessageSenderId(conv.getLastMessageSenderId());
+            dto.setLastMessageAt(conv.getLastMessageAt());
+            dto.setUnreadCount(unreadCount(conv, userId));
+            result.add(dto);
+        }
+
         return result;
     }
 
-    // Mark message as read
+    // Mark message as read; only the call that actually flips the flag lowers the unread count, and only
+    // for a message the receiver's watermark did not already cover
     @Transactional
     public void markAsRead(String messageId) {
-        Optional<DuoMessage> messageOpt = messageRepository.findById(messageId);
-        if (messageOpt.isPresent()) {
-            DuoMessage message = messageOpt.get();
-            message.setRead(true);
-            messageRepository.save(message);
+        DuoMessage message = mongoTemplate.findAndModify(
+                new Query(where("_id").is(messageId).and("isRead").is(false)),
+                new Update().set("isRead", true),
+                DuoMessage.class);
+        if (message != null) {
+            String field = "unreadCounts." + message.getReceiverId();
+            String watermark = "lastReadAt." + message.getReceiverId();
+            mongoTemplate.updateFirst(new Query(where("_id").is(message.getConversationId()).and(field).gt(0)
+                            .orOperator(where(watermark).exists(false), where(watermark).lt(message.getSentAt()))),
+                    new Update().inc(field, -1), Conversation.class);
         }
     }
 
-    // Mark all messages in conversation as read
+    // Mark all messages in conversation as read: one update of the conversation moves the user's watermark
+    // forward and resets their count; the messages themselves are not written
     @Transactional
     public void markConversationAsRead(String conversationId, String userId) {
-        List<DuoMessage> messages = messageRepository.findByConversationIdOrderBySentAtAsc(conversationId);
-        for (DuoMessage message : messages) {
-            if (message.getReceiverId().equals(userId) && !message.isRead()) {
-                message.setRead(true);
-                messageRepository.save(message);
-            }
-        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(conversationId)),
+                new Update().max("lastReadAt." + userId, LocalDateTime.now())
+                        .set("unreadCounts." + userId, 0),
+                Conversation.class);
     }
 
     // Get unread message count
     public long getUnreadCount(String conversationId, String userId) {
+        Query query = new Query(where("_id").is(conversationId));
+        query.fields().include("unreadCounts." + userId);
+        Conversation conversation = mongoTemplate.findOne(query, Conversation.class);
+        if (conversation != null && conversation.getUnreadCounts() != null
+                && conversation.getUnreadCounts().get(userId) != null) {
+            return Math.max(0, conversation.getUnreadCounts().get(userId));
+        }
         return messageRepository.countByConversationIdAndIsReadFalseAndReceiverId(conversationId, userId);
     }
 
-    // Get all unread messages for user
+    // Get all unread messages for user: those after the user's watermark in each conversation that still has
+    // unread messages, less the ones marked read one by one
     public List<DuoMessage> getUnreadMessages(String userId) {
-        return messageRepository.findByReceiverIdAndIsReadFalse(userId);
+        List<Criteria> conversations = new ArrayList<>();
+        for (Conversation conv : conversationRepository.findInboxByUserId(userId)) {
+            if (unreadCount(conv, userId) == 0) {
+                continue;
+            }
+            LocalDateTime watermark = conv.getLastReadAt() != null ? conv.getLastReadAt().get(userId) : null;
+            Criteria clause = where("conversationId").is(conv.getId());
+            conversations.add(watermark != null ? clause.and("sentAt").gt(watermark) : clause);
+        }
+        if (conversations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Query query = new Query(where("receiverId").is(userId).and("isRead").is(false)
+                .orOperator(conversations.toArray(new Criteria[0])));
+        return mongoTemplate.find(query.with(Sort.by("sentAt")), DuoMessage.class);
     }
 
     // Delete conversation
     @Transactional
     public void deleteConversation(String conversationId) {
-        List<DuoMessage> messages = messageRepository.findByConversationIdOrderBySentAtAsc(conversationId);
-        messageRepository.deleteAll(messages);
+        messageRepository.deleteByConversationId(conversationId);
         conversationRepository.deleteById(conversationId);
     }
 
-    // Helper method to get user info from user service
-    private UserDTO getUserInfo(String userId) {
-        if (userServiceClient != null) {
-            try {
-                return userServiceClient.getUserById(userId);
-            } catch (Exception e) {
-                System.err.println("Failed to fetch user info: " + e.getMessage());
+    // The receiver's unread count goes up and the summary moves to this message in one update, unless a newer
+    // message was recorded first, in which case a second update changes only the count. A conversation from
+    // before summaries first gets the receiver's count backfilled (a count and a conditional $set)
+    private void recordSent(Conversation conversation, DuoMessage message) {
+        String conversationId = conversation.getId();
+        String unreadField = "unreadCounts." + message.getReceiverId();
+        // $inc would create the field from 1 on conversations written before summaries, hiding their older
+        // unread messages from the backfill in unreadCount, so count those first
+        if (conversation.getUnreadCounts() == null || !conversation.getUnreadCounts().containsKey(message.getReceiverId())) {
+            long older = mongoTemplate.count(new Query(where("conversationId").is(conversationId)
+                    .and("receiverId").is(message.getReceiverId()).and("isRead").is(false)
+                    .and("_id").ne(message.getId())), DuoMessage.class);
+            mongoTemplate.updateFirst(new Query(where("_id").is(conversationId).and(unreadField).exists(false)),
+                    new Update().set(unreadField, (int) older), Conversation.class);
+        }
+        UpdateResult result = mongoTemplate.updateFirst(
+                new Query(where("_id").is(conversationId).and("lastMessageAt").lte(message.getSentAt())),
+                new Update().inc(unreadField, 1)
+                        .set("lastMessageAt", message.getSentAt())
+                        .set("lastMessageId", message.getId())
+                        .set("lastMessageSenderId", message.getSenderId())
+                        .set("lastMessageSnippet", snippet(message.getMessage())),
+                Conversation.class);
+        if (result.getMatchedCount() == 0) {
+            mongoTemplate.updateFirst(new Query(where("_id").is(conversationId)),
+                    new Update().inc(unreadField, 1), Conversation.class);
+        }
+    }
+
+    // Conversations written before summaries existed get their count from the messages once
+    private int unreadCount(Conversation conversation, String userId) {
+        Integer count = conversation.getUnreadCounts() != null ? conversation.getUnreadCounts().get(userId) : null;
+        if (count != null) {
+            return Math.max(0, count);
+        }
+        String field = "unreadCounts." + userId;
+        int unread = (int) messageRepository.countByConversationIdAndIsReadFalseAndReceiverId(conversation.getId(), userId);
+        mongoTemplate.updateFirst(new Query(where("_id").is(conversation.getId()).and(field).exists(false)),
+                new Update().set(field, unread), Conversation.class);
+        return unread;
+    }
+
+    // Messages sent up to the receiver's watermark are read, whatever their own flag says
+    private void applyWatermarks(String conversationId, List<DuoMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Query query = new Query(where("_id").is(conversationId));
+        query.fields().include("lastReadAt");
+        Conversation conversation = mongoTemplate.findOne(query, Conversation.class);
+        if (conversation == null || conversation.getLastReadAt() == null) {
+            return;
+        }
+        for (DuoMessage message : messages) {
+            LocalDateTime watermark = conversation.getLastReadAt().get(message.getReceiverId());
+            if (watermark != null && !message.getSentAt().isAfter(watermark)) {
+                message.setRead(true);
             }
         }
-        return new UserDTO(userId, "Unknown", "Unknown", null);
     }
 
-    @FeignClient(name = "user-service")
-    interface UserServiceClient {
-        @GetMapping("/api/users/{id}")
-        UserDTO getUserById(@PathVariable("id") String id);
+    private static String snippet(String content) {
+        if (content == null || content.length() <= SNIPPET_LENGTH) {
+            return content;
+        }
+        int end = Character.isHighSurrogate(content.charAt(SNIPPET_LENGTH - 1)) ? SNIPPET_LENGTH - 1 : SNIPPET_LENGTH;
+        return content.substring(0, end);
+    }
+
+    // Falls back to a placeholder when the user is unknown or user-service is unavailable
+    private UserDTO toUserDTO(String userId, UserSummary summary) {
+        if (summary == null) {
+            return new UserDTO(userId, "Unknown", "Unknown", null);
+        }
+        return new UserDTO(userId, summary.getUsername(), summary.getFullName(), summary.getAvatarUrl());
     }
 }
\ No newline at end of file
@@ -1,56 +1,57 @@
 package com.DA2.messageservice.service;
 
-import com.DA2.messageservice.entity.GroupConversation;
 import com.DA2.messageservice.entity.GroupMessage;
-import com.DA2.messageservice.repository.GroupConversationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+/**
+ * Group permission checks, answered from GroupMembershipIndex without reading the group document.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PermissionService {
 
-    private final GroupConversationRepository groupConversationRepository;
+    private final GroupMembershipIndex membershipIndex;
 
     /**
      * Check if user can send messages in the group
      */
     public boolean canSendMessage(String userId, String groupId) {
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             log.warn("Group not found: {}", groupId);
             return false;
         }
 
-        return group.canUserSendMessage(userId);
+        return group.canSendMessage(userId);
     }
 
     /**
      * Check if user can approve/reject messages in the group
      */
     public boolean canApproveMessages(String userId, String groupId) {
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             log.warn("Group not found: {}", groupId);
             return false;
         }
 
-        return group.canUserApproveMessages(userId);
+        return group.canApproveMessages(userId);
     }
 
     /**
      * Check if user is admin (owner or admin) of the group
      */
     public boolean isAdmin(String userId, String groupId) {
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             log.warn("Group not found: {}", groupId);
             return false;
         }
 
-        return group.isUserAdmin(userId);
+        return group.isAdmin(userId);
     }
 
     /**
@@ -77,27 +78,27 @@ public class PermissionService {
      * Check if user can edit group settings
      */
     public boolean canEditGroupSettings(String userId, String groupId) {
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             return false;
         }
 
         // Only creator (owner) can edit group settings
-        return group.getCreatedBy().equals(userId);
+        return group.isOwner(userId);
     }
 
     /**
      * Check if user can invite members to the group
      */
     public boolean canInviteMembers(String userId, String groupId) {
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             return false;
         }
 
         // For private groups, only admins can invite
         if (group.isPrivate()) {
-            return isAdmin(userId, groupId);
+            return group.isAdmin(userId);
         }
 
         // For public groups, any member can invite
@@ -113,13 +114,13 @@ public class PermissionService {
             return false;
         }
 
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             return false;
         }
 
         // Only admins can remove members
-        return isAdmin(userId, groupId);
+        return group.isAdmin(userId);
     }
 
     /**
@@ -131,13 +132,13 @@ public class PermissionService {
             return false;
         }
 
-        GroupConversation group = groupConversationRepository.findById(groupId).orElse(null);
+        GroupPermissions group = membershipIndex.get(groupId);
         if (group == null) {
             return false;
         }
 
         // Only owner can change roles
-        return group.getCreatedBy().equals(userId);
+        return group.isOwner(userId);
     }
 
     /**
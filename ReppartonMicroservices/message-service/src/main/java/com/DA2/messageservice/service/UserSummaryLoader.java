@@ -0,0 +1,120 @@
+package com.DA2.messageservice.service;
+
+import com.DA2.messageservice.client.UserServiceClient;
+import com.DA2.shared.dto.UserSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves user display fields from user-service.
+ * Lookups go through a memo for the current request, then a small near-cache with a TTL,
+ * and whatever is left is fetched in batch calls of at most 500 ids instead of one call per user.
+ * user-service publishes no profile-change events, so the TTL bounds how stale a name or avatar can get.
+ */
+@Component
+public class UserSummaryLoader {
+
+    private static final String MEMO_ATTRIBUTE = UserSummaryLoader.class.getName() + ".memo";
+    // user-service rejects larger batches (UserSummaryService.MAX_IDS)
+    static final int MAX_IDS_PER_CALL = 500;
+
+    @Autowired(required = false)
+    private UserServiceClient userServiceClient;
+
+    @Value("${app.user-summary.ttl-ms:60000}")
+    private long ttlMillis;
+
+    @Value("${app.user-summary.max-entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<String, CachedSummary> nearCache = new ConcurrentHashMap<>();
+
+    // Ids that cannot be resolved, or every id if user-service is down, are absent from the result
+    public Map<String, UserSummary> load(Collection<String> userIds) {
+        Map<String, UserSummary> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        Map<String, UserSummary> memo = requestMemo();
+        long now = System.currentTimeMillis();
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId == null || result.containsKey(userId)) {
+                continue;
+            }
+            UserSummary summary = memo != null ? memo.get(userId) : null;
+            if (summary == null) {
+                CachedSummary cached = nearCache.get(userId);
+                if (cached != null && cached.expiresAt > now) {
+                    summary = cached.summary;
+                }
+            }
+            if (summary != null) {
+                result.put(userId, summary);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty() && userServiceClient != null) {
+            List<String> ids = new ArrayList<>(missing);
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_CALL) {
+                List<String> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_CALL, ids.size()));
+                try {
+                    for (UserSummary summary : userServiceClient.getSummaries(chunk)) {
+                        result.put(summary.getId(), summary);
+                        cache(summary, now);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Failed to fetch " + chunk.size() + " user summaries: " + e.getMessage());
+                }
+            }
+        }
+
+        if (memo != null) {
+            memo.putAll(result);
+        }
+        return result;
+    }
+
+    private void cache(UserSummary summary, long now) {
+        if (nearCache.size() >= maxEntries) {
+            nearCache.values().removeIf(cached -> cached.expiresAt <= now);
+            if (nearCache.size() >= maxEntries) {
+                nearCache.clear();
+            }
+        }
+        nearCache.put(summary.getId(), new CachedSummary(summary, now + ttlMillis));
+    }
+
+    // Null outside a web request
+    @SuppressWarnings("unchecked")
+    private static Map<String, UserSummary> requestMemo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, UserSummary> memo = (Map<String, UserSummary>) attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new ConcurrentHashMap<>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+
+    private record CachedSummary(UserSummary summary, long expiresAt) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.DA2.messageservice.loadtest;
+
+import com.DA2.messageservice.entity.GroupConversation;
+import com.DA2.messageservice.entity.GroupConversation.GroupMember.GroupMemberRole;
+import com.DA2.messageservice.service.GroupPermissions;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cost of the permission checks made for one group message, legacy entity scan versus GroupPermissions.
+ * Usage: GroupPermissionBenchmark [members] [checks]
+ * Legacy: isMember and canUserSendMessage are linear scans of memberIds / members, and each check also
+ * re-read the whole group document from MongoDB (its BSON size is printed; the round trip is not timed).
+ * Indexed: one hash lookup per check on a view built once.
+ */
+public class GroupPermissionBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int memberCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int checks = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Random random = new Random(42);
+
+        GroupConversation group = GroupConversation.builder()
+                .id("group-1")
+                .name("benchmark")
+                .createdBy("user-0")
+                .messageApprovalType(GroupConversation.MessageApprovalType.MODERATOR)
+                .build();
+        List<Document> members = new ArrayList<>(memberCount);
+        List<String> memberIds = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            String userId = "user-" + i;
+            GroupMemberRole role = i == 0 ? GroupMemberRole.OWNER
+                    : i % 500 == 0 ? GroupMemberRole.ADMIN
+                    : i % 100 == 0 ? GroupMemberRole.MODERATOR
+                    : GroupMemberRole.MEMBER;
+            group.addMember(userId, role);
+            memberIds.add(userId);
+            members.add(new Document("userId", userId).append("role", role.name())
+                    .append("isApproved", true).append("canSendMessages", true));
+        }
+        Document document = new Document("_id", "group-1")
+                .append("createdBy", "user-0")
+                .append("messageApprovalType", "MODERATOR")
+                .append("isPrivate", false)
+                .append("membershipVersion", 1L)
+                .append("memberIds", memberIds)
+                .append("members", members);
+
+        long buildStart = System.nanoTime();
+        GroupPermissions permissions = GroupPermissions.from(document);
+        long buildNanos = System.nanoTime() - buildStart;
+        int documentBytes = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+
+        // Every 10th sender is not a member, so misses (full scans) are part of the mix
+        String[] senders = new String[checks];
+        for (int i = 0; i < checks; i++) {
+            senders[i] = "user-" + random.nextInt(memberCount + memberCount / 10);
+        }
+
+        System.out.printf("Group permission benchmark: %d members, %d sends, group document %d KB, view built in %.2f ms%n",
+                memberCount, checks, documentBytes / 1024, buildNanos / 1e6);
+        System.out.println("==========================================================");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean report = round == ROUNDS - 1;
+
+            int allowed = 0;
+            long start = System.nanoTime();
+            for (String sender : senders) {
+                // GroupService.sendMessage: membership, then PermissionService.canSendMessage
+                if (group.isMember(sender) && group.canUserSendMessage(sender)) {
+                    allowed++;
+                }
+            }
+            long legacy = System.nanoTime() - start;
+
+            int allowedIndexed = 0;
+            start = System.nanoTime();
+            for (String sender : senders) {
+                if (permissions.isMember(sender) && permissions.canSendMessage(sender)) {
+                    allowedIndexed++;
+                }
+            }
+            long indexed = System.nanoTime() - start;
+
+            if (allowed != allowedIndexed) {
+                throw new IllegalStateException("Results differ: " + allowed + " vs " + allowedIndexed);
+            }
+            if (report) {
+                print("Legacy (scan, +2 document reads)", legacy, checks);
+                print("Indexed (hash lookup, no reads)", indexed, checks);
+                System.out.printf("Speed-up: %.0fx, %d of %d senders may post without approval%n",
+                        (double) legacy / indexed, allowed, checks);
+                System.out.printf("MongoDB bytes per send: legacy %d KB, indexed 0%n", 2 * documentBytes / 1024);
+            }
+        }
+    }
+
+    private static void print(String name, long elapsedNanos, int checks) {
+        System.out.printf("%-34s %10.3f us/send  %12.0f sends/s%n",
+                name, elapsedNanos / 1e3 / checks, checks / (elapsedNanos / 1e9));
+    }
+}
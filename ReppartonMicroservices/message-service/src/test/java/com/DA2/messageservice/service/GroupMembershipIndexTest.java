@@ -0,0 +1,104 @@
+package com.DA2.messageservice.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GroupMembershipIndexTest {
+
+    private final Map<String, Document> groups = new HashMap<>();
+    private int fullReads;
+    private int versionReads;
+    private GroupMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(GroupMembershipIndex.COLLECTION)))
+                .thenAnswer(invocation -> {
+                    Query query = invocation.getArgument(0);
+                    if (query.getFieldsObject().containsKey("memberIds")) {
+                        fullReads++;
+                    } else {
+                        versionReads++;
+                    }
+                    return groups.get(query.getQueryObject().getString("_id"));
+                });
+        index = new GroupMembershipIndex(mongoTemplate);
+        ReflectionTestUtils.setField(index, "revalidateMillis", 60_000L);
+        ReflectionTestUtils.setField(index, "maxGroups", 10);
+        store("g1", 1, "alice");
+    }
+
+    @Test
+    void servesRepeatedChecksFromTheCache() {
+        GroupPermissions first = index.get("g1");
+        assertSame(first, index.get("g1"));
+
+        assertTrue(first.isMember("alice"));
+        assertEquals(1, fullReads);
+        assertEquals(0, versionReads);
+    }
+
+    @Test
+    void invalidateForcesAReload() {
+        index.get("g1");
+        store("g1", 2, "alice", "bob");
+        assertFalse(index.get("g1").isMember("bob"));
+
+        index.invalidate("g1");
+        assertTrue(index.get("g1").isMember("bob"));
+        assertEquals(2, fullReads);
+    }
+
+    @Test
+    void revalidationOnlyReloadsWhenTheVersionChanged() {
+        ReflectionTestUtils.setField(index, "revalidateMillis", 0L);
+        GroupPermissions first = index.get("g1");
+
+        assertSame(first, index.get("g1"));
+        assertEquals(1, fullReads);
+        assertEquals(1, versionReads);
+
+        // Another instance added bob and bumped the version
+        store("g1", 2, "alice", "bob");
+        GroupPermissions reloaded = index.get("g1");
+        assertTrue(reloaded.isMember("bob"));
+        assertEquals(2, reloaded.getVersion());
+        assertEquals(2, fullReads);
+        assertEquals(2, versionReads);
+    }
+
+    @Test
+    void missingGroupIsNullAndNotCached() {
+        assertNull(index.get("missing"));
+        store("missing", 1, "carol");
+        assertTrue(index.get("missing").isMember("carol"));
+        assertEquals(2, fullReads);
+    }
+
+    private void store(String groupId, long version, String... memberIds) {
+        groups.put(groupId, new Document("_id", groupId)
+                .append("createdBy", memberIds[0])
+                .append("messageApprovalType", "NONE")
+                .append("membershipVersion", version)
+                .append("memberIds", List.of(memberIds)));
+    }
+}
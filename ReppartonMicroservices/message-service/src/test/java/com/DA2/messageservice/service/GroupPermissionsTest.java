@@ -0,0 +1,98 @@
+package com.DA2.messageservice.service;
+
+import com.DA2.messageservice.entity.GroupConversation;
+import com.DA2.messageservice.entity.GroupConversation.GroupMember;
+import com.DA2.messageservice.entity.GroupConversation.GroupMember.GroupMemberRole;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupPermissionsTest {
+
+    private static final List<String> USERS = List.of("owner", "admin", "moderator", "member", "muted", "listed", "stranger");
+
+    @Test
+    void checksAgreeWithTheEntityForEveryApprovalType() {
+        for (GroupConversation.MessageApprovalType approvalType : GroupConversation.MessageApprovalType.values()) {
+            GroupConversation group = group(approvalType);
+            GroupPermissions permissions = GroupPermissions.from(document(group));
+
+            assertEquals(approvalType, permissions.getApprovalType());
+            for (String userId : USERS) {
+                String message = approvalType + "/" + userId;
+                assertEquals(group.isMember(userId), permissions.isMember(userId), message);
+                assertEquals(group.canUserSendMessage(userId), permissions.canSendMessage(userId), message);
+                assertEquals(group.canUserApproveMessages(userId), permissions.canApproveMessages(userId), message);
+                assertEquals(group.isUserAdmin(userId), permissions.isAdmin(userId), message);
+            }
+        }
+    }
+
+    @Test
+    void readsGroupSettings() {
+        GroupConversation group = group(GroupConversation.MessageApprovalType.MODERATOR);
+        group.setPrivate(true);
+        group.setMembershipVersion(7);
+        GroupPermissions permissions = GroupPermissions.from(document(group));
+
+        assertEquals("group-1", permissions.getGroupId());
+        assertEquals(7, permissions.getVersion());
+        assertTrue(permissions.isPrivate());
+        assertTrue(permissions.isOwner("owner"));
+        assertFalse(permissions.isOwner("admin"));
+        assertEquals(6, permissions.getMemberCount());
+    }
+
+    @Test
+    void missingFieldsFallBackToDefaults() {
+        GroupPermissions permissions = GroupPermissions.from(new Document("_id", "group-2")
+                .append("memberIds", List.of("someone")));
+
+        assertEquals(0, permissions.getVersion());
+        assertFalse(permissions.isPrivate());
+        assertEquals(GroupConversation.MessageApprovalType.NONE, permissions.getApprovalType());
+        assertTrue(permissions.isMember("someone"));
+        assertFalse(permissions.canSendMessage("someone"));
+    }
+
+    private static GroupConversation group(GroupConversation.MessageApprovalType approvalType) {
+        GroupConversation group = GroupConversation.builder()
+                .id("group-1")
+                .createdBy("owner")
+                .messageApprovalType(approvalType)
+                .build();
+        group.addMember("owner", GroupMemberRole.OWNER);
+        group.addMember("admin", GroupMemberRole.ADMIN);
+        group.addMember("moderator", GroupMemberRole.MODERATOR);
+        group.addMember("member", GroupMemberRole.MEMBER);
+        group.addMember("muted", GroupMemberRole.MODERATOR);
+        group.getMembers().get(4).setCanSendMessages(false);
+        // Listed in memberIds but without a member entry
+        group.getMemberIds().add("listed");
+        return group;
+    }
+
+    // The raw shape GroupMembershipIndex reads back from MongoDB
+    private static Document document(GroupConversation group) {
+        List<Document> members = new ArrayList<>();
+        for (GroupMember member : group.getMembers()) {
+            members.add(new Document("userId", member.getUserId())
+                    .append("role", member.getRole().name())
+                    .append("isApproved", member.isApproved())
+                    .append("canSendMessages", member.isCanSendMessages()));
+        }
+        return new Document("_id", group.getId())
+                .append("createdBy", group.getCreatedBy())
+                .append("isPrivate", group.isPrivate())
+                .append("messageApprovalType", group.getMessageApprovalType().name())
+                .append("membershipVersion", group.getMembershipVersion())
+                .append("memberIds", group.getMemberIds())
+                .append("members", members);
+    }
+}
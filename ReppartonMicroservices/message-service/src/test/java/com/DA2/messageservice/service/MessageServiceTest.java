@@ -0,0 +1,185 @@
+package com.DA2.messageservice.service;
+
+import com.DA2.messageservice.entity.Conversation;
+import com.DA2.messageservice.entity.DuoMessage;
+import com.DA2.messageservice.repository.ConversationRepository;
+import com.DA2.messageservice.repository.DuoMessageRepository;
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.mongo.KeysetPaginator;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageServiceTest {
+
+    private ConversationRepository conversationRepository;
+    private MongoTemplate mongoTemplate;
+    private MessageService service;
+
+    @BeforeEach
+    void setUp() {
+        conversationRepository = mock(ConversationRepository.class);
+        DuoMessageRepository messageRepository = mock(DuoMessageRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        service = new MessageService();
+        ReflectionTestUtils.setField(service, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(service, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        when(messageRepository.save(any(DuoMessage.class))).thenAnswer(invocation -> {
+            DuoMessage message = invocation.getArgument(0);
+            message.setId("m1");
+            return message;
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Conversation.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @Test
+    void legacyConversationIsBackfilledBeforeTheFirstIncrement() {
+        Conversation legacy = conversation(null);
+        when(conversationRepository.findByUsers("alice", "bob")).thenReturn(Optional.of(legacy));
+        when(mongoTemplate.count(any(Query.class), eq(DuoMessage.class))).thenReturn(4L);
+
+        service.sendMessage("alice", "bob", "hi");
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        inOrder(mongoTemplate).verify(mongoTemplate).count(any(Query.class), eq(DuoMessage.class));
+        verify(mongoTemplate, times(2))
+                .updateFirst(queries.capture(), updates.capture(), eq(Conversation.class));
+        List<Update> all = updates.getAllValues();
+        assertEquals(4, ((Document) all.get(0).getUpdateObject().get("$set")).get("unreadCounts.bob"));
+        assertEquals(Map.of("$exists", false),
+                queries.getAllValues().get(0).getQueryObject().get("unreadCounts.bob"));
+        assertEquals(1, ((Document) all.get(1).getUpdateObject().get("$inc")).get("unreadCounts.bob"));
+    }
+
+    @Test
+    void countedConversationIsOnlyIncremented() {
+        Map<String, Integer> counts = new HashMap<>(Map.of("alice", 0, "bob", 2));
+        when(conversationRepository.findByUsers("alice", "bob")).thenReturn(Optional.of(conversation(counts)));
+
+        service.sendMessage("alice", "bob", "hi");
+
+        verify(mongoTemplate, never()).count(any(Query.class), eq(DuoMessage.class));
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(Conversation.class));
+    }
+
+    @Test
+    void newConversationsStartCounted() {
+        // Also for a conversation with oneself
+        assertEquals(Map.of("alice", 0), new Conversation("alice", "alice").getUnreadCounts());
+        assertEquals(Map.of("alice", 0, "bob", 0), new Conversation("alice", "bob").getUnreadCounts());
+    }
+
+    @Test
+    void markingAConversationReadMovesTheWatermarkOnly() {
+        service.markConversationAsRead("c1", "bob");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Conversation.class));
+        Document object = update.getValue().getUpdateObject();
+        assertTrue(((Document) object.get("$max")).containsKey("lastReadAt.bob"));
+        assertEquals(0, ((Document) object.get("$set")).get("unreadCounts.bob"));
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(DuoMessage.class));
+    }
+
+    @Test
+    void messagesUpToTheReceiversWatermarkAreRead() {
+        LocalDateTime readAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        KeysetPaginator paginator = mock(KeysetPaginator.class);
+        ReflectionTestUtils.setField(service, "keysetPaginator", paginator);
+        DuoMessage before = message("m1", "alice", "bob", readAt.minusMinutes(1));
+        DuoMessage at = message("m2", "alice", "bob", readAt);
+        DuoMessage after = message("m3", "alice", "bob", readAt.plusMinutes(1));
+        // Sent to alice, who has no watermark
+        DuoMessage reply = message("m4", "bob", "alice", readAt.minusMinutes(2));
+        when(paginator.page(any(), eq(DuoMessage.class), any(), any(), any(), anyInt(), any(), any()))
+                .thenReturn(new CursorPage<>(new ArrayList<>(List.of(after, at, before, reply)), null, false));
+        Conversation conversation = conversation(null);
+        conversation.setLastReadAt(Map.of("bob", readAt));
+        when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(conversation);
+
+        List<DuoMessage> page = service.getMessages("c1", null, 20).getContent();
+
+        assertEquals(List.of(reply, before, at, after), page);
+        assertTrue(before.isRead());
+        assertTrue(at.isRead());
+        assertFalse(after.isRead());
+        assertFalse(reply.isRead());
+    }
+
+    @Test
+    void unreadMessagesAreReadAfterTheWatermarkOfConversationsWithUnread() {
+        LocalDateTime readAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        Conversation unread = conversation(new HashMap<>(Map.of("alice", 0, "bob", 2)));
+        unread.setLastReadAt(Map.of("bob", readAt));
+        Conversation caughtUp = conversation(new HashMap<>(Map.of("alice", 0, "bob", 0)));
+        caughtUp.setId("c2");
+        when(conversationRepository.findInboxByUserId("bob")).thenReturn(List.of(unread, caughtUp));
+
+        service.getUnreadMessages("bob");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(DuoMessage.class));
+        Document object = query.getValue().getQueryObject();
+        assertEquals("bob", object.get("receiverId"));
+        assertEquals(false, object.get("isRead"));
+        List<?> clauses = (List<?>) object.get("$or");
+        assertEquals(1, clauses.size());
+        Document clause = (Document) clauses.get(0);
+        assertEquals("c1", clause.get("conversationId"));
+        assertEquals(new Document("$gt", readAt), clause.get("sentAt"));
+    }
+
+    @Test
+    void noConversationWithUnreadMeansNoMessageQuery() {
+        when(conversationRepository.findInboxByUserId("bob"))
+                .thenReturn(List.of(conversation(new HashMap<>(Map.of("alice", 0, "bob", 0)))));
+
+        assertTrue(service.getUnreadMessages("bob").isEmpty());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(DuoMessage.class));
+    }
+
+    private static DuoMessage message(String id, String senderId, String receiverId, LocalDateTime sentAt) {
+        DuoMessage message = new DuoMessage("c1", senderId, receiverId, "hi");
+        message.setId(id);
+        message.setSentAt(sentAt);
+        return message;
+    }
+
+    private static Conversation conversation(Map<String, Integer> unreadCounts) {
+        Conversation conversation = new Conversation();
+        conversation.setId("c1");
+        conversation.setUser1Id("alice");
+        conversation.setUser2Id("bob");
+        conversation.setUnreadCounts(unreadCounts);
+        return conversation;
+    }
+}
@@ -0,0 +1,90 @@
+package com.DA2.messageservice.service;
+
+import com.DA2.messageservice.client.UserServiceClient;
+import com.DA2.shared.dto.UserSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSummaryLoaderTest {
+
+    private final List<List<String>> calls = new ArrayList<>();
+    private UserServiceClient client;
+    private UserSummaryLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        client = mock(UserServiceClient.class);
+        when(client.getSummaries(anyList())).thenAnswer(invocation -> {
+            List<String> ids = new ArrayList<>(invocation.getArgument(0));
+            calls.add(ids);
+            return ids.stream().map(id -> new UserSummary(id, "name-" + id, null, null, false)).toList();
+        });
+        loader = new UserSummaryLoader();
+        ReflectionTestUtils.setField(loader, "userServiceClient", client);
+        ReflectionTestUtils.setField(loader, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(loader, "maxEntries", 10_000);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void conversationListResolvesAllParticipantsInOneCall() {
+        // 200 conversations between the current user and 100 distinct partners
+        List<String> participants = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            participants.add("me");
+            participants.add("user-" + (i % 100));
+        }
+
+        Map<String, UserSummary> summaries = loader.load(participants);
+
+        assertEquals(101, summaries.size());
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void repeatedLookupsAreServedWithoutCalls() {
+        loader.load(List.of("a", "b"));
+        loader.load(List.of("b", "a"));
+        assertEquals(1, calls.size());
+
+        // A new request misses the memo but hits the near-cache
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        loader.load(List.of("a", "b", "c"));
+        assertEquals(2, calls.size());
+        assertEquals(List.of("c"), calls.get(1));
+    }
+
+    @Test
+    void largeLookupsAreSplitIntoCallsUserServiceAccepts() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1_201; i++) {
+            ids.add("user-" + i);
+        }
+
+        Map<String, UserSummary> summaries = loader.load(ids);
+
+        assertEquals(1_201, summaries.size());
+        assertEquals(3, calls.size());
+        calls.forEach(call -> assertTrue(call.size() <= UserSummaryLoader.MAX_IDS_PER_CALL));
+    }
+}
@@ -2,9 +2,8 @@ package com.DA2.notificationservice.controller;
 
 import com.DA2.notificationservice.entity.Notification;
 import com.DA2.notificationservice.service.NotificationService;
+import com.DA2.shared.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -36,10 +35,10 @@ public class NotificationController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getUserNotifications(
             @PathVariable String userId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Page<Notification> notifications = notificationService.getUserNotifications(userId, PageRequest.of(page, size));
+            CursorPage<Notification> notifications = notificationService.getUserNotifications(userId, cursor, size);
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -1,10 +1,17 @@
 package com.DA2.notificationservice.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "notifications")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "user_read_idx", def = "{'userId': 1, 'isRead': 1}")
+})
 public class Notification {
     @Id
     private String id;
@@ -14,6 +21,7 @@ public class Notification {
     private String message;
     private String referenceId; // ID of related item (song, post, user, etc.)
     private boolean isRead = false;
+    @Indexed(name = "created_ttl_idx", expireAfter = "90d") // retention
     private LocalDateTime createdAt;
 
     public Notification() {
@@ -0,0 +1,36 @@
+package com.DA2.notificationservice.entity;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Unread notification count for one user, kept in step with the notifications collection.
+ * The id is always stored as a string, so hex user ids are not turned into ObjectIds on some paths and not others.
+ * seeded is set once unread has been reconciled with the notifications collection; before that it only holds
+ * the increments made since the document was created.
+ */
+@Document(collection = "notification_counters")
+public class NotificationCounter {
+    @MongoId(FieldType.STRING)
+    private String userId;
+    private long unread;
+    private boolean seeded;
+
+    public NotificationCounter() {}
+
+    public NotificationCounter(String userId, long unread, boolean seeded) {
+        this.userId = userId;
+        this.unread = unread;
+        this.seeded = seeded;
+    }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public long getUnread() { return unread; }
+    public void setUnread(long unread) { this.unread = unread; }
+
+    public boolean isSeeded() { return seeded; }
+    public void setSeeded(boolean seeded) { this.seeded = seeded; }
+}
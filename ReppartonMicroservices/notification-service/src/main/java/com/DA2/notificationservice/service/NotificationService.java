@@ -2,9 +2,14 @@ package com.DA2.notificationservice.service;
 
 import com.DA2.notificationservice.entity.Notification;
 import com.DA2.notificationservice.repository.NotificationRepository;
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.mongo.KeysetPaginator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -15,13 +20,27 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private KeysetPaginator keysetPaginator;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Transactional
     public Notification createNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        if (!saved.isRead()) {
+            unreadCounterService.increment(saved.getUserId());
+        }
+        return saved;
     }
 
-    public Page<Notification> getUserNotifications(String userId, Pageable pageable) {
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+    public CursorPage<Notification> getUserNotifications(String userId, String cursor, int size) {
+        return keysetPaginator.page(Criteria.where("userId").is(userId), Notification.class, "createdAt",
+                Sort.Direction.DESC, cursor, size, Notification::getCreatedAt, Notification::getId);
     }
 
     public List<Notification> getUnreadNotifications(String userId) {
@@ -29,26 +48,38 @@ public class NotificationService {
     }
 
     public long getUnreadCount(String userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return unreadCounterService.get(userId);
     }
 
     @Transactional
     public void markAsRead(String notificationId) {
-        Notification notification = notificationRepository.findById(notificationId)
-                .orElseThrow(() -> new RuntimeException("Notification not found"));
-        notification.setRead(true);
-        notificationRepository.save(notification);
+        // Returns the notification only if this call flipped it, so the counter moves once
+        Notification flipped = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(notificationId).and("isRead").is(false)),
+                new Update().set("isRead", true),
+                Notification.class);
+        if (flipped != null) {
+            unreadCounterService.decrement(flipped.getUserId());
+        } else if (!notificationRepository.existsById(notificationId)) {
+            throw new RuntimeException("Notification not found");
+        }
     }
 
     @Transactional
     public void markAllAsRead(String userId) {
-        List<Notification> notifications = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId);
-        notifications.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(notifications);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("userId").is(userId).and("isRead").is(false)),
+                new Update().set("isRead", true),
+                Notification.class);
+        unreadCounterService.reset(userId);
     }
 
     @Transactional
     public void deleteNotification(String notificationId) {
-        notificationRepository.deleteById(notificationId);
+        Notification removed = mongoTemplate.findAndRemove(
+                new Query(Criteria.where("_id").is(notificationId)), Notification.class);
+        if (removed != null && !removed.isRead()) {
+            unreadCounterService.decrement(removed.getUserId());
+        }
     }
 }
@@ -0,0 +1,122 @@
+package com.DA2.notificationservice.service;
+
+import com.DA2.notificationservice.entity.Notification;
+import com.DA2.notificationservice.entity.NotificationCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maintains NotificationCounter so the unread badge is a single keyed read.
+ * Writers $inc the counter (creating it if needed), so no change is lost before the first read. The first read
+ * seeds the counter from the real count, adding the difference to whatever increments arrived meanwhile.
+ * markAllAsRead resets it from the source, which also repairs drift such as unread notifications
+ * removed by the retention TTL. Changes are pushed to /queue/notifications/{userId}/unread as {delta, unread}.
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final String FIELD = "unread";
+    private static final String SEEDED = "seeded";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    public long get(String userId) {
+        NotificationCounter counter = mongoTemplate.findOne(byUser(userId), NotificationCounter.class);
+        if (counter != null && counter.isSeeded()) {
+            return Math.max(0, counter.getUnread());
+        }
+        return seed(userId, counter != null ? counter.getUnread() : 0);
+    }
+
+    public void increment(String userId) {
+        NotificationCounter counter = mongoTemplate.findAndModify(byUser(userId), new Update().inc(FIELD, 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), NotificationCounter.class);
+        publish(userId, 1, total(counter));
+    }
+
+    // A seeded counter never drops below zero; an unseeded one records the -1 for seed() to net out
+    public void decrement(String userId) {
+        NotificationCounter counter = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(userId).and(SEEDED).is(true).and(FIELD).gte(1)),
+                new Update().inc(FIELD, -1), FindAndModifyOptions.options().returnNew(true), NotificationCounter.class);
+        if (counter == null) {
+            try {
+                counter = mongoTemplate.findAndModify(
+                        new Query(Criteria.where("_id").is(userId).and(SEEDED).ne(true)),
+                        new Update().inc(FIELD, -1), FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        NotificationCounter.class);
+            } catch (DuplicateKeyException e) {
+                // Seeded and already at zero
+                counter = mongoTemplate.findOne(byUser(userId), NotificationCounter.class);
+            }
+        }
+        publish(userId, -1, total(counter));
+    }
+
+    public void reset(String userId) {
+        long count = countUnread(userId);
+        NotificationCounter previous = mongoTemplate.findAndModify(
+                byUser(userId),
+                new Update().set(FIELD, count).set(SEEDED, true),
+                FindAndModifyOptions.options().upsert(true),
+                NotificationCounter.class);
+        publish(userId, count - (previous != null ? previous.getUnread() : 0), count);
+    }
+
+    // Adds (real count - increments seen before counting) in one conditional upsert, so increments landing while
+    // we count are kept and only the first of several concurrent readers applies its count
+    private long seed(String userId, long incrementsBefore) {
+        long unread = countUnread(userId);
+        Query query = new Query(Criteria.where("_id").is(userId).and(SEEDED).ne(true));
+        try {
+            NotificationCounter counter = mongoTemplate.findAndModify(query,
+                    new Update().inc(FIELD, unread - incrementsBefore).set(SEEDED, true),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), NotificationCounter.class);
+            return counter != null ? Math.max(0, counter.getUnread()) : unread;
+        } catch (DuplicateKeyException e) {
+            // Another reader seeded it first
+            NotificationCounter counter = mongoTemplate.findOne(byUser(userId), NotificationCounter.class);
+            return counter != null ? Math.max(0, counter.getUnread()) : unread;
+        }
+    }
+
+    // An unseeded total is only a partial count, so clients just get the delta
+    private static Long total(NotificationCounter counter) {
+        return counter != null && counter.isSeeded() ? Math.max(0, counter.getUnread()) : null;
+    }
+
+    private static Query byUser(String userId) {
+        return new Query(Criteria.where("_id").is(userId));
+    }
+
+    private long countUnread(String userId) {
+        return mongoTemplate.count(new Query(Criteria.where("userId").is(userId).and("isRead").is(false)), Notification.class);
+    }
+
+    private void publish(String userId, long delta, Long unread) {
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("delta", delta);
+            if (unread != null) {
+                payload.put("unread", unread);
+            }
+            messagingTemplate.convertAndSend("/queue/notifications/" + userId + "/unread", payload);
+        } catch (Exception e) {
+            System.err.println("Failed to push unread count to user " + userId + ": " + e.getMessage());
+        }
+    }
+}
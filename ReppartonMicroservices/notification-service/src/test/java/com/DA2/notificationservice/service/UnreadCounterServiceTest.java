@@ -0,0 +1,136 @@
+package com.DA2.notificationservice.service;
+
+import com.DA2.notificationservice.entity.Notification;
+import com.DA2.notificationservice.entity.NotificationCounter;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class UnreadCounterServiceTest {
+
+    private static final String HEX_USER_ID = "507f1f77bcf86cd799439011";
+
+    private MongoTemplate mongoTemplate;
+    private SimpMessagingTemplate messagingTemplate;
+    private UnreadCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        service = new UnreadCounterService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "messagingTemplate", messagingTemplate);
+    }
+
+    @Test
+    void hexUserIdsAreStoredAndQueriedAsStrings() {
+        MongoMappingContext context = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.afterPropertiesSet();
+
+        Document written = new Document();
+        converter.write(new NotificationCounter(HEX_USER_ID, 3, true), written);
+        Document query = new QueryMapper(converter).getMappedObject(
+                new Query(where("_id").is(HEX_USER_ID)).getQueryObject(),
+                context.getPersistentEntity(NotificationCounter.class));
+
+        assertInstanceOf(String.class, written.get("_id"));
+        assertInstanceOf(String.class, query.get("_id"));
+    }
+
+    @Test
+    void incrementsBeforeTheFirstReadCreateTheCounter() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class))).thenReturn(new NotificationCounter(HEX_USER_ID, 1, false));
+
+        service.increment(HEX_USER_ID);
+
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), options.capture(),
+                eq(NotificationCounter.class));
+        assertTrue(options.getValue().isUpsert());
+        // An unseeded counter only holds a partial count, so only the delta is pushed
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/queue/notifications/" + HEX_USER_ID + "/unread"), payload.capture());
+        assertEquals(Map.of("delta", 1L), payload.getValue());
+    }
+
+    @Test
+    void seedingKeepsIncrementsMadeBeforeTheFirstRead() {
+        when(mongoTemplate.findOne(any(Query.class), eq(NotificationCounter.class)))
+                .thenReturn(new NotificationCounter(HEX_USER_ID, 2, false));
+        when(mongoTemplate.count(any(Query.class), eq(Notification.class))).thenReturn(5L);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class))).thenReturn(new NotificationCounter(HEX_USER_ID, 5, true));
+
+        assertEquals(5, service.get(HEX_USER_ID));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class));
+        // The two increments already applied are not added twice
+        assertEquals(3L, ((Document) update.getValue().getUpdateObject().get("$inc")).get("unread"));
+    }
+
+    @Test
+    void losingASeedRaceReadsTheWinnersValueOnce() {
+        when(mongoTemplate.findOne(any(Query.class), eq(NotificationCounter.class)))
+                .thenReturn(null)
+                .thenReturn(new NotificationCounter(HEX_USER_ID, 7, true));
+        when(mongoTemplate.count(any(Query.class), eq(Notification.class))).thenReturn(6L);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+        assertEquals(7, service.get(HEX_USER_ID));
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(NotificationCounter.class));
+    }
+
+    @Test
+    void decrementingASeededCounterAtZeroStaysAtZero() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(NotificationCounter.class)))
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.findOne(any(Query.class), eq(NotificationCounter.class)))
+                .thenReturn(new NotificationCounter(HEX_USER_ID, 0, true));
+
+        service.decrement(HEX_USER_ID);
+
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), options.capture(),
+                eq(NotificationCounter.class));
+        // Only the unseeded path upserts; a seeded counter is never taken below zero
+        assertFalse(options.getAllValues().get(0).isUpsert());
+        assertTrue(options.getAllValues().get(1).isUpsert());
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/queue/notifications/" + HEX_USER_ID + "/unread"), payload.capture());
+        assertEquals(Map.of("delta", -1L, "unread", 0L), payload.getValue());
+    }
+}
@@ -1,7 +1,10 @@
 package com.DA2.postservice.config;
 
+import com.DA2.shared.mongo.CounterUpdater;
+import com.DA2.shared.mongo.KeysetPaginator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
@@ -11,4 +14,14 @@ public class AppConfig {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+
+    @Bean
+    public CounterUpdater counterUpdater(MongoTemplate mongoTemplate) {
+        return new CounterUpdater(mongoTemplate);
+    }
+
+    @Bean
+    public KeysetPaginator keysetPaginator(MongoTemplate mongoTemplate) {
+        return new KeysetPaginator(mongoTemplate);
+    }
 }
@@ -3,6 +3,7 @@ package com.DA2.postservice.controller;
 import com.DA2.postservice.entity.Post;
 import com.DA2.postservice.entity.PostLike;
 import com.DA2.postservice.service.PostService;
+import com.DA2.shared.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -63,11 +64,10 @@ public class PostController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getPostsByUser(
             @PathVariable String userId,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Post> posts = postService.getPostsByUser(userId, pageable);
+            CursorPage<Post> posts = postService.getPostsByUser(userId, cursor, size);
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -78,12 +78,11 @@ public class PostController {
     @PostMapping("/feed")
     public ResponseEntity<?> getFeed(
             @RequestBody Map<String, List<String>> request,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
             List<String> userIds = request.get("userIds");
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Post> posts = postService.getFeed(userIds, pageable);
+            CursorPage<Post> posts = postService.getFeed(userIds, cursor, size);
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -93,11 +92,10 @@ public class PostController {
     // Get public posts
     @GetMapping("/public")
     public ResponseEntity<?> getPublicPosts(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Post> posts = postService.getPublicPosts(pageable);
+            CursorPage<Post> posts = postService.getPublicPosts(cursor, size);
             return ResponseEntity.ok(posts);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -167,10 +165,11 @@ public class PostController {
             @RequestBody Map<String, String> request) {
         try {
             String userId = request.get("userId");
-            postService.likePost(postId, userId);
+            long likes = postService.likePost(postId, userId);
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "message", "Post liked successfully"
+                "message", "Post liked successfully",
+                "likes", likes
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -186,10 +185,11 @@ public class PostController {
             @PathVariable String postId,
             @RequestParam String userId) {
         try {
-            postService.unlikePost(postId, userId);
+            long likes = postService.unlikePost(postId, userId);
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "message", "Post unliked successfully"
+                "message", "Post unliked successfully",
+                "likes", likes
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -227,10 +227,11 @@ public class PostController {
     @PostMapping("/{postId}/share")
     public ResponseEntity<?> sharePost(@PathVariable String postId) {
         try {
-            postService.sharePost(postId);
+            long shares = postService.sharePost(postId);
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "message", "Post shared successfully"
+                "message", "Post shared successfully",
+                "shares", shares
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -1,5 +1,8 @@
 package com.DA2.postservice.service;
 
+import com.DA2.shared.dto.CursorPage;
+import com.DA2.shared.mongo.CounterUpdater;
+import com.DA2.shared.mongo.KeysetPaginator;
 import com.DA2.postservice.entity.Post;
 import com.DA2.postservice.entity.PostLike;
 import com.DA2.postservice.repository.PostRepository;
@@ -7,6 +10,8 @@ import com.DA2.postservice.repository.PostLikeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +31,12 @@ public class PostService {
     @Autowired
     private LocationService locationService;
 
+    @Autowired
+    private CounterUpdater counterUpdater;
+
+    @Autowired
+    private KeysetPaginator keysetPaginator;
+
     // Create post
     @Transactional
     public Post createPost(Post post) {
@@ -58,19 +69,24 @@ public class PostService {
         return postRepository.findById(postId);
     }
 
-    // Get posts by user
-    public Page<Post> getPostsByUser(String userId, Pageable pageable) {
-        return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
+    // Get posts by user, newest first
+    public CursorPage<Post> getPostsByUser(String userId, String cursor, int size) {
+        return newestFirst(Criteria.where("userId").is(userId), cursor, size);
     }
 
     // Get feed (posts from followed users)
-    public Page<Post> getFeed(List<String> userIds, Pageable pageable) {
-        return postRepository.findByUserIdInOrderByCreatedAtDesc(userIds, pageable);
+    public CursorPage<Post> getFeed(List<String> userIds, String cursor, int size) {
+        return newestFirst(Criteria.where("userId").in(userIds), cursor, size);
     }
 
     // Get public posts
-    public Page<Post> getPublicPosts(Pageable pageable) {
-        return postRepository.findByIsPrivateFalseOrderByCreatedAtDesc(pageable);
+    public CursorPage<Post> getPublicPosts(String cursor, int size) {
+        return newestFirst(Criteria.where("isPrivate").is(false), cursor, size);
+    }
+
+    private CursorPage<Post> newestFirst(Criteria filter, String cursor, int size) {
+        return keysetPaginator.page(filter, Post.class, "createdAt", Sort.Direction.DESC,
+                cursor, size, Post::getCreatedAt, Post::getId);
     }
 
     // Get trending posts
@@ -112,9 +128,10 @@ public class PostService {
 
     // Like post
     @Transactional
-    public void likePost(String postId, String userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
+    public long likePost(String postId, String userId) {
+        if (!postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found");
+        }
 
         // Check if already liked
         Optional<PostLike> existingLike = postLikeRepository.findByPostIdAndUserId(postId, userId);
@@ -127,15 +144,16 @@ public class PostService {
         postLikeRepository.save(like);
 
         // Increment likes count
-        post.incrementLikes();
-        postRepository.save(post);
+        return counterUpdater.increment(Post.class, postId, "likes", 1)
+                .orElseThrow(() -> new RuntimeException("Post not found"));
     }
 
     // Unlike post
     @Transactional
-    public void unlikePost(String postId, String userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
+    public long unlikePost(String postId, String userId) {
+        if (!postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found");
+        }
 
         PostLike like = postLikeRepository.findByPostIdAndUserId(postId, userId)
                 .orElseThrow(() -> new RuntimeException("Post not liked yet"));
@@ -143,8 +161,8 @@ public class PostService {
         postLikeRepository.delete(like);
 
         // Decrement likes count
-        post.decrementLikes();
-        postRepository.save(post);
+        return counterUpdater.decrement(Post.class, postId, "likes", 1)
+                .orElseThrow(() -> new RuntimeException("Post not found"));
     }
 
     // Check if user liked post
@@ -163,12 +181,9 @@ public class PostService {
     }
 
     // Increment share count
-    @Transactional
-    public void sharePost(String postId) {
-        Post post = postRepository.findById(postId)
+    public long sharePost(String postId) {
+        return counterUpdater.increment(Post.class, postId, "shares", 1)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
-        post.incrementShares();
-        postRepository.save(post);
     }
 
     // Search posts
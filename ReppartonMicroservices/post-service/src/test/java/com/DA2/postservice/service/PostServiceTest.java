@@ -0,0 +1,71 @@
+package com.DA2.postservice.service;
+
+import com.DA2.postservice.entity.Post;
+import com.DA2.postservice.entity.PostLike;
+import com.DA2.postservice.repository.PostLikeRepository;
+import com.DA2.postservice.repository.PostRepository;
+import com.DA2.shared.mongo.CounterUpdater;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostServiceTest {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final PostLikeRepository postLikeRepository = mock(PostLikeRepository.class);
+    private final CounterUpdater counterUpdater = mock(CounterUpdater.class);
+    private final PostService service = new PostService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "postRepository", postRepository);
+        ReflectionTestUtils.setField(service, "postLikeRepository", postLikeRepository);
+        ReflectionTestUtils.setField(service, "counterUpdater", counterUpdater);
+        when(postRepository.existsById("p1")).thenReturn(true);
+    }
+
+    @Test
+    void likeAndUnlikeUpdateTheLikesCounterInPlace() {
+        when(postLikeRepository.findByPostIdAndUserId("p1", "u1")).thenReturn(Optional.empty());
+        when(counterUpdater.increment(Post.class, "p1", "likes", 1)).thenReturn(Optional.of(4L));
+
+        assertEquals(4, service.likePost("p1", "u1"));
+
+        PostLike like = new PostLike("p1", "u1");
+        when(postLikeRepository.findByPostIdAndUserId("p1", "u1")).thenReturn(Optional.of(like));
+        when(counterUpdater.decrement(Post.class, "p1", "likes", 1)).thenReturn(Optional.of(3L));
+
+        assertEquals(3, service.unlikePost("p1", "u1"));
+        verify(postLikeRepository).delete(like);
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void sharesAreCountedInPlace() {
+        when(counterUpdater.increment(Post.class, "p1", "shares", 1)).thenReturn(Optional.of(8L));
+
+        assertEquals(8, service.sharePost("p1"));
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void countersOfMissingPostsFail() {
+        when(counterUpdater.increment(any(), any(), any(), anyLong())).thenReturn(Optional.empty());
+        // Deleted between the existence check and the counter update
+        when(postRepository.existsById("gone")).thenReturn(true);
+
+        assertThrows(RuntimeException.class, () -> service.sharePost("gone"));
+        assertThrows(RuntimeException.class, () -> service.likePost("gone", "u1"));
+    }
+}
@@ -5,10 +5,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "analytics-service")
 public interface AnalyticsServiceClient {
     
     @GetMapping("/api/analytics/listen-history/user/{userId}")
     Object getUserListenHistory(@PathVariable("userId") String userId,
                                @RequestParam("limit") int limit);
+
+    @GetMapping("/api/analytics/similar-songs/{songId}")
+    List<String> getSimilarSongIds(@PathVariable("songId") String songId,
+                                   @RequestParam("limit") int limit);
 }
@@ -39,9 +39,11 @@ public class RecommendationController {
     // Get trending recommendations
     @GetMapping("/trending")
     public ResponseEntity<?> getTrendingRecommendations(
-            @RequestParam(defaultValue = "20") int limit) {
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(required = false) String genre) {
         try {
-            Map<String, Object> trending = recommendationService.getTrendingRecommendations(limit);
+            Map<String, Object> trending = recommendationService.getTrendingRecommendations(window, genre, limit);
             return ResponseEntity.ok(trending);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
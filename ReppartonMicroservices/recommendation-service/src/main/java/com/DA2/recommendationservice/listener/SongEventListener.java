@@ -0,0 +1,32 @@
+package com.DA2.recommendationservice.listener;
+
+import com.DA2.recommendationservice.service.TrendingService;
+import com.DA2.shared.events.SongPlayedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class SongEventListener {
+
+    private final TrendingService trendingService;
+
+    public SongEventListener(TrendingService trendingService) {
+        this.trendingService = trendingService;
+    }
+
+    // Batch listener (spring.kafka.listener.type=batch); undeserializable records arrive with a null value
+    @KafkaListener(topics = "song-events", groupId = "recommendation-trending")
+    public void handleSongEvents(List<ConsumerRecord<String, SongPlayedEvent>> records) {
+        List<SongPlayedEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, SongPlayedEvent> record : records) {
+            if (record.value() != null) {
+                events.add(record.value());
+            }
+        }
+        trendingService.recordPlays(events);
+    }
+}
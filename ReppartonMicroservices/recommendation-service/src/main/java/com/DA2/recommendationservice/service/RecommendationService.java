@@ -19,6 +19,9 @@ public class RecommendationService {
     @Autowired
     private SocialServiceClient socialServiceClient;
 
+    @Autowired
+    private TrendingService trendingService;
+
     // Get personalized song recommendations for user
     public Map<String, Object> getPersonalizedRecommendations(String userId, int limit) {
         Map<String, Object> recommendations = new HashMap<>();
@@ -47,14 +50,17 @@ public class RecommendationService {
         return recommendations;
     }
 
-    // Get trending songs (most popular recently)
-    public Map<String, Object> getTrendingRecommendations(int limit) {
+    // Get trending songs (most played within the window, optionally within one genre)
+    public Map<String, Object> getTrendingRecommendations(String window, String genre, int limit) {
         Map<String, Object> trending = new HashMap<>();
-        
+
         try {
-            // This would typically aggregate data from analytics service
-            // For now, return placeholder
-            trending.put("message", "Trending songs based on recent plays");
+            trending.put("window", window);
+            if (genre != null) {
+                trending.put("genre", genre);
+            }
+            trending.put("songs", trendingService.getTrending(window, genre, limit));
+            trending.put("generatedAt", trendingService.getSnapshotTime());
             trending.put("limit", limit);
             
         } catch (Exception e) {
@@ -64,18 +70,18 @@ public class RecommendationService {
         return trending;
     }
 
-    // Get similar songs based on genre/artist
+    // Get similar songs: listeners of this song also played these (precomputed by analytics-service)
     public Map<String, Object> getSimilarSongs(String songId, int limit) {
         Map<String, Object> similar = new HashMap<>();
 
         try {
-            // Get song details
-            Object song = songServiceClient.getSongById(songId);
-            similar.put("referenceSong", song);
-
-            // Get similar songs (same genre/artist)
-            // This is simplified - would need more sophisticated algorithm
-            similar.put("message", "Similar songs based on genre and artist");
+            // Song details and neighbours come from different services, fetch them together
+            CompletableFuture<Object> referenceSong = CompletableFuture.supplyAsync(() -> songServiceClient.getSongById(songId));
+            similar.put("referenceSongId", songId);
+            similar.put("songIds", analyticsServiceClient.getSimilarSongIds(songId, limit));
+            similar.put("referenceSong", referenceSong.get());
+            similar.put("type", "item-similarity");
+            similar.put("limit", limit);
             
         } catch (Exception e) {
             similar.put("error", "Failed to get similar songs: " + e.getMessage());
@@ -92,6 +98,7 @@ public class RecommendationService {
             // Return popular/trending songs for new users
             defaults.put("message", "Popular songs for new users");
             defaults.put("type", "default");
+            defaults.put("songs", trendingService.getTrending("7d", null, limit));
             defaults.put("limit", limit);
             
         } catch (Exception e) {
@@ -139,12 +146,8 @@ public class RecommendationService {
         Map<String, Object> because = new HashMap<>();
 
         try {
-            // Get song details
-            Object referenceSong = songServiceClient.getSongById(songId);
-            because.put("referenceSong", referenceSong);
-            
-            // Get similar songs
             Map<String, Object> similar = getSimilarSongs(songId, limit);
+            because.put("referenceSong", similar.get("referenceSong"));
             because.put("recommendations", similar);
             
         } catch (Exception e) {
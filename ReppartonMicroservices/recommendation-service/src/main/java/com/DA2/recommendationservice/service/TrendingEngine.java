@@ -0,0 +1,468 @@
+package com.DA2.recommendationservice.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Sliding-window play counts and top-K trending songs.
+ * Plays land in 5-minute buckets (the last hour) and hourly buckets (the last week); each window
+ * keeps a running total per song that is incremented on every play and decremented when a bucket
+ * slides out, so old hits fall off exactly. refresh() materialises top-K lists per window and
+ * genre, and reads are served from that snapshot without touching the counters.
+ * Memory is bounded by maxTrackedSongs: past it, the songs with the fewest weekly plays are dropped.
+ */
+public class TrendingEngine {
+
+    public static final long FIVE_MINUTES = 5 * 60 * 1000L;
+    public static final long ONE_HOUR = 60 * 60 * 1000L;
+
+    private static final int FIVE_MINUTE_SLOTS = 12;
+    private static final int HOUR_SLOTS = 24 * 7;
+    private static final int DAY_HOURS = 24;
+
+    public enum Window {
+        HOUR("1h"), DAY("24h"), WEEK("7d");
+
+        private final String label;
+
+        Window(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return window;
+                }
+            }
+            throw new RuntimeException("Unknown trending window: " + label);
+        }
+    }
+
+    public record TrendingSong(String songId, long plays) {
+    }
+
+    public record BucketState(String type, long index, Map<String, Long> counts) {
+    }
+
+    private record Snapshot(Map<Window, List<TrendingSong>> global,
+                            Map<Window, Map<String, List<TrendingSong>>> byGenre,
+                            long generatedAt) {
+    }
+
+    private final int topK;
+    private final int maxTrackedSongs;
+
+    private final Counts[] fiveMinuteBuckets = new Counts[FIVE_MINUTE_SLOTS];
+    private final long[] fiveMinuteIndex = new long[FIVE_MINUTE_SLOTS];
+    private final Counts[] hourBuckets = new Counts[HOUR_SLOTS];
+    private final long[] hourIndex = new long[HOUR_SLOTS];
+    private final Map<Window, Counts> totals = new HashMap<>();
+    private final Map<String, List<String>> songGenres = new HashMap<>();
+
+    private long currentFive = -1;
+    private long currentHour = -1;
+
+    // Touched since the last checkpoint
+    private final Set<Long> dirtyFive = new HashSet<>();
+    private final Set<Long> dirtyHours = new HashSet<>();
+    private final Map<String, List<String>> dirtyGenres = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), 0);
+
+    public TrendingEngine(int topK, int maxTrackedSongs) {
+        this.topK = topK;
+        this.maxTrackedSongs = maxTrackedSongs;
+        for (Window window : Window.values()) {
+            totals.put(window, new Counts());
+        }
+        Arrays.fill(fiveMinuteIndex, -1);
+        Arrays.fill(hourIndex, -1);
+    }
+
+    public synchronized void record(String songId, List<String> genres, long timestamp) {
+        add(songId, timestamp, 1);
+        if (genres != null && !genres.isEmpty() && !genres.equals(songGenres.get(songId))) {
+            songGenres.put(songId, List.copyOf(genres));
+            dirtyGenres.put(songId, List.copyOf(genres));
+        }
+        if (totals.get(Window.WEEK).size() > maxTrackedSongs) {
+            prune();
+        }
+    }
+
+    // Moves the windows forward to now, expiring buckets that slid out
+    public synchronized void advance(long now) {
+        long five = now / FIVE_MINUTES;
+        long hour = now / ONE_HOUR;
+
+        if (currentFive < 0 || five - currentFive >= FIVE_MINUTE_SLOTS) {
+            Arrays.fill(fiveMinuteBuckets, null);
+            Arrays.fill(fiveMinuteIndex, -1);
+            totals.get(Window.HOUR).clear();
+            currentFive = five;
+        }
+        while (currentFive < five) {
+            currentFive++;
+            int slot = slot(currentFive, FIVE_MINUTE_SLOTS);
+            if (fiveMinuteBuckets[slot] != null) {
+                totals.get(Window.HOUR).subtract(fiveMinuteBuckets[slot]);
+                fiveMinuteBuckets[slot] = null;
+            }
+        }
+
+        if (currentHour < 0 || hour - currentHour >= HOUR_SLOTS) {
+            Arrays.fill(hourBuckets, null);
+            Arrays.fill(hourIndex, -1);
+            totals.get(Window.DAY).clear();
+            totals.get(Window.WEEK).clear();
+            currentHour = hour;
+        }
+        while (currentHour < hour) {
+            currentHour++;
+            // The bucket 24h back leaves the day window but stays in the week window
+            Counts leavingDay = hourBucket(currentHour - DAY_HOURS);
+            if (leavingDay != null) {
+                totals.get(Window.DAY).subtract(leavingDay);
+            }
+            int slot = slot(currentHour, HOUR_SLOTS);
+            if (hourBuckets[slot] != null) {
+                totals.get(Window.WEEK).subtract(hourBuckets[slot]);
+                hourBuckets[slot] = null;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the top-K lists. Only copying the window totals happens under the lock;
+     * ranking runs outside it, and reads never wait for either.
+     */
+    public void refresh(long now) {
+        Map<Window, Copy> copies = new HashMap<>();
+        synchronized (this) {
+            advance(now);
+            for (Window window : Window.values()) {
+                Counts counts = totals.get(window);
+                Copy copy = new Copy(counts.size());
+                counts.forEach((songId, plays) -> copy.add(songId, plays, songGenres.get(songId)));
+                copies.put(window, copy);
+            }
+        }
+
+        Map<Window, List<TrendingSong>> global = new HashMap<>();
+        Map<Window, Map<String, List<TrendingSong>>> byGenre = new HashMap<>();
+        copies.forEach((window, copy) -> {
+            TopK all = new TopK(topK);
+            Map<String, TopK> genres = new HashMap<>();
+            for (int i = 0; i < copy.size; i++) {
+                all.offer(copy.songIds[i], copy.plays[i]);
+                if (copy.genres[i] != null) {
+                    for (Object genre : copy.genres[i]) {
+                        genres.computeIfAbsent((String) genre, g -> new TopK(topK)).offer(copy.songIds[i], copy.plays[i]);
+                    }
+                }
+            }
+            global.put(window, all.sorted());
+            Map<String, List<TrendingSong>> genreLists = new HashMap<>();
+            genres.forEach((genre, top) -> genreLists.put(genre, top.sorted()));
+            byGenre.put(window, genreLists);
+        });
+        snapshot = new Snapshot(global, byGenre, now);
+    }
+
+    public List<TrendingSong> top(Window window, String genre, int limit) {
+        Snapshot current = snapshot;
+        List<TrendingSong> list = genre == null
+                ? current.global().getOrDefault(window, List.of())
+                : current.byGenre().getOrDefault(window, Map.of()).getOrDefault(genre, List.of());
+        return list.subList(0, Math.min(limit, list.size()));
+    }
+
+    public long getSnapshotTime() {
+        return snapshot.generatedAt();
+    }
+
+    public synchronized int getTrackedSongs() {
+        return totals.get(Window.WEEK).size();
+    }
+
+    // ---- checkpoint support ----
+
+    public synchronized List<BucketState> drainDirtyBuckets() {
+        List<BucketState> states = new ArrayList<>();
+        for (long index : dirtyFive) {
+            Counts counts = fiveMinuteBucket(index);
+            if (counts != null) {
+                states.add(new BucketState("m", index, counts.toMap()));
+            }
+        }
+        for (long index : dirtyHours) {
+            Counts counts = hourBucket(index);
+            if (counts != null) {
+                states.add(new BucketState("h", index, counts.toMap()));
+            }
+        }
+        dirtyFive.clear();
+        dirtyHours.clear();
+        return states;
+    }
+
+    public synchronized Map<String, List<String>> drainDirtyGenres() {
+        Map<String, List<String>> genres = new HashMap<>(dirtyGenres);
+        dirtyGenres.clear();
+        return genres;
+    }
+
+    /**
+     * Marks buckets and genres from a failed checkpoint dirty again so the next one rewrites them.
+     * Genres changed since the drain are newer and are kept.
+     */
+    public synchronized void markDirty(List<BucketState> buckets, Map<String, List<String>> genres) {
+        for (BucketState bucket : buckets) {
+            if ("m".equals(bucket.type())) {
+                dirtyFive.add(bucket.index());
+            } else {
+                dirtyHours.add(bucket.index());
+            }
+        }
+        genres.forEach(dirtyGenres::putIfAbsent);
+    }
+
+    // Oldest bucket indexes still inside the windows; older checkpointed buckets can be deleted
+    public synchronized long getOldestFiveMinuteIndex() {
+        return currentFive - FIVE_MINUTE_SLOTS + 1;
+    }
+
+    public synchronized long getOldestHourIndex() {
+        return currentHour - HOUR_SLOTS + 1;
+    }
+
+    /**
+     * Adds checkpointed buckets back. Counts are merged, so plays consumed before the restore are kept.
+     */
+    public synchronized void restore(List<BucketState> buckets, Map<String, List<String>> genres, long now) {
+        advance(now);
+        songGenres.putAll(genres);
+        for (BucketState bucket : buckets) {
+            boolean fiveMinute = "m".equals(bucket.type());
+            long bucketStart = bucket.index() * (fiveMinute ? FIVE_MINUTES : ONE_HOUR);
+            bucket.counts().forEach((songId, plays) -> {
+                if (fiveMinute) {
+                    addFiveMinute(songId, bucketStart, plays);
+                } else {
+                    addHour(songId, bucketStart, plays);
+                }
+            });
+        }
+        dirtyFive.clear();
+        dirtyHours.clear();
+    }
+
+    // ---- internals ----
+
+    private void add(String songId, long timestamp, long plays) {
+        if (timestamp / FIVE_MINUTES > currentFive || timestamp / ONE_HOUR > currentHour) {
+            advance(timestamp);
+        }
+        addFiveMinute(songId, timestamp, plays);
+        addHour(songId, timestamp, plays);
+        dirtyFive.add(timestamp / FIVE_MINUTES);
+        dirtyHours.add(timestamp / ONE_HOUR);
+    }
+
+    private void addFiveMinute(String songId, long timestamp, long plays) {
+        long five = timestamp / FIVE_MINUTES;
+        if (five <= currentFive - FIVE_MINUTE_SLOTS || five > currentFive) {
+            return;
+        }
+        int slot = slot(five, FIVE_MINUTE_SLOTS);
+        if (fiveMinuteIndex[slot] != five || fiveMinuteBuckets[slot] == null) {
+            fiveMinuteBuckets[slot] = new Counts();
+            fiveMinuteIndex[slot] = five;
+        }
+        fiveMinuteBuckets[slot].add(songId, plays);
+        totals.get(Window.HOUR).add(songId, plays);
+    }
+
+    private void addHour(String songId, long timestamp, long plays) {
+        long hour = timestamp / ONE_HOUR;
+        if (hour <= currentHour - HOUR_SLOTS || hour > currentHour) {
+            return;
+        }
+        int slot = slot(hour, HOUR_SLOTS);
+        if (hourIndex[slot] != hour || hourBuckets[slot] == null) {
+            hourBuckets[slot] = new Counts();
+            hourIndex[slot] = hour;
+        }
+        hourBuckets[slot].add(songId, plays);
+        totals.get(Window.WEEK).add(songId, plays);
+        if (hour > currentHour - DAY_HOURS) {
+            totals.get(Window.DAY).add(songId, plays);
+        }
+    }
+
+    private Counts fiveMinuteBucket(long index) {
+        int slot = slot(index, FIVE_MINUTE_SLOTS);
+        return fiveMinuteIndex[slot] == index ? fiveMinuteBuckets[slot] : null;
+    }
+
+    private Counts hourBucket(long index) {
+        if (index < 0) {
+            return null;
+        }
+        int slot = slot(index, HOUR_SLOTS);
+        return hourIndex[slot] == index ? hourBuckets[slot] : null;
+    }
+
+    private static int slot(long index, int slots) {
+        return (int) Math.floorMod(index, (long) slots);
+    }
+
+    // Drop the least played songs so a tenth of the budget is free again; ties at the cutoff are broken arbitrarily
+    private void prune() {
+        Counts week = totals.get(Window.WEEK);
+        int toRemove = week.size() - maxTrackedSongs * 9 / 10;
+        if (toRemove <= 0) {
+            return;
+        }
+        // Max-heap of the toRemove least played songs seen so far
+        PriorityQueue<Map.Entry<String, Long>> least = new PriorityQueue<>(toRemove + 1,
+                (a, b) -> Long.compare(b.getValue(), a.getValue()));
+        week.forEach((songId, count) -> {
+            if (least.size() < toRemove) {
+                least.add(Map.entry(songId, count));
+            } else if (count < least.peek().getValue()) {
+                least.poll();
+                least.add(Map.entry(songId, count));
+            }
+        });
+
+        Set<String> removed = new HashSet<>(toRemove * 2);
+        least.forEach(entry -> removed.add(entry.getKey()));
+        for (Counts counts : fiveMinuteBuckets) {
+            if (counts != null) {
+                counts.removeAll(removed);
+            }
+        }
+        for (int i = 0; i < HOUR_SLOTS; i++) {
+            if (hourBuckets[i] != null) {
+                hourBuckets[i].removeAll(removed);
+                dirtyHours.add(hourIndex[i]);
+            }
+        }
+        for (int i = 0; i < FIVE_MINUTE_SLOTS; i++) {
+            if (fiveMinuteBuckets[i] != null) {
+                dirtyFive.add(fiveMinuteIndex[i]);
+            }
+        }
+        totals.values().forEach(counts -> counts.removeAll(removed));
+        songGenres.keySet().removeAll(removed);
+    }
+
+    /**
+     * Song id to play count, with mutable long cells so increments do not allocate.
+     */
+    private static final class Counts {
+        private final HashMap<String, long[]> counts = new HashMap<>();
+
+        void add(String songId, long plays) {
+            long[] cell = counts.get(songId);
+            if (cell == null) {
+                counts.put(songId, new long[]{plays});
+            } else {
+                cell[0] += plays;
+            }
+        }
+
+        void subtract(Counts other) {
+            other.counts.forEach((songId, cell) -> {
+                long[] mine = counts.get(songId);
+                if (mine != null) {
+                    mine[0] -= cell[0];
+                    if (mine[0] <= 0) {
+                        counts.remove(songId);
+                    }
+                }
+            });
+        }
+
+        void removeAll(Set<String> songIds) {
+            counts.keySet().removeAll(songIds);
+        }
+
+        void clear() {
+            counts.clear();
+        }
+
+        int size() {
+            return counts.size();
+        }
+
+        void forEach(ObjLongConsumer<String> consumer) {
+            counts.forEach((songId, cell) -> consumer.accept(songId, cell[0]));
+        }
+
+        Map<String, Long> toMap() {
+            Map<String, Long> map = new HashMap<>(counts.size() * 2);
+            counts.forEach((songId, cell) -> map.put(songId, cell[0]));
+            return map;
+        }
+    }
+
+    // Window totals copied out of the lock for ranking
+    private static final class Copy {
+        final String[] songIds;
+        final long[] plays;
+        final List<?>[] genres;
+        int size;
+
+        Copy(int capacity) {
+            songIds = new String[capacity];
+            plays = new long[capacity];
+            genres = new List<?>[capacity];
+        }
+
+        void add(String songId, long count, List<String> songGenres) {
+            songIds[size] = songId;
+            plays[size] = count;
+            genres[size] = songGenres;
+            size++;
+        }
+    }
+
+    private static final class TopK {
+        private final int k;
+        private final PriorityQueue<TrendingSong> heap = new PriorityQueue<>((a, b) -> Long.compare(a.plays(), b.plays()));
+
+        TopK(int k) {
+            this.k = k;
+        }
+
+        void offer(String songId, long plays) {
+            if (heap.size() < k) {
+                heap.add(new TrendingSong(songId, plays));
+            } else if (plays > heap.peek().plays()) {
+                heap.poll();
+                heap.add(new TrendingSong(songId, plays));
+            }
+        }
+
+        List<TrendingSong> sorted() {
+            List<TrendingSong> list = new ArrayList<>(heap);
+            list.sort((a, b) -> Long.compare(b.plays(), a.plays()));
+            return Collections.unmodifiableList(list);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.DA2.recommendationservice.service;
+
+import com.DA2.recommendationservice.service.TrendingEngine.BucketState;
+import com.DA2.recommendationservice.service.TrendingEngine.TrendingSong;
+import com.DA2.recommendationservice.service.TrendingEngine.Window;
+import com.DA2.shared.events.SongPlayedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds song plays into the TrendingEngine, refreshes its top-K snapshot and checkpoints
+ * its buckets to MongoDB so a restart resumes with the same windows.
+ */
+@Service
+public class TrendingService {
+
+    private static final String BUCKETS_COLLECTION = "trending_buckets";
+    private static final String GENRES_COLLECTION = "trending_song_genres";
+
+    private final MongoTemplate mongoTemplate;
+    private final TrendingEngine engine;
+
+    public TrendingService(MongoTemplate mongoTemplate,
+                           @Value("${app.trending.top-k:100}") int topK,
+                           @Value("${app.trending.max-tracked-songs:200000}") int maxTrackedSongs) {
+        this.mongoTemplate = mongoTemplate;
+        this.engine = new TrendingEngine(topK, maxTrackedSongs);
+    }
+
+    public void recordPlays(List<SongPlayedEvent> events) {
+        long now = System.currentTimeMillis();
+        for (SongPlayedEvent event : events) {
+            if (event.getSongId() == null) {
+                continue;
+            }
+            long timestamp = event.getTimestamp() != null
+                    ? event.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : now;
+            // Clock skew must not push the windows into the future
+            engine.record(event.getSongId(), event.getGenres(), Math.min(timestamp, now));
+        }
+    }
+
+    public List<TrendingSong> getTrending(String window, String genre, int limit) {
+        return engine.top(Window.fromLabel(window), genre, limit);
+    }
+
+    public long getSnapshotTime() {
+        return engine.getSnapshotTime();
+    }
+
+    public int getTrackedSongs() {
+        return engine.getTrackedSongs();
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        engine.refresh(System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void restore() {
+        try {
+            List<BucketState> buckets = new ArrayList<>();
+            for (Document document : mongoTemplate.findAll(Document.class, BUCKETS_COLLECTION)) {
+                Map<String, Long> counts = new HashMap<>();
+                Document stored = document.get("counts", Document.class);
+                if (stored != null) {
+                    stored.forEach((songId, plays) -> counts.put(songId, ((Number) plays).longValue()));
+                }
+                buckets.add(new BucketState(document.getString("type"), ((Number) document.get("index")).longValue(), counts));
+            }
+            Map<String, List<String>> genres = new HashMap<>();
+            for (Document document : mongoTemplate.findAll(Document.class, GENRES_COLLECTION)) {
+                genres.put(document.getString("_id"), document.getList("genres", String.class));
+            }
+            long now = System.currentTimeMillis();
+            engine.restore(buckets, genres, now);
+            engine.refresh(now);
+            System.out.println("Restored trending state: " + buckets.size() + " buckets, " + engine.getTrackedSongs() + " songs");
+        } catch (Exception e) {
+            System.out.println("Could not restore trending checkpoint, starting empty - " + e.getMessage());
+        }
+    }
+
+    // Only buckets that received plays since the last run are rewritten
+    @Scheduled(fixedDelayString = "${app.trending.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        List<BucketState> dirty = engine.drainDirtyBuckets();
+        Map<String, List<String>> genres = engine.drainDirtyGenres();
+        try {
+            for (BucketState bucket : dirty) {
+                Document document = new Document("_id", bucket.type() + ":" + bucket.index())
+                        .append("type", bucket.type())
+                        .append("index", bucket.index())
+                        .append("counts", new Document(new HashMap<>(bucket.counts())));
+                mongoTemplate.save(document, BUCKETS_COLLECTION);
+            }
+            if (!genres.isEmpty()) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GENRES_COLLECTION);
+                genres.forEach((songId, songGenres) -> bulk.upsert(
+                        new Query(Criteria.where("_id").is(songId)), new Update().set("genres", songGenres)));
+                bulk.execute();
+            }
+            mongoTemplate.remove(new Query(new Criteria().orOperator(
+                    Criteria.where("type").is("m").and("index").lt(engine.getOldestFiveMinuteIndex()),
+                    Criteria.where("type").is("h").and("index").lt(engine.getOldestHourIndex()))), BUCKETS_COLLECTION);
+        } catch (Exception e) {
+            // Saves are idempotent, so everything drained is simply written again next time
+            engine.markDirty(dirty, genres);
+            System.out.println("Failed to checkpoint trending state - " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+}
@@ -0,0 +1,100 @@
+package com.DA2.recommendationservice.loadtest;
+
+import com.DA2.recommendationservice.service.TrendingEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the TrendingEngine with a simulated play stream and reports ingest throughput,
+ * refresh cost and read latency. Event time runs faster than wall time so all windows slide.
+ * Usage: TrendingBenchmark [events] [songs] [threads]
+ */
+public class TrendingBenchmark {
+
+    private static final int GENRES = 30;
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int songs = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        String[] songIds = new String[songs];
+        List<List<String>> songGenres = new ArrayList<>(songs);
+        Random random = new Random(7);
+        for (int i = 0; i < songs; i++) {
+            songIds[i] = "song-" + i;
+            songGenres.add(List.of("genre-" + random.nextInt(GENRES), "genre-" + random.nextInt(GENRES)));
+        }
+
+        TrendingEngine engine = new TrendingEngine(100, 200_000);
+        // Spread the plays over eight days of event time so every window fills and slides
+        long span = 8L * 24 * TrendingEngine.ONE_HOUR;
+        long start = System.currentTimeMillis() - span;
+
+        // Refresh while ingesting, as the scheduler does in the service
+        Thread refresher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                engine.refresh(System.currentTimeMillis());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        refresher.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int perThread = events / threads;
+        long ingestStart = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            pool.execute(() -> {
+                Random r = new Random(offset);
+                for (int i = 0; i < perThread; i++) {
+                    long sequence = (long) i * threads + offset;
+                    // Zipf-like popularity: a few songs take most plays
+                    int song = (int) Math.pow(songs, r.nextDouble()) - 1;
+                    engine.record(songIds[song], songGenres.get(song), start + sequence * span / events);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        refresher.interrupt();
+        refresher.join();
+        double ingestSeconds = (System.nanoTime() - ingestStart) / 1e9;
+        System.out.printf("Ingested %,d events with %d threads (refreshing every second) in %.2fs: %,.0f events/s (target 50,000/s)%n",
+                perThread * threads, threads, ingestSeconds, perThread * threads / ingestSeconds);
+        System.out.printf("Tracked songs: %,d%n", engine.getTrackedSongs());
+
+        long[] refreshTimes = new long[10];
+        for (int i = 0; i < refreshTimes.length; i++) {
+            long t0 = System.nanoTime();
+            engine.refresh(System.currentTimeMillis());
+            refreshTimes[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(refreshTimes);
+        System.out.printf("Refresh (all windows and genres): median %.1f ms%n", refreshTimes[5] / 1e6);
+
+        int reads = 1_000_000;
+        TrendingEngine.Window[] windows = TrendingEngine.Window.values();
+        long readStart = System.nanoTime();
+        long returned = 0;
+        for (int i = 0; i < reads; i++) {
+            String genre = i % 2 == 0 ? null : "genre-" + (i % GENRES);
+            returned += engine.top(windows[i % windows.length], genre, 20).size();
+        }
+        System.out.printf("Reads: %.0f ns per top-20 query (%d songs returned on average)%n",
+                (System.nanoTime() - readStart) / (double) reads, returned / reads);
+        for (TrendingEngine.Window window : windows) {
+            System.out.println(window.getLabel() + " top 3: " + engine.top(window, null, 3));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.DA2.recommendationservice.service;
+
+import com.DA2.recommendationservice.service.TrendingEngine.TrendingSong;
+import com.DA2.recommendationservice.service.TrendingEngine.Window;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendingEngineTest {
+
+    private static final long MINUTE = 60_000L;
+    // Half past an hour, so the current 5-minute and hourly buckets are both partly filled
+    private static final long NOW = 500_000 * TrendingEngine.ONE_HOUR + 30 * MINUTE;
+
+    @Test
+    void playsCountInEveryWindowTheyFallInto() {
+        TrendingEngine engine = new TrendingEngine(10, 1000);
+        play(engine, "recent", 2, NOW - 10 * MINUTE);
+        play(engine, "today", 3, NOW - 5 * TrendingEngine.ONE_HOUR);
+        play(engine, "thisWeek", 4, NOW - 3 * 24 * TrendingEngine.ONE_HOUR);
+        engine.refresh(NOW);
+
+        assertEquals(List.of(new TrendingSong("recent", 2)), engine.top(Window.HOUR, null, 10));
+        assertEquals(List.of(new TrendingSong("today", 3), new TrendingSong("recent", 2)),
+                engine.top(Window.DAY, null, 10));
+        assertEquals(List.of("thisWeek", "today", "recent"), ids(engine.top(Window.WEEK, null, 10)));
+    }
+
+    @Test
+    void playsFallOffWhenTheirBucketSlidesOut() {
+        TrendingEngine engine = new TrendingEngine(10, 1000);
+        play(engine, "song", 5, NOW);
+
+        engine.refresh(NOW + 61 * MINUTE);
+        assertTrue(engine.top(Window.HOUR, null, 10).isEmpty());
+        assertEquals(5, engine.top(Window.DAY, null, 10).get(0).plays());
+
+        engine.refresh(NOW + 25 * TrendingEngine.ONE_HOUR);
+        assertTrue(engine.top(Window.DAY, null, 10).isEmpty());
+        assertEquals(5, engine.top(Window.WEEK, null, 10).get(0).plays());
+
+        engine.refresh(NOW + 8 * 24 * TrendingEngine.ONE_HOUR);
+        assertTrue(engine.top(Window.WEEK, null, 10).isEmpty());
+    }
+
+    @Test
+    void listsAreKeptPerGenreAndCutToTopK() {
+        TrendingEngine engine = new TrendingEngine(2, 1000);
+        engine.record("a", List.of("pop"), NOW);
+        engine.record("b", List.of("pop", "rock"), NOW);
+        engine.record("b", List.of("pop", "rock"), NOW);
+        engine.record("c", List.of("pop"), NOW);
+        engine.record("c", List.of("pop"), NOW);
+        engine.record("c", List.of("pop"), NOW);
+        engine.refresh(NOW);
+
+        assertEquals(List.of("c", "b"), ids(engine.top(Window.HOUR, "pop", 10)));
+        assertEquals(List.of("b"), ids(engine.top(Window.HOUR, "rock", 10)));
+        assertEquals(List.of("c"), ids(engine.top(Window.HOUR, null, 1)));
+    }
+
+    @Test
+    void pruningDropsTheLeastPlayedSongsEvenWhenTied() {
+        TrendingEngine engine = new TrendingEngine(10, 100);
+        play(engine, "hit", 50, NOW);
+        for (int i = 0; i < 100; i++) {
+            play(engine, "tail-" + i, 1, NOW);
+        }
+
+        assertEquals(90, engine.getTrackedSongs());
+        engine.refresh(NOW);
+        assertEquals(new TrendingSong("hit", 50), engine.top(Window.WEEK, null, 1).get(0));
+    }
+
+    @Test
+    void checkpointedBucketsRestoreIntoAFreshEngine() {
+        TrendingEngine engine = new TrendingEngine(10, 1000);
+        engine.record("a", List.of("pop"), NOW - 2 * TrendingEngine.ONE_HOUR);
+        engine.record("a", List.of("pop"), NOW);
+        engine.record("b", List.of("rock"), NOW);
+        List<TrendingEngine.BucketState> buckets = engine.drainDirtyBuckets();
+        Map<String, List<String>> genres = engine.drainDirtyGenres();
+
+        assertTrue(engine.drainDirtyBuckets().isEmpty());
+        engine.markDirty(buckets, genres);
+        assertFalse(engine.drainDirtyBuckets().isEmpty());
+        assertEquals(genres, engine.drainDirtyGenres());
+
+        TrendingEngine restored = new TrendingEngine(10, 1000);
+        restored.restore(buckets, genres, NOW);
+        restored.refresh(NOW);
+        engine.refresh(NOW);
+        for (Window window : Window.values()) {
+            assertEquals(engine.top(window, null, 10), restored.top(window, null, 10));
+        }
+        assertEquals(List.of("a"), ids(restored.top(Window.DAY, "pop", 10)));
+    }
+
+    private static void play(TrendingEngine engine, String songId, int times, long timestamp) {
+        for (int i = 0; i < times; i++) {
+            engine.record(songId, List.of(), timestamp);
+        }
+    }
+
+    private static List<String> ids(List<TrendingSong> songs) {
+        return songs.stream().map(TrendingSong::songId).toList();
+    }
+}
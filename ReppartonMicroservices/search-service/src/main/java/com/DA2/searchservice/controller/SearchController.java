@@ -21,6 +21,12 @@ public class SearchController {
         return ResponseEntity.ok("Search Service is running");
     }
 
+    // Local index status
+    @GetMapping("/index/status")
+    public ResponseEntity<?> indexStatus() {
+        return ResponseEntity.ok(searchService.getIndexStatus());
+    }
+
     // Global search
     @GetMapping
     public ResponseEntity<?> globalSearch(
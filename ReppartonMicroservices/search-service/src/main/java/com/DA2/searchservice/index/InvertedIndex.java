@@ -0,0 +1,365 @@
+package com.DA2.searchservice.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index for one content type, ranked with BM25.
+ * Documents get increasing internal ids, so postings lists stay sorted by appending only.
+ * Updating or removing a document tombstones its old id; the index compacts itself once
+ * tombstones outnumber live documents. Terms are kept sorted, so a prefix of the last
+ * query word expands to every indexed term starting with it (autocomplete).
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final double PREFIX_PENALTY = 0.8;
+    private static final int MIN_COMPACTION_TOMBSTONES = 10_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> docIdsByKey = new HashMap<>();
+    private SearchDocument[] docs = new SearchDocument[1024];
+    private int[] lengths = new int[1024];
+    private int nextDocId;
+    private long totalLength;
+
+    public void put(SearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            Integer existingId = docIdsByKey.get(document.id());
+            if (existingId != null && docs[existingId].sameText(document)) {
+                // Only counters or display fields changed: postings are still valid
+                docs[existingId] = document;
+                return;
+            }
+            if (existingId != null) {
+                tombstone(existingId);
+            }
+            add(document);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer existingId = docIdsByKey.remove(id);
+            if (existingId == null) {
+                return false;
+            }
+            tombstone(existingId);
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks documents against the query. With prefix set, the last query word also matches
+     * longer terms that start with it, so partial input already returns results.
+     */
+    public SearchHits search(String query, int offset, int limit, boolean prefix) {
+        List<String> queryTerms = TextAnalyzer.tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return SearchHits.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docIdsByKey.size();
+            if (liveDocs == 0) {
+                return SearchHits.empty();
+            }
+            double avgLength = Math.max(1.0, (double) totalLength / liveDocs);
+
+            int k = offset + limit;
+            Scratch scratch = SCRATCH.get().ensure(nextDocId);
+            float[] scores = scratch.scores;
+            int[] matched = scratch.matched;
+            int matchedCount = 0;
+
+            // Rarest terms first: once they have produced enough candidates, common terms
+            // (low idf, long postings) only add to existing candidates instead of adding new ones
+            List<Map.Entry<String, Double>> expanded = new ArrayList<>(expand(queryTerms, prefix).entrySet());
+            expanded.sort(Comparator.comparingInt(e -> terms.get(e.getKey()).live));
+
+            try {
+                for (Map.Entry<String, Double> term : expanded) {
+                    Postings postings = terms.get(term.getKey());
+                    double idf = Math.log(1 + (liveDocs - postings.live + 0.5) / (postings.live + 0.5));
+                    float weight = (float) (idf * term.getValue() * (K1 + 1));
+                    boolean updateOnly = matchedCount >= k;
+
+                    if (updateOnly && (long) matchedCount * 16 < postings.size) {
+                        // Few candidates against a long list: look each candidate up instead of scanning
+                        Arrays.sort(matched, 0, matchedCount);
+                        int from = 0;
+                        for (int m = 0; m < matchedCount; m++) {
+                            int docId = matched[m];
+                            int i = Arrays.binarySearch(postings.docIds, from, postings.size, docId);
+                            if (i >= 0) {
+                                scores[docId] += bm25(weight, postings.freqs[i], lengths[docId], avgLength);
+                                from = i + 1;
+                            } else {
+                                from = -i - 1;
+                            }
+                        }
+                        continue;
+                    }
+
+                    for (int i = 0; i < postings.size; i++) {
+                        int docId = postings.docIds[i];
+                        if (docs[docId] == null) {
+                            continue;
+                        }
+                        if (scores[docId] == 0) {
+                            if (updateOnly) {
+                                continue;
+                            }
+                            matched[matchedCount++] = docId;
+                        }
+                        scores[docId] += bm25(weight, postings.freqs[i], lengths[docId], avgLength);
+                    }
+                }
+
+                // Fold popularity in once per match, then keep the best offset+limit in a min-heap
+                int topK = Math.min(k, matchedCount);
+                int[] heap = new int[topK];
+                int heapSize = 0;
+                for (int i = 0; i < matchedCount; i++) {
+                    int docId = matched[i];
+                    scores[docId] *= popularityBoost(docs[docId]);
+                    if (heapSize < topK) {
+                        heap[heapSize] = docId;
+                        siftUp(heap, heapSize++, scores);
+                    } else if (topK > 0 && scores[docId] > scores[heap[0]]) {
+                        heap[0] = docId;
+                        siftDown(heap, heapSize, scores);
+                    }
+                }
+
+                int[] ranked = new int[heapSize];
+                for (int i = heapSize - 1; i >= 0; i--) {
+                    ranked[i] = heap[0];
+                    heap[0] = heap[i];
+                    siftDown(heap, i, scores);
+                }
+                List<Map<String, Object>> hits = new ArrayList<>(limit);
+                for (int i = offset; i < ranked.length; i++) {
+                    int docId = ranked[i];
+                    Map<String, Object> hit = new LinkedHashMap<>(docs[docId].fields());
+                    hit.put("score", Math.round(scores[docId] * 1000) / 1000.0);
+                    hits.add(hit);
+                }
+                return new SearchHits(matchedCount, hits);
+            } finally {
+                for (int i = 0; i < matchedCount; i++) {
+                    scores[matched[i]] = 0;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static float bm25(float weight, int tf, int length, double avgLength) {
+        return (float) (weight * tf / (tf + K1 * (1 - B + B * length / avgLength)));
+    }
+
+    // Popularity only breaks near-ties; text relevance dominates
+    private static float popularityBoost(SearchDocument document) {
+        return (float) (1 + 0.05 * Math.log1p(Math.max(0, document.popularity())));
+    }
+
+    private static void siftUp(int[] heap, int i, float[] scores) {
+        int docId = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[heap[parent]] <= scores[docId]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = docId;
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        if (size == 0) {
+            return;
+        }
+        int docId = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+                child++;
+            }
+            if (scores[docId] <= scores[heap[child]]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = docId;
+    }
+
+    private Map<String, Double> expand(List<String> queryTerms, boolean prefix) {
+        Map<String, Double> expanded = new LinkedHashMap<>();
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String term = queryTerms.get(i);
+            boolean last = i == queryTerms.size() - 1;
+            if (prefix && last) {
+                // Keep the most common completions, those are what a partial word most likely means
+                SortedMap<String, Postings> range = terms.subMap(term, term + Character.MAX_VALUE);
+                List<Map.Entry<String, Postings>> completions = new ArrayList<>();
+                for (Map.Entry<String, Postings> candidate : range.entrySet()) {
+                    if (candidate.getValue().live > 0) {
+                        completions.add(candidate);
+                    }
+                }
+                if (completions.size() > MAX_PREFIX_EXPANSIONS) {
+                    completions.sort(Comparator.comparingInt((Map.Entry<String, Postings> e) -> e.getValue().live).reversed());
+                    completions = completions.subList(0, MAX_PREFIX_EXPANSIONS);
+                }
+                for (Map.Entry<String, Postings> candidate : completions) {
+                    String key = candidate.getKey();
+                    expanded.merge(key, key.equals(term) ? 1.0 : PREFIX_PENALTY, Math::max);
+                }
+            } else if (terms.containsKey(term) && terms.get(term).live > 0) {
+                expanded.merge(term, 1.0, Double::sum);
+            }
+        }
+        return expanded;
+    }
+
+    private void add(SearchDocument document) {
+        Map<String, Integer> freqs = new HashMap<>();
+        int length = 0;
+        for (String token : TextAnalyzer.tokenize(document.title())) {
+            freqs.merge(token, TITLE_WEIGHT, Integer::sum);
+            length += TITLE_WEIGHT;
+        }
+        for (String token : TextAnalyzer.tokenize(document.body())) {
+            freqs.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int docId = nextDocId++;
+        if (docId == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        docs[docId] = document;
+        lengths[docId] = length;
+        totalLength += length;
+        docIdsByKey.put(document.id(), docId);
+
+        for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(docId, entry.getValue());
+        }
+    }
+
+    private void tombstone(int docId) {
+        for (String token : distinctTokens(docs[docId])) {
+            Postings postings = terms.get(token);
+            if (postings != null) {
+                postings.live--;
+            }
+        }
+        totalLength -= lengths[docId];
+        docs[docId] = null;
+    }
+
+    private static Iterable<String> distinctTokens(SearchDocument document) {
+        Map<String, Boolean> tokens = new LinkedHashMap<>();
+        TextAnalyzer.tokenize(document.title()).forEach(t -> tokens.put(t, Boolean.TRUE));
+        TextAnalyzer.tokenize(document.body()).forEach(t -> tokens.put(t, Boolean.TRUE));
+        return tokens.keySet();
+    }
+
+    // Rebuild postings from live documents once dead entries dominate
+    private void compactIfNeeded() {
+        int tombstones = nextDocId - docIdsByKey.size();
+        if (tombstones < MIN_COMPACTION_TOMBSTONES || tombstones < docIdsByKey.size()) {
+            return;
+        }
+        SearchDocument[] live = new SearchDocument[docIdsByKey.size()];
+        int n = 0;
+        for (int i = 0; i < nextDocId; i++) {
+            if (docs[i] != null) {
+                live[n++] = docs[i];
+            }
+        }
+        terms.clear();
+        docIdsByKey.clear();
+        docs = new SearchDocument[Math.max(1024, live.length * 2)];
+        lengths = new int[docs.length];
+        nextDocId = 0;
+        totalLength = 0;
+        for (SearchDocument document : live) {
+            add(document);
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    // Per-thread score accumulator, reset after each query so it never needs reallocating
+    private static final class Scratch {
+        float[] scores = new float[0];
+        int[] matched = new int[0];
+
+        Scratch ensure(int docCount) {
+            if (scores.length < docCount) {
+                scores = new float[docCount * 2];
+                matched = new int[docCount * 2];
+            }
+            return this;
+        }
+    }
+
+    private static final class Postings {
+        int[] docIds = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        int live;
+
+        void add(int docId, int freq) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docIds[size] = docId;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+}
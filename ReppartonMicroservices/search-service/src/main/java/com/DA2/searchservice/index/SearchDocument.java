@@ -0,0 +1,14 @@
+package com.DA2.searchservice.index;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One searchable entity. Title terms weigh more than body terms; fields are what a hit returns.
+ */
+public record SearchDocument(String id, String title, String body, long popularity, Map<String, Object> fields) {
+
+    boolean sameText(SearchDocument other) {
+        return other != null && Objects.equals(title, other.title) && Objects.equals(body, other.body);
+    }
+}
@@ -0,0 +1,11 @@
+package com.DA2.searchservice.index;
+
+import java.util.List;
+import java.util.Map;
+
+public record SearchHits(long total, List<Map<String, Object>> hits) {
+
+    public static SearchHits empty() {
+        return new SearchHits(0, List.of());
+    }
+}
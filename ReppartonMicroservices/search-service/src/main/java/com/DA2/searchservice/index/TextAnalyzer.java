@@ -0,0 +1,53 @@
+package com.DA2.searchservice.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns text into index terms: lower case, Vietnamese accents folded to plain ASCII
+ * ("Sơn Tùng" and "son tung" give the same terms), split on anything that is not a letter or digit.
+ */
+public final class TextAnalyzer {
+
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private TextAnalyzer() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            // đ/Đ is a separate letter, not d plus a combining mark, so NFD leaves it alone
+            if (c == '\u0111' || c == '\u0110') {
+                c = 'd';
+            }
+            folded.append(Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,322 @@
+package com.DA2.searchservice.service;
+
+import com.DA2.searchservice.index.InvertedIndex;
+import com.DA2.searchservice.index.SearchDocument;
+import com.DA2.searchservice.index.SearchHits;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Owns the local search indexes for users, songs, lyrics, playlists and posts.
+ * Each index is loaded from its source collection at startup, kept current from MongoDB
+ * change streams, and fully rebuilt on a schedule as a safety net for missed changes.
+ */
+@Service
+public class SearchIndexService {
+
+    public static final String USERS = "users";
+    public static final String SONGS = "songs";
+    public static final String LYRICS = "lyrics";
+    public static final String PLAYLISTS = "playlists";
+    public static final String POSTS = "posts";
+
+    private final List<Source> sources = new ArrayList<>();
+    private final List<MessageListenerContainer> containers = new ArrayList<>();
+    private final Object swapLock = new Object();
+
+    private volatile Map<String, InvertedIndex> indexes = emptyIndexes();
+    private volatile boolean ready;
+    // Changes that arrive while a rebuild is scanning, replayed onto the new indexes before the swap
+    private List<Runnable> rebuildLog;
+
+    public SearchIndexService(MongoClient mongoClient,
+                              @Value("${app.search.databases.users}") String usersDatabase,
+                              @Value("${app.search.databases.songs}") String songsDatabase,
+                              @Value("${app.search.databases.playlists}") String playlistsDatabase,
+                              @Value("${app.search.databases.posts}") String postsDatabase) {
+        requireDatabase("users", usersDatabase);
+        requireDatabase("songs", songsDatabase);
+        requireDatabase("playlists", playlistsDatabase);
+        requireDatabase("posts", postsDatabase);
+        sources.add(new Source(new MongoTemplate(mongoClient, usersDatabase), "users",
+                Map.of(USERS, SearchIndexService::toUser),
+                "username", "fullName", "bio", "avatarUrl", "isVerified", "role", "followersCount", "artistVerification.artistName"));
+        sources.add(new Source(new MongoTemplate(mongoClient, songsDatabase), "songs",
+                Map.of(SONGS, SearchIndexService::toSong, LYRICS, SearchIndexService::toLyrics),
+                "title", "artist", "genres", "description", "coverImageUrl", "uploadedBy", "duration",
+                "playsCount", "likesCount", "isPublic", "isActive", "lyrics"));
+        sources.add(new Source(new MongoTemplate(mongoClient, playlistsDatabase), "playlists",
+                Map.of(PLAYLISTS, SearchIndexService::toPlaylist),
+                "name", "description", "coverUrl", "userId", "songIds", "isPrivate", "followers"));
+        sources.add(new Source(new MongoTemplate(mongoClient, postsDatabase), "posts",
+                Map.of(POSTS, SearchIndexService::toPost),
+                "userId", "content", "mediaUrl", "mediaType", "locationName", "isPrivate", "likes", "comments", "createdAt"));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public SearchHits search(String type, String query, int page, int size, boolean prefix) {
+        InvertedIndex index = indexes.get(type);
+        if (index == null) {
+            throw new RuntimeException("Unknown search type: " + type);
+        }
+        return index.search(query, Math.max(0, page) * size, size, prefix);
+    }
+
+    public Map<String, Integer> getIndexSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        indexes.forEach((type, index) -> sizes.put(type, index.size()));
+        return sizes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread loader = new Thread(() -> {
+            // Subscribe first so nothing changed during the initial load is missed
+            for (Source source : sources) {
+                watch(source);
+            }
+            rebuild();
+        }, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.search.rebuild-interval-ms:900000}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        synchronized (swapLock) {
+            if (rebuildLog != null) {
+                return;
+            }
+            rebuildLog = new ArrayList<>();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, InvertedIndex> fresh = emptyIndexes();
+        try {
+            for (Source source : sources) {
+                load(source, fresh);
+            }
+        } catch (Exception e) {
+            System.out.println("Search index rebuild failed - " + e.getMessage());
+            synchronized (swapLock) {
+                rebuildLog = null;
+            }
+            return;
+        }
+
+        synchronized (swapLock) {
+            indexes = fresh;
+            rebuildLog.forEach(Runnable::run);
+            rebuildLog = null;
+            ready = true;
+        }
+        System.out.println("Search index rebuilt in " + (System.currentTimeMillis() - start) + "ms: " + getIndexSizes());
+    }
+
+    @PreDestroy
+    public void stop() {
+        containers.forEach(MessageListenerContainer::stop);
+    }
+
+    private void load(Source source, Map<String, InvertedIndex> target) {
+        Query query = new Query();
+        query.fields().include(source.fields);
+        try (Stream<Document> documents = source.template.stream(query, Document.class, source.collection)) {
+            documents.forEach(document -> source.mappers.forEach((type, mapper) -> {
+                SearchDocument searchDocument = mapper.apply(document);
+                if (searchDocument != null) {
+                    target.get(type).put(searchDocument);
+                }
+            }));
+        }
+    }
+
+    private void watch(Source source) {
+        DefaultMessageListenerContainer container = new DefaultMessageListenerContainer(source.template);
+        ChangeStreamRequest<Document> request = ChangeStreamRequest.builder(
+                        (Message<ChangeStreamDocument<Document>, Document> message) ->
+                                apply(source, message.getRaw(), message.getBody()))
+                .collection(source.collection)
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .build();
+        container.register(request, Document.class, error ->
+                System.out.println("Change stream on " + source.collection + " failed, relying on scheduled rebuild - " + error.getMessage()));
+        container.start();
+        containers.add(container);
+    }
+
+    private void apply(Source source, ChangeStreamDocument<Document> change, Document body) {
+        if (change == null || change.getDocumentKey() == null) {
+            return;
+        }
+        String id = idOf(change.getDocumentKey().get("_id"));
+        boolean deleted = change.getOperationType() == OperationType.DELETE || body == null;
+
+        Runnable update = () -> source.mappers.forEach((type, mapper) -> {
+            InvertedIndex index = indexes.get(type);
+            SearchDocument searchDocument = deleted ? null : mapper.apply(body);
+            if (searchDocument == null) {
+                index.remove(id);
+            } else {
+                index.put(searchDocument);
+            }
+        });
+
+        synchronized (swapLock) {
+            update.run();
+            if (rebuildLog != null) {
+                rebuildLog.add(update);
+            }
+        }
+    }
+
+    private static Map<String, InvertedIndex> emptyIndexes() {
+        Map<String, InvertedIndex> map = new HashMap<>();
+        for (String type : List.of(USERS, SONGS, LYRICS, PLAYLISTS, POSTS)) {
+            map.put(type, new InvertedIndex());
+        }
+        return map;
+    }
+
+    // Hidden or private content is mapped to null, which removes it from the index
+
+    private static SearchDocument toUser(Document user) {
+        Map<String, Object> fields = fields(user, "username", "fullName", "avatarUrl", "isVerified", "role", "followersCount");
+        Document verification = user.get("artistVerification", Document.class);
+        String artistName = verification != null ? verification.getString("artistName") : null;
+        return new SearchDocument((String) fields.get("id"),
+                join(user.getString("username"), user.getString("fullName"), artistName),
+                user.getString("bio"),
+                number(user.get("followersCount")), fields);
+    }
+
+    private static SearchDocument toSong(Document song) {
+        if (Boolean.FALSE.equals(song.get("isPublic")) || Boolean.FALSE.equals(song.get("isActive"))) {
+            return null;
+        }
+        Map<String, Object> fields = fields(song, "title", "artist", "coverImageUrl", "uploadedBy", "genres",
+                "duration", "playsCount", "likesCount");
+        List<?> genres = song.get("genres", List.class);
+        return new SearchDocument((String) fields.get("id"),
+                join(song.getString("title"), song.getString("artist")),
+                join(genres != null ? String.join(" ", genres.stream().map(String::valueOf).toList()) : null,
+                        song.getString("description")),
+                number(song.get("playsCount")), fields);
+    }
+
+    private static SearchDocument toLyrics(Document song) {
+        String lyrics = song.getString("lyrics");
+        if (lyrics == null || lyrics.isBlank()
+                || Boolean.FALSE.equals(song.get("isPublic")) || Boolean.FALSE.equals(song.get("isActive"))) {
+            return null;
+        }
+        Map<String, Object> fields = fields(song, "title", "artist", "coverImageUrl", "uploadedBy");
+        return new SearchDocument((String) fields.get("id"), null, lyrics, number(song.get("playsCount")), fields);
+    }
+
+    private static SearchDocument toPlaylist(Document playlist) {
+        if (Boolean.TRUE.equals(playlist.get("isPrivate"))) {
+            return null;
+        }
+        Map<String, Object> fields = fields(playlist, "name", "description", "coverUrl", "userId", "followers");
+        List<?> songIds = playlist.get("songIds", List.class);
+        fields.put("songCount", songIds != null ? songIds.size() : 0);
+        return new SearchDocument((String) fields.get("id"), playlist.getString("name"),
+                playlist.getString("description"), number(playlist.get("followers")), fields);
+    }
+
+    private static SearchDocument toPost(Document post) {
+        if (Boolean.TRUE.equals(post.get("isPrivate"))) {
+            return null;
+        }
+        Map<String, Object> fields = fields(post, "userId", "content", "mediaUrl", "mediaType", "locationName",
+                "likes", "comments", "createdAt");
+        return new SearchDocument((String) fields.get("id"), null,
+                join(post.getString("content"), post.getString("locationName")),
+                number(post.get("likes")), fields);
+    }
+
+    private static Map<String, Object> fields(Document document, String... names) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", idOf(document.get("_id")));
+        for (String name : names) {
+            Object value = document.get(name);
+            if (value != null) {
+                fields.put(name, value);
+            }
+        }
+        return fields;
+    }
+
+    private static String idOf(Object id) {
+        if (id instanceof BsonValue bson) {
+            return bson.isObjectId() ? bson.asObjectId().getValue().toHexString()
+                    : bson.isString() ? bson.asString().getValue() : bson.toString();
+        }
+        return String.valueOf(id);
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static String join(String... parts) {
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.isBlank()) {
+                joined.append(joined.length() == 0 ? "" : " ").append(part);
+            }
+        }
+        return joined.toString();
+    }
+
+    // An unresolved placeholder already fails startup; this catches names set but left empty
+    private static void requireDatabase(String source, String database) {
+        if (database == null || database.isBlank()) {
+            throw new IllegalStateException("app.search.databases." + source + " must name the database the "
+                    + source + " live in");
+        }
+    }
+
+    private static final class Source {
+        final MongoTemplate template;
+        final String collection;
+        final Map<String, Function<Document, SearchDocument>> mappers;
+        final String[] fields;
+
+        Source(MongoTemplate template, String collection, Map<String, Function<Document, SearchDocument>> mappers, String... fields) {
+            this.template = template;
+            this.collection = collection;
+            this.mappers = mappers;
+            this.fields = fields;
+        }
+    }
+}
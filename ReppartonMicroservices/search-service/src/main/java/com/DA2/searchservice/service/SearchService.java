@@ -1,16 +1,21 @@
 package com.DA2.searchservice.service;
 
 import com.DA2.searchservice.client.*;
+import com.DA2.searchservice.index.SearchHits;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 @Service
 public class SearchService {
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
     @Autowired
     private UserServiceClient userServiceClient;
 
@@ -23,8 +28,112 @@ public class SearchService {
     @Autowired
     private PostServiceClient postServiceClient;
 
-    // Global search across all services
+    // Global search across all content types, served from the local index
     public Map<String, Object> globalSearch(String query, int page, int size) {
+        if (!searchIndexService.isReady()) {
+            return globalSearchRemote(query, page, size);
+        }
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("users", searchLocal(SearchIndexService.USERS, query, page, size, false));
+        results.put("songs", searchLocal(SearchIndexService.SONGS, query, page, size, false));
+        results.put("playlists", searchLocal(SearchIndexService.PLAYLISTS, query, page, size, false));
+        results.put("posts", searchLocal(SearchIndexService.POSTS, query, page, size, false));
+        results.put("lyrics", searchLocal(SearchIndexService.LYRICS, query, page, size, false));
+        return results;
+    }
+
+    // Search only users
+    public Object searchUsers(String query, int page, int size) {
+        if (searchIndexService.isReady()) {
+            return searchLocal(SearchIndexService.USERS, query, page, size, false);
+        }
+        try {
+            return userServiceClient.searchUsers(query, page, size);
+        } catch (Exception e) {
+            throw new RuntimeException("User search failed: " + e.getMessage());
+        }
+    }
+
+    // Search only songs
+    public Object searchSongs(String query, int page, int size) {
+        if (searchIndexService.isReady()) {
+            return searchLocal(SearchIndexService.SONGS, query, page, size, false);
+        }
+        try {
+            return songServiceClient.searchSongs(query, page, size);
+        } catch (Exception e) {
+            throw new RuntimeException("Song search failed: " + e.getMessage());
+        }
+    }
+
+    // Search only playlists
+    public Object searchPlaylists(String query, int page, int size) {
+        if (searchIndexService.isReady()) {
+            return searchLocal(SearchIndexService.PLAYLISTS, query, page, size, false);
+        }
+        try {
+            return playlistServiceClient.searchPlaylists(query, page, size);
+        } catch (Exception e) {
+            throw new RuntimeException("Playlist search failed: " + e.getMessage());
+        }
+    }
+
+    // Search only posts
+    public Object searchPosts(String query, int page, int size) {
+        if (searchIndexService.isReady()) {
+            return searchLocal(SearchIndexService.POSTS, query, page, size, false);
+        }
+        try {
+            return postServiceClient.searchPosts(query, page, size);
+        } catch (Exception e) {
+            throw new RuntimeException("Post search failed: " + e.getMessage());
+        }
+    }
+
+    // Search lyrics within songs
+    public Object searchLyrics(String query, int page, int size) {
+        if (searchIndexService.isReady()) {
+            return searchLocal(SearchIndexService.LYRICS, query, page, size, false);
+        }
+        try {
+            return songServiceClient.searchLyrics(query, page, size);
+        } catch (Exception e) {
+            throw new RuntimeException("Lyrics search failed: " + e.getMessage());
+        }
+    }
+
+    // Quick search - limited results for autocomplete, the last word matches as a prefix
+    public Map<String, Object> quickSearch(String query, int limit) {
+        if (!searchIndexService.isReady()) {
+            return quickSearchRemote(query, limit);
+        }
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("users", searchIndexService.search(SearchIndexService.USERS, query, 0, limit, true).hits());
+        results.put("songs", searchIndexService.search(SearchIndexService.SONGS, query, 0, limit, true).hits());
+        return results;
+    }
+
+    public Map<String, Object> getIndexStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", searchIndexService.isReady());
+        status.put("documents", searchIndexService.getIndexSizes());
+        return status;
+    }
+
+    private Map<String, Object> searchLocal(String type, String query, int page, int size, boolean prefix) {
+        SearchHits hits = searchIndexService.search(type, query, page, size, prefix);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", hits.hits());
+        result.put("totalElements", hits.total());
+        result.put("page", page);
+        result.put("size", size);
+        return result;
+    }
+
+    // Fan-out to the owning services, only used until the local index has finished its first load
+    private Map<String, Object> globalSearchRemote(String query, int page, int size) {
         Map<String, Object> results = new HashMap<>();
 
         try {
@@ -90,53 +199,7 @@ public class SearchService {
         return results;
     }
 
-    // Search only users
-    public Object searchUsers(String query, int page, int size) {
-        try {
-            return userServiceClient.searchUsers(query, page, size);
-        } catch (Exception e) {
-            throw new RuntimeException("User search failed: " + e.getMessage());
-        }
-    }
-
-    // Search only songs
-    public Object searchSongs(String query, int page, int size) {
-        try {
-            return songServiceClient.searchSongs(query, page, size);
-        } catch (Exception e) {
-            throw new RuntimeException("Song search failed: " + e.getMessage());
-        }
-    }
-
-    // Search only playlists
-    public Object searchPlaylists(String query, int page, int size) {
-        try {
-            return playlistServiceClient.searchPlaylists(query, page, size);
-        } catch (Exception e) {
-            throw new RuntimeException("Playlist search failed: " + e.getMessage());
-        }
-    }
-
-    // Search only posts
-    public Object searchPosts(String query, int page, int size) {
-        try {
-            return postServiceClient.searchPosts(query, page, size);
-        } catch (Exception e) {
-            throw new RuntimeException("Post search failed: " + e.getMessage());
-        }
-    }
-
-    // Search lyrics within songs
-    public Object searchLyrics(String query, int page, int size) {
-        try {
-            return songServiceClient.searchLyrics(query, page, size);
-        } catch (Exception e) {
-            throw new RuntimeException("Lyrics search failed: " + e.getMessage());
-        }
-    }
-
-    // Quick search - limited results for autocomplete
-    public Map<String, Object> quickSearch(String query, int limit) {
+    private Map<String, Object> quickSearchRemote(String query, int limit) {
         Map<String, Object> results = new HashMap<>();
 
         try {
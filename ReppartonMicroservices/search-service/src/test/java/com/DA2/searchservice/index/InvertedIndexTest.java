@@ -0,0 +1,85 @@
+package com.DA2.searchservice.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @Test
+    void foldsVietnameseAccents() {
+        assertEquals(List.of("son", "tung", "m", "tp", "dem", "trang"), TextAnalyzer.tokenize("Sơn Tùng M-TP, Đêm trăng"));
+    }
+
+    @Test
+    void matchesQueriesWithOrWithoutAccents() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(document("1", "Chúng ta của hiện tại", "Sơn Tùng M-TP", 0));
+        index.put(document("2", "Đêm trăng", "Bích Phương", 0));
+
+        assertEquals(List.of("1"), ids(index.search("son tung", 0, 10, false)));
+        assertEquals(List.of("2"), ids(index.search("ĐÊM TRĂNG", 0, 10, false)));
+    }
+
+    @Test
+    void prefixModeCompletesTheLastWord() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(document("1", "Đêm trăng", "Bích Phương", 0));
+
+        assertEquals(List.of("1"), ids(index.search("bich ph", 0, 5, true)));
+        assertEquals(0, index.search("ph", 0, 5, false).total());
+    }
+
+    @Test
+    void titleMatchesOutrankBodyMatchesAndPagesAreSliced() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(document("body", "Mưa chiều", "nhớ em", 0));
+        index.put(document("title", "Nhớ em", "mưa chiều", 0));
+        index.put(document("other", "Biển", "nhớ", 0));
+
+        SearchHits all = index.search("nho em", 0, 10, false);
+        assertEquals(3, all.total());
+        assertEquals("title", ids(all).get(0));
+        assertEquals(ids(all).subList(1, 3), ids(index.search("nho em", 1, 2, false)));
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisibleToSearch() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(document("1", "Mùa thu Hà Nội", "", 0));
+        index.put(document("1", "Mùa xuân", "", 0));
+
+        assertEquals(0, index.search("thu", 0, 10, false).total());
+        assertEquals(List.of("1"), ids(index.search("xuan", 0, 10, false)));
+        assertTrue(index.remove("1"));
+        assertFalse(index.remove("1"));
+        assertEquals(0, index.size());
+        assertEquals(0, index.search("xuan", 0, 10, false).total());
+    }
+
+    @Test
+    void compactionKeepsLiveDocumentsSearchable() {
+        InvertedIndex index = new InvertedIndex();
+        // Enough rewrites to pass the tombstone threshold several times over
+        for (int i = 0; i < 30_000; i++) {
+            index.put(document("song-" + (i % 10), "title " + i, "lofi", 0));
+        }
+
+        assertEquals(10, index.size());
+        assertEquals(10, index.search("lofi", 0, 20, false).total());
+        assertEquals(List.of("song-9"), ids(index.search("29999", 0, 5, false)));
+    }
+
+    private static SearchDocument document(String id, String title, String body, long popularity) {
+        return new SearchDocument(id, title, body, popularity, Map.of("id", id));
+    }
+
+    private static List<String> ids(SearchHits hits) {
+        return hits.hits().stream().map(hit -> (String) hit.get("id")).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package com.DA2.searchservice.loadtest;
+
+import com.DA2.searchservice.index.InvertedIndex;
+import com.DA2.searchservice.index.SearchDocument;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures in-memory search latency on a synthetic catalogue.
+ * Usage: SearchIndexBenchmark [documents] [queries]
+ */
+public class SearchIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "em", "anh", "yêu", "người", "mưa", "nắng", "chiều", "đêm", "trăng", "biển", "nhớ", "thương",
+            "hà", "nội", "sài", "gòn", "mùa", "thu", "xuân", "hạ", "đông", "tình", "ca", "buồn", "vui",
+            "sơn", "tùng", "mỹ", "tâm", "đen", "vâu", "hoàng", "thùy", "linh", "bích", "phương", "love",
+            "night", "dream", "heart", "song", "remix", "acoustic", "live", "lofi", "chill", "ballad", "rap"
+    };
+
+    private static final String[] QUERIES = {"son tung", "em yeu", "mua thu ha noi", "đêm trăng", "lofi chill", "s", "tu", "hoang thu", "bich ph", "remix"};
+
+    public static void main(String[] args) {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Random random = new Random(42);
+
+        InvertedIndex index = new InvertedIndex();
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < documents; i++) {
+            String id = "song-" + i;
+            index.put(new SearchDocument(id, phrase(random, 2 + random.nextInt(3)) + " " + phrase(random, 2),
+                    phrase(random, 8 + random.nextInt(20)), random.nextInt(1_000_000), Map.of("id", id)));
+        }
+        System.out.printf("Indexed %d documents in %d ms%n", documents, (System.nanoTime() - buildStart) / 1_000_000);
+
+        run(index, queries / 4, true, "warmup");
+        run(index, queries, true, "quick (prefix)");
+        run(index, queries, false, "full");
+    }
+
+    private static void run(InvertedIndex index, int queries, boolean prefix, String label) {
+        long[] latencies = new long[queries];
+        long hits = 0;
+        for (int i = 0; i < queries; i++) {
+            String query = QUERIES[i % QUERIES.length];
+            long start = System.nanoTime();
+            hits += index.search(query, 0, prefix ? 5 : 10, prefix).total();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-15s p50=%.2fms p99=%.2fms max=%.2fms (avg matches %d)%n", label,
+                latencies[queries / 2] / 1e6, latencies[(int) (queries * 0.99)] / 1e6,
+                latencies[queries - 1] / 1e6, hits / queries);
+    }
+
+    // Common words first, then rarer compounds; log-uniform picks give a Zipf-like term distribution
+    private static final String[] VOCABULARY = buildVocabulary();
+
+    private static String[] buildVocabulary() {
+        String[] vocabulary = new String[WORDS.length + WORDS.length * WORDS.length];
+        System.arraycopy(WORDS, 0, vocabulary, 0, WORDS.length);
+        int n = WORDS.length;
+        for (String first : WORDS) {
+            for (String second : WORDS) {
+                vocabulary[n++] = first + second;
+            }
+        }
+        return vocabulary;
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int rank = (int) Math.pow(VOCABULARY.length, random.nextDouble()) - 1;
+            phrase.append(i == 0 ? "" : " ").append(VOCABULARY[rank]);
+        }
+        return phrase.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.DA2.searchservice.service;
+
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SearchIndexServiceTest {
+
+    private final MongoClient mongoClient = mock(MongoClient.class);
+
+    @Test
+    void startsWhenEveryDatabaseIsNamed() {
+        assertDoesNotThrow(() -> new SearchIndexService(mongoClient, "users_db", "songs_db", "playlists_db", "posts_db"));
+    }
+
+    @Test
+    void emptyDatabaseNamesFailStartup() {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> new SearchIndexService(mongoClient, "users_db", " ", "playlists_db", "posts_db"));
+        assertTrue(error.getMessage().contains("app.search.databases.songs"));
+        assertThrows(IllegalStateException.class,
+                () -> new SearchIndexService(mongoClient, "users_db", "songs_db", "playlists_db", null));
+    }
+}
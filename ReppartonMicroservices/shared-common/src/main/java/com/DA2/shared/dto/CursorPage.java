@@ -0,0 +1,28 @@
+package com.DA2.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a cursor-paginated list. Pass nextCursor back to get the following page;
+ * it is null when there is nothing more to read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(content.size());
+        content.forEach(item -> mapped.add(mapper.apply(item)));
+        return new CursorPage<>(mapped, nextCursor, hasMore);
+    }
+}
@@ -0,0 +1,19 @@
+package com.DA2.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The user fields other services display next to content: served in batches by user-service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+    private String id;
+    private String username;
+    private String fullName;
+    private String avatarUrl;
+    private boolean verified;
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
@@ -12,6 +14,8 @@ public class SongPlayedEvent extends BaseEvent {
     private String songTitle;
     private String artistName;
     private Long playCount;
+    // Optional; lets consumers such as trending group plays by genre without a song lookup
+    private List<String> genres;
     
     public SongPlayedEvent(String eventId, String userId, String songId, String songTitle, String artistName, Long playCount) {
         super(eventId, "SONG_PLAYED", java.time.LocalDateTime.now(), "song-service", userId);
@@ -0,0 +1,73 @@
+package com.DA2.shared.mongo;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Optional;
+
+/**
+ * Field-level atomic counters for Mongo documents.
+ * Each call is a single findAndModify with $inc that projects only the counter field,
+ * so concurrent updates never overwrite each other and no other fields are read or rewritten.
+ */
+public class CounterUpdater {
+
+    private final MongoOperations mongoOperations;
+
+    public CounterUpdater(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Adds delta to the counter and returns the new value, or empty if the document does not exist.
+     */
+    public Optional<Long> increment(Class<?> entityClass, String id, String field, long delta) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        return modify(entityClass, query, field, delta);
+    }
+
+    /**
+     * Subtracts delta from the counter without letting it drop below zero.
+     * Returns the new value, the unchanged value if it was already too low, or empty if the document does not exist.
+     */
+    public Optional<Long> decrement(Class<?> entityClass, String id, String field, long delta) {
+        Query query = new Query(Criteria.where("_id").is(id).and(field).gte(delta));
+        Optional<Long> updated = modify(entityClass, query, field, -delta);
+        if (updated.isPresent()) {
+            return updated;
+        }
+        return get(entityClass, id, field);
+    }
+
+    /**
+     * Reads only the counter field of a document.
+     */
+    public Optional<Long> get(Class<?> entityClass, String id, String field) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include(field);
+        Document document = mongoOperations.findOne(query, Document.class, mongoOperations.getCollectionName(entityClass));
+        return Optional.ofNullable(document).map(doc -> toLong(doc.get(field)));
+    }
+
+    private Optional<Long> modify(Class<?> entityClass, Query query, String field, long delta) {
+        query.fields().include(field);
+        // Keep int counters stored as int32 so entity mapping does not change type
+        Number amount = delta == (int) delta ? (Number) (int) delta : (Number) delta;
+        Update update = new Update().inc(field, amount);
+        Document document = mongoOperations.findAndModify(
+                query,
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class,
+                mongoOperations.getCollectionName(entityClass));
+        return Optional.ofNullable(document).map(doc -> toLong(doc.get(field)));
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,94 @@
+package com.DA2.shared.mongo;
+
+import com.DA2.shared.dto.CursorPage;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination over a time field plus _id.
+ * The cursor is an opaque token holding the time and id of the last row returned; the next page is
+ * "rows after that key" in index order, so a deep page costs the same as the first one, unlike skip/limit.
+ * Each paginated query needs a compound index ending in {timeField, _id} in the same direction.
+ */
+public class KeysetPaginator {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final MongoOperations mongoOperations;
+
+    public KeysetPaginator(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Reads one page of documents matching filter, ordered by timeField then _id in the given direction.
+     * cursor is null for the first page; an unreadable cursor throws IllegalArgumentException.
+     */
+    public <T> CursorPage<T> page(Criteria filter, Class<T> type, String timeField, Sort.Direction direction,
+                                  String cursor, int size, Function<T, LocalDateTime> timeOf, Function<T, String> idOf) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Criteria criteria = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            Key key = decode(cursor);
+            Criteria after = direction == Sort.Direction.DESC
+                    ? new Criteria().orOperator(
+                            Criteria.where(timeField).lt(key.time),
+                            Criteria.where(timeField).is(key.time).and("_id").lt(key.id))
+                    : new Criteria().orOperator(
+                            Criteria.where(timeField).gt(key.time),
+                            Criteria.where(timeField).is(key.time).and("_id").gt(key.id));
+            criteria = new Criteria().andOperator(filter, after);
+        }
+
+        // One extra row tells us whether there is another page without a count query
+        Query query = new Query(criteria)
+                .with(Sort.by(direction, timeField, "_id"))
+                .limit(limit + 1);
+        List<T> rows = new ArrayList<>(mongoOperations.find(query, type));
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            T last = rows.get(rows.size() - 1);
+            nextCursor = encode(timeOf.apply(last), idOf.apply(last));
+        }
+        return new CursorPage<>(rows, nextCursor, hasMore);
+    }
+
+    static String encode(LocalDateTime time, String id) {
+        // Millisecond precision is all MongoDB stores, so the key round-trips exactly
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String raw = millis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Key decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf(':');
+            long millis = Long.parseLong(raw.substring(0, split));
+            return new Key(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()), raw.substring(split + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    record Key(LocalDateTime time, String id) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.DA2.shared.mongo;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MongoDB is replaced by a map that applies each findAndModify atomically, as the server does,
+ * honouring the _id match and a $gte guard on the counter.
+ */
+class CounterUpdaterTest {
+
+    private static final int THREADS = 8;
+
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+    private final List<Update> updates = new ArrayList<>();
+    private MongoOperations mongoOperations;
+    private CounterUpdater counterUpdater;
+
+    static class Post {
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoOperations = mock(MongoOperations.class);
+        when(mongoOperations.getCollectionName(Post.class)).thenReturn("posts");
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("posts"))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Update update = invocation.getArgument(1);
+            synchronized (documents) {
+                updates.add(update);
+                return modify(query, update);
+            }
+        });
+        when(mongoOperations.findOne(any(Query.class), eq(Document.class), eq("posts"))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Document document = documents.get(query.getQueryObject().getString("_id"));
+            return document != null ? new Document("likes", document.get("likes")) : null;
+        });
+        counterUpdater = new CounterUpdater(mongoOperations);
+    }
+
+    @Test
+    void parallelIncrementsAreAllCounted() throws Exception {
+        documents.put("p1", new Document("_id", "p1").append("likes", 0).append("content", "hi"));
+        int perThread = 500;
+
+        runInParallel(() -> {
+            for (int i = 0; i < perThread; i++) {
+                counterUpdater.increment(Post.class, "p1", "likes", 1);
+            }
+        });
+
+        assertEquals(THREADS * perThread, ((Number) documents.get("p1").get("likes")).intValue());
+        // Only the counter is touched, never read and written back as a whole document
+        assertEquals("hi", documents.get("p1").getString("content"));
+        verify(mongoOperations, never()).save(any());
+        verify(mongoOperations, never()).save(any(), anyString());
+    }
+
+    @Test
+    void parallelDecrementsNeverGoBelowZero() throws Exception {
+        documents.put("p1", new Document("_id", "p1").append("likes", 100));
+        List<Long> seen = new ArrayList<>();
+
+        runInParallel(() -> {
+            for (int i = 0; i < 50; i++) {
+                long value = counterUpdater.decrement(Post.class, "p1", "likes", 1).orElseThrow();
+                synchronized (seen) {
+                    seen.add(value);
+                }
+            }
+        });
+
+        assertEquals(0, ((Number) documents.get("p1").get("likes")).intValue());
+        assertTrue(seen.stream().allMatch(value -> value >= 0));
+        assertEquals(THREADS * 50, seen.size());
+    }
+
+    @Test
+    void incrementIsOneInc() {
+        documents.put("p1", new Document("_id", "p1").append("likes", 4));
+
+        assertEquals(Optional.of(5L), counterUpdater.increment(Post.class, "p1", "likes", 1));
+
+        Document update = updates.get(0).getUpdateObject();
+        assertEquals(1, update.size());
+        // Small deltas are sent as int32 so int fields keep their type
+        assertInstanceOf(Integer.class, ((Document) update.get("$inc")).get("likes"));
+        assertEquals(4_000_000_000L, counterUpdater.increment(Post.class, "p1", "likes", 3_999_999_995L).orElseThrow());
+    }
+
+    @Test
+    void missingDocumentsAreReportedAsEmpty() {
+        assertEquals(Optional.empty(), counterUpdater.increment(Post.class, "missing", "likes", 1));
+        assertEquals(Optional.empty(), counterUpdater.decrement(Post.class, "missing", "likes", 1));
+        assertEquals(Optional.empty(), counterUpdater.get(Post.class, "missing", "likes"));
+    }
+
+    // Applies the update only if the _id matches and every {field: {$gte: n}} condition holds
+    private Document modify(Query query, Update update) {
+        Document filter = query.getQueryObject();
+        Document document = documents.get(filter.getString("_id"));
+        if (document == null) {
+            return null;
+        }
+        for (Map.Entry<String, Object> condition : filter.entrySet()) {
+            if (condition.getValue() instanceof Document operators && operators.containsKey("$gte")) {
+                long current = ((Number) document.get(condition.getKey())).longValue();
+                if (current < ((Number) operators.get("$gte")).longValue()) {
+                    return null;
+                }
+            }
+        }
+        Document inc = (Document) update.getUpdateObject().get("$inc");
+        for (Map.Entry<String, Object> entry : inc.entrySet()) {
+            long current = ((Number) document.get(entry.getKey())).longValue();
+            document.put(entry.getKey(), current + ((Number) entry.getValue()).longValue());
+        }
+        Document projected = new Document("_id", document.get("_id"));
+        query.getFieldsObject().keySet().forEach(field -> projected.put(field, document.get(field)));
+        return projected;
+    }
+
+    private static void runInParallel(Runnable worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    worker.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -3,11 +3,22 @@ package com.DA2.songservice.client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Calls to the Python AI service. Health is tracked by a circuit breaker fed by the calls themselves,
+ * so there is no /health round trip in front of every request.
+ */
 @Component
 public class AIServiceClient {
 
@@ -16,40 +27,80 @@ public class AIServiceClient {
     @Value("${ai.service.url:http://localhost:5000}")
     private String aiServiceUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
 
-    public boolean isAvailable() {
-        try {
-            String url = aiServiceUrl + "/health";
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            return "healthy".equals(response.get("status"));
-        } catch (Exception e) {
-            log.warn("AI Service unavailable: {}", e.getMessage());
-            return false;
-        }
+    public AIServiceClient(RestTemplate aiRestTemplate,
+                           @Value("${app.ai.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                           @Value("${app.ai.circuit-breaker.open-ms:30000}") long openMillis) {
+        this.restTemplate = aiRestTemplate;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
     }
 
     public Map<String, Object> analyzeMusicFile(String fileUrl) {
-        String url = aiServiceUrl + "/api/ai/music/analyze";
-        Map<String, String> request = Map.of("file_url", fileUrl);
-        return restTemplate.postForObject(url, request, Map.class);
+        return call(() -> post("/api/ai/music/analyze", Map.of("file_url", fileUrl)));
     }
 
     public Map<String, Object> extractLyrics(String fileUrl) {
-        String url = aiServiceUrl + "/api/ai/music/extract-lyrics";
-        Map<String, String> request = Map.of("file_url", fileUrl);
-        return restTemplate.postForObject(url, request, Map.class);
+        return call(() -> post("/api/ai/music/extract-lyrics", Map.of("file_url", fileUrl)));
     }
 
     public Map<String, Object> syncLyrics(String fileUrl, String lyrics) {
-        String url = aiServiceUrl + "/api/ai/music/sync-lyrics";
-        Map<String, String> request = Map.of("file_url", fileUrl, "lyrics", lyrics);
-        return restTemplate.postForObject(url, request, Map.class);
+        return call(() -> post("/api/ai/music/sync-lyrics", Map.of("file_url", fileUrl, "lyrics", lyrics)));
     }
 
     public Map<String, Object> analyzeChords(String fileUrl) {
-        String url = aiServiceUrl + "/api/ai/music/analyze-chords";
-        Map<String, String> request = Map.of("file_url", fileUrl);
-        return restTemplate.postForObject(url, request, Map.class);
+        return call(() -> post("/api/ai/music/analyze-chords", Map.of("file_url", fileUrl)));
+    }
+
+    /**
+     * SHA-256 of the audio file, streamed through the pooled client without buffering the file.
+     */
+    public String hashContent(String fileUrl) {
+        return restTemplate.execute(URI.create(fileUrl), HttpMethod.GET, null, response -> {
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream body = response.getBody()) {
+                int read;
+                while ((read = body.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        });
+    }
+
+    private Map<String, Object> call(Supplier<Map<String, Object>> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new AIServiceUnavailableException(circuitBreaker.getRetryAt());
+        }
+        try {
+            Map<String, Object> response = request.get();
+            circuitBreaker.recordSuccess();
+            return response;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure();
+            if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                log.warn("AI Service circuit open after failure: {}", e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> post(String path, Map<String, String> request) {
+        return restTemplate.postForObject(aiServiceUrl + path, request, Map.class);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.DA2.songservice.client;
+
+/**
+ * Thrown instead of calling the AI service while its circuit is open.
+ */
+public class AIServiceUnavailableException extends RuntimeException {
+
+    private final long retryAt;
+
+    public AIServiceUnavailableException(long retryAt) {
+        super("AI Service unavailable, circuit open");
+        this.retryAt = retryAt;
+    }
+
+    public long getRetryAt() {
+        return retryAt;
+    }
+}
@@ -1,7 +1,10 @@
 package com.DA2.songservice.controller;
 
 import com.DA2.shared.dto.ApiResponse;
+import com.DA2.songservice.entity.AIJob;
 import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.features.FeatureQuery;
+import com.DA2.songservice.features.SongPage;
 import com.DA2.songservice.service.SongService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -143,24 +146,24 @@ public class SongController {
     }
     
     @PostMapping("/{id}/lyrics/extract")
-    public ResponseEntity<ApiResponse<Song>> extractLyrics(
+    public ResponseEntity<ApiResponse<AIJob>> extractLyrics(
             @PathVariable String id,
             @RequestHeader("X-User-Id") String userId) {
         try {
-            Song song = songService.extractLyricsFromAudio(id, userId);
-            return ResponseEntity.ok(ApiResponse.success("Lyrics extracted using AI", song));
+            AIJob job = songService.extractLyricsFromAudio(id, userId);
+            return ResponseEntity.accepted().body(ApiResponse.success("Lyrics extraction queued", job));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
     @PostMapping("/{id}/lyrics/sync")
-    public ResponseEntity<ApiResponse<Song>> syncLyrics(
+    public ResponseEntity<ApiResponse<AIJob>> syncLyrics(
             @PathVariable String id,
             @RequestHeader("X-User-Id") String userId) {
         try {
-            Song song = songService.syncLyricsWithAudio(id, userId);
-            return ResponseEntity.ok(ApiResponse.success("Lyrics synchronized with audio", song));
+            AIJob job = songService.syncLyricsWithAudio(id, userId);
+            return ResponseEntity.accepted().body(ApiResponse.success("Lyrics synchronization queued", job));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -169,12 +172,32 @@ public class SongController {
     // ========== AI ANALYSIS ENDPOINTS ==========
     
     @PostMapping("/{id}/analyze")
-    public ResponseEntity<ApiResponse<Song>> analyzeSongWithAI(
+    public ResponseEntity<ApiResponse<AIJob>> analyzeSongWithAI(
             @PathVariable String id,
             @RequestHeader("X-User-Id") String userId) {
         try {
-            Song song = songService.analyzeWithAI(id, userId);
-            return ResponseEntity.ok(ApiResponse.success("Song analyzed successfully", song));
+            AIJob job = songService.analyzeWithAI(id, userId);
+            return ResponseEntity.accepted().body(ApiResponse.success("Song analysis queued", job));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}/ai-jobs")
+    public ResponseEntity<ApiResponse<List<AIJob>>> getAIJobs(@PathVariable String id) {
+        try {
+            List<AIJob> jobs = songService.getAIJobs(id);
+            return ResponseEntity.ok(ApiResponse.success("AI jobs retrieved", jobs));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/ai-jobs/{jobId}")
+    public ResponseEntity<ApiResponse<AIJob>> getAIJob(@PathVariable String jobId) {
+        try {
+            AIJob job = songService.getAIJob(jobId);
+            return ResponseEntity.ok(ApiResponse.success("AI job retrieved", job));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -191,9 +214,12 @@ public class SongController {
     }
     
     @GetMapping("/by-key/{key}")
-    public ResponseEntity<ApiResponse<List<Song>>> getSongsByKey(@PathVariable String key) {
+    public ResponseEntity<ApiResponse<SongPage>> getSongsByKey(
+            @PathVariable String key,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
-            List<Song> songs = songService.getSongsByKey(key);
+            SongPage songs = songService.getSongsByKey(key, page, size);
             return ResponseEntity.ok(ApiResponse.success("Songs by key retrieved", songs));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -201,9 +227,12 @@ public class SongController {
     }
     
     @GetMapping("/by-mood/{mood}")
-    public ResponseEntity<ApiResponse<List<Song>>> getSongsByMood(@PathVariable String mood) {
+    public ResponseEntity<ApiResponse<SongPage>> getSongsByMood(
+            @PathVariable String mood,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
-            List<Song> songs = songService.getSongsByMood(mood);
+            SongPage songs = songService.getSongsByMood(mood, page, size);
             return ResponseEntity.ok(ApiResponse.success("Songs by mood retrieved", songs));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -211,17 +240,43 @@ public class SongController {
     }
     
     @GetMapping("/by-tempo")
-    public ResponseEntity<ApiResponse<List<Song>>> getSongsByTempo(
+    public ResponseEntity<ApiResponse<SongPage>> getSongsByTempo(
             @RequestParam int minBpm,
-            @RequestParam int maxBpm) {
+            @RequestParam int maxBpm,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
-            List<Song> songs = songService.getSongsByTempoRange(minBpm, maxBpm);
+            SongPage songs = songService.getSongsByTempoRange(minBpm, maxBpm, page, size);
             return ResponseEntity.ok(ApiResponse.success("Songs by tempo retrieved", songs));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
 
+    // Combined filter, e.g. ?key=A minor&minBpm=110&maxBpm=125&minEnergy=0.7
+    @GetMapping("/by-features")
+    public ResponseEntity<ApiResponse<SongPage>> getSongsByFeatures(
+            @RequestParam(required = false) String key,
+            @RequestParam(required = false) String mood,
+            @RequestParam(required = false) Double minBpm,
+            @RequestParam(required = false) Double maxBpm,
+            @RequestParam(required = false) Double minEnergy,
+            @RequestParam(required = false) Double maxEnergy,
+            @RequestParam(required = false) Double minDanceability,
+            @RequestParam(required = false) Double maxDanceability,
+            @RequestParam(required = false) List<String> chords,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            FeatureQuery query = new FeatureQuery(key, mood, minBpm, maxBpm, minEnergy, maxEnergy,
+                    minDanceability, maxDanceability, chords);
+            SongPage songs = songService.getSongsByFeatures(query, page, size);
+            return ResponseEntity.ok(ApiResponse.success("Songs by features retrieved", songs));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}/chords")
     public ResponseEntity<ApiResponse<Song.ChordAnalysis>> getSongChords(@PathVariable String id) {
         try {
@@ -233,19 +288,22 @@ public class SongController {
     }
 
     @PostMapping("/{id}/analyze-chords")
-    public ResponseEntity<ApiResponse<Song.ChordAnalysis>> analyzeSongChords(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<AIJob>> analyzeSongChords(@PathVariable String id) {
         try {
-            Song.ChordAnalysis chordAnalysis = songService.analyzeSongChords(id);
-            return ResponseEntity.ok(ApiResponse.success("Chord analysis completed", chordAnalysis));
+            AIJob job = songService.analyzeSongChords(id);
+            return ResponseEntity.accepted().body(ApiResponse.success("Chord analysis queued", job));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
 
     @GetMapping("/by-chord/{chord}")
-    public ResponseEntity<ApiResponse<List<Song>>> getSongsByChord(@PathVariable String chord) {
+    public ResponseEntity<ApiResponse<SongPage>> getSongsByChord(
+            @PathVariable String chord,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
-            List<Song> songs = songService.getSongsByChord(chord);
+            SongPage songs = songService.getSongsByChord(chord, page, size);
             return ResponseEntity.ok(ApiResponse.success("Songs by chord retrieved", songs));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
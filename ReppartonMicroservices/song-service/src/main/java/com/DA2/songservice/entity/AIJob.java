@@ -0,0 +1,113 @@
+package com.DA2.songservice.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One AI request for a song, processed in the background by AIJobQueue.
+ */
+@Document(collection = "ai_jobs")
+@CompoundIndexes({
+    // Workers claim the oldest runnable job
+    @CompoundIndex(name = "status_run_at_idx", def = "{'status': 1, 'runAt': 1}"),
+    @CompoundIndex(name = "song_created_idx", def = "{'songId': 1, 'createdAt': -1}")
+})
+public class AIJob {
+
+    public enum Type { ANALYZE, EXTRACT_LYRICS, SYNC_LYRICS, ANALYZE_CHORDS }
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    @Id
+    private String id;
+    private Type type;
+    private Status status;
+    private String songId;
+    private String requestedBy;
+    private String fileUrl;
+    private String lyrics;
+    // songId:type while the job is queued or running; the unique index allows one such job per song and type
+    @Indexed(name = "active_key_idx", unique = true, sparse = true)
+    private String activeKey;
+    private String contentHash;
+    private boolean cachedResult;
+    private int attempts;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime runAt;
+    private LocalDateTime leaseUntil;
+    private LocalDateTime finishedAt;
+
+    public AIJob() {}
+
+    public AIJob(Type type, String songId, String requestedBy, String fileUrl, String lyrics) {
+        this.type = type;
+        this.songId = songId;
+        this.requestedBy = requestedBy;
+        this.fileUrl = fileUrl;
+        this.lyrics = lyrics;
+        this.status = Status.QUEUED;
+        this.createdAt = LocalDateTime.now();
+        this.runAt = this.createdAt;
+        // Every lyrics sync is kept, each one is for the lyrics as they were when it was queued
+        this.activeKey = type != Type.SYNC_LYRICS ? activeKey(songId, type) : null;
+    }
+
+    public static String activeKey(String songId, Type type) {
+        return songId + ":" + type;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getSongId() { return songId; }
+    public void setSongId(String songId) { this.songId = songId; }
+
+    public String getRequestedBy() { return requestedBy; }
+    public void setRequestedBy(String requestedBy) { this.requestedBy = requestedBy; }
+
+    public String getFileUrl() { return fileUrl; }
+    public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+
+    public String getLyrics() { return lyrics; }
+    public void setLyrics(String lyrics) { this.lyrics = lyrics; }
+
+    public String getActiveKey() { return activeKey; }
+    public void setActiveKey(String activeKey) { this.activeKey = activeKey; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public boolean isCachedResult() { return cachedResult; }
+    public void setCachedResult(boolean cachedResult) { this.cachedResult = cachedResult; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getRunAt() { return runAt; }
+    public void setRunAt(LocalDateTime runAt) { this.runAt = runAt; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
@@ -0,0 +1,42 @@
+package com.DA2.songservice.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * AI service response data for one audio file content and job type, so identical audio is analyzed once.
+ * The id is the content hash and the job type (plus a hash of the lyrics for lyric sync).
+ */
+@Document(collection = "ai_results")
+public class AIResult {
+    @Id
+    private String id;
+    private AIJob.Type type;
+    private Map<String, Object> data;
+    private LocalDateTime createdAt;
+
+    public AIResult() {}
+
+    public AIResult(String id, AIJob.Type type, Map<String, Object> data) {
+        this.id = id;
+        this.type = type;
+        this.data = data;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public AIJob.Type getType() { return type; }
+    public void setType(AIJob.Type type) { this.type = type; }
+
+    public Map<String, Object> getData() { return data; }
+    public void setData(Map<String, Object> data) { this.data = data; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
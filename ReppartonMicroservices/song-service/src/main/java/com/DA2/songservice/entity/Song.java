@@ -16,6 +16,8 @@ public class Song {
     private String title;
     private String artist;
     private String fileUrl;
+    // SHA-256 of the audio file, set by the first AI job that downloads it
+    private String audioHash;
     private String coverImageUrl;
     private String uploadedBy;
     private LocalDateTime createdAt;
@@ -59,6 +61,9 @@ public class Song {
     public String getFileUrl() { return fileUrl; }
     public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
     
+    public String getAudioHash() { return audioHash; }
+    public void setAudioHash(String audioHash) { this.audioHash = audioHash; }
+    
     public String getCoverImageUrl() { return coverImageUrl; }
     public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
     
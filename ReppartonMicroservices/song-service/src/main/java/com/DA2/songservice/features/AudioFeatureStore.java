@@ -0,0 +1,338 @@
+package com.DA2.songservice.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar in-memory store of song audio features.
+ * Each song is a row; bpm, energy and danceability are float columns (NaN when unknown), key and mood are
+ * dictionary-encoded short columns (-1 when unknown). Every key, mood and chord value has a bitmap of the rows
+ * holding it, and the float columns are bucketed into fixed-width value ranges with a bitmap per bucket.
+ * A query intersects the bitmaps of its filters, rarest first, then checks the exact ranges on the columns of
+ * the remaining rows, so it touches a few bits per song instead of whole documents.
+ * Rows of removed songs are reused by later inserts.
+ */
+public class AudioFeatureStore {
+
+    private static final short UNKNOWN = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final Dictionary keys = new Dictionary();
+    private final Dictionary moods = new Dictionary();
+    private final Dictionary chords = new Dictionary();
+    private final List<BitSet> keyRows = new ArrayList<>();
+    private final List<BitSet> moodRows = new ArrayList<>();
+    private final List<BitSet> chordRows = new ArrayList<>();
+    private final RangeBuckets bpmBuckets = new RangeBuckets(0f, 1f, 320);
+    private final RangeBuckets energyBuckets = new RangeBuckets(0f, 0.02f, 50);
+    private final RangeBuckets danceBuckets = new RangeBuckets(0f, 0.02f, 50);
+    private final BitSet free = new BitSet();
+
+    private String[] ids = new String[1024];
+    private float[] bpm = new float[1024];
+    private float[] energy = new float[1024];
+    private float[] danceability = new float[1024];
+    private short[] keyCodes = new short[1024];
+    private short[] moodCodes = new short[1024];
+    private int rowCount;
+
+    public void put(String id, String key, String mood, Double bpmValue, Double energyValue,
+                    Double danceabilityValue, Collection<String> songChords) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowsById.get(id);
+            int row;
+            if (existing != null) {
+                row = existing;
+                clearPostings(row);
+            } else {
+                row = allocateRow();
+                rowsById.put(id, row);
+                ids[row] = id;
+            }
+            keyCodes[row] = key != null ? (short) post(keys, keyRows, key, row) : UNKNOWN;
+            moodCodes[row] = mood != null ? (short) post(moods, moodRows, mood, row) : UNKNOWN;
+            bpm[row] = bpmBuckets.set(row, toFloat(bpmValue));
+            energy[row] = energyBuckets.set(row, toFloat(energyValue));
+            danceability[row] = danceBuckets.set(row, toFloat(danceabilityValue));
+            if (songChords != null) {
+                for (String chord : songChords) {
+                    if (chord != null) {
+                        post(chords, chordRows, chord, row);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowsById.remove(id);
+            if (row == null) {
+                return false;
+            }
+            clearPostings(row);
+            ids[row] = null;
+            keyCodes[row] = UNKNOWN;
+            moodCodes[row] = UNKNOWN;
+            bpm[row] = Float.NaN;
+            energy[row] = Float.NaN;
+            danceability[row] = Float.NaN;
+            free.set(row);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public FeaturePage query(FeatureQuery query, int page, int size) {
+        int offset = Math.max(0, page) * size;
+        List<String> pageIds = new ArrayList<>(Math.min(size, 1024));
+        lock.readLock().lock();
+        try {
+            List<BitSet> postings = new ArrayList<>();
+            if (!addPostings(postings, keys, keyRows, query.key() != null ? List.of(query.key()) : null)
+                    || !addPostings(postings, moods, moodRows, query.mood() != null ? List.of(query.mood()) : null)
+                    || !addPostings(postings, chords, chordRows, query.chords())) {
+                return new FeaturePage(pageIds, 0, page, size);
+            }
+            bpmBuckets.addPostings(postings, query.minBpm(), query.maxBpm());
+            energyBuckets.addPostings(postings, query.minEnergy(), query.maxEnergy());
+            danceBuckets.addPostings(postings, query.minDanceability(), query.maxDanceability());
+            RangeFilter ranges = new RangeFilter(query);
+
+            int total = 0;
+            if (postings.isEmpty()) {
+                // No filter at all: every stored song, skipping the free rows
+                for (int row = 0; row < rowCount; row++) {
+                    if (ids[row] != null) {
+                        if (total >= offset && pageIds.size() < size) {
+                            pageIds.add(ids[row]);
+                        }
+                        total++;
+                    }
+                }
+            } else {
+                BitSet candidates = intersect(postings);
+                for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                    if (ranges.matches(row)) {
+                        if (total >= offset && pageIds.size() < size) {
+                            pageIds.add(ids[row]);
+                        }
+                        total++;
+                    }
+                }
+            }
+            return new FeaturePage(pageIds, total, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds the bitmap of every wanted value; false if one of them is not in the store, so nothing can match
+    private static boolean addPostings(List<BitSet> postings, Dictionary dictionary, List<BitSet> rows,
+                                       List<String> wanted) {
+        if (wanted == null) {
+            return true;
+        }
+        for (String value : wanted) {
+            int code = dictionary.code(value);
+            if (code < 0) {
+                return false;
+            }
+            postings.add(rows.get(code));
+        }
+        return true;
+    }
+
+    // Intersect starting from the rarest bitmap to keep the working set small
+    private static BitSet intersect(List<BitSet> postings) {
+        postings.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        BitSet result = (BitSet) postings.get(0).clone();
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.and(postings.get(i));
+        }
+        return result;
+    }
+
+    private static int post(Dictionary dictionary, List<BitSet> rows, String value, int row) {
+        int code = dictionary.encode(value);
+        if (code == rows.size()) {
+            rows.add(new BitSet());
+        }
+        rows.get(code).set(row);
+        return code;
+    }
+
+    private void clearPostings(int row) {
+        if (keyCodes[row] != UNKNOWN) {
+            keyRows.get(keyCodes[row]).clear(row);
+        }
+        if (moodCodes[row] != UNKNOWN) {
+            moodRows.get(moodCodes[row]).clear(row);
+        }
+        for (BitSet bitmap : chordRows) {
+            bitmap.clear(row);
+        }
+        bpmBuckets.clear(row, bpm[row]);
+        energyBuckets.clear(row, energy[row]);
+        danceBuckets.clear(row, danceability[row]);
+    }
+
+    private int allocateRow() {
+        int row = free.nextSetBit(0);
+        if (row >= 0) {
+            free.clear(row);
+            return row;
+        }
+        if (rowCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            bpm = Arrays.copyOf(bpm, capacity);
+            energy = Arrays.copyOf(energy, capacity);
+            danceability = Arrays.copyOf(danceability, capacity);
+            keyCodes = Arrays.copyOf(keyCodes, capacity);
+            moodCodes = Arrays.copyOf(moodCodes, capacity);
+        }
+        return rowCount++;
+    }
+
+    private static float toFloat(Double value) {
+        return value != null ? value.floatValue() : Float.NaN;
+    }
+
+    private static float lower(Double value) {
+        return value != null ? value.floatValue() : Float.NEGATIVE_INFINITY;
+    }
+
+    private static float upper(Double value) {
+        return value != null ? value.floatValue() : Float.POSITIVE_INFINITY;
+    }
+
+    // Inclusive bpm / energy / danceability ranges; NaN fails both comparisons, so songs without the feature
+    // never match a range on it
+    private final class RangeFilter {
+        private final float[] bpmColumn = bpm;
+        private final float[] energyColumn = energy;
+        private final float[] danceColumn = danceability;
+        private final boolean bpmFilter;
+        private final boolean energyFilter;
+        private final boolean danceFilter;
+        private final float minBpm;
+        private final float maxBpm;
+        private final float minEnergy;
+        private final float maxEnergy;
+        private final float minDance;
+        private final float maxDance;
+
+        RangeFilter(FeatureQuery query) {
+            bpmFilter = query.minBpm() != null || query.maxBpm() != null;
+            energyFilter = query.minEnergy() != null || query.maxEnergy() != null;
+            danceFilter = query.minDanceability() != null || query.maxDanceability() != null;
+            minBpm = lower(query.minBpm());
+            maxBpm = upper(query.maxBpm());
+            minEnergy = lower(query.minEnergy());
+            maxEnergy = upper(query.maxEnergy());
+            minDance = lower(query.minDanceability());
+            maxDance = upper(query.maxDanceability());
+        }
+
+        boolean matches(int row) {
+            return (!bpmFilter || (bpmColumn[row] >= minBpm && bpmColumn[row] <= maxBpm))
+                    && (!energyFilter || (energyColumn[row] >= minEnergy && energyColumn[row] <= maxEnergy))
+                    && (!danceFilter || (danceColumn[row] >= minDance && danceColumn[row] <= maxDance));
+        }
+    }
+
+    // Bitmaps of the rows whose value falls in each fixed-width bucket; values outside the covered range go to
+    // the first or last bucket and unknown (NaN) values to none
+    private static final class RangeBuckets {
+        private final float origin;
+        private final float width;
+        private final BitSet[] buckets;
+
+        RangeBuckets(float origin, float width, int count) {
+            this.origin = origin;
+            this.width = width;
+            this.buckets = new BitSet[count];
+            for (int i = 0; i < count; i++) {
+                buckets[i] = new BitSet();
+            }
+        }
+
+        float set(int row, float value) {
+            if (!Float.isNaN(value)) {
+                buckets[bucket(value)].set(row);
+            }
+            return value;
+        }
+
+        void clear(int row, float value) {
+            if (!Float.isNaN(value)) {
+                buckets[bucket(value)].clear(row);
+            }
+        }
+
+        // Adds the union of the buckets overlapping [min, max]; a superset, the exact range is checked per row
+        void addPostings(List<BitSet> postings, Double min, Double max) {
+            if (min == null && max == null) {
+                return;
+            }
+            int from = min != null ? bucket(min.floatValue()) : 0;
+            int to = max != null ? bucket(max.floatValue()) : buckets.length - 1;
+            BitSet union = new BitSet();
+            for (int i = from; i <= to; i++) {
+                union.or(buckets[i]);
+            }
+            postings.add(union);
+        }
+
+        private int bucket(float value) {
+            int bucket = (int) Math.floor((value - origin) / width);
+            return Math.max(0, Math.min(buckets.length - 1, bucket));
+        }
+    }
+
+    // Value <-> dense code; codes are never reused, the vocabularies are small
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                if (code > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values: " + value);
+                }
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            return code != null ? code : -1;
+        }
+    }
+}
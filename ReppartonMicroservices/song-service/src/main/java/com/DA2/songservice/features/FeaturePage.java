@@ -0,0 +1,13 @@
+package com.DA2.songservice.features;
+
+import java.util.List;
+
+/**
+ * One page of song ids matching a FeatureQuery, with the total number of matches.
+ */
+public record FeaturePage(List<String> ids, int total, int page, int size) {
+
+    public boolean hasMore() {
+        return (long) (page + 1) * size < total;
+    }
+}
@@ -0,0 +1,30 @@
+package com.DA2.songservice.features;
+
+import java.util.List;
+
+/**
+ * Filter over audio features; null components are not filtered on. Ranges are inclusive and
+ * every listed chord must occur in the song. Key, mood and chords are matched exactly.
+ */
+public record FeatureQuery(String key, String mood,
+                           Double minBpm, Double maxBpm,
+                           Double minEnergy, Double maxEnergy,
+                           Double minDanceability, Double maxDanceability,
+                           List<String> chords) {
+
+    public static FeatureQuery byKey(String key) {
+        return new FeatureQuery(key, null, null, null, null, null, null, null, null);
+    }
+
+    public static FeatureQuery byMood(String mood) {
+        return new FeatureQuery(null, mood, null, null, null, null, null, null, null);
+    }
+
+    public static FeatureQuery byTempo(double minBpm, double maxBpm) {
+        return new FeatureQuery(null, null, minBpm, maxBpm, null, null, null, null, null);
+    }
+
+    public static FeatureQuery byChord(String chord) {
+        return new FeatureQuery(null, null, null, null, null, null, null, null, List.of(chord));
+    }
+}
@@ -0,0 +1,15 @@
+package com.DA2.songservice.features;
+
+import com.DA2.songservice.entity.Song;
+
+import java.util.List;
+
+/**
+ * One page of songs matching a FeatureQuery, in index order, with the total number of matches.
+ */
+public record SongPage(List<Song> songs, int total, int page, int size) {
+
+    public boolean hasMore() {
+        return (long) (page + 1) * size < total;
+    }
+}
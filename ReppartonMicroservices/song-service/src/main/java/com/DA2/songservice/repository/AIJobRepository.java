@@ -0,0 +1,16 @@
+package com.DA2.songservice.repository;
+
+import com.DA2.songservice.entity.AIJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AIJobRepository extends MongoRepository<AIJob, String> {
+    List<AIJob> findTop20BySongIdOrderByCreatedAtDesc(String songId);
+    Optional<AIJob> findFirstBySongIdAndTypeAndStatusIn(String songId, AIJob.Type type, Collection<AIJob.Status> statuses);
+    Optional<AIJob> findByActiveKey(String activeKey);
+}
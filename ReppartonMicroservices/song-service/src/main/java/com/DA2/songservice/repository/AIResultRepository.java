@@ -0,0 +1,9 @@
+package com.DA2.songservice.repository;
+
+import com.DA2.songservice.entity.AIResult;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AIResultRepository extends MongoRepository<AIResult, String> {
+}
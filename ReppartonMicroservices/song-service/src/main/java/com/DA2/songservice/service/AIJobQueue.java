@@ -0,0 +1,353 @@
+package com.DA2.songservice.service;
+
+import com.DA2.songservice.client.AIServiceClient;
+import com.DA2.songservice.client.AIServiceUnavailableException;
+import com.DA2.songservice.entity.AIJob;
+import com.DA2.songservice.entity.AIResult;
+import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.repository.AIJobRepository;
+import com.DA2.songservice.repository.AIResultRepository;
+import com.DA2.songservice.repository.SongRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Persistent queue of AI jobs in the ai_jobs collection, worked by a fixed number of threads per instance.
+ * A worker claims a job with findAndModify and holds it for lease-ms; jobs of a crashed worker become
+ * claimable again when the lease runs out. Responses are stored in ai_results keyed by the SHA-256 of the
+ * audio, so identical audio is sent to the AI service once; only responses that pass validation are stored.
+ * While the AI service circuit is open jobs are put back until it may be retried, without counting an attempt.
+ */
+@Service
+public class AIJobQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(AIJobQueue.class);
+
+    private static final List<AIJob.Status> ACTIVE = List.of(AIJob.Status.QUEUED, AIJob.Status.RUNNING);
+
+    private final MongoTemplate mongoTemplate;
+    private final AIJobRepository jobRepository;
+    private final AIResultRepository resultRepository;
+    private final SongRepository songRepository;
+    private final SongAIService songAIService;
+    private final AIServiceClient aiServiceClient;
+    private final CacheManager cacheManager;
+    private final AudioFeatureIndex audioFeatureIndex;
+
+    // Lets a local enqueue wake an idle worker before its next poll
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Value("${app.ai.jobs.workers:2}")
+    private int workerCount;
+
+    @Value("${app.ai.jobs.poll-interval-ms:2000}")
+    private long pollIntervalMillis;
+
+    @Value("${app.ai.jobs.lease-ms:600000}")
+    private long leaseMillis;
+
+    @Value("${app.ai.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ai.jobs.retry-backoff-ms:10000}")
+    private long retryBackoffMillis;
+
+    public AIJobQueue(MongoTemplate mongoTemplate, AIJobRepository jobRepository, AIResultRepository resultRepository,
+                      SongRepository songRepository, SongAIService songAIService, AIServiceClient aiServiceClient,
+                      CacheManager cacheManager, AudioFeatureIndex audioFeatureIndex) {
+        this.mongoTemplate = mongoTemplate;
+        this.jobRepository = jobRepository;
+        this.resultRepository = resultRepository;
+        this.songRepository = songRepository;
+        this.songAIService = songAIService;
+        this.aiServiceClient = aiServiceClient;
+        this.cacheManager = cacheManager;
+        this.audioFeatureIndex = audioFeatureIndex;
+    }
+
+    /**
+     * Queues a job for the song, or returns the one already queued or running for the same song and type.
+     * The unique index on activeKey settles concurrent requests: the losing insert returns the winner's job.
+     */
+    public AIJob enqueue(AIJob.Type type, Song song, String requestedBy, String lyrics) {
+        if (song.getFileUrl() == null || song.getFileUrl().isEmpty()) {
+            throw new RuntimeException("Song file URL is required for AI processing");
+        }
+        if (type != AIJob.Type.SYNC_LYRICS) {
+            // Also finds jobs queued before activeKey existed
+            AIJob active = jobRepository.findFirstBySongIdAndTypeAndStatusIn(song.getId(), type, ACTIVE).orElse(null);
+            if (active != null) {
+                return active;
+            }
+        }
+        AIJob job;
+        try {
+            job = jobRepository.save(new AIJob(type, song.getId(), requestedBy, song.getFileUrl(), lyrics));
+        } catch (DuplicateKeyException e) {
+            AIJob active = jobRepository.findByActiveKey(AIJob.activeKey(song.getId(), type)).orElse(null);
+            if (active != null) {
+                return active;
+            }
+            // The other job finished in between, so this one can be queued after all
+            job = jobRepository.save(new AIJob(type, song.getId(), requestedBy, song.getFileUrl(), lyrics));
+        }
+        wakeUp.release();
+        return job;
+    }
+
+    public AIJob getJob(String jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("AI job not found with id: " + jobId));
+    }
+
+    public List<AIJob> getJobsForSong(String songId) {
+        return jobRepository.findTop20BySongIdOrderByCreatedAtDesc(songId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "ai-job-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("AI job queue started with {} workers", workerCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                AIJob job = claim();
+                if (job == null) {
+                    wakeUp.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                process(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("AI job worker error: {}", e.getMessage());
+                sleepQuietly(pollIntervalMillis);
+            }
+        }
+    }
+
+    private AIJob claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                where("status").is(AIJob.Status.QUEUED).and("runAt").lte(now),
+                where("status").is(AIJob.Status.RUNNING).and("leaseUntil").lt(now)))
+                .with(Sort.by("runAt"));
+        Update update = new Update()
+                .set("status", AIJob.Status.RUNNING)
+                .set("leaseUntil", now.plusNanos(leaseMillis * 1_000_000))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), AIJob.class);
+    }
+
+    private void process(AIJob job) {
+        try {
+            Song song = songRepository.findById(job.getSongId()).orElse(null);
+            if (song == null) {
+                finish(job, AIJob.Status.FAILED, "Song not found", null, false);
+                return;
+            }
+            String contentHash = contentHash(song, job.getFileUrl());
+            String resultId = contentHash != null ? resultId(job, contentHash) : null;
+            AIResult result = resultId != null ? resultRepository.findById(resultId).orElse(null) : null;
+            // Results cached before responses were validated may be incomplete; those are requested again
+            boolean cached = result != null && songAIService.isValid(job.getType(), result.getData());
+            Map<String, Object> data;
+            if (cached) {
+                data = result.getData();
+            } else {
+                data = songAIService.request(job.getType(), job.getFileUrl(), job.getLyrics());
+                if (resultId != null) {
+                    resultRepository.save(new AIResult(resultId, job.getType(), data));
+                }
+            }
+            apply(job, data);
+            finish(job, AIJob.Status.SUCCEEDED, null, contentHash, cached);
+            log.debug("AI job {} ({}) for song {} done{}", job.getId(), job.getType(), job.getSongId(),
+                    cached ? " from cached result" : "");
+        } catch (AIServiceUnavailableException e) {
+            // Not the job's fault: put it back for when the circuit may close, keeping the attempt count
+            retry(job, e.getRetryAt(), -1, null);
+        } catch (RuntimeException e) {
+            if (job.getAttempts() >= maxAttempts) {
+                log.warn("AI job {} ({}) for song {} failed: {}", job.getId(), job.getType(), job.getSongId(), e.getMessage());
+                finish(job, AIJob.Status.FAILED, e.getMessage(), null, false);
+            } else {
+                long backoff = retryBackoffMillis << Math.min(10, job.getAttempts() - 1);
+                retry(job, System.currentTimeMillis() + backoff, 0, e.getMessage());
+            }
+        }
+    }
+
+    // Hash of the audio, from the song or computed once and stored on it; null if the file can't be read here
+    private String contentHash(Song song, String fileUrl) {
+        if (song.getAudioHash() != null && fileUrl.equals(song.getFileUrl())) {
+            return song.getAudioHash();
+        }
+        try {
+            String hash = aiServiceClient.hashContent(fileUrl);
+            mongoTemplate.updateFirst(new Query(where("_id").is(song.getId()).and("fileUrl").is(fileUrl)),
+                    Update.update("audioHash", hash), Song.class);
+            return hash;
+        } catch (RuntimeException e) {
+            log.warn("Could not hash audio of song {}, result will not be shared: {}", song.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static String resultId(AIJob job, String contentHash) {
+        if (job.getType() == AIJob.Type.SYNC_LYRICS) {
+            return contentHash + ":" + job.getType() + ":" + sha256(job.getLyrics() != null ? job.getLyrics() : "");
+        }
+        return contentHash + ":" + job.getType();
+    }
+
+    private void apply(AIJob job, Map<String, Object> data) {
+        String songId = job.getSongId();
+        Query song = new Query(where("_id").is(songId));
+        LocalDateTime now = LocalDateTime.now();
+        switch (job.getType()) {
+            case ANALYZE -> {
+                // Field by field so an existing chord analysis is kept
+                Song.SongAnalysis analysis = songAIService.toAnalysis(data);
+                mongoTemplate.updateFirst(song, new Update()
+                        .set("aiAnalysis.key", analysis.getKey())
+                        .set("aiAnalysis.bpm", analysis.getBpm())
+                        .set("aiAnalysis.mood", analysis.getMood())
+                        .set("aiAnalysis.energy", analysis.getEnergy())
+                        .set("aiAnalysis.danceability", analysis.getDanceability())
+                        .set("aiAnalysis.analyzedAt", now)
+                        .set("updatedAt", now), Song.class);
+                evict("songs", "song:" + songId);
+                songRepository.findById(songId).ifPresent(audioFeatureIndex::upsert);
+            }
+            case ANALYZE_CHORDS -> {
+                mongoTemplate.updateFirst(song, new Update()
+                        .set("aiAnalysis.chordAnalysis", songAIService.toChordAnalysis(data))
+                        .set("aiAnalysis.analyzedAt", now), Song.class);
+                evict("songs", "song:" + songId);
+                evict("chords", "chords:" + songId);
+                songRepository.findById(songId).ifPresent(audioFeatureIndex::upsert);
+            }
+            case EXTRACT_LYRICS -> {
+                String lyrics = songAIService.toLyrics(data);
+                if (lyrics == null) {
+                    return;
+                }
+                mongoTemplate.updateFirst(song, new Update().set("lyrics", lyrics).set("updatedAt", now), Song.class);
+                evictLyrics(songId);
+                songRepository.findById(songId)
+                        .ifPresent(s -> enqueue(AIJob.Type.SYNC_LYRICS, s, job.getRequestedBy(), lyrics));
+            }
+            case SYNC_LYRICS -> {
+                List<Song.LyricLine> syncedLyrics = songAIService.toSyncedLyrics(data);
+                if (syncedLyrics.isEmpty()) {
+                    return;
+                }
+                // Only if the lyrics were not changed since the job was queued
+                Query sameLyrics = new Query(where("_id").is(songId).and("lyrics").is(job.getLyrics()));
+                mongoTemplate.updateFirst(sameLyrics,
+                        new Update().set("syncedLyrics", syncedLyrics).set("updatedAt", now), Song.class);
+                evictLyrics(songId);
+            }
+        }
+    }
+
+    private void finish(AIJob job, AIJob.Status status, String error, String contentHash, boolean cached) {
+        mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())), new Update()
+                .set("status", status)
+                .set("error", error)
+                .set("contentHash", contentHash)
+                .set("cachedResult", cached)
+                .set("finishedAt", LocalDateTime.now())
+                .unset("leaseUntil")
+                .unset("activeKey"), AIJob.class);
+    }
+
+    private void retry(AIJob job, long runAtMillis, int attemptAdjustment, String error) {
+        Update update = new Update()
+                .set("status", AIJob.Status.QUEUED)
+                .set("runAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(runAtMillis), ZoneId.systemDefault()))
+                .set("error", error)
+                .unset("leaseUntil");
+        if (attemptAdjustment != 0) {
+            update.inc("attempts", attemptAdjustment);
+        }
+        mongoTemplate.updateFirst(new Query(where("_id").is(job.getId())), update, AIJob.class);
+    }
+
+    private void evictLyrics(String songId) {
+        evict("songs", "song:" + songId);
+        evict("lyrics", "lyrics:" + songId);
+        evict("lyrics", "synced:" + songId);
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.DA2.songservice.service;
+
+import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.features.AudioFeatureStore;
+import com.DA2.songservice.features.FeaturePage;
+import com.DA2.songservice.features.FeatureQuery;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an AudioFeatureStore in sync with the songs collection and answers feature queries from it.
+ * The store is loaded with a projected scan once the application is ready and rebuilt periodically so
+ * changes made by other instances show up; SongService pushes its own changes immediately.
+ * Until the first load finishes queries go to MongoDB.
+ */
+@Service
+public class AudioFeatureIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AudioFeatureIndex.class);
+
+    private static final String COLLECTION = "songs";
+    private static final String CHORDS_FIELD = "aiAnalysis.chordAnalysis.chords.chord";
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile AudioFeatureStore store;
+    // Changes made while a rebuild scans the collection, replayed onto the new store before it is swapped in
+    private List<Consumer<AudioFeatureStore>> pending;
+
+    @Value("${app.features.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.features.max-page-size:500}")
+    private int maxPageSize;
+
+    public AudioFeatureIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public FeaturePage query(FeatureQuery query, int page, int size) {
+        page = Math.max(0, page);
+        size = Math.min(Math.max(1, size), maxPageSize);
+        AudioFeatureStore current = store;
+        if (current != null) {
+            return current.query(query, page, size);
+        }
+        return queryMongo(query, page, size);
+    }
+
+    public void upsert(Song song) {
+        if (song == null || song.getId() == null) {
+            return;
+        }
+        Song.SongAnalysis analysis = song.getAiAnalysis();
+        String id = song.getId();
+        Consumer<AudioFeatureStore> change;
+        if (analysis == null) {
+            change = s -> s.put(id, null, null, null, null, null, null);
+        } else {
+            String key = analysis.getKey();
+            String mood = analysis.getMood();
+            Double bpm = analysis.getBpm();
+            Double energy = analysis.getEnergy();
+            Double danceability = analysis.getDanceability();
+            List<String> chords = analysis.getChordAnalysis() != null
+                    ? analysis.getChordAnalysis().getUniqueChords() : null;
+            change = s -> s.put(id, key, mood, bpm, energy, danceability, chords);
+        }
+        apply(change);
+    }
+
+    public void remove(String id) {
+        apply(s -> s.remove(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "audio-feature-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.features.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.features.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (pending != null) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        AudioFeatureStore fresh = new AudioFeatureStore();
+        long start = System.currentTimeMillis();
+        try {
+            Document projection = new Document("aiAnalysis.key", 1)
+                    .append("aiAnalysis.mood", 1)
+                    .append("aiAnalysis.bpm", 1)
+                    .append("aiAnalysis.energy", 1)
+                    .append("aiAnalysis.danceability", 1)
+                    .append(CHORDS_FIELD, 1);
+            for (Document song : mongoTemplate.getCollection(COLLECTION).find().projection(projection).batchSize(5000)) {
+                load(fresh, song);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.warn("Audio feature index rebuild failed, keeping the previous index: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            pending.forEach(change -> change.accept(fresh));
+            pending = null;
+            store = fresh;
+        }
+        log.info("Audio feature index built: {} songs in {} ms", fresh.size(), System.currentTimeMillis() - start);
+    }
+
+    private synchronized void apply(Consumer<AudioFeatureStore> change) {
+        if (store != null) {
+            change.accept(store);
+        }
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private static void load(AudioFeatureStore target, Document song) {
+        String id = song.get("_id").toString();
+        Document analysis = song.get("aiAnalysis", Document.class);
+        if (analysis == null) {
+            target.put(id, null, null, null, null, null, null);
+            return;
+        }
+        Set<String> chords = null;
+        Document chordAnalysis = analysis.get("chordAnalysis", Document.class);
+        if (chordAnalysis != null && chordAnalysis.get("chords") instanceof List<?> list) {
+            chords = new LinkedHashSet<>();
+            for (Object chord : list) {
+                if (chord instanceof Document document && document.getString("chord") != null) {
+                    chords.add(document.getString("chord"));
+                }
+            }
+        }
+        target.put(id, analysis.getString("key"), analysis.getString("mood"),
+                number(analysis.get("bpm")), number(analysis.get("energy")),
+                number(analysis.get("danceability")), chords);
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private FeaturePage queryMongo(FeatureQuery featureQuery, int page, int size) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (featureQuery.key() != null) {
+            criteria.add(Criteria.where("aiAnalysis.key").is(featureQuery.key()));
+        }
+        if (featureQuery.mood() != null) {
+            criteria.add(Criteria.where("aiAnalysis.mood").is(featureQuery.mood()));
+        }
+        addRange(criteria, "aiAnalysis.bpm", featureQuery.minBpm(), featureQuery.maxBpm());
+        addRange(criteria, "aiAnalysis.energy", featureQuery.minEnergy(), featureQuery.maxEnergy());
+        addRange(criteria, "aiAnalysis.danceability", featureQuery.minDanceability(), featureQuery.maxDanceability());
+        if (featureQuery.chords() != null && !featureQuery.chords().isEmpty()) {
+            criteria.add(Criteria.where(CHORDS_FIELD).all(featureQuery.chords()));
+        }
+        Query query = criteria.isEmpty() ? new Query()
+                : new Query(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+        long total = mongoTemplate.count(query, COLLECTION);
+
+        query.fields().include("_id");
+        query.with(Sort.by("_id")).skip((long) Math.max(0, page) * size).limit(size);
+        List<String> ids = mongoTemplate.find(query, Document.class, COLLECTION).stream()
+                .map(document -> document.get("_id").toString())
+                .toList();
+        return new FeaturePage(ids, (int) total, page, size);
+    }
+
+    private static void addRange(List<Criteria> criteria, String field, Double min, Double max) {
+        if (min == null && max == null) {
+            return;
+        }
+        Criteria range = Criteria.where(field);
+        if (min != null) {
+            range.gte(min);
+        }
+        if (max != null) {
+            range.lte(max);
+        }
+        criteria.add(range);
+    }
+}
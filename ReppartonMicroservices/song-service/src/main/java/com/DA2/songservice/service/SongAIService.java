@@ -1,9 +1,8 @@
 package com.DA2.songservice.service;
 
 import com.DA2.songservice.client.AIServiceClient;
+import com.DA2.songservice.entity.AIJob;
 import com.DA2.songservice.entity.Song;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -11,90 +10,97 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Requests to the AI service and conversion of its response data into song fields.
+ * Requests are made by AIJobQueue workers; the raw data is what gets cached per audio content.
+ */
 @Service
 public class SongAIService {
 
-    private static final Logger log = LoggerFactory.getLogger(SongAIService.class);
     private final AIServiceClient aiServiceClient;
-    
+
     public SongAIService(AIServiceClient aiServiceClient) {
         this.aiServiceClient = aiServiceClient;
     }
 
-    public Song.SongAnalysis analyzeSong(String fileUrl) {
-        if (!aiServiceClient.isAvailable()) {
-            log.warn("AI Service unavailable, skipping analysis");
-            return null;
+    /**
+     * Runs the request for a job type and returns the "data" part of the response, once it has passed isValid.
+     * Throws AIServiceUnavailableException while the circuit is open and the client's exception on failure.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> request(AIJob.Type type, String fileUrl, String lyrics) {
+        Map<String, Object> response = switch (type) {
+            case ANALYZE -> aiServiceClient.analyzeMusicFile(fileUrl);
+            case EXTRACT_LYRICS -> aiServiceClient.extractLyrics(fileUrl);
+            case SYNC_LYRICS -> aiServiceClient.syncLyrics(fileUrl, lyrics);
+            case ANALYZE_CHORDS -> aiServiceClient.analyzeChords(fileUrl);
+        };
+        if (response == null || !(response.get("data") instanceof Map)) {
+            throw new IllegalStateException("AI Service returned no data for " + type);
         }
-
-        try {
-            Map<String, Object> response = aiServiceClient.analyzeMusicFile(fileUrl);
-            Map<String, Object> data = (Map<String, Object>) response.get("data");
-
-            return Song.SongAnalysis.builder()
-                    .bpm(getDouble(data, "bpm"))
-                    .key((String) data.get("key"))
-                    .mood((String) data.get("mood"))
-                    .energy(getDouble(data, "energy"))
-                    .danceability(getDouble(data, "danceability"))
-                    .analyzedAt(LocalDateTime.now())
-                    .build();
-        } catch (Exception e) {
-            log.error("Failed to analyze song: {}", e.getMessage());
-            return null;
+        Map<String, Object> data = (Map<String, Object>) response.get("data");
+        if (!isValid(type, data)) {
+            throw new IllegalStateException("AI Service returned incomplete data for " + type);
         }
+        return data;
     }
 
-    public String extractLyrics(String fileUrl) {
-        if (!aiServiceClient.isAvailable()) {
-            return null;
+    /**
+     * Whether data has what the converters below need for the job type. Data is cached per audio content and
+     * reused for every song with that audio, so an error or partial answer must not get that far.
+     */
+    public boolean isValid(AIJob.Type type, Map<String, Object> data) {
+        if (data == null || data.containsKey("error")) {
+            return false;
         }
+        return switch (type) {
+            case ANALYZE -> data.get("bpm") instanceof Number || data.get("key") instanceof String;
+            case EXTRACT_LYRICS -> data.get("lyrics") instanceof String;
+            case SYNC_LYRICS -> isListOfMaps(data.get("synced_lyrics"));
+            case ANALYZE_CHORDS -> isListOfMaps(data.get("chords"));
+        };
+    }
 
-        try {
-            Map<String, Object> response = aiServiceClient.extractLyrics(fileUrl);
-            Map<String, Object> data = (Map<String, Object>) response.get("data");
-            return (String) data.get("lyrics");
-        } catch (Exception e) {
-            log.error("Failed to extract lyrics: {}", e.getMessage());
-            return null;
-        }
+    private static boolean isListOfMaps(Object value) {
+        return value instanceof List<?> list && list.stream().allMatch(Map.class::isInstance);
     }
 
-    public List<Song.LyricLine> generateSyncedLyrics(String fileUrl, String lyrics) {
-        if (!aiServiceClient.isAvailable()) {
-            return new ArrayList<>();
-        }
+    public Song.SongAnalysis toAnalysis(Map<String, Object> data) {
+        return Song.SongAnalysis.builder()
+                .bpm(getDouble(data, "bpm"))
+                .key((String) data.get("key"))
+                .mood((String) data.get("mood"))
+                .energy(getDouble(data, "energy"))
+                .danceability(getDouble(data, "danceability"))
+                .analyzedAt(LocalDateTime.now())
+                .build();
+    }
 
-        try {
-            Map<String, Object> response = aiServiceClient.syncLyrics(fileUrl, lyrics);
-            Map<String, Object> data = (Map<String, Object>) response.get("data");
-            List<Map<String, Object>> lines = (List<Map<String, Object>>) data.get("synced_lyrics");
+    public String toLyrics(Map<String, Object> data) {
+        return (String) data.get("lyrics");
+    }
 
-            List<Song.LyricLine> syncedLyrics = new ArrayList<>();
-            for (Map<String, Object> line : lines) {
-                syncedLyrics.add(Song.LyricLine.builder()
-                        .timestamp(getDouble(line, "timestamp"))
-                        .text((String) line.get("text"))
-                        .build());
-            }
+    @SuppressWarnings("unchecked")
+    public List<Song.LyricLine> toSyncedLyrics(Map<String, Object> data) {
+        List<Map<String, Object>> lines = (List<Map<String, Object>>) data.get("synced_lyrics");
+        List<Song.LyricLine> syncedLyrics = new ArrayList<>();
+        if (lines == null) {
             return syncedLyrics;
-        } catch (Exception e) {
-            log.error("Failed to sync lyrics: {}", e.getMessage());
-            return new ArrayList<>();
         }
-    }
-
-    public Song.ChordAnalysis analyzeSongChords(String fileUrl) {
-        if (!aiServiceClient.isAvailable()) {
-            return null;
+        for (Map<String, Object> line : lines) {
+            syncedLyrics.add(Song.LyricLine.builder()
+                    .timestamp(getDouble(line, "timestamp"))
+                    .text((String) line.get("text"))
+                    .build());
         }
+        return syncedLyrics;
+    }
 
-        try {
-            Map<String, Object> response = aiServiceClient.analyzeChords(fileUrl);
-            Map<String, Object> data = (Map<String, Object>) response.get("data");
-            List<Map<String, Object>> chords = (List<Map<String, Object>>) data.get("chords");
-
-            List<Song.Chord> chordList = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    public Song.ChordAnalysis toChordAnalysis(Map<String, Object> data) {
+        List<Map<String, Object>> chords = (List<Map<String, Object>>) data.get("chords");
+        List<Song.Chord> chordList = new ArrayList<>();
+        if (chords != null) {
             for (Map<String, Object> chord : chords) {
                 chordList.add(Song.Chord.builder()
                         .timestamp(getDouble(chord, "timestamp"))
@@ -102,15 +108,11 @@ public class SongAIService {
                         .confidence(getDouble(chord, "confidence"))
                         .build());
             }
-
-            return Song.ChordAnalysis.builder()
-                    .chords(chordList)
-                    .analyzedAt(LocalDateTime.now())
-                    .build();
-        } catch (Exception e) {
-            log.error("Failed to analyze chords: {}", e.getMessage());
-            return null;
         }
+        return Song.ChordAnalysis.builder()
+                .chords(chordList)
+                .analyzedAt(LocalDateTime.now())
+                .build();
     }
 
     private Double getDouble(Map<String, Object> map, String key) {
@@ -120,4 +122,4 @@ public class SongAIService {
         }
         return 0.0;
     }
-}
\ No newline at end of file
+}
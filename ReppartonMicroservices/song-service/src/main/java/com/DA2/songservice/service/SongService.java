@@ -1,6 +1,11 @@
 package com.DA2.songservice.service;
 
+import com.DA2.shared.mongo.CounterUpdater;
+import com.DA2.songservice.entity.AIJob;
 import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.features.FeaturePage;
+import com.DA2.songservice.features.FeatureQuery;
+import com.DA2.songservice.features.SongPage;
 import com.DA2.songservice.repository.SongRepository;
 import org.springframework.stereotype.Service;
 
@@ -8,18 +13,26 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Caching;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.time.LocalDateTime;
 
 @Service
 public class SongService {
     
     private final SongRepository songRepository;
-    private final SongAIService songAIService;
+    private final AIJobQueue aiJobQueue;
+    private final CounterUpdater counterUpdater;
+    private final AudioFeatureIndex audioFeatureIndex;
     
-    public SongService(SongRepository songRepository, SongAIService songAIService) {
+    public SongService(SongRepository songRepository, AIJobQueue aiJobQueue, CounterUpdater counterUpdater,
+                       AudioFeatureIndex audioFeatureIndex) {
         this.songRepository = songRepository;
-        this.songAIService = songAIService;
+        this.aiJobQueue = aiJobQueue;
+        this.counterUpdater = counterUpdater;
+        this.audioFeatureIndex = audioFeatureIndex;
     }
 
     @Cacheable(value = "songs", key = "'public'")
@@ -58,16 +71,17 @@ public class SongService {
     public Song createSong(Song song) {
         song.setCreatedAt(LocalDateTime.now());
         song.setUpdatedAt(LocalDateTime.now());
+        // Set by the AI jobs from the actual file, never taken from the client
+        song.setAudioHash(null);
         
-        // AI Analysis
-        if (song.getFileUrl() != null && !song.getFileUrl().isEmpty()) {
-            Song.SongAnalysis analysis = songAIService.analyzeSong(song.getFileUrl());
-            if (analysis != null) {
-                song.setAiAnalysis(analysis);
-            }
+        Song saved = songRepository.save(song);
+        audioFeatureIndex.upsert(saved);
+
+        // AI Analysis runs in the background, the upload does not wait for it
+        if (saved.getFileUrl() != null && !saved.getFileUrl().isEmpty()) {
+            aiJobQueue.enqueue(AIJob.Type.ANALYZE, saved, saved.getUploadedBy(), null);
         }
-        
-        return songRepository.save(song);
+        return saved;
     }
 
     @CacheEvict(value = "songs", key = "'song:' + #id")
@@ -86,7 +100,9 @@ public class SongService {
         existingSong.setPublic(songUpdate.isPublic());
         existingSong.setUpdatedAt(LocalDateTime.now());
 
-        return songRepository.save(existingSong);
+        Song saved = songRepository.save(existingSong);
+        audioFeatureIndex.upsert(saved);
+        return saved;
     }
 
     @Caching(evict = {
@@ -103,24 +119,23 @@ public class SongService {
         }
 
         songRepository.deleteById(id);
+        audioFeatureIndex.remove(id);
     }
 
-    public Song incrementPlayCount(String id) {
-        Song song = getSongById(id);
-        song.setPlaysCount(song.getPlaysCount() + 1);
-        return songRepository.save(song);
+    // Counters are updated in place with $inc; only the new value is read back
+    public long incrementPlayCount(String id) {
+        return counterUpdater.increment(Song.class, id, "playsCount", 1)
+                .orElseThrow(() -> new RuntimeException("Song not found with id: " + id));
     }
 
-    public Song incrementLikeCount(String id) {
-        Song song = getSongById(id);
-        song.setLikesCount(song.getLikesCount() + 1);
-        return songRepository.save(song);
+    public long incrementLikeCount(String id) {
+        return counterUpdater.increment(Song.class, id, "likesCount", 1)
+                .orElseThrow(() -> new RuntimeException("Song not found with id: " + id));
     }
 
-    public Song decrementLikeCount(String id) {
-        Song song = getSongById(id);
-        song.setLikesCount(Math.max(0, song.getLikesCount() - 1));
-        return songRepository.save(song);
+    public long decrementLikeCount(String id) {
+        return counterUpdater.decrement(Song.class, id, "likesCount", 1)
+                .orElseThrow(() -> new RuntimeException("Song not found with id: " + id));
     }
     
     // ========== LYRIC MANAGEMENT ==========
@@ -139,16 +154,13 @@ public class SongService {
         
         song.setLyrics(lyrics);
         song.setUpdatedAt(LocalDateTime.now());
+        Song saved = songRepository.save(song);
         
-        // Generate synced lyrics
-        if (lyrics != null && !lyrics.isEmpty()) {
-            List<Song.LyricLine> syncedLyrics = songAIService.generateSyncedLyrics(song.getFileUrl(), lyrics);
-            if (syncedLyrics != null && !syncedLyrics.isEmpty()) {
-                song.setSyncedLyrics(syncedLyrics);
-            }
+        // Synced lyrics are generated in the background
+        if (lyrics != null && !lyrics.isEmpty() && saved.getFileUrl() != null && !saved.getFileUrl().isEmpty()) {
+            aiJobQueue.enqueue(AIJob.Type.SYNC_LYRICS, saved, userId, lyrics);
         }
-        
-        return songRepository.save(song);
+        return saved;
     }
     
     @Cacheable(value = "lyrics", key = "'lyrics:' + #id")
@@ -163,7 +175,7 @@ public class SongService {
         return song.getSyncedLyrics();
     }
     
-    public Song extractLyricsFromAudio(String id, String userId) {
+    public AIJob extractLyricsFromAudio(String id, String userId) {
         Song song = getSongById(id);
         
         // Check if user owns the song
@@ -171,21 +183,11 @@ public class SongService {
             throw new RuntimeException("You can only extract lyrics for your own songs");
         }
         
-        // Extract lyrics using AI
-        String extractedLyrics = songAIService.extractLyrics(song.getFileUrl());
-        if (extractedLyrics != null) {
-            song.setLyrics(extractedLyrics);
-            List<Song.LyricLine> syncedLyrics = songAIService.generateSyncedLyrics(song.getFileUrl(), extractedLyrics);
-            if (syncedLyrics != null && !syncedLyrics.isEmpty()) {
-                song.setSyncedLyrics(syncedLyrics);
-            }
-        }
-        song.setUpdatedAt(LocalDateTime.now());
-        
-        return songRepository.save(song);
+        // Extracted lyrics are synced by a follow-up job
+        return aiJobQueue.enqueue(AIJob.Type.EXTRACT_LYRICS, song, userId, null);
     }
     
-    public Song syncLyricsWithAudio(String id, String userId) {
+    public AIJob syncLyricsWithAudio(String id, String userId) {
         Song song = getSongById(id);
         
         // Check if user owns the song
@@ -198,19 +200,12 @@ public class SongService {
             throw new RuntimeException("Lyrics must be set before syncing");
         }
         
-        // Generate synced lyrics
-        List<Song.LyricLine> syncedLyrics = songAIService.generateSyncedLyrics(song.getFileUrl(), song.getLyrics());
-        if (syncedLyrics != null && !syncedLyrics.isEmpty()) {
-            song.setSyncedLyrics(syncedLyrics);
-        }
-        song.setUpdatedAt(LocalDateTime.now());
-        
-        return songRepository.save(song);
+        return aiJobQueue.enqueue(AIJob.Type.SYNC_LYRICS, song, userId, song.getLyrics());
     }
     
     // ========== AI ANALYSIS ==========
     
-    public Song analyzeWithAI(String id, String userId) {
+    public AIJob analyzeWithAI(String id, String userId) {
         Song song = getSongById(id);
         
         // Check if user owns the song
@@ -218,14 +213,15 @@ public class SongService {
             throw new RuntimeException("You can only analyze your own songs");
         }
         
-        // Run AI analysis
-        Song.SongAnalysis analysis = songAIService.analyzeSong(song.getFileUrl());
-        if (analysis != null) {
-            song.setAiAnalysis(analysis);
-        }
-        song.setUpdatedAt(LocalDateTime.now());
-        
-        return songRepository.save(song);
+        return aiJobQueue.enqueue(AIJob.Type.ANALYZE, song, userId, null);
+    }
+
+    public AIJob getAIJob(String jobId) {
+        return aiJobQueue.getJob(jobId);
+    }
+
+    public List<AIJob> getAIJobs(String songId) {
+        return aiJobQueue.getJobsForSong(songId);
     }
     
     public Song.SongAnalysis getAIAnalysis(String id) {
@@ -233,28 +229,22 @@ public class SongService {
         return song.getAiAnalysis();
     }
     
-    public List<Song> getSongsByKey(String key) {
-        // Find songs with specific musical key
-        return songRepository.findAll().stream()
-                .filter(s -> s.getAiAnalysis() != null && key.equals(s.getAiAnalysis().getKey()))
-                .toList();
+    // Feature lookups are answered by the in-memory audio feature index; each page of ids is then loaded in one query
+
+    public SongPage getSongsByKey(String key, int page, int size) {
+        return loadPage(audioFeatureIndex.query(FeatureQuery.byKey(key), page, size));
     }
     
-    public List<Song> getSongsByMood(String mood) {
-        // Find songs with specific mood
-        return songRepository.findAll().stream()
-                .filter(s -> s.getAiAnalysis() != null && mood.equals(s.getAiAnalysis().getMood()))
-                .toList();
+    public SongPage getSongsByMood(String mood, int page, int size) {
+        return loadPage(audioFeatureIndex.query(FeatureQuery.byMood(mood), page, size));
     }
     
-    public List<Song> getSongsByTempoRange(int minBpm, int maxBpm) {
-        // Find songs within tempo range
-        return songRepository.findAll().stream()
-                .filter(s -> s.getAiAnalysis() != null 
-                        && s.getAiAnalysis().getTempo() != null
-                        && s.getAiAnalysis().getTempo() >= minBpm 
-                        && s.getAiAnalysis().getTempo() <= maxBpm)
-                .toList();
+    public SongPage getSongsByTempoRange(int minBpm, int maxBpm, int page, int size) {
+        return loadPage(audioFeatureIndex.query(FeatureQuery.byTempo(minBpm, maxBpm), page, size));
+    }
+
+    public SongPage getSongsByFeatures(FeatureQuery query, int page, int size) {
+        return loadPage(audioFeatureIndex.query(query, page, size));
     }
 
     @Cacheable(value = "chords", key = "'chords:' + #id")
@@ -266,41 +256,33 @@ public class SongService {
         return song.getAiAnalysis().getChordAnalysis();
     }
 
-    @CacheEvict(value = "chords", key = "'chords:' + #id")
-    public Song.ChordAnalysis analyzeSongChords(String id) {
+    public AIJob analyzeSongChords(String id) {
         Song song = getSongById(id);
         if (song.getFileUrl() == null || song.getFileUrl().isEmpty()) {
             throw new RuntimeException("Song file URL is required for chord analysis");
         }
+        return aiJobQueue.enqueue(AIJob.Type.ANALYZE_CHORDS, song, null, null);
+    }
 
-        // Analyze chords using AI
-        Song.ChordAnalysis chordAnalysis = songAIService.analyzeSongChords(song.getFileUrl());
-
-        // Update song with chord analysis
-        if (chordAnalysis != null) {
-            if (song.getAiAnalysis() == null) {
-                song.setAiAnalysis(Song.SongAnalysis.builder()
-                    .chordAnalysis(chordAnalysis)
-                    .analyzedAt(java.time.LocalDateTime.now())
-                    .build());
-            } else {
-                song.getAiAnalysis().setChordAnalysis(chordAnalysis);
-                song.getAiAnalysis().setAnalyzedAt(java.time.LocalDateTime.now());
-            }
-        }
-
-        songRepository.save(song);
-        return chordAnalysis;
+    public SongPage getSongsByChord(String chord, int page, int size) {
+        return loadPage(audioFeatureIndex.query(FeatureQuery.byChord(chord), page, size));
     }
 
-    public List<Song> getSongsByChord(String chord) {
-        // Find songs that contain specific chord in their progression
-        return songRepository.findAll().stream()
-                .filter(s -> s.getAiAnalysis() != null
-                        && s.getAiAnalysis().getChordAnalysis() != null
-                        && s.getAiAnalysis().getChordAnalysis().getUniqueChords() != null
-                        && s.getAiAnalysis().getChordAnalysis().getUniqueChords().contains(chord))
+    // findAllById returns songs in no particular order, so they are put back in index order.
+    // Ids of songs deleted since the index last saw them are dropped.
+    private SongPage loadPage(FeaturePage ids) {
+        if (ids.ids().isEmpty()) {
+            return new SongPage(List.of(), ids.total(), ids.page(), ids.size());
+        }
+        Map<String, Song> byId = new HashMap<>();
+        for (Song song : songRepository.findAllById(ids.ids())) {
+            byId.put(song.getId(), song);
+        }
+        List<Song> songs = ids.ids().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .toList();
+        return new SongPage(songs, ids.total(), ids.page(), ids.size());
     }
 }
 
@@ -0,0 +1,130 @@
+package com.DA2.songservice.features;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioFeatureStoreTest {
+
+    @Test
+    void exactFiltersIntersect() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put("s1", "A minor", "sad", 90.0, 0.2, 0.3, List.of("Am", "F", "G7"));
+        store.put("s2", "A minor", "happy", 120.0, 0.8, 0.9, List.of("Am", "F"));
+        store.put("s3", "C major", "happy", 128.0, 0.9, 0.7, List.of("C", "G7", "F"));
+
+        assertEquals(List.of("s1", "s2"), ids(store, FeatureQuery.byKey("A minor")));
+        assertEquals(List.of("s2", "s3"), ids(store, FeatureQuery.byMood("happy")));
+        assertEquals(List.of("s1", "s3"), ids(store, FeatureQuery.byChord("G7")));
+        assertEquals(List.of("s1"), ids(store, new FeatureQuery(null, null, null, null, null, null, null, null,
+                List.of("Am", "F", "G7"))));
+        assertEquals(List.of("s2"), ids(store, new FeatureQuery("A minor", "happy", null, null, null, null, null, null, null)));
+        // A value the store has never seen matches nothing
+        assertEquals(List.of(), ids(store, FeatureQuery.byChord("Bb")));
+        assertEquals(List.of("s1", "s2", "s3"), ids(store, new FeatureQuery(null, null, null, null, null, null, null, null, null)));
+    }
+
+    @Test
+    void rangesAreInclusiveAndExactWithinABucket() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put("slow", null, null, 110.0, 0.51, null, null);
+        store.put("edge", null, null, 120.0, 0.55, null, null);
+        store.put("inside", null, null, 120.5, 0.59, null, null);
+        store.put("unknown", null, null, null, null, null, null);
+
+        assertEquals(List.of("slow", "edge"), ids(store, FeatureQuery.byTempo(110, 120)));
+        assertEquals(List.of("edge"), ids(store, FeatureQuery.byTempo(120, 120.4)));
+        assertEquals(List.of("edge", "inside"), ids(store, new FeatureQuery(null, null, 115.0, null, null, null, null, null, null)));
+        assertEquals(List.of("slow", "edge"), ids(store, new FeatureQuery(null, null, null, null, null, 0.55, null, null, null)));
+        // Songs without the feature never match a range on it
+        assertEquals(List.of(), ids(store, new FeatureQuery(null, null, null, null, null, null, 0.0, 1.0, null)));
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceTheOldPostings() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        store.put("s1", "A minor", "sad", 90.0, 0.2, 0.3, List.of("Am"));
+        store.put("s2", "C major", "happy", 120.0, 0.8, 0.9, List.of("C"));
+
+        store.put("s1", "D minor", "sad", 100.0, 0.2, 0.3, List.of("Dm"));
+        assertEquals(List.of(), ids(store, FeatureQuery.byKey("A minor")));
+        assertEquals(List.of(), ids(store, FeatureQuery.byChord("Am")));
+        assertEquals(List.of(), ids(store, FeatureQuery.byTempo(85, 95)));
+        assertEquals(List.of("s1"), ids(store, FeatureQuery.byTempo(95, 105)));
+        assertEquals(2, store.size());
+
+        assertTrue(store.remove("s1"));
+        assertFalse(store.remove("s1"));
+        assertEquals(List.of(), ids(store, FeatureQuery.byMood("sad")));
+        assertEquals(List.of("s2"), ids(store, new FeatureQuery(null, null, null, null, null, null, null, null, null)));
+
+        // The freed row is reused without the removed song's features
+        store.put("s3", null, "calm", null, null, null, null);
+        assertEquals(List.of(), ids(store, FeatureQuery.byKey("D minor")));
+        assertEquals(List.of("s3"), ids(store, FeatureQuery.byMood("calm")));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void pagesCountEveryMatch() {
+        AudioFeatureStore store = new AudioFeatureStore();
+        for (int i = 0; i < 25; i++) {
+            store.put("s" + i, "A minor", null, null, null, null, null);
+        }
+
+        FeaturePage first = store.query(FeatureQuery.byKey("A minor"), 0, 10);
+        FeaturePage last = store.query(FeatureQuery.byKey("A minor"), 2, 10);
+        assertEquals(25, first.total());
+        assertEquals(10, first.ids().size());
+        assertTrue(first.hasMore());
+        assertEquals(List.of("s20", "s21", "s22", "s23", "s24"), last.ids());
+        assertFalse(last.hasMore());
+    }
+
+    @Test
+    void matchesABruteForceFilter() {
+        String[] keys = {"C major", "A minor", "G major"};
+        String[] moods = {"happy", "sad", "calm"};
+        String[] chordNames = {"C", "G", "Am", "F", "G7"};
+        Random random = new Random(3);
+        AudioFeatureStore store = new AudioFeatureStore();
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String key = random.nextInt(10) == 0 ? null : keys[random.nextInt(keys.length)];
+            String mood = moods[random.nextInt(moods.length)];
+            Double bpm = random.nextInt(10) == 0 ? null : 60 + random.nextDouble() * 120;
+            double energy = random.nextDouble();
+            Set<String> chords = new HashSet<>(List.of(chordNames[random.nextInt(5)], chordNames[random.nextInt(5)]));
+            store.put("s" + i, key, mood, bpm, energy, null, chords);
+            rows.add(new Row("s" + i, key, bpm, energy, chords));
+        }
+
+        FeatureQuery query = new FeatureQuery("A minor", null, 100.5, 140.25, 0.3, null, null, null, List.of("G7"));
+        // The store keeps features as floats
+        List<String> expected = rows.stream()
+                .filter(row -> "A minor".equals(row.key()) && row.chords().contains("G7"))
+                .filter(row -> row.bpm() != null && row.bpm().floatValue() >= 100.5f && row.bpm().floatValue() <= 140.25f)
+                .filter(row -> (float) row.energy() >= 0.3f)
+                .map(Row::id)
+                .toList();
+        assertFalse(expected.isEmpty());
+        FeaturePage page = store.query(query, 0, 10_000);
+        assertEquals(expected.size(), page.total());
+        assertEquals(expected, page.ids());
+    }
+
+    private record Row(String id, String key, Double bpm, double energy, Set<String> chords) {
+    }
+
+    private static List<String> ids(AudioFeatureStore store, FeatureQuery query) {
+        return store.query(query, 0, 100).ids();
+    }
+}
@@ -0,0 +1,120 @@
+package com.DA2.songservice.loadtest;
+
+import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.features.AudioFeatureStore;
+import com.DA2.songservice.features.FeaturePage;
+import com.DA2.songservice.features.FeatureQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Feature queries over a synthetic catalogue, legacy stream filter versus AudioFeatureStore.
+ * Usage: AudioFeatureBenchmark [songs] [queries]
+ * Legacy: SongService loaded every Song with findAll() and filtered the entities in memory; only the
+ * filter is timed here, the collection scan and document decoding came on top of it.
+ * Indexed: columnar scan of the store, chord filters start from the chord bitmaps; first page of 50 ids.
+ */
+public class AudioFeatureBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final int PAGE_SIZE = 50;
+
+    private static final String[] KEYS = {"C major", "G major", "D major", "A major", "E major", "F major",
+            "A minor", "E minor", "B minor", "D minor", "G minor", "C minor"};
+    private static final String[] MOODS = {"happy", "sad", "energetic", "calm", "romantic", "dark"};
+    private static final String[] CHORDS = {"C", "G", "D", "A", "E", "F", "Am", "Em", "Bm", "Dm", "Gm", "Cm",
+            "C7", "G7", "D7", "A7", "E7", "Fmaj7", "Am7", "Em7", "Dm7", "Bb", "Eb", "F#m"};
+
+    public static void main(String[] args) {
+        int songCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random random = new Random(42);
+
+        List<Song> songs = new ArrayList<>(songCount);
+        AudioFeatureStore store = new AudioFeatureStore();
+        long buildNanos = 0;
+        for (int i = 0; i < songCount; i++) {
+            Song song = randomSong("song-" + i, random);
+            songs.add(song);
+            Song.SongAnalysis analysis = song.getAiAnalysis();
+            long start = System.nanoTime();
+            store.put(song.getId(), analysis.getKey(), analysis.getMood(), analysis.getBpm(), analysis.getEnergy(),
+                    analysis.getDanceability(), analysis.getChordAnalysis().getUniqueChords());
+            buildNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("Audio feature benchmark: %d songs, %d queries per case, store built in %.0f ms%n",
+                songCount, queryCount, buildNanos / 1e6);
+        System.out.println("==========================================================");
+
+        run("by-key", songs, store, queryCount, FeatureQuery.byKey("A minor"),
+                s -> "A minor".equals(s.getAiAnalysis().getKey()));
+        run("by-mood", songs, store, queryCount, FeatureQuery.byMood("energetic"),
+                s -> "energetic".equals(s.getAiAnalysis().getMood()));
+        run("by-tempo 110-125", songs, store, queryCount, FeatureQuery.byTempo(110, 125),
+                s -> s.getAiAnalysis().getTempo() != null
+                        && s.getAiAnalysis().getTempo() >= 110 && s.getAiAnalysis().getTempo() <= 125);
+        run("by-chord Fmaj7", songs, store, queryCount, FeatureQuery.byChord("Fmaj7"),
+                s -> s.getAiAnalysis().getChordAnalysis().getUniqueChords().contains("Fmaj7"));
+        run("A minor, 110-125 bpm, energetic", songs, store, queryCount,
+                new FeatureQuery("A minor", "energetic", 110.0, 125.0, null, null, null, null, null),
+                s -> "A minor".equals(s.getAiAnalysis().getKey())
+                        && "energetic".equals(s.getAiAnalysis().getMood())
+                        && s.getAiAnalysis().getTempo() >= 110 && s.getAiAnalysis().getTempo() <= 125);
+        run("chords Am + F + G7", songs, store, queryCount,
+                new FeatureQuery(null, null, null, null, null, null, null, null, List.of("Am", "F", "G7")),
+                s -> s.getAiAnalysis().getChordAnalysis().getUniqueChords().containsAll(List.of("Am", "F", "G7")));
+    }
+
+    private static void run(String name, List<Song> songs, AudioFeatureStore store, int queryCount,
+                            FeatureQuery query, Predicate<Song> legacyFilter) {
+        long legacy = 0;
+        long indexed = 0;
+        int legacyMatches = 0;
+        FeaturePage page = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            legacy = 0;
+            indexed = 0;
+            for (int i = 0; i < queryCount; i++) {
+                long start = System.nanoTime();
+                legacyMatches = songs.stream().filter(legacyFilter).toList().size();
+                legacy += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                page = store.query(query, 0, PAGE_SIZE);
+                indexed += System.nanoTime() - start;
+            }
+        }
+        if (page.total() != legacyMatches) {
+            throw new IllegalStateException(name + ": results differ " + legacyMatches + " vs " + page.total());
+        }
+        System.out.printf("%-32s %8d matches  legacy %9.2f ms  indexed %7.2f ms  %6.0fx%n",
+                name, legacyMatches, legacy / 1e6 / queryCount, indexed / 1e6 / queryCount, (double) legacy / indexed);
+    }
+
+    private static Song randomSong(String id, Random random) {
+        int chordCount = 3 + random.nextInt(4);
+        List<Song.Chord> chords = new ArrayList<>(chordCount);
+        for (int c = 0; c < chordCount; c++) {
+            chords.add(Song.Chord.builder()
+                    .timestamp((double) c * 4)
+                    .chord(CHORDS[random.nextInt(CHORDS.length)])
+                    .build());
+        }
+        Song.SongAnalysis analysis = Song.SongAnalysis.builder()
+                .key(KEYS[random.nextInt(KEYS.length)])
+                .mood(MOODS[random.nextInt(MOODS.length)])
+                .bpm(60.0 + random.nextInt(121))
+                .energy(random.nextDouble())
+                .danceability(random.nextDouble())
+                .chordAnalysis(Song.ChordAnalysis.builder().chords(chords).build())
+                .build();
+        Song song = new Song();
+        song.setId(id);
+        song.setAiAnalysis(analysis);
+        return song;
+    }
+}
@@ -0,0 +1,75 @@
+package com.DA2.songservice.service;
+
+import com.DA2.songservice.client.AIServiceClient;
+import com.DA2.songservice.entity.AIJob;
+import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.repository.AIJobRepository;
+import com.DA2.songservice.repository.AIResultRepository;
+import com.DA2.songservice.repository.SongRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIJobQueueTest {
+
+    private AIJobRepository jobRepository;
+    private AIJobQueue queue;
+    private Song song;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository = mock(AIJobRepository.class);
+        queue = new AIJobQueue(mock(MongoTemplate.class), jobRepository, mock(AIResultRepository.class),
+                mock(SongRepository.class), mock(SongAIService.class), mock(AIServiceClient.class),
+                mock(CacheManager.class), mock(AudioFeatureIndex.class));
+        song = new Song();
+        song.setId("song1");
+        song.setFileUrl("https://cdn.example.com/song1.mp3");
+        when(jobRepository.findFirstBySongIdAndTypeAndStatusIn(eq("song1"), any(), anyCollection()))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    void concurrentEnqueueReturnsTheJobThatWonTheInsert() {
+        AIJob winner = new AIJob(AIJob.Type.ANALYZE, "song1", "other", song.getFileUrl(), null);
+        when(jobRepository.save(any(AIJob.class))).thenThrow(new DuplicateKeyException("active_key_idx"));
+        when(jobRepository.findByActiveKey("song1:ANALYZE")).thenReturn(Optional.of(winner));
+
+        assertSame(winner, queue.enqueue(AIJob.Type.ANALYZE, song, "user1", null));
+    }
+
+    @Test
+    void enqueueRetriesWhenTheConflictingJobFinishedMeanwhile() {
+        when(jobRepository.save(any(AIJob.class)))
+                .thenThrow(new DuplicateKeyException("active_key_idx"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(jobRepository.findByActiveKey("song1:ANALYZE_CHORDS")).thenReturn(Optional.empty());
+
+        AIJob job = queue.enqueue(AIJob.Type.ANALYZE_CHORDS, song, "user1", null);
+
+        assertEquals("song1:ANALYZE_CHORDS", job.getActiveKey());
+        verify(jobRepository, times(2)).save(any(AIJob.class));
+    }
+
+    @Test
+    void lyricsSyncsAreNeverDeduplicated() {
+        when(jobRepository.save(any(AIJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNull(queue.enqueue(AIJob.Type.SYNC_LYRICS, song, "user1", "la la").getActiveKey());
+    }
+}
@@ -0,0 +1,46 @@
+package com.DA2.songservice.service;
+
+import com.DA2.songservice.client.AIServiceClient;
+import com.DA2.songservice.entity.AIJob;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SongAIServiceTest {
+
+    private final AIServiceClient client = mock(AIServiceClient.class);
+    private final SongAIService service = new SongAIService(client);
+
+    @Test
+    void acceptsCompleteData() {
+        assertTrue(service.isValid(AIJob.Type.ANALYZE, Map.of("bpm", 120.0, "key", "C")));
+        assertTrue(service.isValid(AIJob.Type.EXTRACT_LYRICS, Map.of("lyrics", "")));
+        assertTrue(service.isValid(AIJob.Type.SYNC_LYRICS,
+                Map.of("synced_lyrics", List.of(Map.of("timestamp", 1.5, "text", "la")))));
+        assertTrue(service.isValid(AIJob.Type.ANALYZE_CHORDS, Map.of("chords", List.of())));
+    }
+
+    @Test
+    void rejectsErrorsAndMissingFields() {
+        assertFalse(service.isValid(AIJob.Type.ANALYZE, null));
+        assertFalse(service.isValid(AIJob.Type.ANALYZE, Map.of("error", "model not loaded", "bpm", 0)));
+        assertFalse(service.isValid(AIJob.Type.ANALYZE, Map.of("mood", "happy")));
+        assertFalse(service.isValid(AIJob.Type.EXTRACT_LYRICS, Map.of()));
+        assertFalse(service.isValid(AIJob.Type.SYNC_LYRICS, Map.of("synced_lyrics", List.of("la"))));
+        assertFalse(service.isValid(AIJob.Type.ANALYZE_CHORDS, Map.of("chords", "C G Am F")));
+    }
+
+    @Test
+    void incompleteResponsesFailTheRequestInsteadOfBeingReturned() {
+        when(client.extractLyrics("url")).thenReturn(Map.of("data", Map.of("status", "ok")));
+
+        assertThrows(IllegalStateException.class, () -> service.request(AIJob.Type.EXTRACT_LYRICS, "url", null));
+    }
+}
@@ -0,0 +1,90 @@
+package com.DA2.songservice.service;
+
+import com.DA2.shared.mongo.CounterUpdater;
+import com.DA2.songservice.entity.Song;
+import com.DA2.songservice.features.FeaturePage;
+import com.DA2.songservice.features.FeatureQuery;
+import com.DA2.songservice.features.SongPage;
+import com.DA2.songservice.repository.SongRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SongServiceTest {
+
+    private final SongRepository songRepository = mock(SongRepository.class);
+    private final AudioFeatureIndex audioFeatureIndex = mock(AudioFeatureIndex.class);
+    private final CounterUpdater counterUpdater = mock(CounterUpdater.class);
+    private final SongService service = new SongService(songRepository, mock(AIJobQueue.class),
+            counterUpdater, audioFeatureIndex);
+
+    @Test
+    void countersAreUpdatedInPlace() {
+        when(counterUpdater.increment(Song.class, "s1", "playsCount", 1)).thenReturn(Optional.of(11L));
+        when(counterUpdater.increment(Song.class, "s1", "likesCount", 1)).thenReturn(Optional.of(3L));
+        when(counterUpdater.decrement(Song.class, "s1", "likesCount", 1)).thenReturn(Optional.of(2L));
+
+        assertEquals(11, service.incrementPlayCount("s1"));
+        assertEquals(3, service.incrementLikeCount("s1"));
+        assertEquals(2, service.decrementLikeCount("s1"));
+        verify(songRepository, never()).findById(any());
+        verify(songRepository, never()).save(any());
+    }
+
+    @Test
+    void countersOfMissingSongsFail() {
+        when(counterUpdater.increment(any(), any(), any(), anyLong())).thenReturn(Optional.empty());
+        when(counterUpdater.decrement(any(), any(), any(), anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> service.incrementPlayCount("gone"));
+        assertThrows(RuntimeException.class, () -> service.decrementLikeCount("gone"));
+    }
+
+    @Test
+    void featurePagesAreLoadedInOneQueryAndKeepTheIndexOrder() {
+        when(audioFeatureIndex.query(any(FeatureQuery.class), anyInt(), anyInt()))
+                .thenReturn(new FeaturePage(List.of("c", "a", "gone", "b"), 9, 1, 4));
+        when(songRepository.findAllById(List.of("c", "a", "gone", "b")))
+                .thenReturn(List.of(song("a"), song("b"), song("c")));
+
+        SongPage page = service.getSongsByKey("A minor", 1, 4);
+
+        // A song deleted since it was indexed is dropped rather than returned as null
+        assertEquals(List.of("c", "a", "b"), page.songs().stream().map(Song::getId).toList());
+        assertEquals(9, page.total());
+        assertTrue(page.hasMore());
+        verify(songRepository, times(1)).findAllById(anyIterable());
+        verify(songRepository, never()).findById(any());
+    }
+
+    @Test
+    void emptyPagesDoNotQueryTheRepository() {
+        when(audioFeatureIndex.query(any(FeatureQuery.class), anyInt(), anyInt()))
+                .thenReturn(new FeaturePage(List.of(), 0, 0, 50));
+
+        SongPage page = service.getSongsByChord("Fmaj7", 0, 50);
+
+        assertTrue(page.songs().isEmpty());
+        verify(songRepository, never()).findAllById(anyIterable());
+    }
+
+    private static Song song(String id) {
+        Song song = new Song();
+        song.setId(id);
+        return song;
+    }
+}
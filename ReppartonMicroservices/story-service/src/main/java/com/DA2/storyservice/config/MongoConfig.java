@@ -0,0 +1,15 @@
+package com.DA2.storyservice.config;
+
+import com.DA2.shared.mongo.CounterUpdater;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public CounterUpdater counterUpdater(MongoTemplate mongoTemplate) {
+        return new CounterUpdater(mongoTemplate);
+    }
+}
@@ -1,5 +1,6 @@
 package com.DA2.storyservice.service;
 
+import com.DA2.shared.mongo.CounterUpdater;
 import com.DA2.storyservice.entity.Story;
 import com.DA2.storyservice.entity.StoryLike;
 import com.DA2.storyservice.entity.StoryView;
@@ -28,6 +29,9 @@ public class StoryService {
     @Autowired
     private StoryViewRepository storyViewRepository;
 
+    @Autowired
+    private CounterUpdater counterUpdater;
+
     // Create story
     @CacheEvict(value = "stories", allEntries = true)
     public Story createStory(Story story) {
@@ -95,8 +99,7 @@ public class StoryService {
                     storyViewRepository.save(storyView);
                     
                     // Increment view count
-                    story.incrementViews();
-                    storyRepository.save(story);
+                    counterUpdater.increment(Story.class, storyId, "views", 1);
                     return true;
                 }
             }
@@ -118,8 +121,7 @@ public class StoryService {
                     storyLikeRepository.save(storyLike);
                     
                     // Increment like count
-                    story.incrementLikes();
-                    storyRepository.save(story);
+                    counterUpdater.increment(Story.class, storyId, "likes", 1);
                     return true;
                 }
             }
@@ -134,13 +136,7 @@ public class StoryService {
             storyLikeRepository.deleteByStoryIdAndUserId(storyId, userId);
             
             // Decrement like count
-            Optional<Story> storyOpt = storyRepository.findById(storyId);
-            if (storyOpt.isPresent()) {
-                Story story = storyOpt.get();
-                story.decrementLikes();
-                storyRepository.save(story);
-                return true;
-            }
+            return counterUpdater.decrement(Story.class, storyId, "likes", 1).isPresent();
         }
         return false;
     }
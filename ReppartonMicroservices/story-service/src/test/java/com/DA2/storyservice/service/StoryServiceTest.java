@@ -0,0 +1,68 @@
+package com.DA2.storyservice.service;
+
+import com.DA2.shared.mongo.CounterUpdater;
+import com.DA2.storyservice.entity.Story;
+import com.DA2.storyservice.repository.StoryLikeRepository;
+import com.DA2.storyservice.repository.StoryRepository;
+import com.DA2.storyservice.repository.StoryViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StoryServiceTest {
+
+    private final StoryRepository storyRepository = mock(StoryRepository.class);
+    private final StoryLikeRepository storyLikeRepository = mock(StoryLikeRepository.class);
+    private final StoryViewRepository storyViewRepository = mock(StoryViewRepository.class);
+    private final CounterUpdater counterUpdater = mock(CounterUpdater.class);
+    private final StoryService service = new StoryService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "storyRepository", storyRepository);
+        ReflectionTestUtils.setField(service, "storyLikeRepository", storyLikeRepository);
+        ReflectionTestUtils.setField(service, "storyViewRepository", storyViewRepository);
+        ReflectionTestUtils.setField(service, "counterUpdater", counterUpdater);
+        Story story = new Story("owner", "image", "hello");
+        story.setId("s1");
+        story.setExpiresAt(LocalDateTime.now().plusHours(1));
+        when(storyRepository.findById("s1")).thenReturn(Optional.of(story));
+    }
+
+    @Test
+    void firstViewByAnotherUserIsCountedInPlace() {
+        assertTrue(service.viewStory("s1", "viewer"));
+        verify(counterUpdater).increment(Story.class, "s1", "views", 1);
+
+        // Neither a repeat view nor the owner's own view counts
+        when(storyViewRepository.existsByStoryIdAndUserId("s1", "viewer")).thenReturn(true);
+        assertFalse(service.viewStory("s1", "viewer"));
+        assertFalse(service.viewStory("s1", "owner"));
+        verify(counterUpdater).increment(any(), any(), any(), anyLong());
+        verify(storyRepository, never()).save(any());
+    }
+
+    @Test
+    void likeAndUnlikeUpdateTheLikesCounterInPlace() {
+        assertTrue(service.likeStory("s1", "fan"));
+        verify(counterUpdater).increment(Story.class, "s1", "likes", 1);
+
+        when(storyLikeRepository.existsByStoryIdAndUserId("s1", "fan")).thenReturn(true);
+        when(counterUpdater.decrement(Story.class, "s1", "likes", 1)).thenReturn(Optional.of(0L));
+        assertTrue(service.unlikeStory("s1", "fan"));
+        verify(storyLikeRepository).deleteByStoryIdAndUserId("s1", "fan");
+        verify(storyRepository, never()).save(any());
+    }
+}
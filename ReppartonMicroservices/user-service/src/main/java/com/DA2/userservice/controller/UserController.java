@@ -0,0 +1,29 @@
+package com.DA2.userservice.controller;
+
+import com.DA2.shared.dto.UserSummary;
+import com.DA2.userservice.service.UserSummaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserController {
+
+    private final UserSummaryService userSummaryService;
+
+    /**
+     * Display fields for a batch of users, used by other services to hydrate authors and participants
+     */
+    @PostMapping("/summaries")
+    public ResponseEntity<List<UserSummary>> getSummaries(@RequestBody List<String> userIds) {
+        try {
+            return ResponseEntity.ok(userSummaryService.getSummaries(userIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
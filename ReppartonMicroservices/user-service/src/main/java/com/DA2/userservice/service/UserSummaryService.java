@@ -0,0 +1,46 @@
+package com.DA2.userservice.service;
+
+import com.DA2.shared.dto.UserSummary;
+import com.DA2.userservice.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class UserSummaryService {
+
+    public static final int MAX_IDS = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Resolve many users with one $in query, reading only the displayed fields.
+     * Unknown ids are left out of the result.
+     */
+    public List<UserSummary> getSummaries(Collection<String> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        LinkedHashSet<String> ids = new LinkedHashSet<>(userIds);
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " user ids per request");
+        }
+
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("username", "fullName", "avatarUrl", "isVerified");
+        List<UserSummary> summaries = new ArrayList<>(ids.size());
+        for (User user : mongoTemplate.find(query, User.class)) {
+            summaries.add(new UserSummary(user.getId(), user.getUsername(), user.getFullName(),
+                    user.getAvatarUrl(), user.isVerified()));
+        }
+        return summaries;
+    }
+}
@@ -39,6 +39,23 @@ if "%POSTGRES_PASSWORD%"=="" (
     set MISSING_VARS=%MISSING_VARS% POSTGRES_PASSWORD
 )
 
+REM Search Service (databases it indexes)
+if "%USERS_DATABASE%"=="" (
+    set MISSING_VARS=%MISSING_VARS% USERS_DATABASE
+)
+
+if "%SONGS_DATABASE%"=="" (
+    set MISSING_VARS=%MISSING_VARS% SONGS_DATABASE
+)
+
+if "%PLAYLISTS_DATABASE%"=="" (
+    set MISSING_VARS=%MISSING_VARS% PLAYLISTS_DATABASE
+)
+
+if "%POSTS_DATABASE%"=="" (
+    set MISSING_VARS=%MISSING_VARS% POSTS_DATABASE
+)
+
 REM Security Configuration
 if "%JWT_SECRET%"=="" (
     set MISSING_VARS=%MISSING_VARS% JWT_SECRET
@@ -36,6 +36,12 @@ MISSING_VARS=""
 [ -z "$POSTGRES_USER" ] && MISSING_VARS="$MISSING_VARS POSTGRES_USER"
 [ -z "$POSTGRES_PASSWORD" ] && MISSING_VARS="$MISSING_VARS POSTGRES_PASSWORD"
 
+# Search Service (databases it indexes)
+[ -z "$USERS_DATABASE" ] && MISSING_VARS="$MISSING_VARS USERS_DATABASE"
+[ -z "$SONGS_DATABASE" ] && MISSING_VARS="$MISSING_VARS SONGS_DATABASE"
+[ -z "$PLAYLISTS_DATABASE" ] && MISSING_VARS="$MISSING_VARS PLAYLISTS_DATABASE"
+[ -z "$POSTS_DATABASE" ] && MISSING_VARS="$MISSING_VARS POSTS_DATABASE"
+
 # Security Configuration
 [ -z "$JWT_SECRET" ] && MISSING_VARS="$MISSING_VARS JWT_SECRET"
 
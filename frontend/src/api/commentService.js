@@ -2,6 +2,13 @@ import { API_ENDPOINTS, getAuthToken, createHeaders } from '../config/api.config
 
 const API_URL = API_ENDPOINTS.comments;
 
+// Comment lists are cursor paginated: pass back nextCursor from the previous page to load more
+function pageParams(cursor, size) {
+  const params = new URLSearchParams({ size });
+  if (cursor) params.set("cursor", cursor);
+  return params.toString();
+}
+
 // Add comment to post
 export async function addCommentToPost(postId, content) {
   try {
@@ -55,9 +62,9 @@ export async function addCommentToSong(songId, content) {
 }
 
 // Get comments for post
-export async function getPostComments(postId, page = 0, size = 20) {
+export async function getPostComments(postId, cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/post/${postId}?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/post/${postId}?${pageParams(cursor, size)}`, {
       headers: createHeaders(false),
     });
     
@@ -65,21 +72,22 @@ export async function getPostComments(postId, page = 0, size = 20) {
       throw new Error("Failed to fetch comments");
     }
     
-    return await res.json();
+    const page = await res.json();
+    return page.content || [];
   } catch (error) {
     throw new Error(error.message || "Network error");
   }
 }
 
 // Get comments for song (legacy function name for compatibility)
-export async function getCommentsBySong(songId, page = 0, size = 20) {
-  return getSongComments(songId, page, size);
+export async function getCommentsBySong(songId, cursor = null, size = 20) {
+  return getSongComments(songId, cursor, size);
 }
 
 // Get comments for song
-export async function getSongComments(songId, page = 0, size = 20) {
+export async function getSongComments(songId, cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/song/${songId}?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/song/${songId}?${pageParams(cursor, size)}`, {
       headers: createHeaders(false),
     });
     
@@ -87,7 +95,8 @@ export async function getSongComments(songId, page = 0, size = 20) {
       throw new Error("Failed to fetch comments");
     }
     
-    return await res.json();
+    const page = await res.json();
+    return page.content || [];
   } catch (error) {
     throw new Error(error.message || "Network error");
   }
@@ -146,9 +155,9 @@ export async function addCommentToPlaylist(playlistId, content, parentId = null)
 }
 
 // Get comments for playlist
-export async function getPlaylistComments(playlistId, page = 0, size = 20) {
+export async function getPlaylistComments(playlistId, cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/playlist/${playlistId}?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/playlist/${playlistId}?${pageParams(cursor, size)}`, {
       headers: createHeaders(false),
     });
     
@@ -156,7 +165,8 @@ export async function getPlaylistComments(playlistId, page = 0, size = 20) {
       throw new Error("Failed to fetch comments");
     }
     
-    return await res.json();
+    const page = await res.json();
+    return page.content || [];
   } catch (error) {
     throw new Error(error.message || "Network error");
   }
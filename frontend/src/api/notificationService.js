@@ -4,11 +4,11 @@ const API_URL = API_ENDPOINTS.notifications;
 const WS_URL = WS_ENDPOINTS.notifications;
 
 // Get user notifications
-export async function getUserNotifications(page = 0, size = 20) {
+export async function getUserNotifications(cursor = null, size = 20) {
   try {
     const user = localStorage.getItem("user");
     if (!user) {
-      return { content: [], totalElements: 0 };
+      return { content: [], nextCursor: null, hasMore: false };
     }
     
     const userData = JSON.parse(user);
@@ -16,10 +16,11 @@ export async function getUserNotifications(page = 0, size = 20) {
     
     if (!userId) {
       console.error("No userId found in user data:", userData);
-      return { content: [], totalElements: 0 };
+      return { content: [], nextCursor: null, hasMore: false };
     }
     
-    const res = await fetch(`${API_URL}/${userId}?page=${page}&size=${size}`, {
+    const query = cursor ? `cursor=${encodeURIComponent(cursor)}&size=${size}` : `size=${size}`;
+    const res = await fetch(`${API_URL}/${userId}?${query}`, {
       headers: createHeaders(true),
     });
     
@@ -86,7 +87,8 @@ export async function markAsRead(notificationId) {
 // Mark all notifications as read
 export async function markAllAsRead() {
   try {
-    const res = await fetch(`${API_URL}/read-all`, {
+    const userData = JSON.parse(localStorage.getItem("user") || "{}");
+    const res = await fetch(`${API_URL}/read-all?userId=${userData.id}`, {
       method: "PUT",
       headers: createHeaders(true),
     });
@@ -41,10 +41,17 @@ export async function createPost(content, mediaFile = null) {
   }
 }
 
+// Post lists are cursor paginated: pass back nextCursor from the previous page to load more
+function pageParams(cursor, size) {
+  const params = new URLSearchParams({ size });
+  if (cursor) params.set("cursor", cursor);
+  return params.toString();
+}
+
 // Get all public posts (for discover page)
-export async function getAllPublicPosts(page = 0, size = 20) {
+export async function getAllPublicPosts(cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/public?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/public?${pageParams(cursor, size)}`, {
       headers: createHeaders(false),
     });
     
@@ -59,9 +66,9 @@ export async function getAllPublicPosts(page = 0, size = 20) {
 }
 
 // Get posts by user (for profile page)
-export async function getPostsByUser(userId, page = 0, size = 20) {
+export async function getPostsByUser(userId, cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/user/${userId}?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/user/${userId}?${pageParams(cursor, size)}`, {
       headers: createHeaders(true),
     });
     
@@ -76,9 +83,9 @@ export async function getPostsByUser(userId, page = 0, size = 20) {
 }
 
 // Get user feed (following users' posts)
-export async function getUserFeed(page = 0, size = 20) {
+export async function getUserFeed(cursor = null, size = 20) {
   try {
-    const res = await fetch(`${API_URL}/feed?page=${page}&size=${size}`, {
+    const res = await fetch(`${API_URL}/feed?${pageParams(cursor, size)}`, {
       headers: createHeaders(true),
     });
     
@@ -21,10 +21,11 @@ export async function getAllPosts(page = 0, size = 20) {
   }
 }
 
-// Get personalized feed
-export async function getFeed(page = 0, size = 20) {
+// Get personalized feed (cursor paginated: pass back nextCursor to load more)
+export async function getFeed(cursor = null, size = 20) {
   try {
-    const params = new URLSearchParams({ page, size });
+    const params = new URLSearchParams({ size });
+    if (cursor) params.set("cursor", cursor);
     const res = await fetch(`${POSTS_API_URL}/feed?${params.toString()}`, {
       headers: createHeaders(true),
     });